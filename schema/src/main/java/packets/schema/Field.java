@@ -0,0 +1,26 @@
+package packets.schema;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Field of a {@link Schema} class. Fields are read in the order they are declared in.
+ * <p>
+ * The wire type is derived from the java type of the field unless given. Arrays are prefixed
+ * with their length and the wire type applies to the elements.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface Field {
+    /**
+     * Wire type of the field or of the elements of an array field.
+     */
+    Wire value() default Wire.AUTO;
+
+    /**
+     * Wire type of the length in front of an array field.
+     */
+    Wire length() default Wire.SHORT;
+}
@@ -0,0 +1,22 @@
+package packets.schema;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a packet or data class with a declarative layout. The fields annotated with {@link Field}
+ * are read in declaration order, the {@link SchemaProcessor} generates a class named after the
+ * annotated class with the suffix "Schema" holding the deserializer, the serializer and the
+ * field count of the layout.
+ * <p>
+ * Classes used as fields of a schema must have a no argument constructor and either be schemas
+ * themselves or have hand written deserialize(BufferReader) and serialize(BufferWriter) methods,
+ * with an optional static skip(BufferReader). Schemas of packets also get a static accessor per
+ * field decoding the field on first access if the packet is lazy.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Schema {
+}
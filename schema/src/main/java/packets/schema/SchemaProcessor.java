@@ -0,0 +1,536 @@
+package packets.schema;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Annotation processor generating the code of {@link Schema} classes. The deserializer reads
+ * the fields straight through without reflection, the bytes of consecutive fields with a fixed
+ * size are bounds checked once before reading them. Objects and arrays already held by the
+ * fields are reused when deserializing into an instance a second time, the objects of an array
+ * are kept when the array is resized.
+ * <p>
+ * Schemas of packets also get an accessor per field for lazy packets, a lazy packet is decoded
+ * one field at a time on first access. The offsets of the fields are constant up to the first
+ * field of a variable size, the offsets after are found by skipping over the fields in between
+ * and kept in the packet.
+ */
+@SupportedAnnotationTypes("packets.schema.Schema")
+public class SchemaProcessor extends AbstractProcessor {
+    private static final int HEADER_SIZE = 5;
+    private static final int MAX_LAZY_FIELDS = 64;
+    private static final String READER = "packets.reader.BufferReader";
+    private static final String WRITER = "packets.reader.BufferWriter";
+    private final HashMap<String, List<Spec>> layouts = new HashMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(Schema.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error("Schema must be a class", element);
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            List<Spec> layout = layout(type);
+            if (layout == null) continue;
+            boolean lazy = isPacket(type) && !layout.isEmpty();
+            if (lazy && layout.size() > MAX_LAZY_FIELDS) {
+                error("Packet schema has more than " + MAX_LAZY_FIELDS + " fields", type);
+                continue;
+            }
+            try {
+                write(type, layout, lazy);
+            } catch (IOException e) {
+                error("Schema not generated: " + e.getMessage(), type);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the layout of a schema class from its annotated fields.
+     *
+     * @return Fields of the layout in order, null if the layout has errors.
+     */
+    private List<Spec> layout(TypeElement type) {
+        String name = type.getQualifiedName().toString();
+        if (layouts.containsKey(name)) return layouts.get(name);
+        List<Spec> layout = new ArrayList<>();
+        boolean valid = true;
+        for (Element member : type.getEnclosedElements()) {
+            Field field = member.getAnnotation(Field.class);
+            if (member.getKind() != ElementKind.FIELD || field == null) continue;
+            Spec spec = spec((VariableElement) member, field);
+            if (spec == null) valid = false;
+            else layout.add(spec);
+        }
+        if (!valid) layout = null;
+        layouts.put(name, layout);
+        return layout;
+    }
+
+    /**
+     * Resolves the wire type of a field.
+     */
+    private Spec spec(VariableElement element, Field field) {
+        Set<Modifier> modifiers = element.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.FINAL)) {
+            error("Schema field must be a non private instance field that can be assigned", element);
+            return null;
+        }
+        Spec spec = new Spec();
+        spec.name = element.getSimpleName().toString();
+        TypeMirror type = element.asType();
+        if (type.getKind() == TypeKind.ARRAY) {
+            spec.length = field.length();
+            if (!spec.length.isLength()) {
+                error("Array length must be an integer type", element);
+                return null;
+            }
+            type = ((ArrayType) type).getComponentType();
+            if (type.getKind() == TypeKind.ARRAY) {
+                error("Nested arrays are not supported", element);
+                return null;
+            }
+        }
+        spec.type = processingEnv.getTypeUtils().erasure(type).toString();
+        spec.primitive = type.getKind().isPrimitive();
+        spec.wire = field.value();
+        if (type.getKind() == TypeKind.DECLARED && !spec.type.equals("java.lang.String")) {
+            TypeElement nested = (TypeElement) ((DeclaredType) type).asElement();
+            if (spec.wire != Wire.AUTO) {
+                error("Field of type " + spec.type + " can't have a wire type", element);
+                return null;
+            }
+            if (nested.getAnnotation(Schema.class) != null) {
+                spec.nested = layout(nested);
+                if (spec.nested == null) return null;
+                spec.schema = schemaName(nested);
+            } else if (hasMethod(nested, "deserialize", READER, false) && hasMethod(nested, "serialize", WRITER, false)) {
+                spec.custom = true;
+                spec.customSkip = hasMethod(nested, "skip", READER, true);
+            } else {
+                error("Field of type " + spec.type + " must be a schema or have deserialize(BufferReader) and serialize(BufferWriter) methods", element);
+                return null;
+            }
+        } else if (spec.wire == Wire.AUTO) {
+            spec.wire = wireOf(type);
+            if (spec.wire == null) {
+                error("No wire type for " + spec.type + ", set one on the field", element);
+                return null;
+            }
+        }
+        return spec;
+    }
+
+    /**
+     * Checks a class declares a public method taking a single parameter.
+     */
+    private static boolean hasMethod(TypeElement type, String name, String parameter, boolean isStatic) {
+        for (Element member : type.getEnclosedElements()) {
+            if (member.getKind() != ElementKind.METHOD || !member.getSimpleName().contentEquals(name)) continue;
+            ExecutableElement method = (ExecutableElement) member;
+            Set<Modifier> modifiers = method.getModifiers();
+            if (modifiers.contains(Modifier.PUBLIC) && modifiers.contains(Modifier.STATIC) == isStatic
+                    && method.getParameters().size() == 1 && method.getParameters().get(0).asType().toString().equals(parameter)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if a class extends the packet class, packets can be decoded lazily.
+     */
+    private static boolean isPacket(TypeElement type) {
+        while (type != null) {
+            if (type.getQualifiedName().contentEquals("packets.Packet")) return true;
+            TypeMirror superclass = type.getSuperclass();
+            if (superclass.getKind() != TypeKind.DECLARED) return false;
+            type = (TypeElement) ((DeclaredType) superclass).asElement();
+        }
+        return false;
+    }
+
+    /**
+     * Default wire type of a java type.
+     */
+    private static Wire wireOf(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return Wire.BOOLEAN;
+            case BYTE:
+                return Wire.BYTE;
+            case SHORT:
+                return Wire.SHORT;
+            case INT:
+                return Wire.INT;
+            case LONG:
+                return Wire.UNSIGNED_INT;
+            case FLOAT:
+                return Wire.FLOAT;
+            case DECLARED:
+                return Wire.STRING;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Number of bytes of a layout if every field has a fixed size.
+     *
+     * @return Size in bytes, -1 if the size depends on the values.
+     */
+    private static int fixedSize(List<Spec> layout) {
+        int size = 0;
+        for (Spec spec : layout) {
+            int s = spec.fixedSize();
+            if (s < 0) return -1;
+            size += s;
+        }
+        return size;
+    }
+
+    /**
+     * Smallest number of bytes of a layout, variable fields count with their empty encoding.
+     * Fields of a type with a hand written deserializer count as empty.
+     */
+    private static int minSize(List<Spec> layout) {
+        int size = 0;
+        for (Spec spec : layout) {
+            if (spec.length != null) size += Math.max(spec.length.size, 1);
+            else if (spec.nested != null) size += minSize(spec.nested);
+            else if (spec.custom) size += 0;
+            else if (spec.wire == Wire.STRING) size += 2;
+            else if (spec.wire == Wire.STRING_UTF32) size += 4;
+            else size += Math.max(spec.wire.size, 1);
+        }
+        return size;
+    }
+
+    private String schemaName(TypeElement type) {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+        String name = type.getSimpleName() + "Schema";
+        return pkg.isUnnamed() ? name : pkg.getQualifiedName() + "." + name;
+    }
+
+    private void write(TypeElement type, List<Spec> layout, boolean lazy) throws IOException {
+        String qualified = schemaName(type);
+        String pkg = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String name = type.getSimpleName() + "Schema";
+        String target = type.getQualifiedName().toString();
+        int fixedSize = fixedSize(layout);
+        StringBuilder sb = new StringBuilder();
+        if (!pkg.isEmpty()) sb.append("package ").append(pkg).append(";\n\n");
+        sb.append("import packets.reader.BufferReader;\n");
+        sb.append("import packets.reader.BufferWriter;\n\n");
+        sb.append("/**\n * Generated from the schema of {@link ").append(target).append("}, don't edit.\n */\n");
+        sb.append("public final class ").append(name).append(" {\n");
+        sb.append("    /**\n     * Number of fields in the layout.\n     */\n");
+        sb.append("    public static final int FIELD_COUNT = ").append(layout.size()).append(";\n");
+        sb.append("    /**\n     * Smallest number of bytes of the layout.\n     */\n");
+        sb.append("    public static final int MIN_SIZE = ").append(minSize(layout)).append(";\n");
+        sb.append("    /**\n     * Number of bytes of the layout, -1 if the size depends on the values.\n     */\n");
+        sb.append("    public static final int FIXED_SIZE = ").append(fixedSize).append(";\n");
+        if (lazy) {
+            sb.append("    /**\n     * Offsets of the fields in the packet up to the first field after a variable size.\n     */\n");
+            sb.append("    private static final int[] OFFSETS = {");
+            int offset = HEADER_SIZE;
+            sb.append(offset);
+            for (int i = 0; i + 1 < layout.size() && layout.get(i).fixedSize() >= 0; i++) {
+                offset += layout.get(i).fixedSize();
+                sb.append(", ").append(offset);
+            }
+            sb.append("};\n");
+        }
+        sb.append("\n    private ").append(name).append("() {\n    }\n\n");
+
+        sb.append("    /**\n     * Deserializes the fields of the schema into an instance.\n     *\n");
+        sb.append("     * @param p      Instance receiving the fields.\n");
+        sb.append("     * @param buffer Data that needs deserializing.\n     */\n");
+        sb.append("    public static void deserialize(").append(target).append(" p, BufferReader buffer) {\n");
+        int i = 0;
+        while (i < layout.size()) {
+            // fixed size fields up to the length of an array are checked at once
+            int run = 0;
+            int end = i;
+            while (end < layout.size()) {
+                Spec spec = layout.get(end);
+                int size = spec.length != null ? spec.length.size : spec.fixedSize();
+                if (size < 0) break;
+                run += size;
+                end++;
+                if (spec.length != null) break;
+            }
+            if (end > i + 1) {
+                sb.append("        buffer.require(").append(run).append(");\n");
+            }
+            if (end == i) end++;
+            for (; i < end; i++) readField(sb, "        ", layout.get(i));
+        }
+        sb.append("    }\n\n");
+
+        sb.append("    /**\n     * Serializes the fields of the schema from an instance.\n     *\n");
+        sb.append("     * @param p      Instance holding the fields.\n");
+        sb.append("     * @param writer Buffer receiving the data.\n     */\n");
+        sb.append("    public static void serialize(").append(target).append(" p, BufferWriter writer) {\n");
+        for (Spec spec : layout) writeField(sb, "        ", spec);
+        sb.append("    }\n\n");
+
+        sb.append("    /**\n     * Moves the buffer past the fields of the schema without deserializing them.\n     *\n");
+        sb.append("     * @param buffer Data to skip.\n     */\n");
+        sb.append("    public static void skip(BufferReader buffer) {\n");
+        int pending = 0;
+        for (Spec spec : layout) {
+            int size = spec.fixedSize();
+            if (size >= 0) {
+                pending += size;
+                continue;
+            }
+            if (pending > 0) sb.append("        buffer.skip(").append(pending).append(");\n");
+            pending = 0;
+            skipField(sb, "        ", spec);
+        }
+        if (pending > 0) sb.append("        buffer.skip(").append(pending).append(");\n");
+        sb.append("    }\n");
+
+        if (lazy) writeLazy(sb, target, layout);
+        sb.append("}\n");
+
+        try (Writer out = processingEnv.getFiler().createSourceFile(qualified, type).openWriter()) {
+            out.write(sb.toString());
+        }
+    }
+
+    /**
+     * Accessors of the fields of a lazy packet and the decoding of single fields.
+     */
+    private static void writeLazy(StringBuilder sb, String target, List<Spec> layout) {
+        for (int i = 0; i < layout.size(); i++) {
+            Spec spec = layout.get(i);
+            sb.append("\n    /**\n     * Field ").append(spec.name).append(", decoded on first access if the packet is lazy.\n     *\n");
+            sb.append("     * @param p Packet holding the field.\n");
+            sb.append("     * @return Value of the field.\n     */\n");
+            sb.append("    public static ").append(spec.type).append(spec.length != null ? "[]" : "").append(" get")
+                    .append(Character.toUpperCase(spec.name.charAt(0))).append(spec.name.substring(1)).append("(").append(target).append(" p) {\n");
+            sb.append("        if (!p.isDecoded(").append(i).append(")) decode(p, ").append(i).append(");\n");
+            sb.append("        return p.").append(spec.name).append(";\n");
+            sb.append("    }\n");
+        }
+
+        sb.append("\n    /**\n     * Decodes every field of a lazy packet not decoded yet, nothing to do for a packet deserialized up front.\n     *\n");
+        sb.append("     * @param p Packet holding the fields.\n     */\n");
+        sb.append("    public static void decodeAll(").append(target).append(" p) {\n");
+        sb.append("        for (int field = 0; field < FIELD_COUNT; field++) {\n");
+        sb.append("            if (!p.isDecoded(field)) decode(p, field);\n");
+        sb.append("        }\n");
+        sb.append("    }\n");
+
+        sb.append("\n    /**\n     * Decodes a single field of a lazy packet, the offset of the next field is kept.\n     */\n");
+        sb.append("    private static void decode(").append(target).append(" p, int field) {\n");
+        sb.append("        BufferReader buffer = p.fieldReader(offset(p, field));\n");
+        sb.append("        switch (field) {\n");
+        for (int i = 0; i < layout.size(); i++) {
+            sb.append("            case ").append(i).append(": {\n");
+            readField(sb, "                ", layout.get(i));
+            sb.append("                break;\n            }\n");
+        }
+        sb.append("        }\n");
+        sb.append("        p.setDecoded(field);\n");
+        sb.append("        if (field + 1 >= OFFSETS.length && field + 1 < FIELD_COUNT) p.getOffsets(FIELD_COUNT)[field + 1] = buffer.getIndex();\n");
+        sb.append("    }\n");
+
+        sb.append("\n    /**\n     * Offset of a field in a lazy packet, found by skipping from the closest known offset.\n     */\n");
+        sb.append("    private static int offset(").append(target).append(" p, int field) {\n");
+        sb.append("        if (field < OFFSETS.length) return OFFSETS[field];\n");
+        sb.append("        int[] offsets = p.getOffsets(FIELD_COUNT);\n");
+        sb.append("        if (offsets[field] != 0) return offsets[field];\n");
+        sb.append("        int known = field - 1;\n");
+        sb.append("        while (known >= OFFSETS.length && offsets[known] == 0) known--;\n");
+        sb.append("        BufferReader buffer = p.fieldReader(known < OFFSETS.length ? OFFSETS[known] : offsets[known]);\n");
+        sb.append("        for (int i = known; i < field; i++) {\n");
+        sb.append("            skipField(i, buffer);\n");
+        sb.append("            offsets[i + 1] = buffer.getIndex();\n");
+        sb.append("        }\n");
+        sb.append("        return offsets[field];\n");
+        sb.append("    }\n");
+
+        sb.append("\n    private static void skipField(int field, BufferReader buffer) {\n");
+        sb.append("        switch (field) {\n");
+        for (int i = 0; i < layout.size(); i++) {
+            sb.append("            case ").append(i).append(": {\n");
+            skipField(sb, "                ", layout.get(i));
+            sb.append("                break;\n            }\n");
+        }
+        sb.append("        }\n");
+        sb.append("    }\n");
+    }
+
+    private static void readField(StringBuilder sb, String indent, Spec spec) {
+        String field = "p." + spec.name;
+        if (spec.length == null) {
+            readValue(sb, indent, spec, field);
+            return;
+        }
+        String length = spec.name + "Length";
+        sb.append(indent).append("int ").append(length).append(" = buffer.").append(spec.length.reader).append("();\n");
+        if (spec.wire == Wire.BYTE) {
+            sb.append(indent).append(field).append(" = buffer.readBytes(").append(length).append(");\n");
+            return;
+        }
+        int size = spec.elementSize();
+        if (size > 0) {
+            sb.append(indent).append("buffer.require(").append(size == 1 ? length : "(long) " + length + " * " + size).append(");\n");
+        }
+        if (spec.primitive || spec.type.equals("java.lang.String")) {
+            sb.append(indent).append("if (").append(field).append(" == null || ").append(field).append(".length != ").append(length).append(") ")
+                    .append(field).append(" = new ").append(spec.type).append("[").append(length).append("];\n");
+        } else {
+            // objects already held are kept when the length changes
+            sb.append(indent).append("if (").append(field).append(" == null) ").append(field).append(" = new ").append(spec.type).append("[").append(length).append("];\n");
+            sb.append(indent).append("else if (").append(field).append(".length != ").append(length).append(") ")
+                    .append(field).append(" = java.util.Arrays.copyOf(").append(field).append(", ").append(length).append(");\n");
+        }
+        sb.append(indent).append("for (int i = 0; i < ").append(length).append("; i++) {\n");
+        readValue(sb, indent + "    ", spec, field + "[i]");
+        sb.append(indent).append("}\n");
+    }
+
+    private static void readValue(StringBuilder sb, String indent, Spec spec, String target) {
+        if (spec.nested == null && !spec.custom) {
+            sb.append(indent).append(target).append(" = ").append(spec.readValue()).append(";\n");
+            return;
+        }
+        sb.append(indent).append("if (").append(target).append(" == null) ").append(target).append(" = new ").append(spec.type).append("();\n");
+        if (spec.nested != null) {
+            sb.append(indent).append(spec.schema).append(".deserialize(").append(target).append(", buffer);\n");
+        } else {
+            sb.append(indent).append(target).append(".deserialize(buffer);\n");
+        }
+    }
+
+    private static void writeField(StringBuilder sb, String indent, Spec spec) {
+        String field = "p." + spec.name;
+        if (spec.length == null) {
+            writeValue(sb, indent, spec, field);
+            return;
+        }
+        String length = spec.name + "Length";
+        sb.append(indent).append("int ").append(length).append(" = ").append(field).append(" == null ? 0 : ").append(field).append(".length;\n");
+        sb.append(indent).append("writer.").append(spec.length.writer).append("(").append(length).append(");\n");
+        if (spec.wire == Wire.BYTE) {
+            sb.append(indent).append("if (").append(length).append(" > 0) writer.writeBytes(").append(field).append(");\n");
+            return;
+        }
+        sb.append(indent).append("for (int i = 0; i < ").append(length).append("; i++) {\n");
+        writeValue(sb, indent + "    ", spec, field + "[i]");
+        sb.append(indent).append("}\n");
+    }
+
+    private static void writeValue(StringBuilder sb, String indent, Spec spec, String source) {
+        if (spec.nested != null) {
+            sb.append(indent).append(spec.schema).append(".serialize(").append(source).append(", writer);\n");
+        } else if (spec.custom) {
+            sb.append(indent).append(source).append(".serialize(writer);\n");
+        } else {
+            sb.append(indent).append("writer.").append(spec.wire.writer).append("(").append(source).append(");\n");
+        }
+    }
+
+    private static void skipField(StringBuilder sb, String indent, Spec spec) {
+        if (spec.length == null) {
+            skipValue(sb, indent, spec);
+            return;
+        }
+        String length = spec.name + "Length";
+        sb.append(indent).append("int ").append(length).append(" = buffer.").append(spec.length.reader).append("();\n");
+        int size = spec.elementSize();
+        if (size > 0) {
+            sb.append(indent).append("buffer.skip(").append(size == 1 ? length : length + " * " + size).append(");\n");
+            return;
+        }
+        sb.append(indent).append("for (int i = 0; i < ").append(length).append("; i++) {\n");
+        skipValue(sb, indent + "    ", spec);
+        sb.append(indent).append("}\n");
+    }
+
+    private static void skipValue(StringBuilder sb, String indent, Spec spec) {
+        sb.append(indent);
+        if (spec.nested != null) sb.append(spec.schema).append(".skip(buffer);\n");
+        else if (spec.custom && spec.customSkip) sb.append(spec.type).append(".skip(buffer);\n");
+        else if (spec.custom) sb.append("new ").append(spec.type).append("().deserialize(buffer);\n");
+        else if (spec.wire == Wire.STRING) sb.append("buffer.skipString();\n");
+        else if (spec.wire == Wire.STRING_UTF32) sb.append("buffer.skip(buffer.readInt());\n");
+        else if (spec.wire == Wire.COMPRESSED_INT) sb.append("buffer.readCompressedInt();\n");
+        else sb.append("buffer.skip(").append(spec.wire.size).append(");\n");
+    }
+
+    private void error(String message, Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * Field of a layout with its wire type.
+     */
+    private static class Spec {
+        String name;
+        String type;
+        boolean primitive;
+        Wire wire;
+        Wire length;
+        List<Spec> nested;
+        String schema;
+        boolean custom;
+        boolean customSkip;
+
+        /**
+         * Number of bytes of the field if fixed.
+         */
+        int fixedSize() {
+            if (length != null) return -1;
+            return elementSize();
+        }
+
+        /**
+         * Number of bytes of a single value of the field if fixed.
+         */
+        int elementSize() {
+            if (custom) return -1;
+            if (nested != null) return SchemaProcessor.fixedSize(nested);
+            return wire.size;
+        }
+
+        /**
+         * Expression reading a value of the field, cast to a primitive field of another type.
+         */
+        String readValue() {
+            String read = "buffer." + wire.reader + "()";
+            return primitive && !type.equals(wire.type) ? "(" + type + ") " + read : read;
+        }
+    }
+}
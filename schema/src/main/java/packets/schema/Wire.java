@@ -0,0 +1,50 @@
+package packets.schema;
+
+/**
+ * Wire types of the rotmg buffer format with the methods of the buffer reader and writer
+ * handling them.
+ */
+public enum Wire {
+    AUTO(null, null, null, -1),
+    BOOLEAN("readBoolean", "writeBoolean", "boolean", 1),
+    BYTE("readByte", "writeByte", "byte", 1),
+    UNSIGNED_BYTE("readUnsignedByte", "writeByte", "int", 1),
+    SHORT("readShort", "writeShort", "short", 2),
+    UNSIGNED_SHORT("readUnsignedShort", "writeShort", "int", 2),
+    INT("readInt", "writeInt", "int", 4),
+    UNSIGNED_INT("readUnsignedInt", "writeUnsignedInt", "long", 4),
+    FLOAT("readFloat", "writeFloat", "float", 4),
+    COMPRESSED_INT("readCompressedInt", "writeCompressedInt", "int", -1),
+    STRING("readString", "writeString", "java.lang.String", -1),
+    STRING_UTF32("readStringUTF32", "writeStringUTF32", "java.lang.String", -1);
+
+    final String reader;
+    final String writer;
+    final String type;
+    final int size;
+
+    Wire(String reader, String writer, String type, int size) {
+        this.reader = reader;
+        this.writer = writer;
+        this.type = type;
+        this.size = size;
+    }
+
+    /**
+     * Number of bytes of the type on the wire.
+     *
+     * @return Size in bytes, -1 if the size depends on the value.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Checks if the type can be used as the length of an array.
+     *
+     * @return True for integer types.
+     */
+    boolean isLength() {
+        return this == BYTE || this == UNSIGNED_BYTE || this == SHORT || this == UNSIGNED_SHORT || this == INT || this == COMPRESSED_INT;
+    }
+}
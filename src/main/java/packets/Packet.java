@@ -1,6 +1,8 @@
 package packets;
 
+import packets.packetcapture.pconstructor.PacketBuffer;
 import packets.reader.BufferReader;
+import packets.reader.FastBufferReader;
 
 /**
  * Abstract packet class for all incoming or outgoing packets.
@@ -8,14 +10,172 @@ import packets.reader.BufferReader;
 public abstract class Packet {
 
     private byte[] data;
+    private int connectionId;
+    private PacketBuffer buffer;
+    private boolean retained;
+    private boolean pinned;
+    private int retains;
+    private long decoded = -1L;
+    private int[] offsets;
 
+    /**
+     * Bytes of the packet including the header. Copied up front by the packet processor unless
+     * copy payload is disabled, the bytes are then copied out of the packet buffer on the first
+     * call and only available while the packet is emitted or after retaining the packet.
+     *
+     * @return Bytes of the packet, null if no longer available.
+     */
     public byte[] getPayload() {
+        if (data == null && buffer != null) data = buffer.copy();
         return data;
     }
+
     public void setData(byte[] data) {
         this.data = data;
     }
 
+    /**
+     * Buffer holding the bytes of the packet, only set while the packet is emitted
+     * unless the packet is retained.
+     *
+     * @return Buffer of the packet or null.
+     */
+    public PacketBuffer getBuffer() {
+        return buffer;
+    }
+
+    public void setBuffer(PacketBuffer buffer) {
+        this.buffer = buffer;
+        retained = false;
+        retains = 0;
+    }
+
+    /**
+     * Keeps the packet buffer from being reused after the packet is emitted, a pooled packet
+     * is also kept out of its pool. Must be called by the listener while it processes the
+     * packet, a pooled packet is reused as soon as the listeners returned. Every listener
+     * keeping the packet retains it and must follow up with its own {@link #release()} once
+     * the bytes are no longer needed, the buffer is kept until the last retain is released.
+     *
+     * @return This packet.
+     */
+    public synchronized Packet retain() {
+        pinned = true;
+        retains++;
+        if (buffer != null && !retained) {
+            buffer = buffer.retain();
+            retained = true;
+        }
+        return this;
+    }
+
+    /**
+     * Releases a retain of {@link #retain()}. The buffer is released once every retain is
+     * released, packets not retained are left alone.
+     */
+    public synchronized void release() {
+        if (retains == 0 || --retains > 0) return;
+        if (retained) buffer.release();
+        retained = false;
+        buffer = null;
+    }
+
+    public synchronized boolean isRetained() {
+        return retained;
+    }
+
+    /**
+     * Checks if {@link #retain()} was called on the packet, pinned packets are never reused
+     * from a pool.
+     *
+     * @return True if the packet was retained.
+     */
+    public boolean isPinned() {
+        return pinned;
+    }
+
+    /**
+     * Clears the state kept next to the fields before the packet is reused from a pool, the
+     * fields are overwritten by the next deserialize.
+     */
+    public void recycle() {
+        data = null;
+        buffer = null;
+        retained = false;
+        pinned = false;
+        retains = 0;
+        decoded = -1L;
+        offsets = null;
+    }
+
+    /**
+     * Id of the TCP connection the packet was received on. Used to tell packets of
+     * multiple game clients on the same host apart.
+     *
+     * @return Connection id of the packet.
+     */
+    public int getConnectionId() {
+        return connectionId;
+    }
+
+    public void setConnectionId(int connectionId) {
+        this.connectionId = connectionId;
+    }
+
+    /**
+     * Marks the packet as lazy, the fields are not deserialized up front but decoded from the
+     * packet buffer one at a time on first access through the accessors generated from the
+     * schema of the packet. The public fields of a lazy packet only hold values after their
+     * accessor was called, toString decodes the remaining fields first. Reading fields after
+     * the packet is emitted requires {@link #retain()}.
+     */
+    public void setLazy() {
+        decoded = 0;
+        offsets = null;
+    }
+
+    /**
+     * Checks if a field of the packet holds its value, always true unless the packet is lazy.
+     *
+     * @param field Index of the field in the schema.
+     * @return True if the field is decoded.
+     */
+    public boolean isDecoded(int field) {
+        return (decoded & 1L << field) != 0;
+    }
+
+    /**
+     * Marks a field of a lazy packet as decoded.
+     *
+     * @param field Index of the field in the schema.
+     */
+    public void setDecoded(int field) {
+        decoded |= 1L << field;
+    }
+
+    /**
+     * Offsets of the fields of a lazy packet found so far, 0 while unknown.
+     *
+     * @param fields Number of fields in the schema.
+     * @return Offsets kept in the packet.
+     */
+    public int[] getOffsets(int fields) {
+        if (offsets == null) offsets = new int[fields];
+        return offsets;
+    }
+
+    /**
+     * Reader of the packet buffer for decoding a field of a lazy packet.
+     *
+     * @param index Index of the field in the packet including the header.
+     * @return Reader positioned at the field.
+     * @throws IllegalStateException If the buffer was released after the packet was emitted.
+     */
+    public BufferReader fieldReader(int index) {
+        if (buffer == null) throw new IllegalStateException("Lazy packet read after it was emitted, retain the packet to keep its buffer");
+        return new FastBufferReader(buffer.array(), buffer.offset(), buffer.length(), index);
+    }
+
     /**
      * An interface to be used as a class factory for different packet types.
      */
@@ -1,29 +1,34 @@
 package packets.data;
 
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
+import packets.schema.Wire;
 
 /**
  * Death fame data storing name and fame given on death
  */
+@Schema
 public class FameData {
 
     /**
      * Name of the achievement.
      */
+    @Field
     String achievement;
     /**
      * Fame level
      */
+    @Field(Wire.COMPRESSED_INT)
     int fameLevel;
     /**
      * Fame
      */
+    @Field(Wire.COMPRESSED_INT)
     int fameAdded;
 
     public FameData deserialize(BufferReader buffer) {
-        achievement = buffer.readString();
-        fameLevel = buffer.readCompressedInt();
-        fameAdded = buffer.readCompressedInt();
+        FameDataSchema.deserialize(this, buffer);
         return this;
     }
 
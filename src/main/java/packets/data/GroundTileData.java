@@ -1,24 +1,31 @@
 package packets.data;
 
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
+import packets.schema.Wire;
 import assets.AssetMissingException;
 import assets.IdToAsset;
 
 /**
  * Tile data class storing tile coordinates (x and y) and type of each tile.
  */
+@Schema
 public class GroundTileData {
     /**
      * The X coordinate of this tile.
      */
+    @Field
     public short x;
     /**
      * The Y coordinate of this tile.
      */
+    @Field
     public short y;
     /**
      * The tile type of this tile.
      */
+    @Field(Wire.UNSIGNED_SHORT)
     public int type;
 
     /**
@@ -28,9 +35,7 @@ public class GroundTileData {
      * @return Returns this object after deserializing.
      */
     public GroundTileData deserialize(BufferReader buffer) {
-        x = buffer.readShort();
-        y = buffer.readShort();
-        type = buffer.readUnsignedShort();
+        GroundTileDataSchema.deserialize(this, buffer);
         return this;
     }
 
@@ -1,18 +1,23 @@
 package packets.data;
 
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Movement data of entity moving to point x and y with delta time.
  */
+@Schema
 public class MoveRecord {
     /**
      * The client time of this move record.
      */
+    @Field
     public int time;
     /**
      * The position where the entity is moving to.
      */
+    @Field
     public WorldPosData pos;
 
     /**
@@ -22,10 +27,7 @@ public class MoveRecord {
      * @return Returns this object after deserializing.
      */
     public MoveRecord deserialize(BufferReader buffer) {
-        time = buffer.readInt();
-
-        pos = new WorldPosData().deserialize(buffer);
-
+        MoveRecordSchema.deserialize(this, buffer);
         return this;
     }
 
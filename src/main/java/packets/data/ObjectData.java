@@ -1,17 +1,23 @@
 package packets.data;
 
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
+import packets.schema.Wire;
 import assets.AssetMissingException;
 import assets.IdToAsset;
 
+@Schema
 public class ObjectData {
     /**
      * The type of this object
      */
+    @Field(Wire.UNSIGNED_SHORT)
     public int objectType;
     /**
      * The status of this object
      */
+    @Field
     public ObjectStatusData status;
 
     /**
@@ -21,9 +27,7 @@ public class ObjectData {
      * @return Returns this object after deserializing.
      */
     public ObjectData deserialize(BufferReader buffer) {
-        objectType = buffer.readUnsignedShort();
-        status = new ObjectStatusData().deserialize(buffer);
-
+        ObjectDataSchema.deserialize(this, buffer);
         return this;
     }
 
@@ -1,20 +1,28 @@
 package packets.data;
 
+import packets.packetcapture.register.IUpdateVisitor;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
+import packets.schema.Wire;
 import util.Util;
 
+@Schema
 public class ObjectStatusData {
     /**
      * The object id of the object which this status is for
      */
+    @Field(Wire.COMPRESSED_INT)
     public int objectId;
     /**
      * The position of the object which this status is for
      */
+    @Field
     public WorldPosData pos;
     /**
      * A list of stats for the object which this status is for
      */
+    @Field(length = Wire.COMPRESSED_INT)
     public StatData[] stats;
 
     /**
@@ -24,15 +32,26 @@ public class ObjectStatusData {
      * @return Returns this object after deserializing.
      */
     public ObjectStatusData deserialize(BufferReader buffer) {
-        objectId = buffer.readCompressedInt();
-        pos = new WorldPosData().deserialize(buffer);
+        ObjectStatusDataSchema.deserialize(this, buffer);
+        return this;
+    }
 
-        stats = new StatData[buffer.readCompressedInt()];
-        for (int i = 0; i < stats.length; i++) {
-            stats[i] = new StatData().deserialize(buffer);
+    /**
+     * Reads a status from the buffer into a visitor.
+     *
+     * @param buffer  Data that needs reading.
+     * @param visitor Visitor receiving the status.
+     */
+    public static void visit(BufferReader buffer, IUpdateVisitor visitor) {
+        int objectId = buffer.readCompressedInt();
+        float x = buffer.readFloat();
+        float y = buffer.readFloat();
+        visitor.onStatusStart(objectId, x, y);
+        int stats = buffer.readCompressedInt();
+        for (int i = 0; i < stats; i++) {
+            StatData.visit(buffer, visitor, objectId);
         }
-
-        return this;
+        visitor.onStatusEnd(objectId);
     }
 
     @Override
@@ -1,54 +1,68 @@
 package packets.data;
 
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 import java.util.Arrays;
 
+@Schema
 public class QuestData {
     /**
      * The id of this quest
      */
+    @Field
     public String id;
     /**
      * The name of this quest
      */
+    @Field
     public String name;
     /**
      * The description of this quest
      */
+    @Field
     public String description;
     /**
      * The expiration time of this quest
      */
+    @Field
     public String expiration;
+    /**
+     * The category of this quest
+     */
+    @Field
+    public int category;
+    /**
+     * Unknown
+     */
+    @Field
+    public int unknownInt;
     /**
      * The list of item IDs which are required to complete this quest
      */
+    @Field
     public int[] requirements;
     /**
      * The list of item IDs which are awarded upon completion of this quest
      */
+    @Field
     public int[] rewards;
     /**
      * Whether or not this quest has been completed
      */
+    @Field
     public boolean completed;
     /**
      * If the quest has multiple rewards and the user needs to pick one.
      */
+    @Field
     public boolean itemOfChoice;
     /**
      * Whether or not the quest is repeatable
      */
+    @Field
     public boolean repeatable;
-    /**
-     * The category of this quest
-     */
-    public int category;
-    /**
-     * Unknown
-     */
-    public int unknownInt;
 
     /**
      * Deserializer method to extract data from the buffer.
@@ -57,26 +71,7 @@ public class QuestData {
      * @return Returns this object after deserializing.
      */
     public QuestData deserialize(BufferReader buffer) {
-        id = buffer.readString();
-        name = buffer.readString();
-        description = buffer.readString();
-        expiration = buffer.readString();
-        category = buffer.readInt();
-        unknownInt = buffer.readInt();
-
-        requirements = new int[buffer.readShort()];
-        for (int i = 0; i < requirements.length; i++) {
-            requirements[i] = buffer.readInt();
-        }
-        rewards = new int[buffer.readShort()];
-        for (int i = 0; i < rewards.length; i++) {
-            rewards[i] = buffer.readInt();
-        }
-
-        completed = buffer.readBoolean();
-        itemOfChoice = buffer.readBoolean();
-        repeatable = buffer.readBoolean();
-
+        QuestDataSchema.deserialize(this, buffer);
         return this;
     }
 
@@ -1,20 +1,26 @@
 package packets.data;
 
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
+@Schema
 public class SlotObjectData {
     /**
      * The object id of the entity which owns the slot
      */
+    @Field
     public int objectId;
     /**
      * The index of the slot - weapon=0, ability=1, armor=2, ring=3
      * and inventory going from 4 to 11, backpack from 12 to 19
      */
+    @Field
     public int slotId;
     /**
      * The item id of the item in the slot, or -1 if it is empty
      */
+    @Field
     public int objectType;
 
     /**
@@ -24,10 +30,7 @@ public class SlotObjectData {
      * @return Returns this object after deserializing.
      */
     public SlotObjectData deserialize(BufferReader buffer) {
-        objectId = buffer.readInt();
-        slotId = buffer.readInt();
-        objectType = buffer.readInt();
-
+        SlotObjectDataSchema.deserialize(this, buffer);
         return this;
     }
 
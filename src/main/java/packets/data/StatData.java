@@ -3,7 +3,9 @@ package packets.data;
 import packets.data.enums.ConditionBits;
 import packets.data.enums.ConditionNewBits;
 import packets.data.enums.StatType;
+import packets.packetcapture.register.IUpdateVisitor;
 import packets.reader.BufferReader;
+import packets.reader.BufferWriter;
 import assets.AssetMissingException;
 import assets.IdToAsset;
 
@@ -36,17 +38,79 @@ public class StatData {
         statTypeNum = buffer.readUnsignedByte();
         statType = StatType.byOrdinal(statTypeNum);
 
-        if (isStringStat()) {
+        if (isStringStat(statTypeNum)) {
             stringStatValue = buffer.readString();
+            statValue = 0;
         } else {
             statValue = buffer.readCompressedInt();
+            stringStatValue = null;
         }
         statValueTwo = buffer.readCompressedInt();
 
         return this;
     }
 
-    private boolean isStringStat() {
+    /**
+     * Serializer method writing the stat to a buffer.
+     *
+     * @param writer Buffer receiving the data.
+     */
+    public void serialize(BufferWriter writer) {
+        writer.writeByte(statTypeNum);
+        if (isStringStat(statTypeNum)) {
+            writer.writeString(stringStatValue);
+        } else {
+            writer.writeCompressedInt(statValue);
+        }
+        writer.writeCompressedInt(statValueTwo);
+    }
+
+    /**
+     * Moves the buffer past a stat without deserializing it.
+     *
+     * @param buffer Data to skip.
+     */
+    public static void skip(BufferReader buffer) {
+        if (isStringStat(buffer.readUnsignedByte())) {
+            buffer.skipString();
+        } else {
+            buffer.readCompressedInt();
+        }
+        buffer.readCompressedInt();
+    }
+
+    /**
+     * Reads a stat from the buffer into a visitor.
+     *
+     * @param buffer   Data that needs reading.
+     * @param visitor  Visitor receiving the stat.
+     * @param objectId Id of the object the stat belongs to.
+     */
+    public static void visit(BufferReader buffer, IUpdateVisitor visitor, int objectId) {
+        int statTypeNum = buffer.readUnsignedByte();
+        boolean visited = visitor.visitStat(statTypeNum);
+        if (isStringStat(statTypeNum)) {
+            if (visited) {
+                String value = buffer.readString();
+                visitor.onStringStat(objectId, statTypeNum, value, buffer.readCompressedInt());
+            } else {
+                buffer.skipString();
+                buffer.readCompressedInt();
+            }
+        } else {
+            int value = buffer.readCompressedInt();
+            int valueTwo = buffer.readCompressedInt();
+            if (visited) visitor.onStat(objectId, statTypeNum, value, valueTwo);
+        }
+    }
+
+    /**
+     * Checks if a stat type holds a string value instead of a number.
+     *
+     * @param statTypeNum Stat type number.
+     * @return True for string stats.
+     */
+    public static boolean isStringStat(int statTypeNum) {
         if (StatType.EXP_STAT.get() == statTypeNum // 6
                 || StatType.NAME_STAT.get() == statTypeNum // 31
                 || StatType.ACCOUNT_ID_STAT.get() == statTypeNum // 38
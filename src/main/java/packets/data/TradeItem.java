@@ -1,23 +1,30 @@
 package packets.data;
 
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
+@Schema
 public class TradeItem {
     /**
      * The item id
      */
+    @Field
     public int item;
     /**
      * The slot type the item is stored in
      */
+    @Field
     public int slotType;
     /**
      * Whether or not the item is tradeable
      */
+    @Field
     public boolean tradeable;
     /**
      * Whether or not the item is included in an active trade
      */
+    @Field
     public boolean included;
 
     /**
@@ -27,11 +34,7 @@ public class TradeItem {
      * @return Returns this object after deserializing.
      */
     public TradeItem deserialize(BufferReader buffer) {
-        item = buffer.readInt();
-        slotType = buffer.readInt();
-        tradeable = buffer.readBoolean();
-        included = buffer.readBoolean();
-
+        TradeItemSchema.deserialize(this, buffer);
         return this;
     }
 
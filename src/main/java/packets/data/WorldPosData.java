@@ -1,20 +1,25 @@
 package packets.data;
 
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 import java.util.Arrays;
 
 /**
  * Coordinate data of world objects.
  */
+@Schema
 public class WorldPosData {
     /**
      * Position x
      */
+    @Field
     public float x;
     /**
      * Position y
      */
+    @Field
     public float y;
 
     /**
@@ -24,9 +29,7 @@ public class WorldPosData {
      * @return Returns this object after deserializing.
      */
     public WorldPosData deserialize(BufferReader buffer) {
-        x = buffer.readFloat();
-        y = buffer.readFloat();
-
+        WorldPosDataSchema.deserialize(this, buffer);
         return this;
     }
 
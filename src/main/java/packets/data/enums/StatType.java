@@ -132,8 +132,15 @@ public enum StatType {
     ANIMATION_ID(125),
     UNKNOWN126(126);
 
+    private static final StatType[] BY_INDEX = new StatType[256];
     private final int index;
 
+    static {
+        for (StatType o : StatType.values()) {
+            BY_INDEX[o.index] = o;
+        }
+    }
+
     StatType(int i) {
         index = i;
     }
@@ -143,11 +150,6 @@ public enum StatType {
     }
 
     public static StatType byOrdinal(int ord) {
-        for (StatType o : StatType.values()) {
-            if (o.index == ord) {
-                return o;
-            }
-        }
-        return null;
+        return ord >= 0 && ord < BY_INDEX.length ? BY_INDEX[ord] : null;
     }
 }
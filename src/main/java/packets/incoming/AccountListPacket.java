@@ -2,6 +2,8 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 import java.util.Arrays;
 
@@ -9,32 +11,32 @@ import java.util.Arrays;
  * Received to provide lists of accounts ids which are
  * those of players who have been locked, ignored, etc.
  */
+@Schema
 public class AccountListPacket extends Packet {
     /**
      * The id of the account id list.
      */
+    @Field
     public int accountListId;
     /**
      * The account ids included in the list.
      */
+    @Field
     public String[] accountIds;
     /**
      * > Unknown.
      */
+    @Field
     public int lockAction;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        accountListId = buffer.readInt();
-        accountIds = new String[buffer.readShort()];
-        for (int i = 0; i < accountIds.length; i++) {
-            accountIds[i] = buffer.readString();
-        }
-        lockAction = buffer.readInt();
+        AccountListPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        AccountListPacketSchema.decodeAll(this);
         return "AccountListPacket{" +
                 "\n   accountListId=" + accountListId +
                 "\n   accountIds=" + Arrays.toString(accountIds) +
@@ -2,44 +2,50 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
+import packets.schema.Wire;
 
 /**
  * Received when another player shoots a projectile.
  */
+@Schema
 public class AllyShootPacket extends Packet {
     /**
      * The bullet id of the projectile which was produced.
      */
+    @Field(Wire.UNSIGNED_BYTE)
     public int bulletId;
     /**
      * The object id of the player who fired the projectile.
      */
+    @Field
     public int ownerId;
     /**
      * The item id of the weapon used to fire the projectile.
      */
+    @Field
     public short containerType;
     /**
      * The angle at which the projectile was fired.
      */
+    @Field
     public float angle;
 
     /**
      * Whether or not the shot is affected by the 'Inspired' buff (presumably).
      */
+    @Field
     public boolean bard;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        bulletId = buffer.readUnsignedByte();
-        ownerId = buffer.readInt();
-        containerType = buffer.readShort();
-        angle = buffer.readFloat();
-        bard = buffer.readBoolean();
+        AllyShootPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        AllyShootPacketSchema.decodeAll(this);
         return "AllyShootPacket{" +
                 "\n   bulletId=" + bulletId +
                 "\n   ownerId=" + ownerId +
@@ -2,62 +2,68 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
+import packets.schema.Wire;
 import packets.data.WorldPosData;
 
 /**
  * Received when an AoE grenade has hit the ground.
  */
+@Schema
 public class AoePacket extends Packet {
     /**
      * The position which the grenade landed at.
      */
+    @Field
     public WorldPosData pos;
     /**
      * The radius of the grenades area of effect, in game tiles.
      */
+    @Field
     public float radius;
     /**
      * The damage dealt by the grenade.
      */
+    @Field(Wire.UNSIGNED_SHORT)
     public int damage;
     /**
      * The condition effect applied by the grenade.
      */
+    @Field(Wire.UNSIGNED_BYTE)
     public int effect;
     /**
      * The duration of the effect applied.
      *
      * @see `AoePacket.effect`.
      */
+    @Field
     public float duration;
     /**
      * > Unknown.
      */
+    @Field(Wire.UNSIGNED_SHORT)
     public int origType;
     /**
      * The color of the grenade's explosion particles.
      * > The encoding of the color is unknown.
      */
+    @Field
     public int color;
     /**
      * Whether or not the damage of this grenade pierces armor.
      */
+    @Field
     public boolean armorPiercing;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        pos = new WorldPosData().deserialize(buffer);
-        radius = buffer.readFloat();
-        damage = buffer.readUnsignedShort();
-        effect = buffer.readUnsignedByte();
-        duration = buffer.readFloat();
-        origType = buffer.readUnsignedShort();
-        color = buffer.readInt();
-        armorPiercing = buffer.readBoolean();
+        AoePacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        AoePacketSchema.decodeAll(this);
         return "AoePacket{" +
                 "\n   pos=" + pos +
                 "\n   radius=" + radius +
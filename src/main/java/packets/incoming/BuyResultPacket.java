@@ -2,28 +2,33 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Received in response to a `BuyPacket`.
  */
+@Schema
 public class BuyResultPacket extends Packet {
     /**
      * The result code.
      */
+    @Field
     public int result;
     /**
      * > Unknown.
      */
+    @Field
     public String resultString;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        result = buffer.readInt();
-        resultString = buffer.readString();
+        BuyResultPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        BuyResultPacketSchema.decodeAll(this);
         return "BuyResultPacket{" +
                 "\n   result=" + result +
                 "\n   resultString=" + resultString;
@@ -2,33 +2,38 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Received in response to a `ClaimDailyRewardMessage`.
  */
+@Schema
 public class ClaimDailyRewardResponse extends Packet {
     /**
      * The item id of the reward received.
      */
+    @Field
     public int itemId;
     /**
      * The int of items received.
      */
+    @Field
     public int quantity;
     /**
      * Unknown.
      */
+    @Field
     public int gold;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        itemId = buffer.readInt();
-        quantity = buffer.readInt();
-        gold = buffer.readInt();
+        ClaimDailyRewardResponseSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        ClaimDailyRewardResponseSchema.decodeAll(this);
         return "ClaimDailyRewardResponse{" +
                 "\n   itemId=" + itemId +
                 "\n   quantity=" + quantity +
@@ -2,28 +2,33 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Received to give the player information about their stats.
  */
+@Schema
 public class ClientStatPacket extends Packet {
     /**
      * The name of the stat.
      */
+    @Field
     public String name;
     /**
      * The value of the stat.
      */
+    @Field
     public int value;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        name = buffer.readString();
-        value = buffer.readInt();
+        ClientStatPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        ClientStatPacketSchema.decodeAll(this);
         return "ClientStatPacket{" +
                 "\n name=" + name +
                 "\n value=" + value;
@@ -2,35 +2,40 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 import java.util.StringJoiner;
 
 /**
  * Received in response to a `CreatePacket`
  */
+@Schema
 public class CreateSuccessPacket extends Packet {
     /**
      * The object id of the player's character
      */
+    @Field
     public int objectId;
     /**
      * The character id of the player's character
      */
+    @Field
     public int charId;
     /**
      * Unknown
      */
+    @Field
     public String str;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        objectId = buffer.readInt();
-        charId = buffer.readInt();
-        str = buffer.readString();
+        CreateSuccessPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        CreateSuccessPacketSchema.decodeAll(this);
         return "CreateSuccessPacket{" +
                 "\n   objectId=" + objectId +
                 "\n   charId=" + charId +
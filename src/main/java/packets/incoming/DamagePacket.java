@@ -2,58 +2,61 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
+import packets.schema.Wire;
 
 import java.util.Arrays;
 
 /**
  * Received to tell the player about damage done to other players and enemies.
  */
+@Schema
 public class DamagePacket extends Packet {
     /**
      * The object id of the entity receiving the damage.
      */
+    @Field
     public int targetId;
     /**
      * An array of status effects which were applied with the damage.
      */
+    @Field(value = Wire.UNSIGNED_BYTE, length = Wire.UNSIGNED_BYTE)
     public int[] effects;
     /**
      * The amount of damage taken.
      */
+    @Field(Wire.UNSIGNED_SHORT)
     public int damageAmount;
     /**
      * Whether or not the damage resulted in killing the entity.
      */
+    @Field
     public boolean kill;
     /**
      * Whether or not the damage was armor piercing.
      */
+    @Field
     public boolean armorPierce;
     /**
      * The id of the bullet which caused the damage.
      */
+    @Field(Wire.UNSIGNED_BYTE)
     public int bulletId;
     /**
      * The object id of the entity which owned the bullet that caused the damage.
      */
+    @Field
     public int objectId;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        targetId = buffer.readInt();
-        effects = new int[buffer.readUnsignedByte()];
-        for (int i = 0; i < effects.length; i++) {
-            effects[i] = buffer.readUnsignedByte();
-        }
-        damageAmount = buffer.readUnsignedShort();
-        kill = buffer.readBoolean();
-        armorPierce = buffer.readBoolean();
-        bulletId = buffer.readUnsignedByte();
-        objectId = buffer.readInt();
+        DamagePacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        DamagePacketSchema.decodeAll(this);
         return "DamagePacket{" +
                 "\n   targetId=" + targetId +
                 "\n   effects=" + Arrays.toString(effects) +
@@ -3,58 +3,61 @@ package packets.incoming;
 import packets.Packet;
 import packets.data.FameData;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
+import packets.schema.Wire;
 
 import java.util.Arrays;
 
 /**
  * Received when a player dies
  */
+@Schema
 public class DeathPacket extends Packet {
     /**
      * The account id of the player who died
      */
+    @Field
     public String accountId;
     /**
      * The character id of the player who died
      */
+    @Field(Wire.COMPRESSED_INT)
     public int unknownFameID1;
     /**
      * The cause of death
      */
+    @Field
     public String killedBy;
     /**
      * Unknown int
      */
+    @Field
     public int unknownFameID2;
     /**
      * Unknown short
      */
+    @Field(Wire.COMPRESSED_INT)
     public int unknownFameID3;
     /**
      * Death fame data
      */
+    @Field(length = Wire.COMPRESSED_INT)
     public FameData[] fameData;
     /**
      * Unknown String
      */
+    @Field
     public String unknownString;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        accountId = buffer.readString();
-        unknownFameID1 = buffer.readCompressedInt();
-        killedBy = buffer.readString();
-        unknownFameID2 = buffer.readInt();
-        unknownFameID3 = buffer.readCompressedInt();
-        fameData = new FameData[buffer.readCompressedInt()];
-        for (int i = 0; i < fameData.length; i++) {
-            fameData[i] = new FameData().deserialize(buffer);
-        }
-        unknownString = buffer.readString();
+        DeathPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        DeathPacketSchema.decodeAll(this);
         return "DeathPacket{" +
                 "\n   accountId=" + accountId +
                 "\n   unknownFameID1=" + unknownFameID1 +
@@ -48,7 +48,8 @@ public class EnemyShootPacket extends Packet {
         bulletId = buffer.readShort();
         ownerId = buffer.readInt();
         bulletType = buffer.readUnsignedByte();
-        startingPos = new WorldPosData().deserialize(buffer);
+        if (startingPos == null) startingPos = new WorldPosData();
+        startingPos.deserialize(buffer);
         angle = buffer.readFloat();
         damage = buffer.readShort();
         if (buffer.getIndex() < buffer.size()) {
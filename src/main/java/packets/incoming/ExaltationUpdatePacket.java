@@ -2,42 +2,48 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
+import packets.schema.Wire;
 
 /**
  * Received when the player's exaltation stats are updated.
  */
+@Schema
 public class ExaltationUpdatePacket extends Packet {
     /**
      * The object type of the player's class.
      */
+    @Field
     public short objType;
     /**
      * The amount of stats to increase.
      */
-    public int attackProgress;
-    public int defenseProgress;
-    public int speedProgress;
+    @Field(Wire.COMPRESSED_INT)
     public int dexterityProgress;
+    @Field(Wire.COMPRESSED_INT)
+    public int speedProgress;
+    @Field(Wire.COMPRESSED_INT)
     public int vitalityProgress;
+    @Field(Wire.COMPRESSED_INT)
     public int wisdomProgress;
-    public int healthProgress;
+    @Field(Wire.COMPRESSED_INT)
+    public int defenseProgress;
+    @Field(Wire.COMPRESSED_INT)
+    public int attackProgress;
+    @Field(Wire.COMPRESSED_INT)
     public int manaProgress;
+    @Field(Wire.COMPRESSED_INT)
+    public int healthProgress;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        objType = buffer.readShort();
-        dexterityProgress = buffer.readCompressedInt();
-        speedProgress = buffer.readCompressedInt();
-        vitalityProgress = buffer.readCompressedInt();
-        wisdomProgress = buffer.readCompressedInt();
-        defenseProgress = buffer.readCompressedInt();
-        attackProgress = buffer.readCompressedInt();
-        manaProgress = buffer.readCompressedInt();
-        healthProgress = buffer.readCompressedInt();
+        ExaltationUpdatePacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        ExaltationUpdatePacketSchema.decodeAll(this);
         return "ExaltationUpdatePacket{" +
                 "\n   objType=" + objType +
                 "\n   attackProgress=" + attackProgress +
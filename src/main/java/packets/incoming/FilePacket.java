@@ -2,29 +2,35 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
+import packets.schema.Wire;
 
 /**
  * A packet which contains a file.
  */
+@Schema
 public class FilePacket extends Packet {
     /**
      * The name of the received file.
      */
+    @Field
     public String fileName;
     /**
      * The bytes of the file. Don't ask me why this is a String,
      * that's just how it is in the source code of the game.
      */
+    @Field(Wire.STRING_UTF32)
     public String file;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        fileName = buffer.readString();
-        file = buffer.readStringUTF32();
+        FilePacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        FilePacketSchema.decodeAll(this);
         return "FilePacket{" +
                 "\n   fileName=" + fileName +
                 "\n   file=" + file;
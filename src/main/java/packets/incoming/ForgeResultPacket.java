@@ -2,6 +2,9 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
+import packets.schema.Wire;
 import packets.data.SlotObjectData;
 
 import java.util.Arrays;
@@ -9,28 +12,27 @@ import java.util.Arrays;
 /**
  * Received when the player uses the item forge
  */
+@Schema
 public class ForgeResultPacket extends Packet {
     /**
      * Whether the forge was successful
      */
+    @Field
     public boolean success;
     /**
      * The SlotObjectData of the items forged
      */
+    @Field(length = Wire.BYTE)
     public SlotObjectData[] results;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        success = buffer.readBoolean();
-
-        results = new SlotObjectData[buffer.readByte()];
-        for (int i = 0; i < results.length; i++) {
-            results[i] = new SlotObjectData().deserialize(buffer);
-        }
+        ForgeResultPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        ForgeResultPacketSchema.decodeAll(this);
         return "ForgeResultPacket{" +
                 "\n   success=" + success +
                 "\n   results=" + Arrays.toString(results);
@@ -2,33 +2,36 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
+import packets.schema.Wire;
 
 import java.util.Arrays;
 
 /**
  * Received when the player enters the nexus
  */
+@Schema
 public class ForgeUnlockedBlueprints extends Packet {
     /**
      * Unknown Byte
      */
+    @Field
     public byte unknownByte;
     /**
      * The itemIds of unlocked blueprints in an array
      */
+    @Field(value = Wire.COMPRESSED_INT, length = Wire.COMPRESSED_INT)
     public int[] unlockedBlueprints;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        unknownByte = buffer.readByte();
-        unlockedBlueprints = new int[buffer.readCompressedInt()];
-        for (int i = 0; i < unlockedBlueprints.length; i++) {
-            unlockedBlueprints[i] = buffer.readCompressedInt();
-        }
+        ForgeUnlockedBlueprintsSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        ForgeUnlockedBlueprintsSchema.decodeAll(this);
         return "ForgeUnlockedBlueprints{" +
                 "\n   unknownByte=" + unknownByte +
                 "\n   unlockedBlueprints=" + Arrays.toString(unlockedBlueprints);
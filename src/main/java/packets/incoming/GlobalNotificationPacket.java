@@ -2,28 +2,33 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Received when a global notification is sent out to all players.
  */
+@Schema
 public class GlobalNotificationPacket extends Packet {
     /**
      * The type of notification received.
      */
+    @Field
     public int notificationType;
     /**
      * The notification message.
      */
+    @Field
     public String text;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        notificationType = buffer.readInt();
-        text = buffer.readString();
+        GlobalNotificationPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        GlobalNotificationPacketSchema.decodeAll(this);
         return "GlobalNotificationPacket{" +
                 "\n   notificationType=" + notificationType +
                 "\n   text=" + text;
@@ -2,34 +2,39 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 import packets.data.WorldPosData;
 
 /**
  * Received when an entity has moved to a new position.
  */
+@Schema
 public class GotoPacket extends Packet {
     /**
      * The object id of the entity which moved.
      */
+    @Field
     public int objectId;
     /**
      * The new position of the entity.
      */
+    @Field
     public WorldPosData position;
     /**
      * Unknown int
      */
+    @Field
     public int unknownInt;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        objectId = buffer.readInt();
-        position = new WorldPosData().deserialize(buffer);
-        unknownInt = buffer.readInt();
+        GotoPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        GotoPacketSchema.decodeAll(this);
         return "GotoPacket{" +
                 "\n   objectId=" + objectId +
                 "\n   position=" + position +
@@ -2,28 +2,33 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * > Unknown.
  */
+@Schema
 public class GuildResultPacket extends Packet {
     /**
      * > Unknown.
      */
+    @Field
     public boolean success;
     /**
      * > Unknown.
      */
+    @Field
     public String lineBuilderJSON;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        success = buffer.readBoolean();
-        lineBuilderJSON = buffer.readString();
+        GuildResultPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        GuildResultPacketSchema.decodeAll(this);
         return "GuildResultPacket{" +
                 "\n   success=" + success +
                 "\n   lineBuilderJSON=" + lineBuilderJSON;
@@ -4,48 +4,53 @@ import packets.data.SlotObjectData;
 import packets.Packet;
 import packets.data.WorldPosData;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * > Unknown.
  */
+@Schema
 public class InvResultPacket extends Packet {
-    /**
-     * > Unknown.
-     */
-    public byte unknownByte1;
-    /**
-     * > Unknown.
-     */
-    public byte unknownByte2;
     /**
      * Player time at the time of editing inventory
      */
+    @Field
     public int time;
     /**
      * Player positions at the time of editing inventory.
      */
+    @Field
     public WorldPosData pos;
     /**
      * The slot the item in the inventory being transferred from.
      */
+    @Field
     public SlotObjectData slotFrom;
+    /**
+     * > Unknown.
+     */
+    @Field
+    public byte unknownByte1;
     /**
      * The slot the item in the inventory being transferred to.
      */
+    @Field
     public SlotObjectData slotTo;
+    /**
+     * > Unknown.
+     */
+    @Field
+    public byte unknownByte2;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        time = buffer.readInt();
-        pos = new WorldPosData().deserialize(buffer);
-        slotFrom = new SlotObjectData().deserialize(buffer);
-        unknownByte1 = buffer.readByte();
-        slotTo = new SlotObjectData().deserialize(buffer);
-        unknownByte2 = buffer.readByte();
+        InvResultPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        InvResultPacketSchema.decodeAll(this);
         return "InvResultPacket{" +
                 "\n   unknownByte1=" + unknownByte1 +
                 "\n   unknownByte2=" + unknownByte2 +
@@ -2,28 +2,33 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Received when the player is invited to a guild.
  */
+@Schema
 public class InvitedToGuildPacket extends Packet {
     /**
      * The name of the player who sent the invite.
      */
+    @Field
     public String name;
     /**
      * The name of the guild which the invite is for.
      */
+    @Field
     public String guildName;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        name = buffer.readString();
-        guildName = buffer.readString();
+        InvitedToGuildPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        InvitedToGuildPacketSchema.decodeAll(this);
         return "InvitedToGuildPacket{" +
                 "\n   name=" + name +
                 "\n   guildName=" + guildName;
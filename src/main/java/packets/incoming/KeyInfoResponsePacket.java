@@ -2,33 +2,38 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * > Unknown.
  */
+@Schema
 public class KeyInfoResponsePacket extends Packet {
     /**
      * > Unknown.
      */
+    @Field
     public String name;
     /**
      * > Unknown.
      */
+    @Field
     public String description;
     /**
      * > Unknown.
      */
+    @Field
     public String creator;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        name = buffer.readString();
-        description = buffer.readString();
-        creator = buffer.readString();
+        KeyInfoResponsePacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        KeyInfoResponsePacketSchema.decodeAll(this);
         return "KeyInfoResponsePacket{" +
                 "\n   name=" + name +
                 "\n   description=" + description +
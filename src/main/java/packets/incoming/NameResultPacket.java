@@ -2,28 +2,33 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Received in response to a `ChooseNamePacket`
  */
+@Schema
 public class NameResultPacket extends Packet {
     /**
      * Whether or not the name change was successful
      */
+    @Field
     public boolean success;
     /**
      * The error which occurred, if the result was not successful
      */
+    @Field
     public String errorText;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        success = buffer.readBoolean();
-        errorText = buffer.readString();
+        NameResultPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        NameResultPacketSchema.decodeAll(this);
         return "NameResultPacket{" +
                 "\n   success=" + success +
                 "\n   errorText=" + errorText;
@@ -2,23 +2,28 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Received when a new ability has been unlocked by the player.
  */
+@Schema
 public class NewAbilityMessage extends Packet {
     /**
      * The type of ability which has been unlocked.
      */
+    @Field
     public int abilityType;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        abilityType = buffer.readInt();
+        NewAbilityMessageSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        NewAbilityMessageSchema.decodeAll(this);
         return "NewAbilityMessage{" +
                 "\n   abilityType=" + abilityType;
     }
@@ -2,23 +2,28 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * > Unknown
  */
+@Schema
 public class NewCharacterInfoPacket extends Packet {
     /**
      * Unknown
      */
+    @Field
     String charXML;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        charXML = buffer.readString();
+        NewCharacterInfoPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        NewCharacterInfoPacketSchema.decodeAll(this);
         return "NewCharacterInfoPacket{" +
                 "\n   charXML=" + charXML;
     }
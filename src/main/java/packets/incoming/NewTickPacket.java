@@ -1,7 +1,11 @@
 package packets.incoming;
 
 import packets.Packet;
+import packets.packetcapture.register.IUpdateVisitor;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
+import packets.schema.Wire;
 import packets.data.ObjectStatusData;
 import util.Util;
 
@@ -10,42 +14,62 @@ import java.util.Arrays;
 /**
  * Received to notify the player of a new game tick
  */
+@Schema
 public class NewTickPacket extends Packet {
     /**
      * The id of the tick
      */
+    @Field
     public int tickId;
     /**
      * The time between the last tick and this tick, in milliseconds
      */
+    @Field
     public int tickTime;
     /**
      * Server realtime in ms
      */
+    @Field
     public long serverRealTimeMS;
     /**
      * Last server realtime in ms
      */
+    @Field(Wire.UNSIGNED_SHORT)
     public int serverLastTimeRTTMS;
     /**
      * An array of statuses for objects which are currently visible to the player
      */
+    @Field
     public ObjectStatusData[] status;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        tickId = buffer.readInt();
-        tickTime = buffer.readInt();
-        serverRealTimeMS = buffer.readUnsignedInt();
-        serverLastTimeRTTMS = buffer.readUnsignedShort();
-        status = new ObjectStatusData[buffer.readShort()];
-        for (int i = 0; i < status.length; i++) {
-            status[i] = new ObjectStatusData().deserialize(buffer);
+        NewTickPacketSchema.deserialize(this, buffer);
+    }
+
+    /**
+     * Reads a new tick packet from the buffer into a visitor without creating the objects
+     * of the packet.
+     *
+     * @param connectionId Id of the connection the packet was received on.
+     * @param buffer       Data of the packet.
+     * @param visitor      Visitor receiving the content.
+     */
+    public static void visit(int connectionId, BufferReader buffer, IUpdateVisitor visitor) {
+        int tickId = buffer.readInt();
+        int tickTime = buffer.readInt();
+        long serverRealTimeMS = buffer.readUnsignedInt();
+        visitor.onNewTick(connectionId, tickId, tickTime, serverRealTimeMS, buffer.readUnsignedShort());
+        int status = buffer.readShort();
+        for (int i = 0; i < status; i++) {
+            ObjectStatusData.visit(buffer, visitor);
         }
+        visitor.onEnd();
     }
 
     @Override
     public String toString() {
+        NewTickPacketSchema.decodeAll(this);
         return "NewTickPacket" +
                 "\n  tickId=" + tickId +
                 "\n  tickTime=" + tickTime +
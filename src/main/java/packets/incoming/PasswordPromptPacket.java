@@ -2,23 +2,28 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Received to prompt the player to enter their password
  */
+@Schema
 public class PasswordPromptPacket extends Packet {
     /**
      * unknown
      */
+    @Field
     long cleanPasswordStatus;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        cleanPasswordStatus = buffer.readUnsignedInt();
+        PasswordPromptPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        PasswordPromptPacketSchema.decodeAll(this);
         return "PasswordPromptPacket{" +
                 "\n   cleanPasswordStatus=" + cleanPasswordStatus;
     }
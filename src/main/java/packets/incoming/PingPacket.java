@@ -2,23 +2,28 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Received occasionally by the server to prompt a response from the client
  */
+@Schema
 public class PingPacket extends Packet {
     /**
      * A nonce value which is expected to be present in the reply
      */
+    @Field
     public int serial;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        serial = buffer.readInt();
+        PingPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        PingPacketSchema.decodeAll(this);
         return "PingPacket{" +
                 "\n   serial=" + serial;
     }
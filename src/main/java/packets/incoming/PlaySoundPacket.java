@@ -2,28 +2,34 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
+import packets.schema.Wire;
 
 /**
  * Received to tell the client to play a sound
  */
+@Schema
 public class PlaySoundPacket extends Packet {
     /**
      * The object id of the origin of the sound
      */
+    @Field
     public int ownerId;
     /**
      * The id of the sound to play
      */
+    @Field(Wire.UNSIGNED_BYTE)
     public int soundId;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        ownerId = buffer.readInt();
-        soundId = buffer.readUnsignedByte();
+        PlaySoundPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        PlaySoundPacketSchema.decodeAll(this);
         return "PlaySoundPacket{" +
                 "\n   ownerId=" + ownerId +
                 "\n   soundId=" + soundId;
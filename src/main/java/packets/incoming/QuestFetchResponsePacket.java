@@ -2,6 +2,8 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 import packets.data.QuestData;
 
 import java.util.Arrays;
@@ -9,27 +11,27 @@ import java.util.Arrays;
 /**
  * Received to tell the player about new quests
  */
+@Schema
 public class QuestFetchResponsePacket extends Packet {
     /**
      * The quests which were fetched
      */
+    @Field
     public QuestData[] quests;
     /**
      * The cost in gold of the next quest refresh
      */
+    @Field
     public short nextRefreshPrice;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        quests = new QuestData[buffer.readShort()];
-        for (int i = 0; i < quests.length; i++) {
-            quests[i] = new QuestData().deserialize(buffer);
-        }
-        nextRefreshPrice = buffer.readShort();
+        QuestFetchResponsePacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        QuestFetchResponsePacketSchema.decodeAll(this);
         return "QuestFetchResponsePacket{" +
                 "\n   quests=" + Arrays.toString(quests) +
                 "\n   nextRefreshPrice=" + nextRefreshPrice;
@@ -2,33 +2,36 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
+import packets.schema.Wire;
 
 import java.util.Arrays;
 
 /**
  * Received to tell the player the object id of their current quest
  */
+@Schema
 public class QuestObjectIdPacket extends Packet {
     /**
      * The object id of the current quest
      */
+    @Field
     public int objectId;
     /**
      * Quest list
      */
+    @Field(value = Wire.COMPRESSED_INT, length = Wire.COMPRESSED_INT)
     public int[] list;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        objectId = buffer.readInt();
-        list = new int[buffer.readCompressedInt()];
-        for (int i = 0; i < list.length; i++) {
-            list[i] = buffer.readCompressedInt();
-        }
+        QuestObjectIdPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        QuestObjectIdPacketSchema.decodeAll(this);
         return "QuestObjectIdPacket{" +
                 "\n   objectId=" + objectId +
                 "\n   list=" + Arrays.toString(list);
@@ -2,28 +2,33 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Packet sent after a successful attempt to redeem a quest.
  */
+@Schema
 public class QuestRedeemResponsePacket extends Packet {
     /**
      * If the quest was successfully accepted.
      */
+    @Field
     public boolean ok;
     /**
      * Message used in the response dialog.
      */
+    @Field
     public String message;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        ok = buffer.readBoolean();
-        message = buffer.readString();
+        QuestRedeemResponsePacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        QuestRedeemResponsePacketSchema.decodeAll(this);
         return "QuestRedeemResponsePacket{" +
                 "\n   ok=" + ok +
                 "\n   message=" + message;
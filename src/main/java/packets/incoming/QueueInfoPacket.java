@@ -2,29 +2,35 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
+import packets.schema.Wire;
 
 /**
  * Received when the client connects to a server with a queue.
  */
+@Schema
 public class QueueInfoPacket extends Packet {
     /**
      * The current position of the client in the queue
      */
+    @Field(Wire.UNSIGNED_SHORT)
     public int currentPosition;
-
     /**
      * The maximum amount of clients allowed in the queue
      */
+    @Field(Wire.UNSIGNED_SHORT)
     public int maxPosition;
 
+
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        currentPosition = buffer.readUnsignedShort();
-        maxPosition = buffer.readUnsignedShort();
+        QueueInfoPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        QueueInfoPacketSchema.decodeAll(this);
         return "QueueInfoPacket{" +
                 "\n   currentPosition=" + currentPosition +
                 "\n   maxPosition=" + maxPosition;
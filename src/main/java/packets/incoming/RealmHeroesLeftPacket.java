@@ -2,23 +2,28 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Received to tell the client how many heroes are left in the current realm
  */
+@Schema
 public class RealmHeroesLeftPacket extends Packet {
     /**
      * The int of heroes remaining.
      */
+    @Field
     public int realmHeroesLeft;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        realmHeroesLeft = buffer.readInt();
+        RealmHeroesLeftPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        RealmHeroesLeftPacketSchema.decodeAll(this);
         return "RealmHeroesLeftPacket{" +
                 "\n   realmHeroesLeft=" + realmHeroesLeft;
     }
@@ -2,36 +2,46 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
+import packets.schema.Wire;
 
 import java.util.Arrays;
 
 /**
  * Received to instruct the client to connect to a new host
  */
+@Schema
 public class ReconnectPacket extends Packet {
     /**
      * The name of the new host.
      */
+    @Field
     public String name;
     /**
      * The address of the new host
      */
+    @Field
     public String host;
     /**
      * Unknown short
      */
+    @Field(Wire.UNSIGNED_SHORT)
     public int unknownUnsignedShort;
     /**
      * The port of the new host
      */
+    @Field
     public int port;
     /**
      * The `gameId` to send in the next `HelloPacket`
      */
+    @Field
     public int gameId;
     /**
      * The `key` to send in the next `HelloPacket`
      */
+    @Field
     public byte[] key;
 //    /**
 //     * The `keyTime` to send in the next `HelloPacket`
@@ -44,16 +54,12 @@ public class ReconnectPacket extends Packet {
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        name = buffer.readString();
-        host = buffer.readString();
-        unknownUnsignedShort = buffer.readUnsignedShort();
-        port = buffer.readInt();
-        gameId = buffer.readInt();
-        key = buffer.readByteArray();
+        ReconnectPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        ReconnectPacketSchema.decodeAll(this);
         return "ReconnectPacket{" +
                 "\n   name='" + name + '\'' +
                 "\n   host='" + host + '\'' +
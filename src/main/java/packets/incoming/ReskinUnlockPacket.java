@@ -2,28 +2,33 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Received to notify the player that a new skin has been unlocked
  */
+@Schema
 public class ReskinUnlockPacket extends Packet {
     /**
      * The id of the skin that was unlocked
      */
+    @Field
     public int skinId;
     /**
      * The id of the pet skin that was unlocked
      */
+    @Field
     public int isPetSkin;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        skinId = buffer.readInt();
-        isPetSkin = buffer.readInt();
+        ReskinUnlockPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        ReskinUnlockPacketSchema.decodeAll(this);
         return "ReskinUnlockPacket{" +
                 "\n   skinId=" + skinId +
                 "\n   isPetSkin=" + isPetSkin;
@@ -58,7 +58,8 @@ public class ServerPlayerShootPacket extends Packet {
         bulletId = buffer.readShort();
         ownerId = buffer.readInt();
         containerType = buffer.readInt();
-        startingPos = new WorldPosData().deserialize(buffer);
+        if (startingPos == null) startingPos = new WorldPosData();
+        startingPos.deserialize(buffer);
         angle = buffer.readFloat();
         damage = buffer.readShort();
         unknownInt = buffer.readInt();
@@ -68,6 +69,7 @@ public class ServerPlayerShootPacket extends Packet {
             bulletCount = buffer.readByte();
             anglesBetweenBullets = buffer.readFloat();
         } else {
+            spellBulletData = false;
             bulletCount = 0;
             anglesBetweenBullets = 372.0f;
         }
@@ -2,37 +2,42 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Stasis blinking timer packet
  */
+@Schema
 public class StasisPacket extends Packet {
     /**
      * Id of the entity put into stasis
      */
+    @Field
     public int entityId;
     /**
      * Unknown
      */
+    @Field
     public int unknownInt1;
+    @Field
     public int unknownInt2;
+    @Field
     public int unknownInt3;
     /**
      * Stasis duration in seconds
      */
+    @Field
     public float stasisDuration;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        entityId = buffer.readInt();
-        unknownInt1 = buffer.readInt();
-        unknownInt2 = buffer.readInt();
-        unknownInt3 = buffer.readInt();
-        stasisDuration = buffer.readFloat();
+        StasisPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        StasisPacketSchema.decodeAll(this);
         return "StasisPacket{" +
                 "\n   entityId=" + entityId +
                 "\n   unknownInt1=" + unknownInt1 +
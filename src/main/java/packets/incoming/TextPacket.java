@@ -2,63 +2,69 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
+import packets.schema.Wire;
 
 /**
  * Received when a chat message is sent by another player or NPC
  */
+@Schema
 public class TextPacket extends Packet {
     /**
      * The sender of the message
      */
+    @Field
     public String name;
     /**
      * The object id of the sender
      */
+    @Field
     public int objectId;
     /**
      * The int of stars of the sender
      */
+    @Field
     public short numStars;
     /**
      * The length of time to display the chat bubble for
      */
+    @Field(Wire.UNSIGNED_BYTE)
     public int bubbleTime;
     /**
      * The recipient of the message
      */
+    @Field
     public String recipient;
     /**
      * The content of the message
      */
+    @Field
     public String text;
     /**
      * > Unknown.
      */
+    @Field
     public String cleanText;
     /**
      * Whether or not the sender of the message is a supporter
      */
+    @Field
     public boolean isSupporter;
     /**
      * The star background of the player
      */
+    @Field
     public int starBackground;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        name = buffer.readString();
-        objectId = buffer.readInt();
-        numStars = buffer.readShort();
-        bubbleTime = buffer.readUnsignedByte();
-        recipient = buffer.readString();
-        text = buffer.readString();
-        cleanText = buffer.readString();
-        isSupporter = buffer.readBoolean();
-        starBackground = buffer.readInt();
+        TextPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        TextPacketSchema.decodeAll(this);
         return "TextPacket{" +
                 "\n   name=" + name +
                 "\n   objectId=" + objectId +
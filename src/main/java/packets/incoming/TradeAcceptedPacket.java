@@ -2,12 +2,15 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 import java.util.Arrays;
 
 /**
  * Received when the active trade is accepted
  */
+@Schema
 public class TradeAcceptedPacket extends Packet {
     /**
      * A description of which items in the client's inventory are selected.
@@ -15,6 +18,7 @@ public class TradeAcceptedPacket extends Packet {
      * <p>
      * If a value is `true`, then the item is selected
      */
+    @Field
     public boolean[] clientOffer;
     /**
      * A description of which items in the trade partner's inventory are selected.
@@ -22,22 +26,17 @@ public class TradeAcceptedPacket extends Packet {
      * <p>
      * If a value is `true`, then the item is selected
      */
+    @Field
     public boolean[] partnerOffer;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        clientOffer = new boolean[buffer.readShort()];
-        for (int i = 0; i < clientOffer.length; i++) {
-            clientOffer[i] = buffer.readBoolean();
-        }
-        partnerOffer = new boolean[buffer.readShort()];
-        for (int i = 0; i < partnerOffer.length; i++) {
-            partnerOffer[i] = buffer.readBoolean();
-        }
+        TradeAcceptedPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        TradeAcceptedPacketSchema.decodeAll(this);
         return "TradeAcceptedPacket{" +
                 "\n   clientOffer=" + Arrays.toString(clientOffer) +
                 "\n   partnerOffer=" + Arrays.toString(partnerOffer);
@@ -2,12 +2,15 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 import java.util.Arrays;
 
 /**
  * Received when the active trade is changed
  */
+@Schema
 public class TradeChangedPacket extends Packet {
     /**
      * A description of which items in the trade partner's inventory are selected.
@@ -15,18 +18,17 @@ public class TradeChangedPacket extends Packet {
      * <p>
      * If a value is `true`, then the item is selected
      */
+    @Field
     public boolean[] offer;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        offer = new boolean[buffer.readShort()];
-        for (int i = 0; i < offer.length; i++) {
-            offer[i] = buffer.readBoolean();
-        }
+        TradeChangedPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        TradeChangedPacketSchema.decodeAll(this);
         return "TradeChangedPacket{" +
                 "\n   offer=" + Arrays.toString(offer);
     }
@@ -2,23 +2,28 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Received when a trade is requested.
  */
+@Schema
 public class TradeRequestedPacket extends Packet {
     /**
      * The name of the player who requested the trade.
      */
+    @Field
     public String name;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        name = buffer.readString();
+        TradeRequestedPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        TradeRequestedPacketSchema.decodeAll(this);
         return "TradeRequestedPacket{" +
                 "\n   name=" + name;
     }
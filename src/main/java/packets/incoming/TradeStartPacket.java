@@ -2,6 +2,8 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 import packets.data.TradeItem;
 
 import java.util.Arrays;
@@ -9,42 +11,39 @@ import java.util.Arrays;
 /**
  * Received when a new active trade has been initiated
  */
+@Schema
 public class TradeStartPacket extends Packet {
     /**
      * A description of the player's inventory. Items 0-3 are the hotbar items,
      * and 4-19 are the 8 inventory slots and 8 backpack slots
      */
+    @Field
     public TradeItem[] clientItems;
     /**
      * The trade partner's name.
      */
+    @Field
     public String partnerName;
     /**
      * A description of the trade partner's inventory. Items 0-3 are the
      * hotbar items, and 4-19 are the 8 inventory slots and 8 backpack slots
      */
+    @Field
     public TradeItem[] partnerItems;
     /**
      * Unknown int
      */
+    @Field
     public int unknownInt;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        clientItems = new TradeItem[buffer.readShort()];
-        for (int i = 0; i < clientItems.length; i++) {
-            clientItems[i] = new TradeItem().deserialize(buffer);
-        }
-        partnerName = buffer.readString();
-        partnerItems = new TradeItem[buffer.readShort()];
-        for (int i = 0; i < partnerItems.length; i++) {
-            partnerItems[i] = new TradeItem().deserialize(buffer);
-        }
-        unknownInt = buffer.readInt();
+        TradeStartPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        TradeStartPacketSchema.decodeAll(this);
         return "TradeStartPacket{" +
                 "\n   clientItems=" + Arrays.toString(clientItems) +
                 "\n   partnerName=" + partnerName +
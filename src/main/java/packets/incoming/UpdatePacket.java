@@ -1,9 +1,14 @@
 package packets.incoming;
 
 import packets.Packet;
+import packets.packetcapture.register.IUpdateVisitor;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
+import packets.schema.Wire;
 import packets.data.GroundTileData;
 import packets.data.ObjectData;
+import packets.data.ObjectStatusData;
 import packets.data.WorldPosData;
 import util.Util;
 
@@ -15,51 +20,75 @@ import java.util.Arrays;
  * + One or more objects have left the map (become invisible)
  * + New tiles are visible
  */
+@Schema
 public class UpdatePacket extends Packet {
-    /**
-     * Unknown level byte
-     */
-    public byte levelType;
     /**
      * The player pos if the player have moved, otherwise sends (0,0)
      */
+    @Field
     public WorldPosData pos;
+    /**
+     * Unknown level byte
+     */
+    @Field
+    public byte levelType;
     /**
      * The new tiles which are visible.
      */
+    @Field(length = Wire.COMPRESSED_INT)
     public GroundTileData[] tiles;
     /**
      * The new objects which have entered the map (become visible).
      */
+    @Field(length = Wire.COMPRESSED_INT)
     public ObjectData[] newObjects;
     /**
      * The visible objects which have left the map (become invisible).
      */
+    @Field(value = Wire.COMPRESSED_INT, length = Wire.COMPRESSED_INT)
     public int[] drops;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        pos = new WorldPosData().deserialize(buffer);
-        levelType = buffer.readByte();
+        UpdatePacketSchema.deserialize(this, buffer);
+    }
+
+    /**
+     * Reads an update packet from the buffer into a visitor without creating the objects
+     * of the packet.
+     *
+     * @param connectionId Id of the connection the packet was received on.
+     * @param buffer       Data of the packet.
+     * @param visitor      Visitor receiving the content.
+     */
+    public static void visit(int connectionId, BufferReader buffer, IUpdateVisitor visitor) {
+        float x = buffer.readFloat();
+        float y = buffer.readFloat();
+        visitor.onUpdate(connectionId, x, y, buffer.readByte());
 
-        tiles = new GroundTileData[buffer.readCompressedInt()];
-        for (int i = 0; i < tiles.length; i++) {
-            tiles[i] = new GroundTileData().deserialize(buffer);
+        int tiles = buffer.readCompressedInt();
+        for (int i = 0; i < tiles; i++) {
+            int tileX = buffer.readShort();
+            int tileY = buffer.readShort();
+            visitor.onTile(tileX, tileY, buffer.readUnsignedShort());
         }
 
-        newObjects = new ObjectData[buffer.readCompressedInt()];
-        for (int i = 0; i < newObjects.length; i++) {
-            newObjects[i] = new ObjectData().deserialize(buffer);
+        int newObjects = buffer.readCompressedInt();
+        for (int i = 0; i < newObjects; i++) {
+            visitor.onNewObject(buffer.readUnsignedShort());
+            ObjectStatusData.visit(buffer, visitor);
         }
 
-        drops = new int[buffer.readCompressedInt()];
-        for (int i = 0; i < drops.length; i++) {
-            drops[i] = buffer.readCompressedInt();
+        int drops = buffer.readCompressedInt();
+        for (int i = 0; i < drops; i++) {
+            visitor.onDrop(buffer.readCompressedInt());
         }
+        visitor.onEnd();
     }
 
     @Override
     public String toString() {
+        UpdatePacketSchema.decodeAll(this);
         return "UpdatePacket" +
                 "\n   levelType=" + levelType +
                 "\n   playerPos=" + "(" + pos.x + ", " + pos.y + ")" +
@@ -2,99 +2,91 @@ package packets.incoming;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
+import packets.schema.Wire;
 
 import java.util.Arrays;
 
 /**
  * Received when the player enters or updates their vault
  */
+@Schema
 public class VaultContentPacket extends Packet {
     /**
      * If this is the last vault packet
      */
+    @Field
     public boolean lastVaultPacket;
     /**
      * Unknown int 1
      */
+    @Field(Wire.COMPRESSED_INT)
     public int unknownInt1;
     /**
      * Unknown int 2
      */
+    @Field(Wire.COMPRESSED_INT)
     public int unknownInt2;
     /**
      * Unknown int 3
      */
+    @Field(Wire.COMPRESSED_INT)
     public int unknownInt3;
     /**
      * The contents of the players vault, sent as an array of item object IDs or -1 if the slot is empty
      */
+    @Field(value = Wire.COMPRESSED_INT, length = Wire.COMPRESSED_INT)
     public int[] vaultContents;
     /**
      * The contents of the player's gift vault
      */
+    @Field(value = Wire.COMPRESSED_INT, length = Wire.COMPRESSED_INT)
     public int[] giftContents;
     /**
      * The contents of the player's potion vault
      */
+    @Field(value = Wire.COMPRESSED_INT, length = Wire.COMPRESSED_INT)
     public int[] potionContents;
     /**
      * The cost in gold for the next upgrade to the vault
      */
+    @Field
     public short vaultUpgradeCost;
     /**
      * The cost in gold for the next upgrade to the potion vault
      */
+    @Field
     public short potionUpgradeCost;
     /**
      * The current slot size of the player's potion vault
      */
+    @Field
     public short currentPotionMax;
     /**
      * The size of the player's potion vault after they purchase the current upgrade
      */
+    @Field
     public short nextPotionMax;
     /**
      * Strings of all vault item texts. Always empty
      */
+    @Field
     public String vaultItemString;
     /**
      * Strings of all gift item texts. Always empty
      */
+    @Field
     public String giftItemString;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        lastVaultPacket = buffer.readBoolean();
-        unknownInt1 = buffer.readCompressedInt();
-        unknownInt2 = buffer.readCompressedInt();
-        unknownInt3 = buffer.readCompressedInt();
-
-        vaultContents = new int[buffer.readCompressedInt()];
-        for (int i = 0; i < vaultContents.length; i++) {
-            vaultContents[i] = buffer.readCompressedInt();
-        }
-
-        giftContents = new int[buffer.readCompressedInt()];
-        for (int i = 0; i < giftContents.length; i++) {
-            giftContents[i] = buffer.readCompressedInt();
-        }
-
-        potionContents = new int[buffer.readCompressedInt()];
-        for (int i = 0; i < potionContents.length; i++) {
-            potionContents[i] = buffer.readCompressedInt();
-        }
-
-        vaultUpgradeCost = buffer.readShort();
-        potionUpgradeCost = buffer.readShort();
-        currentPotionMax = buffer.readShort();
-        nextPotionMax = buffer.readShort();
-
-        vaultItemString = buffer.readString();
-        giftItemString = buffer.readString();
+        VaultContentPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        VaultContentPacketSchema.decodeAll(this);
         return "VaultContentPacket{" +
                 "\n   unknownBool=" + lastVaultPacket +
                 "\n   unknownInt1=" + unknownInt1 +
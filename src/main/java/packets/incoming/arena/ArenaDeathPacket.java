@@ -2,23 +2,28 @@ package packets.incoming.arena;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Received when the player has been killed in the arena.
  */
+@Schema
 public class ArenaDeathPacket extends Packet {
     /**
      * The cost in gold to be revived.
      */
+    @Field
     public int cost;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        cost = buffer.readInt();
+        ArenaDeathPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        ArenaDeathPacketSchema.decodeAll(this);
         return "ArenaDeathPacket{" +
                 "\n   cost=" + cost;
     }
@@ -2,23 +2,28 @@ package packets.incoming.arena;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Received when a new arena wave is about to begin.
  */
+@Schema
 public class ImminentArenaWavePacket extends Packet {
     /**
      * The length of time the player has been in the arena for.
      */
+    @Field
     public int currentRuntime;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        currentRuntime = buffer.readInt();
+        ImminentArenaWavePacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        ImminentArenaWavePacketSchema.decodeAll(this);
         return "ImminentArenaWavePacket{" +
                 "\n   currentRuntime=" + currentRuntime;
     }
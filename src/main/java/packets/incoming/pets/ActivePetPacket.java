@@ -2,23 +2,28 @@ package packets.incoming.pets;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Received to notify the player of a new pet.
  */
+@Schema
 public class ActivePetPacket extends Packet {
     /**
      * The instance id of the active pet.
      */
+    @Field
     public int instanceId;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        instanceId = buffer.readInt();
+        ActivePetPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        ActivePetPacketSchema.decodeAll(this);
         return "ActivePetPacket{" +
                 "\n   instanceId=" + instanceId;
     }
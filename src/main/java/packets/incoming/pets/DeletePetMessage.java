@@ -2,23 +2,28 @@ package packets.incoming.pets;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Received to notify the player that a pet has been deleted.
  */
+@Schema
 public class DeletePetMessage extends Packet {
     /**
      * The id of the pet which has been deleted.
      */
+    @Field
     public int petId;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        petId = buffer.readInt();
+        DeletePetMessageSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        DeletePetMessageSchema.decodeAll(this);
         return "DeletePetMessage{" +
                 "\n   petId=" + petId;
     }
@@ -2,33 +2,38 @@ package packets.incoming.pets;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Received to give the player information about a newly evolved pet.
  */
+@Schema
 public class EvolvedPetMessage extends Packet {
     /**
      * The id of the pet which has evolved.
      */
+    @Field
     public int petId;
     /**
      * The current skin id of the pet.
      */
+    @Field
     public int initialSkin;
     /**
      * The skin id of the pet after its evolution.
      */
+    @Field
     public int finalSkin;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        petId = buffer.readInt();
-        initialSkin = buffer.readInt();
-        finalSkin = buffer.readInt();
+        EvolvedPetMessageSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        EvolvedPetMessageSchema.decodeAll(this);
         return "EvolvedPetMessage{" +
                 "\n   petId=" + petId +
                 "\n   initialSkin=" + initialSkin +
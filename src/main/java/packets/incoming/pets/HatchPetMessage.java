@@ -2,33 +2,38 @@ package packets.incoming.pets;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Received to give the player information about a newly hatched pet
  */
+@Schema
 public class HatchPetMessage extends Packet {
     /**
      * The name of the hatched pet
      */
+    @Field
     public String petName;
     /**
      * The skin id of the hatched pet
      */
+    @Field
     public int petSkin;
     /**
      * The object type of the pet
      */
+    @Field
     public int petType;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        petName = buffer.readString();
-        petSkin = buffer.readInt();
-        petType = buffer.readInt();
+        HatchPetMessageSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        HatchPetMessageSchema.decodeAll(this);
         return "HatchPetMessage{" +
                 "\n   petName=" + petName +
                 "\n   petSkin=" + petSkin +
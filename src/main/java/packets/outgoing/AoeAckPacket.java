@@ -2,29 +2,34 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 import packets.data.WorldPosData;
 
 /**
  * Sent to acknowledge an `AoePacket`.
  */
+@Schema
 public class AoeAckPacket extends Packet {
     /**
      * The current client time.
      */
+    @Field
     public int time;
     /**
      * The position of the AoE which this packet is acknowledging.
      */
+    @Field
     public WorldPosData position;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        time = buffer.readInt();
-        position = new WorldPosData().deserialize(buffer);
+        AoeAckPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        AoeAckPacketSchema.decodeAll(this);
         return "AoeAckPacket{" +
                 "\n   time=" + time +
                 "\n   position=" + position;
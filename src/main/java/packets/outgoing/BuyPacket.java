@@ -2,28 +2,33 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent to buy an item.
  */
+@Schema
 public class BuyPacket extends Packet {
     /**
      * The object id of the item being purchased.
      */
+    @Field
     public int objectId;
     /**
      * The number of items being purchased.
      */
+    @Field
     public int quantity;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        objectId = buffer.readInt();
-        quantity = buffer.readInt();
+        BuyPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        BuyPacketSchema.decodeAll(this);
         return "BuyPacket{" +
                 "\n   objectId=" + objectId +
                 "\n   quantity=" + quantity;
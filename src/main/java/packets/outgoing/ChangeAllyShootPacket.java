@@ -2,24 +2,29 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent to tell the server if you would like to receive ally (other player) projectiles.
  */
+@Schema
 public class ChangeAllyShootPacket extends Packet {
     /**
      * Whether the server will send ally projectiles.
      * 0 = disable, 1 = enable.
      */
+    @Field
     public int isEnabledIfOne;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        isEnabledIfOne = buffer.readInt();
+        ChangeAllyShootPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        ChangeAllyShootPacketSchema.decodeAll(this);
         return "ChangeAllyShootPacket{" +
                 "\n   toggle=" + isEnabledIfOne;
     }
@@ -2,28 +2,33 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent to change the guild rank of a member in the player's guild.
  */
+@Schema
 public class ChangeGuildRankPacket extends Packet {
     /**
      * The name of the player whose rank will change.
      */
+    @Field
     public String name;
     /**
      * The new rank of the player.
      */
+    @Field
     public int guildRank;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        name = buffer.readString();
-        guildRank = buffer.readInt();
+        ChangeGuildRankPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        ChangeGuildRankPacketSchema.decodeAll(this);
         return "ChangeGuildRankPacket{" +
                 "\n   name=" + name +
                 "\n   guildRank=" + guildRank;
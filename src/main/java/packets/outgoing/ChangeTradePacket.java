@@ -2,12 +2,15 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 import java.util.Arrays;
 
 /**
  * Sent to change the client's offer in the current active trade.
  */
+@Schema
 public class ChangeTradePacket extends Packet {
     /**
      * A description of which items in the client's inventory are selected.
@@ -15,18 +18,17 @@ public class ChangeTradePacket extends Packet {
      * <p>
      * If a value is `true`, then the item is selected.
      */
+    @Field
     public boolean[] offer;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        offer = new boolean[buffer.readShort()];
-        for (int i = 0; i < offer.length; i++) {
-            offer[i] = buffer.readBoolean();
-        }
+        ChangeTradePacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        ChangeTradePacketSchema.decodeAll(this);
         return "ChangeTradePacket{" +
                 "\n   offer=" + Arrays.toString(offer);
     }
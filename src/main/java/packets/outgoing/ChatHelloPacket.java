@@ -2,28 +2,33 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent to initiate the chat stream (unnused)
  */
+@Schema
 public class ChatHelloPacket extends Packet {
     /**
      * The clients account ID
      */
+    @Field
     public String accountId;
     /**
      * The chat initiation token
      */
+    @Field
     public String token;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        accountId = buffer.readString();
-        token = buffer.readString();
+        ChatHelloPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        ChatHelloPacketSchema.decodeAll(this);
         return "ChatHelloPacket{" +
                 "\n   accountId=" + accountId +
                 "\n   token=" + token;
@@ -2,23 +2,28 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent to change the client's account name.
  */
+@Schema
 public class ChooseNamePacket extends Packet {
     /**
      * The name to change the account's name to.
      */
+    @Field
     public String name;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        name = buffer.readString();
+        ChooseNamePacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        ChooseNamePacketSchema.decodeAll(this);
         return "ChooseNamePacket{" +
                 "\n   name=" + name;
     }
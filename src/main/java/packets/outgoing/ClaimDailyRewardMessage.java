@@ -2,28 +2,33 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent to claim rewards from the login calendar.
  */
+@Schema
 public class ClaimDailyRewardMessage extends Packet {
     /**
      * The key of the item being claimed.
      */
+    @Field
     public String claimKey;
     /**
      * The type of claim being made.
      */
+    @Field
     public String claimType;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        claimKey = buffer.readString();
-        claimType = buffer.readString();
+        ClaimDailyRewardMessageSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        ClaimDailyRewardMessageSchema.decodeAll(this);
         return "ClaimDailyRewardMessage{" +
                 "\n   claimKey=" + claimKey +
                 "\n   claimType=" + claimType;
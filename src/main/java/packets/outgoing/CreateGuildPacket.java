@@ -2,23 +2,28 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent to create a new guild.
  */
+@Schema
 public class CreateGuildPacket extends Packet {
     /**
      * The name of the guild being created.
      */
+    @Field
     public String name;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        name = buffer.readString();
+        CreateGuildPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        CreateGuildPacketSchema.decodeAll(this);
         return "CreateGuildPacket{" +
                 "\n   name=" + name;
     }
@@ -4,38 +4,43 @@ package packets.outgoing;
 import packets.Packet;
 import packets.data.WorldPosData;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent when playing the Summoner class and a spawned creep minion has to move position.
  */
+@Schema
 public class CreepMoveMessagePacket extends Packet {
     /**
      * The object ID of the Summoner's creep to move.
      */
+    @Field
     public int objectId;
     /**
      * Time of the server
      */
+    @Field
     public int serverTime;
     /**
      * The position to move the creep to.
      */
+    @Field
     public WorldPosData position;
     /**
      * Whether the Summoner ability key is held down.
      */
+    @Field
     public boolean hold;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        objectId = buffer.readInt();
-        serverTime = buffer.readInt();
-        position = new WorldPosData().deserialize(buffer);
-        hold = buffer.readBoolean();
+        CreepMoveMessagePacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        CreepMoveMessagePacketSchema.decodeAll(this);
         return "CreepMoveMessagePacket{" +
                 "\n   objectId=" + objectId +
                 "\n   serverTime=" + serverTime +
@@ -2,23 +2,28 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Unknown packet
  */
+@Schema
 public class DashAckPacket extends Packet {
     /**
      * The current client time.
      */
+    @Field
     public int time;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        time = buffer.readInt();
+        DashAckPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        DashAckPacketSchema.decodeAll(this);
         return "DashAckPacket{" +
                 "\n   time=" + time;
     }
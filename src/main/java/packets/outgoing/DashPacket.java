@@ -2,34 +2,39 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Packet confirmed Kensei dash to specific coordinates
  */
+@Schema
 public class DashPacket extends Packet {
     /**
      * The current client time.
      */
+    @Field
     public int time;
     /**
      * unknown ints
      */
+    @Field
     public float startX;
+    @Field
     public float startY;
+    @Field
     public float endX;
+    @Field
     public float endY;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        time = buffer.readInt();
-        startX = buffer.readFloat();
-        startY = buffer.readFloat();
-        endX = buffer.readFloat();
-        endY = buffer.readFloat();
+        DashPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        DashPacketSchema.decodeAll(this);
         return "DashPacket{" +
                 "\n   time=" + time +
                 "\n   startX=" + startX +
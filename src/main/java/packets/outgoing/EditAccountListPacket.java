@@ -2,33 +2,38 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent to edit an account id list.
  */
+@Schema
 public class EditAccountListPacket extends Packet {
     /**
      * The id of the account id list being edited.
      */
+    @Field
     public int accountListId;
     /**
      * Whether the edit is to add to the list or remove from it.
      */
+    @Field
     public boolean add;
     /**
      * The object id of the player to add to the list.
      */
+    @Field
     public int objectId;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        accountListId = buffer.readInt();
-        add = buffer.readBoolean();
-        objectId = buffer.readInt();
+        EditAccountListPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        EditAccountListPacketSchema.decodeAll(this);
         return "EditAccountListPacket{" +
                 "\n   accountListId=" + accountListId +
                 "\n   add=" + add +
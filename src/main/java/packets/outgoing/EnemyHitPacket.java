@@ -2,48 +2,53 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent when an enemy has been hit by the player.
  */
+@Schema
 public class EnemyHitPacket extends Packet {
     /**
      * The current client time.
      */
+    @Field
     public int time;
     /**
      * The id of the bullet which hit the enemy.
      */
+    @Field
     public short bulletId;
-    /**
-     * The object id of the enemy which was hit.
-     */
-    public int targetId;
     /**
      * ID of the shooter hitting the target.
      */
+    @Field
     public int shooterID;
+    /**
+     * The object id of the enemy which was hit.
+     */
+    @Field
+    public int targetId;
     /**
      * Whether the projectile will kill the enemy.
      */
+    @Field
     public boolean kill;
     /**
      * Id of the main player hitting the target.
      */
+    @Field
     public int mainID;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        time = buffer.readInt();
-        bulletId = buffer.readShort();
-        shooterID = buffer.readInt();
-        targetId = buffer.readInt();
-        kill = buffer.readBoolean();
-        mainID = buffer.readInt();
+        EnemyHitPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        EnemyHitPacketSchema.decodeAll(this);
         return "EnemyHitPacket{" +
                 "\n   time=" + time +
                 "\n   bulletId=" + bulletId +
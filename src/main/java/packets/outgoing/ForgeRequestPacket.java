@@ -2,29 +2,34 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 import packets.data.SlotObjectData;
 
 /**
  * Forge packet sent when forging.
  */
+@Schema
 public class ForgeRequestPacket extends Packet {
     /**
      * The object id of the item to forge.
      */
+    @Field
     public int objectId;
     /**
      * The items to dismantle.
      */
+    @Field
     public SlotObjectData slotsUsed;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        objectId = buffer.readInt();
-        slotsUsed = new SlotObjectData().deserialize(buffer);
+        ForgeRequestPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        ForgeRequestPacketSchema.decodeAll(this);
         return "ForgeRequestPacket{" +
                 "\n   objectId=" + objectId +
                 "\n   slotsUsed=" + slotsUsed;
@@ -2,34 +2,39 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent to create a new character.
  */
+@Schema
 public class GetPlayersListPacket extends Packet {
     /**
      * The class to use for the new character.
      */
+    @Field
     public short classType;
     /**
      * The skin id to use for the new character.
      * The default skin id is `0`.
      */
+    @Field
     public short skinType;
     /**
      * Whether the character is in challenger mode.
      */
+    @Field
     public boolean isChallenger;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        classType = buffer.readShort();
-        skinType = buffer.readShort();
-        isChallenger = buffer.readBoolean();
+        GetPlayersListPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        GetPlayersListPacketSchema.decodeAll(this);
         return "GetPlayersListPacket{" +
                 "\n   classType=" + classType +
                 "\n   skinType=" + skinType +
@@ -2,28 +2,33 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent to acknowledge a `GotoPacket`.
  */
+@Schema
 public class GotoAckPacket extends Packet {
     /**
      * The current client time.
      */
+    @Field
     public int time;
     /**
      * Unknown boolean
      */
-    private boolean unknownBoolean;
+    @Field
+    public boolean unknownBoolean;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        time = buffer.readInt();
-        unknownBoolean = buffer.readBoolean();
+        GotoAckPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        GotoAckPacketSchema.decodeAll(this);
         return "GotoAckPacket{" +
                 "\n   time=" + time +
                 "\n   unknownBoolean=" + unknownBoolean;
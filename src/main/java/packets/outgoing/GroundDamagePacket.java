@@ -2,29 +2,34 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 import packets.data.WorldPosData;
 
 /**
  * Sent when the client takes damage from a ground source, such as lava.
  */
+@Schema
 public class GroundDamagePacket extends Packet {
     /**
      * The current client time.
      */
+    @Field
     public int time;
     /**
      * The current client position.
      */
+    @Field
     public WorldPosData position;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        time = buffer.readInt();
-        position = new WorldPosData().deserialize(buffer);
+        GroundDamagePacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        GroundDamagePacketSchema.decodeAll(this);
         return "GroundDamagePacket{" +
                 "\n   time=" + time +
                 "\n   position=" + position;
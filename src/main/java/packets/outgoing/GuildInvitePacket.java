@@ -2,23 +2,28 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent to invite a player to the client's current guild.
  */
+@Schema
 public class GuildInvitePacket extends Packet {
     /**
      * The name of the player to invite.
      */
+    @Field
     public String name;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        name = buffer.readString();
+        GuildInvitePacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        GuildInvitePacketSchema.decodeAll(this);
         return "GuildInvitePacket{" +
                 "\n   name=" + name;
     }
@@ -2,23 +2,28 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent to remove a player from the client's current guild.
  */
+@Schema
 public class GuildRemovePacket extends Packet {
     /**
      * The name of the player to remove.
      */
+    @Field
     public String name;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        name = buffer.readString();
+        GuildRemovePacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        GuildRemovePacketSchema.decodeAll(this);
         return "GuildRemovePacket{" +
                 "\n   name=" + name;
     }
@@ -2,6 +2,8 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 import util.Util;
 
 import java.util.Arrays;
@@ -10,64 +12,67 @@ import java.util.Arrays;
  * Sent to prompt the server to accept the connection of an account
  * and reply with a `MapInfoPacket`.
  */
+@Schema
 public class HelloPacket extends Packet {
     /**
      * The current build version of RotMG.
      */
+    @Field
     public String buildVersion;
     /**
      * The id of the map to connect to.
      */
+    @Field
     public int gameId;
     /**
      * The access token from the AppEngine used to login
      */
+    @Field
     public String accessToken;
     /**
      * The key time of the `key` being used.
      */
+    @Field
     public int keyTime;
     /**
      * The key of the map to connect to.
      */
+    @Field
     public byte[] key;
     /**
      * The platform the user is using
      */
+    @Field
     public String userPlatform;
     /**
      * The platform the game is played on
      */
+    @Field
     public String playPlatform;
     /**
      * Steam token used to verify steam user verification
      */
+    @Field
     public String platformToken;
     /**
      * The client token (hwid) of the Unity client
      */
+    @Field
     public String clientToken;
     /**
      * Hardcoded token string
      */
+    @Field
     public String userToken;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        buildVersion = buffer.readString();
-        gameId = buffer.readInt();
-        accessToken = buffer.readString();
-        keyTime = buffer.readInt();
-        key = buffer.readByteArray();
-        userPlatform = buffer.readString();
-        playPlatform = buffer.readString();
-        platformToken = buffer.readString();
-        clientToken = buffer.readString();
-        userToken = buffer.readString();
+        HelloPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        HelloPacketSchema.decodeAll(this);
         return "HelloPacket{" +
                 "\n   buildVersion=" + buildVersion +
                 "\n   gameId=" + gameId +
@@ -2,34 +2,39 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 import packets.data.SlotObjectData;
 
 /**
  * Sent to drop an item from the client's inventory.
  */
+@Schema
 public class InvDropPacket extends Packet {
     /**
      * The slot to drop the item from.
      */
+    @Field
     public SlotObjectData slotObject;
     /**
      * Unknown
      */
+    @Field
     public byte unknownByte1;
     /**
      * Unknown
      */
+    @Field
     public byte unknownByte2;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        slotObject = new SlotObjectData().deserialize(buffer);
-        unknownByte1 = buffer.readByte();
-        unknownByte2 = buffer.readByte();
+        InvDropPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        InvDropPacketSchema.decodeAll(this);
         return "InvDropPacket{" +
                 "\n   slotObject=" + slotObject +
                 "\n   unknownByte1=" + unknownByte1 +
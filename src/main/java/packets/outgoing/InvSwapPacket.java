@@ -2,40 +2,45 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 import packets.data.SlotObjectData;
 import packets.data.WorldPosData;
 
 /**
  * Sent to swap the items of two slots.
  */
+@Schema
 public class InvSwapPacket extends Packet {
     /**
      * The current client time.
      */
+    @Field
     public int time;
     /**
      * The current client position.
      */
+    @Field
     public WorldPosData position;
     /**
      * The slot to swap from.
      */
+    @Field
     public SlotObjectData slotFrom;
     /**
      * The slot to swap to.
      */
+    @Field
     public SlotObjectData slotTo;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        time = buffer.readInt();
-        position = new WorldPosData().deserialize(buffer);
-        slotFrom = new SlotObjectData().deserialize(buffer);
-        slotTo  = new SlotObjectData().deserialize(buffer);
+        InvSwapPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        InvSwapPacketSchema.decodeAll(this);
         return "InvSwapPacket{" +
                 "\n   time=" + time +
                 "\n   position=" + position +
@@ -2,23 +2,28 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent to accept a pending guild invite.
  */
+@Schema
 public class JoinGuildPacket extends Packet {
     /**
      * The name of the guild for which there is a pending invite.
      */
+    @Field
     public String guildName;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        guildName = buffer.readString();
+        JoinGuildPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        JoinGuildPacketSchema.decodeAll(this);
         return "JoinGuildPacket{" +
                 "\n   guildName=" + guildName;
     }
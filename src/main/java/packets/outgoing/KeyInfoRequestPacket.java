@@ -2,23 +2,28 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * > Unknown.
  */
+@Schema
 public class KeyInfoRequestPacket extends Packet {
     /**
      * > Unknown.
      */
+    @Field
     public int itemType;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        itemType = buffer.readInt();
+        KeyInfoRequestPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        KeyInfoRequestPacketSchema.decodeAll(this);
         return "KeyInfoRequestPacket{" +
                 "\n   itemType=" + itemType;
     }
@@ -2,28 +2,33 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent in response to a `MapInfoPacket` to load a character into the map.
  */
+@Schema
 public class LoadPacket extends Packet {
     /**
      * The id of the character to load.
      */
+    @Field
     public int charId;
     /**
      * Unknown boolean
      */
+    @Field
     public boolean unknownBoolean;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        charId = buffer.readInt();
-        unknownBoolean = buffer.readBoolean();
+        LoadPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        LoadPacketSchema.decodeAll(this);
         return "LoadPacket{" +
                 "\n   charId=" + charId +
                 "\n   unknownBoolean=" + unknownBoolean;
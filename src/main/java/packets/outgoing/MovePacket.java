@@ -3,7 +3,8 @@ package packets.outgoing;
 import packets.Packet;
 import packets.reader.BufferReader;
 import packets.data.MoveRecord;
-import packets.data.WorldPosData;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 import java.util.Arrays;
 
@@ -11,34 +12,34 @@ import java.util.Arrays;
  * Sent to acknowledge a `NewTickPacket`, and to notify the
  * server of the client's current position and time.
  */
+@Schema
 public class MovePacket extends Packet {
     /**
      * The tick id of the `NewTickPacket` which this is acknowledging.
      */
+    @Field
     public int tickId;
     /**
      * The serverRealTimeMS.
      */
+    @Field
     public int time;
     /**
      * The move records of the client.
      * <p>
      * This property can be an empty array.
      */
+    @Field
     public MoveRecord[] records;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        tickId = buffer.readInt();
-        time = buffer.readInt();
-        records = new MoveRecord[buffer.readShort()];
-        for (int i = 0; i < records.length; i++) {
-            records[i] = new MoveRecord().deserialize(buffer);
-        }
+        MovePacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        MovePacketSchema.decodeAll(this);
         return "MovePacket{" +
                 "\n   tickId=" + tickId +
                 "\n   time=" + time +
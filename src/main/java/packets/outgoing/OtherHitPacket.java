@@ -2,38 +2,43 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent when an object or other player has been hit by an enemy projectile.
  */
+@Schema
 public class OtherHitPacket extends Packet {
     /**
      * The current client time.
      */
+    @Field
     public int time;
     /**
      * The id of the bullet which hit the object.
      */
+    @Field
     public short bulletId;
     /**
      * The object id of player who fired the projectile which hit the object.
      */
+    @Field
     public int objectId;
     /**
      * The object id of the object which was hit.
      */
+    @Field
     public int targetId;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        time = buffer.readInt();
-        bulletId = buffer.readShort();
-        objectId = buffer.readInt();
-        targetId = buffer.readInt();
+        OtherHitPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        OtherHitPacketSchema.decodeAll(this);
         return "OtherHitPacket{" +
                 "\n   time=" + time +
                 "\n   bulletId=" + bulletId +
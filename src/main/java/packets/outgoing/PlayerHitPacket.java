@@ -2,28 +2,33 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent when the player is hit.
  */
+@Schema
 public class PlayerHitPacket extends Packet {
     /**
      * The id of the bullet which hit the player.
      */
+    @Field
     public short bulletId;
     /**
      * The object id of the enemy that hit the player.
      */
+    @Field
     public int objectId;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        bulletId = buffer.readShort();
-        objectId = buffer.readInt();
+        PlayerHitPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        PlayerHitPacketSchema.decodeAll(this);
         return "PlayerHitPacket{" +
                 "\n   bulletId=" + bulletId +
                 "\n   objectId=" + objectId;
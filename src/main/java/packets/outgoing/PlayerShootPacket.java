@@ -2,55 +2,61 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
+import packets.schema.Wire;
 import packets.data.WorldPosData;
 
 /**
  * Sent when the player shoots a projectile.
  */
+@Schema
 public class PlayerShootPacket extends Packet {
     /**
      * The current client time.
      */
+    @Field
     public int time;
     /**
      * Counts the number of bullets sense entering dungeon.
      */
+    @Field
     public short bulletId;
     /**
      * The item id of the weapon used to fire the projectile.
      */
+    @Field(Wire.UNSIGNED_SHORT)
     public int weaponId;
     /**
      * ID of the projectile for weapons with multiple types of projectiles. (i.e. bows)
      * Warning: some projectileIDs can be -1 and should be treated as 0!
      */
+    @Field
     public byte projectileId;
     /**
      * The position of the starting point where the projectile was fired.
      */
+    @Field
     public WorldPosData startingPos;
     /**
      * The angle at which the projectile was fired.
      */
+    @Field
     public float angle;
     /**
      * If the projectile is related to a burst weapon projectile.
      */
+    @Field
     public boolean isBurst;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        time = buffer.readInt();
-        bulletId = buffer.readShort();
-        weaponId = buffer.readUnsignedShort();
-        projectileId = buffer.readByte();
-        startingPos = new WorldPosData().deserialize(buffer);
-        angle = buffer.readFloat();
-        isBurst = buffer.readBoolean();
+        PlayerShootPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        PlayerShootPacketSchema.decodeAll(this);
         return "PlayerShootPacket{" +
                 "\n   time=" + time +
                 "\n   bulletID=" + bulletId +
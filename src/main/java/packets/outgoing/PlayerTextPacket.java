@@ -2,23 +2,28 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent when the client sends a chat message.
  */
+@Schema
 public class PlayerTextPacket extends Packet {
     /**
      * The message to send.
      */
+    @Field
     public String text;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        text = buffer.readString();
+        PlayerTextPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        PlayerTextPacketSchema.decodeAll(this);
         return "PlayerTextPacket{" +
                 "\n   text=" + text;
     }
@@ -2,28 +2,33 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent to acknowledge the `PingPacket.`
  */
+@Schema
 public class PongPacket extends Packet {
     /**
      * The serial value received in the `PingPacket` which this acknowledges.
      */
+    @Field
     public int serial;
     /**
      * The current client time.
      */
+    @Field
     public int time;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        serial = buffer.readInt();
-        time = buffer.readInt();
+        PongPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        PongPacketSchema.decodeAll(this);
         return "PongPacket{" +
                 "\n   serial=" + serial +
                 "\n   time=" + time;
@@ -3,6 +3,8 @@ package packets.outgoing;
 import packets.Packet;
 import packets.data.QuestData;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 import packets.data.SlotObjectData;
 
 import java.util.Arrays;
@@ -10,32 +12,32 @@ import java.util.Arrays;
 /**
  * Packet sent when redeeming a quest.
  */
+@Schema
 public class QuestRedeemPacket extends Packet {
     /**
      * ID of the quest
      */
+    @Field
     String questIdString;
     /**
      * > Unknown int
      */
+    @Field
     public int questIdInt;
     /**
      * > Unknown slots
      */
+    @Field
     public SlotObjectData[] slots;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        questIdString = buffer.readString();
-        questIdInt = buffer.readInt();
-        slots = new SlotObjectData[buffer.readShort()];
-        for (int i = 0; i < slots.length; i++) {
-            slots[i] = new SlotObjectData().deserialize(buffer);
-        }
+        QuestRedeemPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        QuestRedeemPacketSchema.decodeAll(this);
         return "QuestRedeemPacket{" +
                 "\n   questIdString=" + questIdString +
                 "\n   questIdInt=" + questIdInt +
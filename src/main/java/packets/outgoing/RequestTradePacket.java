@@ -2,24 +2,29 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent to request a trade with a player, as well as
  * to accept a pending trade with a player.
  */
+@Schema
 public class RequestTradePacket extends Packet {
     /**
      * The name of the player to request the trade with.
      */
+    @Field
     public String name;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        name = buffer.readString();
+        RequestTradePacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        RequestTradePacketSchema.decodeAll(this);
         return "RequestTradePacket{" +
                 "\n   name=" + name;
     }
@@ -2,34 +2,39 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 import packets.data.SlotObjectData;
 
 /**
  * Sent to make an update to the pet currently following the player
  */
+@Schema
 public class ReskinPetPacket extends Packet {
     /**
      * The instance id of the pet to update
      */
+    @Field
     public int instanceId;
     /**
      * The pet type that the pet will become after the form change
      */
+    @Field
     public int newPetType;
     /**
      * The slot object of a pet stone if one is used
      */
+    @Field
     public SlotObjectData item;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        instanceId = buffer.readInt();
-        newPetType = buffer.readInt();
-        item = new SlotObjectData().deserialize(buffer);
+        ReskinPetPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        ReskinPetPacketSchema.decodeAll(this);
         return "ReskinPetPacket{" +
                 "\n   instanceId=" + instanceId +
                 "\n   newPetType=" + newPetType +
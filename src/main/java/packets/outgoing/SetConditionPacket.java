@@ -2,28 +2,33 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent when the player inflicts a condition effect.
  */
+@Schema
 public class SetConditionPacket extends Packet {
     /**
      * The condition effect being conflicted.
      */
+    @Field
     public byte conditionEffect;
     /**
      * The duration of the conditin effect.
      */
+    @Field
     public float conditionDuration;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        conditionEffect = buffer.readByte();
-        conditionDuration = buffer.readFloat();
+        SetConditionPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        SetConditionPacketSchema.decodeAll(this);
         return "SetConditionPacket{" +
                 "\n   conditionEffect=" + conditionEffect +
                 "\n   conditionDuration=" + conditionDuration;
@@ -2,29 +2,34 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * This packet has unknown usage and the game will function without using it.
  * It's most likely used by the server to track the total count of ShootAckPackets sent over time.
  */
+@Schema
 public class ShootAckCounterPacket extends Packet {
     /**
      * Time
      */
+    @Field
     public int time;
     /**
      * Enemy shots ACKed
      */
+    @Field
     public short ack;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        time = buffer.readInt();
-        ack = buffer.readShort();
+        ShootAckCounterPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        ShootAckCounterPacketSchema.decodeAll(this);
         return "ShootAckCounterPacket{" +
                 "\n   time=" + time +
                 "\n   ack=" + ack;
@@ -2,23 +2,28 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent to acknowledge an `EnemyShootPacket`.
  */
+@Schema
 public class ShootAckPacket extends Packet {
     /**
      * The current client time.
      */
+    @Field
     public int time;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        time = buffer.readInt();
+        ShootAckPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        ShootAckPacketSchema.decodeAll(this);
         return "ShootAckPacket{" +
                 "\n   time=" + time;
     }
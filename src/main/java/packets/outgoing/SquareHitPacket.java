@@ -2,33 +2,38 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Type of packet sent when some type of hostiles fire.
  */
+@Schema
 public class SquareHitPacket extends Packet {
     /**
      * The current client time.
      */
+    @Field
     public int time;
     /**
      * The id of the bullet which hit the object.
      */
+    @Field
     public short bulletId;
     /**
      * The id of the object shooting.
      */
+    @Field
     public int objectId;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        time = buffer.readInt();
-        bulletId = buffer.readShort();
-        objectId = buffer.readInt();
+        SquareHitPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        SquareHitPacketSchema.decodeAll(this);
         return "SquareHitPacket{" +
                 "\n   time=" + time +
                 "\n   bulletId=" + bulletId +
@@ -2,28 +2,33 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent to teleport to another player.
  */
+@Schema
 public class TeleportPacket extends Packet {
     /**
      * The object id of the player to teleport to.
      */
+    @Field
     public int objectId;
     /**
      * The object name of the player to teleport to
      */
+    @Field
     public String name;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        objectId = buffer.readInt();
-        name = buffer.readString();
+        TeleportPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        TeleportPacketSchema.decodeAll(this);
         return "TeleportPacket{" +
                 "\n   objectId=" + objectId +
                 "\n   name=" + name;
@@ -2,28 +2,33 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Unknown packet that rarely is used.
  */
+@Schema
 public class UnknownPacket134 extends Packet {
     /**
      * Unknown
      */
+    @Field
     int unknownInt;
     /**
      * Unknown
      */
+    @Field
     byte unknownByte;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        unknownInt = buffer.readInt();
-        unknownByte = buffer.readByte();
+        UnknownPacket134Schema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        UnknownPacket134Schema.decodeAll(this);
         return "UnknownPacket134{" +
                 "\n   unknownInt=" + unknownInt +
                 "\n   unknownByte=" + unknownByte;
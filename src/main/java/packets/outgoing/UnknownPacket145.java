@@ -2,23 +2,28 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Nothing is known about this packet
  */
+@Schema
 public class UnknownPacket145 extends Packet {
     /**
      * Unknown int
      */
+    @Field
     public int unknownInt;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        unknownInt = buffer.readInt();
+        UnknownPacket145Schema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        UnknownPacket145Schema.decodeAll(this);
         return "UnknownPacket145{" +
                 "\n   unknownInt=" + unknownInt;
     }
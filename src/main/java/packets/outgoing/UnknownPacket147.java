@@ -2,32 +2,38 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
+import packets.schema.Wire;
 
 /**
  * Nothing is known about this packet
  */
+@Schema
 public class UnknownPacket147 extends Packet {
     /**
      * Unknown byte
      */
+    @Field(Wire.BYTE)
     public int unknownByte;
     /**
      * Unknown int
      */
+    @Field
     public int unknownInt1;
+    @Field
     public int unknownInt2;
+    @Field
     public int unknownInt3;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        unknownByte = buffer.readByte();
-        unknownInt1 = buffer.readInt();
-        unknownInt2 = buffer.readInt();
-        unknownInt3 = buffer.readInt();
+        UnknownPacket147Schema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        UnknownPacket147Schema.decodeAll(this);
         return "UnknownPacket147{" +
                 "\n   unknownByte=" + unknownByte +
                 "\n   unknownInt1=" + unknownInt1 +
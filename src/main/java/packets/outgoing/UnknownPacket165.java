@@ -2,30 +2,36 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
+import packets.schema.Wire;
 
 /**
  * Packets to do with quest updates from seasonal quests.
  */
+@Schema
 public class UnknownPacket165 extends Packet {
     /**
      * Unknown byte
      */
+    @Field(Wire.BYTE)
     public int unknownByte;
     /**
      * Unknown int
      */
+    @Field
     public int unknownInt1;
+    @Field
     public int unknownInt2;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        unknownByte = buffer.readByte();
-        unknownInt1 = buffer.readInt();
-        unknownInt2 = buffer.readInt();
+        UnknownPacket165Schema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        UnknownPacket165Schema.decodeAll(this);
         return "UnknownPacket147{" +
                 "\n   unknownByte=" + unknownByte +
                 "\n   unknownInt1=" + unknownInt1 +
@@ -2,24 +2,29 @@ package packets.outgoing;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent to prompt the server to send a `ReconnectPacket` which
  * contains the reconnect information for the used portal.
  */
+@Schema
 public class UsePortalPacket extends Packet {
     /**
      * The object id of the portal to enter.
      */
+    @Field
     public int objectId;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        objectId = buffer.readInt();
+        UsePortalPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        UsePortalPacketSchema.decodeAll(this);
         return "UsePortalPacket{" +
                 "\n   objectId=" + objectId;
     }
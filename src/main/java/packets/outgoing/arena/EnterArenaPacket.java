@@ -2,18 +2,22 @@ package packets.outgoing.arena;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent to enter the arena.
  */
+@Schema
 public class EnterArenaPacket extends Packet {
     /**
      * > Unknown.
      */
+    @Field
     public int currency;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        currency = buffer.readInt();
+        EnterArenaPacketSchema.deserialize(this, buffer);
     }
 }
@@ -2,23 +2,28 @@ package packets.outgoing.pets;
 
 import packets.Packet;
 import packets.reader.BufferReader;
+import packets.schema.Field;
+import packets.schema.Schema;
 
 /**
  * Sent to activate a new skin for the current character.
  */
+@Schema
 public class ReskinPacket extends Packet {
     /**
      * The id of the skin to activate.
      */
+    @Field
     public int skinId;
 
     @Override
     public void deserialize(BufferReader buffer) throws Exception {
-        skinId = buffer.readInt();
+        ReskinPacketSchema.deserialize(this, buffer);
     }
 
     @Override
     public String toString() {
+        ReskinPacketSchema.decodeAll(this);
         return "ReskinPacket{" +
                 "\n   skinId=" + skinId;
     }
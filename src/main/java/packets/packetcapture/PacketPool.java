@@ -0,0 +1,121 @@
+package packets.packetcapture;
+
+import packets.Packet;
+import packets.PacketType;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of packet instances for the packet types received at a high rate. A packet is handed back
+ * once all listeners processed it and reused for the next packet of its type, the objects and
+ * arrays held by its fields are reused by the deserializer as long as the lengths match.
+ * <p>
+ * Listeners keeping a pooled packet or any object held by its fields after processing it must
+ * call {@link Packet#retain()} before returning from processing it, retained packets are never
+ * reused. Retaining the packet later, for example on another thread it was handed to, is too
+ * late as the packet is already reused. Each processing thread owns its own pool.
+ */
+public class PacketPool {
+
+    private static final int MAX_FREE = 4;
+    private static final boolean[] POOLED = new boolean[256];
+    private static final ThreadLocal<PacketPool> pools = ThreadLocal.withInitial(PacketPool::new);
+    private static final LongAdder acquired = new LongAdder();
+    private static final LongAdder hits = new LongAdder();
+    private final ArrayDeque<Packet>[] free;
+
+    static {
+        PacketType[] types = {PacketType.NEWTICK, PacketType.MOVE, PacketType.UPDATE, PacketType.ENEMYSHOOT, PacketType.SERVERPLAYERSHOOT, PacketType.DAMAGE};
+        for (PacketType type : types) {
+            POOLED[type.getIndex() & 0xFF] = true;
+        }
+    }
+
+    private PacketPool() {
+        free = newFree(256);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArrayDeque<Packet>[] newFree(int count) {
+        return (ArrayDeque<Packet>[]) new ArrayDeque<?>[count];
+    }
+
+    /**
+     * Checks if packets of a type are pooled.
+     *
+     * @param type Type of the packet.
+     * @return True if the type is pooled.
+     */
+    public static boolean isPooled(byte type) {
+        return POOLED[type & 0xFF];
+    }
+
+    /**
+     * Takes a packet of a pooled type out of the pool of the calling thread, a new packet is
+     * created if the pool is empty.
+     *
+     * @param type Type of the packet.
+     * @return Packet ready to be deserialized into.
+     */
+    public static Packet acquire(byte type) {
+        return pools.get().take(type);
+    }
+
+    private Packet take(byte type) {
+        acquired.increment();
+        ArrayDeque<Packet> packets = free[type & 0xFF];
+        Packet packet = packets == null ? null : packets.poll();
+        if (packet == null) return PacketType.getPacket(type).factory();
+        hits.increment();
+        return packet;
+    }
+
+    /**
+     * Hands a processed packet back to the pool of the calling thread. Retained packets and
+     * packets of types not pooled are left alone.
+     *
+     * @param type   Type of the packet.
+     * @param packet Packet no longer used by any listener.
+     */
+    public static void recycle(byte type, Packet packet) {
+        if (!isPooled(type) || packet.isPinned()) return;
+        pools.get().give(type, packet);
+    }
+
+    private void give(byte type, Packet packet) {
+        ArrayDeque<Packet> packets = free[type & 0xFF];
+        if (packets == null) packets = free[type & 0xFF] = new ArrayDeque<>(MAX_FREE);
+        if (packets.size() >= MAX_FREE) return;
+        packet.recycle();
+        packets.push(packet);
+    }
+
+    /**
+     * Number of packets taken out of all pools.
+     *
+     * @return Number of acquired packets.
+     */
+    public static long getAcquiredCount() {
+        return acquired.sum();
+    }
+
+    /**
+     * Number of packet allocations saved by reusing a pooled packet.
+     *
+     * @return Number of reused packets.
+     */
+    public static long getAllocationsSaved() {
+        return hits.sum();
+    }
+
+    /**
+     * Share of packets reused from a pool instead of allocated.
+     *
+     * @return Hit rate between 0 and 1.
+     */
+    public static double getHitRate() {
+        long a = acquired.sum();
+        return a == 0 ? 0 : (double) hits.sum() / a;
+    }
+}
@@ -3,18 +3,28 @@ package packets.packetcapture;
 import packets.Packet;
 import packets.PacketType;
 import packets.incoming.ip.IpAddress;
+import packets.packetcapture.encryption.AlignmentCoordinator;
+import packets.packetcapture.encryption.KeystreamIndex;
+import packets.packetcapture.encryption.PrefetchedRC4;
 import packets.packetcapture.encryption.RC4;
 import packets.packetcapture.encryption.RotMGRC4Keys;
 import packets.packetcapture.logger.PacketLogger;
+import packets.packetcapture.pconstructor.PacketBuffer;
 import packets.packetcapture.pconstructor.PacketConstructor;
 import packets.packetcapture.register.Register;
+import packets.packetcapture.sniff.CaptureProfile;
+import packets.packetcapture.sniff.PConnection;
 import packets.packetcapture.sniff.PProcessor;
 import packets.packetcapture.sniff.Sniffer;
+import packets.packetcapture.sniff.WaitStrategy;
+import packets.packetcapture.sniff.pcapfile.PcapNgRecorder;
 import packets.reader.BufferReader;
+import packets.reader.FastBufferReader;
 import packets.packetcapture.sniff.gui.MissingNpcapGUI;
 import util.Util;
 
 import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.Arrays;
 
 /**
@@ -22,24 +32,35 @@ import java.util.Arrays;
  * are filtered for port 2050, the rotmg port, and TCP packets. Then the packets are stitched together in
  * streamConstructor and rotmgConstructor class. After the packets are constructed the RC4 cipher is used
  * decrypt the data. The data is then matched with target classes and emitted through the registry.
+ * <p>
+ * Every TCP connection to a game server gets its own constructors and ciphers, multiple game clients
+ * on the same host are processed independently and their packets are tagged with a connection id.
  */
 public class PacketProcessor extends Thread implements PProcessor {
-    private final PacketConstructor incomingPacketConstructor;
-    private final PacketConstructor outgoingPacketConstructor;
     private final Sniffer sniffer;
     private final PacketLogger logger;
-    private final byte[] srcAddr;
+    private volatile boolean copyPayload = true;
+    private volatile int keystreamPrefetch;
+    private volatile boolean selectiveDecryption;
+    private volatile boolean[] lazyDecoding = new boolean[256];
+    private volatile boolean packetPooling;
 
     /**
      * Basic constructor of packetProcessor
      * TODO: Add linux and mac support later
      */
     public PacketProcessor() {
-        sniffer = new Sniffer(this);
-        incomingPacketConstructor = new PacketConstructor(this, new RC4(RotMGRC4Keys.INCOMING_STRING));
-        outgoingPacketConstructor = new PacketConstructor(this, new RC4(RotMGRC4Keys.OUTGOING_STRING));
+        this(1);
+    }
+
+    /**
+     * Constructor of packetProcessor spreading the connections over a number of threads.
+     *
+     * @param shards Number of threads processing connections, one thread per game client scales best.
+     */
+    public PacketProcessor(int shards) {
+        sniffer = new Sniffer(this, new WaitStrategy.Blocking(), shards);
         logger = new PacketLogger();
-        srcAddr = new byte[4];
     }
 
     /**
@@ -61,8 +82,7 @@ public class PacketProcessor extends Thread implements PProcessor {
      */
     public void tapPackets() {
         logger.startLogger();
-        incomingPacketConstructor.startResets();
-        outgoingPacketConstructor.startResets();
+        KeystreamIndex.load();
         try {
             sniffer.startSniffer();
         } catch (UnsatisfiedLinkError e) {
@@ -73,75 +93,248 @@ public class PacketProcessor extends Thread implements PProcessor {
     }
 
     /**
-     * Incoming byte data received from incoming TCP packets.
+     * Records every captured frame into rotating pcapng files.
      *
-     * @param data    Incoming byte stream
-     * @param srcAddr Source IP of incoming packets.
+     * @param recorder Recorder the captured frames are written to, null to stop recording.
      */
-    @Override
-    public void incomingStream(byte[] data, byte[] srcAddr) {
-        logger.addIncoming(data.length);
-        ipEmitter(srcAddr);
-        incomingPacketConstructor.build(data);
-        Register.INSTANCE.emitPacketLogs();
+    public void setRecorder(PcapNgRecorder recorder) {
+        sniffer.setRecorder(recorder);
     }
 
     /**
-     * Outgoing byte data received from outgoing TCP packets.
+     * Captures frames in batches of up to the given size per native upcall instead of one
+     * frame at a time. Must be set before the sniffer is started.
      *
-     * @param data Outgoing byte stream
+     * @param batchSize Max frames per batch, 0 to capture frame by frame.
      */
-    @Override
-    public void outgoingStream(byte[] data, byte[] srcAddr) {
-        logger.addOutgoing(data.length);
-        outgoingPacketConstructor.build(data);
-        Register.INSTANCE.emitPacketLogs();
+    public void setCaptureBatchSize(int batchSize) {
+        sniffer.setBatchSize(batchSize);
     }
 
     /**
-     * Emits IP changes as incoming packet.
+     * Sets the tuning of the capture handles. Must be set before the sniffer is started.
      *
-     * @param srcIp Source IP of incoming packets.
+     * @param profile Capture profile, low latency or high throughput presets or a custom profile.
      */
-    private void ipEmitter(byte[] srcIp) {
-        for (int i = 0; i < srcAddr.length; i++) {
-            if (srcAddr[i] != srcIp[i]) {
-                System.arraycopy(srcIp, 0, srcAddr, 0, srcAddr.length);
-                Register.INSTANCE.emitPacketLogs(new IpAddress(srcIp));
-                return;
-            }
+    public void setCaptureProfile(CaptureProfile profile) {
+        sniffer.setCaptureProfile(profile);
+    }
+
+    /**
+     * Processes a pcap or pcapng capture file instead of sniffing the network tap. Used to
+     * re-process recorded traffic or to benchmark the processing without a live session. The
+     * key stream index is loaded before the first frame is processed.
+     *
+     * @param file     Capture file to be processed.
+     * @param realTime True to replay the frames paced by their capture timestamps, false
+     *                 to process the file at maximum speed.
+     */
+    public void tapCaptureFile(Path file, boolean realTime) {
+        logger.startLogger();
+        KeystreamIndex.load();
+        try {
+            KeystreamIndex.awaitLoaded();
+            sniffer.startOfflineSniffer(file, realTime);
+        } catch (Exception e) {
+            e.printStackTrace();
         }
     }
 
+    /**
+     * Creates the constructors and ciphers of a new connection.
+     *
+     * @param connectionId Unique id of the connection.
+     * @return Processing of the connection.
+     */
+    @Override
+    public PConnection newConnection(int connectionId) {
+        return new Connection(connectionId);
+    }
+
     /**
      * Completed packets constructed by stream and rotmg constructor returned to packet constructor.
      * Decoded by the cipher and sent back to the processor to be emitted to subscribed users.
      *
-     * @param type Constructed packet type.
-     * @param size size of the packet.
-     * @param data Constructed packet data.
+     * @param connectionId Id of the connection the packet is received on.
+     * @param type         Constructed packet type.
+     * @param size         size of the packet.
+     * @param data         Constructed packet data.
+     */
+    public void processPackets(int connectionId, byte type, int size, ByteBuffer data) {
+        processPackets(connectionId, type, size, PacketBuffer.borrow(data.array(), data.arrayOffset(), data.capacity()));
+    }
+
+    /**
+     * Deserializes a decrypted packet and emits it to the registered listeners. The packet
+     * references the buffer only while it is emitted. Payloads are copied into every packet
+     * up front unless copy payload is disabled, listeners then keeping the packet or its
+     * bytes past the emit must call {@link Packet#retain()} or copy the payload with
+     * {@link Packet#getPayload()} while handling the packet. Update visitors read their packets before
+     * the listeners, packets only visited aren't deserialized.
+     *
+     * @param connectionId Id of the connection the packet was received on.
+     * @param type         Type of the packet.
+     * @param size         Size of the packet.
+     * @param packet       Buffer of the decrypted packet including the header.
      */
-    public void processPackets(byte type, int size, ByteBuffer data) {
+    public void processPackets(int connectionId, byte type, int size, PacketBuffer packet) {
         if (!PacketType.containsKey(type)) {
-            System.err.println("Unknown packet type:" + type + " Data:" + Arrays.toString(data.array()));
+            System.err.println("Unknown packet type:" + type + " Data:" + Arrays.toString(packet.copy()));
             return;
         }
         logger.addPacket(type, size);
-        Packet packetType = PacketType.getPacket(type).factory();
-        packetType.setData(data.array());
-        BufferReader pData = new BufferReader(data);
+        if (Register.INSTANCE.isVisited(type)) {
+            try {
+                Register.INSTANCE.emitVisitors(connectionId, type, packet);
+            } catch (Exception e) {
+                Util.print("Visitor exploded: " + PacketType.byOrdinal(type) + " " + e);
+            }
+            if (!Register.INSTANCE.isListened(type)) return;
+        }
+        boolean pooled = packetPooling && PacketPool.isPooled(type);
+        Packet packetType = pooled ? PacketPool.acquire(type) : PacketType.getPacket(type).factory();
+        if (copyPayload) packetType.setData(packet.copy());
+        packetType.setBuffer(packet);
+        packetType.setConnectionId(connectionId);
+        BufferReader pData = new FastBufferReader(packet.array(), packet.offset(), packet.length(), 5);
 
         try {
-            packetType.deserialize(pData);
-            if (!pData.isBufferFullyParsed()) {
-                pData.printError(packetType);
+            if (lazyDecoding[type & 0xFF]) {
+                packetType.setLazy();
+            } else {
+                try {
+                    packetType.deserialize(pData);
+                    if (!pData.isBufferFullyParsed()) {
+                        pData.printError(packetType);
+                    }
+                } catch (Exception e) {
+                    Util.print("Buffer exploded: " + pData.getIndex() + "/" + pData.size());
+                    debugPackets(type, packet.view());
+                    return;
+                }
             }
-        } catch (Exception e) {
-            Util.print("Buffer exploded: " + pData.getIndex() + "/" + pData.size());
-            debugPackets(type, data);
-            return;
+            Register.INSTANCE.emitPacketLogs(packetType);
+        } finally {
+            if (!packetType.isRetained()) packetType.setBuffer(null);
+            if (pooled) PacketPool.recycle(type, packetType);
+        }
+    }
+
+    /**
+     * Copies the payload of every packet up front, for listeners reading
+     * {@link Packet#getPayload()} after the packet is emitted. Enabled by default, disabling
+     * saves a copy per packet but {@link Packet#getPayload()} then returns null after the emit
+     * unless the packet was retained.
+     *
+     * @param copy True to copy every payload.
+     */
+    public void setCopyPayload(boolean copy) {
+        copyPayload = copy;
+    }
+
+    /**
+     * Reuses the packet instances of the packet types received at a high rate, see
+     * {@link PacketPool}. Listeners keeping pooled packets after processing them must
+     * call {@link Packet#retain()} inside IPacketListener.process, before returning. A packet
+     * handed to another thread and retained there may already be reused for the next packet
+     * of its type.
+     *
+     * @param pooling True to reuse packets.
+     */
+    public void setPacketPooling(boolean pooling) {
+        packetPooling = pooling;
+    }
+
+    /**
+     * Emits packets of the given types lazily instead of deserializing them up front. The fields
+     * of lazy packets are decoded on first access through the accessors of the schema generated
+     * for the packet, for example NewTickPacketSchema.getTickId(packet). Only packets with a
+     * schema can be lazy and all listeners of the types must read the fields through the
+     * accessors.
+     *
+     * @param types Packet types emitted lazily, none to deserialize all packets up front.
+     * @throws IllegalArgumentException If a type has no schema generated for lazy decoding.
+     */
+    public void setLazyDecoding(PacketType... types) {
+        boolean[] lazy = new boolean[256];
+        for (PacketType type : types) {
+            if (!hasLazySchema(type)) throw new IllegalArgumentException("No schema to decode " + type + " lazily");
+            lazy[type.getIndex() & 0xFF] = true;
+        }
+        lazyDecoding = lazy;
+    }
+
+    /**
+     * Checks if the schema processor generated the lazy accessors of a packet type.
+     */
+    private static boolean hasLazySchema(PacketType type) {
+        Class<? extends Packet> packetClass = type.getPacketClass();
+        try {
+            Class.forName(packetClass.getName() + "Schema", false, packetClass.getClassLoader()).getMethod("decodeAll", packetClass);
+            return true;
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            return false;
         }
-        Register.INSTANCE.emitPacketLogs(packetType);
+    }
+
+    /**
+     * Skips packets of types no listener is registered for in {@link Register}. The cipher is
+     * moved past the skipped packets without decrypting them and they are not deserialized,
+     * only the tick and ping fields the aligner needs are decrypted.
+     *
+     * @param selective True to skip unsubscribed packet types.
+     */
+    public void setSelectiveDecryption(boolean selective) {
+        selectiveDecryption = selective;
+    }
+
+    /**
+     * Checks if a packet type is skipped instead of decrypted.
+     *
+     * @param type Type of the packet.
+     * @return True if selective decryption is enabled and nobody listens to the type.
+     */
+    public boolean isSkipped(byte type) {
+        return selectiveDecryption && PacketType.containsKey(type) && !Register.INSTANCE.isSubscribed(type);
+    }
+
+    /**
+     * Logs a packet skipped without decrypting.
+     *
+     * @param type Type of the packet.
+     * @param size Size of the packet.
+     */
+    public void packetSkipped(byte type, int size) {
+        logger.addPacket(type, size);
+        logger.addSkipped(size);
+    }
+
+    /**
+     * Generates the key stream of new connections ahead of time on a background thread per
+     * cipher, decrypting becomes a plain XOR. Connections already open keep their ciphers.
+     *
+     * @param kilobytes Kilobytes of key stream kept ahead of each cipher, 0 to disable.
+     */
+    public void setKeystreamPrefetch(int kilobytes) {
+        keystreamPrefetch = kilobytes;
+    }
+
+    /**
+     * Names of the own characters, text packets sent by them are used to re-align the ciphers
+     * after a desync.
+     *
+     * @param names Names of the players.
+     */
+    public void setKnownNames(String... names) {
+        AlignmentCoordinator.setKnownNames(names);
+    }
+
+    /**
+     * Cipher for a new connection, prefetched if enabled.
+     */
+    private RC4 cipher(String key) {
+        int kilobytes = keystreamPrefetch;
+        return kilobytes > 0 ? new PrefetchedRC4(key, kilobytes) : new RC4(key);
     }
 
     /**
@@ -167,13 +360,95 @@ public class PacketProcessor extends Thread implements PProcessor {
         sniffer.closeSniffers();
     }
 
-    @Override
-    public void resetIncoming() {
-        incomingPacketConstructor.reset();
-    }
+    /**
+     * Processing of a single connection with its own constructors and ciphers.
+     */
+    private class Connection implements PConnection {
+        private final int connectionId;
+        private final PacketConstructor incomingPacketConstructor;
+        private final PacketConstructor outgoingPacketConstructor;
+        private final byte[] srcAddr = new byte[4];
 
-    @Override
-    public void resetOutgoing() {
-        outgoingPacketConstructor.reset();
+        Connection(int connectionId) {
+            this.connectionId = connectionId;
+            AlignmentCoordinator alignment = new AlignmentCoordinator();
+            incomingPacketConstructor = new PacketConstructor(PacketProcessor.this, cipher(RotMGRC4Keys.INCOMING_STRING), connectionId, alignment);
+            outgoingPacketConstructor = new PacketConstructor(PacketProcessor.this, cipher(RotMGRC4Keys.OUTGOING_STRING), connectionId, alignment);
+            incomingPacketConstructor.startResets();
+            outgoingPacketConstructor.startResets();
+        }
+
+        /**
+         * Incoming byte data received from incoming TCP packets.
+         *
+         * @param data    Incoming byte stream
+         * @param offset  Offset of the stream bytes in the data array.
+         * @param length  Length of the stream bytes.
+         * @param srcAddr Source IP of incoming packets.
+         */
+        @Override
+        public void incomingStream(byte[] data, int offset, int length, byte[] srcAddr) {
+            logger.addIncoming(length);
+            ipEmitter(srcAddr);
+            incomingPacketConstructor.build(data, offset, length);
+            Register.INSTANCE.emitPacketLogs();
+        }
+
+        /**
+         * Outgoing byte data received from outgoing TCP packets.
+         *
+         * @param data   Outgoing byte stream
+         * @param offset Offset of the stream bytes in the data array.
+         * @param length Length of the stream bytes.
+         */
+        @Override
+        public void outgoingStream(byte[] data, int offset, int length, byte[] srcAddr) {
+            logger.addOutgoing(length);
+            outgoingPacketConstructor.build(data, offset, length);
+            Register.INSTANCE.emitPacketLogs();
+        }
+
+        /**
+         * Emits IP changes as incoming packet.
+         *
+         * @param srcIp Source IP of incoming packets.
+         */
+        private void ipEmitter(byte[] srcIp) {
+            for (int i = 0; i < srcAddr.length; i++) {
+                if (srcAddr[i] != srcIp[i]) {
+                    System.arraycopy(srcIp, 0, srcAddr, 0, srcAddr.length);
+                    IpAddress ipAddress = new IpAddress(Arrays.copyOf(srcIp, srcIp.length));
+                    ipAddress.setConnectionId(connectionId);
+                    Register.INSTANCE.emitPacketLogs(ipAddress);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void incomingGap(int length) {
+            incomingPacketConstructor.gap(length);
+        }
+
+        @Override
+        public void outgoingGap(int length) {
+            outgoingPacketConstructor.gap(length);
+        }
+
+        @Override
+        public void resetIncoming() {
+            incomingPacketConstructor.reset();
+        }
+
+        @Override
+        public void resetOutgoing() {
+            outgoingPacketConstructor.reset();
+        }
+
+        @Override
+        public void close() {
+            incomingPacketConstructor.close();
+            outgoingPacketConstructor.close();
+        }
     }
 }
@@ -0,0 +1,111 @@
+package packets.packetcapture.encryption;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coordinates the re-alignment of the incoming and outgoing cipher of a connection. Each
+ * {@link TickAligner} searches several anchors in parallel while out of sync, the first
+ * verified hit aligns the cipher:
+ * <ul>
+ * <li>Two consecutive tick packets, ticks incremented by one.</li>
+ * <li>Text packets sent by a known player name.</li>
+ * <li>Ping packets, the client answers a ping with a pong holding the same serial. The serial
+ * decrypted by the aligned direction is known plain text for the other direction. Only 4 bytes
+ * are matched, the hit is verified with two consecutive ticks before the cipher is aligned.</li>
+ * </ul>
+ * Used from the thread processing the connection, the searches report back to the aligners.
+ */
+public class AlignmentCoordinator {
+    private static final int SERIALS = 4;
+    private static volatile String[] knownNames = new String[0];
+    private final int[] serials = new int[SERIALS];
+    private final TickAligner[] serialSources = new TickAligner[SERIALS];
+    private final PendingSerial[] pending = new PendingSerial[SERIALS];
+    private int serialCount;
+    private int pendingCount;
+
+    /**
+     * Player names expected as senders of text packets, used to align ciphers from text packets.
+     *
+     * @param names Names of players, usually the names of the own characters.
+     */
+    public static void setKnownNames(String... names) {
+        knownNames = names.clone();
+    }
+
+    static String[] getKnownNames() {
+        return knownNames;
+    }
+
+    /**
+     * A ping serial decrypted by an aligned cipher. Pending ping packets of the other direction
+     * are searched with the serial.
+     *
+     * @param source Aligner of the direction the serial was decrypted in.
+     * @param serial Serial of the ping or pong.
+     */
+    void serialSeen(TickAligner source, int serial) {
+        int slot = serialCount++ % SERIALS;
+        serials[slot] = serial;
+        serialSources[slot] = source;
+        for (int k = 0; k < Math.min(pendingCount, SERIALS); k++) {
+            PendingSerial p = pending[k];
+            if (p.aligner != source) p.aligner.searchSerial(p.encrypted, p.position, p.episode, serial);
+        }
+    }
+
+    /**
+     * A ping or pong packet received out of sync. Searched with the serials decrypted by the
+     * other direction and kept for serials still to come.
+     *
+     * @param aligner   Aligner out of sync.
+     * @param encrypted Encrypted serial.
+     * @param position  Position of the serial in the stream of the aligner.
+     * @param episode   Alignment episode of the aligner.
+     */
+    void serialPending(TickAligner aligner, byte[] encrypted, long position, int episode) {
+        pending[pendingCount++ % SERIALS] = new PendingSerial(aligner, encrypted, position, episode);
+        for (int k = 0; k < Math.min(serialCount, SERIALS); k++) {
+            if (serialSources[k] != aligner) aligner.searchSerial(encrypted, position, episode, serials[k]);
+        }
+    }
+
+    /**
+     * Anchors the ciphers are aligned with.
+     */
+    public enum Anchor {
+        TICK, TEXT, PING;
+
+        private final LongAdder alignments = new LongAdder();
+
+        void aligned() {
+            alignments.increment();
+        }
+
+        /**
+         * Number of alignments found with the anchor.
+         *
+         * @return Alignments of all connections.
+         */
+        public long getAlignments() {
+            return alignments.sum();
+        }
+    }
+
+    /**
+     * Ping or pong waiting for the serial from the other direction.
+     */
+    private static class PendingSerial {
+        final TickAligner aligner;
+        final byte[] encrypted;
+        final long position;
+        final int episode;
+
+        PendingSerial(TickAligner aligner, byte[] encrypted, long position, int episode) {
+            this.aligner = aligner;
+            this.encrypted = encrypted;
+            this.position = position;
+            this.episode = episode;
+        }
+    }
+}
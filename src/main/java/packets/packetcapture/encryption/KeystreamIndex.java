@@ -0,0 +1,302 @@
+package packets.packetcapture.encryption;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Precomputed key stream of the rotmg keys with an index over its offsets. The keys are constant,
+ * the key stream from the start of a session is the same every time. It is written to a file once,
+ * memory mapped and searched with lookups instead of brute force when aligning a cipher.
+ * <p>
+ * Each offset is indexed by the first two bytes of the 4 byte window at the offset. Tick numbers
+ * only have their upper bytes known up front, both the tick pair and the known name condition
+ * look up the offsets matching two bytes and verify the rest of the window against the mapped
+ * key stream. Offsets are in ascending order within a bucket, the first match is the lowest.
+ * Cipher states are stored at regular offsets for jumping the cipher to a match.
+ * <p>
+ * File layout per key: initial state, bucket starts, offsets by bucket, cipher states, key stream.
+ */
+public class KeystreamIndex {
+    public static final String FILE_NAME = "rc4keystream.idx";
+    private static final int MAGIC = 0x52433449;
+    private static final int VERSION = 1;
+    private static final int LENGTH = RC4Aligner.SEARCH_SIZE;
+    private static final int TAIL = 1 << 20;
+    private static final int BUCKETS = 1 << 16;
+    private static final int CHECKPOINT = 1 << 16;
+    private static final int CHECKPOINTS = LENGTH / CHECKPOINT + 1;
+    private static final int STATE_SIZE = 256 + 2;
+    private static final int HEADER_SIZE = 24;
+    private static final int BUCKETS_BASE = 256;
+    private static final int OFFSETS_BASE = BUCKETS_BASE + (BUCKETS + 1) * 4;
+    private static final int STATES_BASE = OFFSETS_BASE + LENGTH * 4;
+    private static final int KEYSTREAM_BASE = STATES_BASE + CHECKPOINTS * STATE_SIZE;
+    private static final int KEY_SIZE = KEYSTREAM_BASE + LENGTH + TAIL;
+    private static final String[] KEYS = {RotMGRC4Keys.INCOMING_STRING, RotMGRC4Keys.OUTGOING_STRING};
+    private static final AtomicBoolean loading = new AtomicBoolean();
+    private static final CountDownLatch loadDone = new CountDownLatch(1);
+    private static final LongAdder lookups = new LongAdder();
+    private static final LongAdder hits = new LongAdder();
+    private static volatile KeystreamIndex[] indexes = new KeystreamIndex[0];
+    private final ByteBuffer map;
+    private final int base;
+    private final byte[] initState = new byte[256];
+
+    private KeystreamIndex(ByteBuffer map, int base) {
+        this.map = map;
+        this.base = base;
+        for (int i = 0; i < initState.length; i++) {
+            initState[i] = map.get(base + i);
+        }
+    }
+
+    /**
+     * Maps the key stream file on a background thread, the file is written first if missing or
+     * outdated. Ciphers are aligned with brute force until the file is mapped.
+     */
+    public static void load() {
+        if (!loading.compareAndSet(false, true)) return;
+        Thread t = new Thread(() -> {
+            Path file = Paths.get(FILE_NAME);
+            try {
+                KeystreamIndex[] loaded = Files.exists(file) ? open(file) : null;
+                if (loaded == null) {
+                    write(file);
+                    loaded = open(file);
+                }
+                if (loaded != null) indexes = loaded;
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                loadDone.countDown();
+            }
+        }, "KeystreamIndex");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Waits until the load started with {@link #load()} is done, for processing recorded traffic
+     * that would otherwise be aligned with brute force while the file is mapped.
+     *
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public static void awaitLoaded() throws InterruptedException {
+        loadDone.await();
+    }
+
+    /**
+     * Index for a cipher at the start of its key stream.
+     *
+     * @param cipher Cipher to find the index for.
+     * @return Index of the cipher key or null if not mapped or the cipher isn't at the start.
+     */
+    public static KeystreamIndex of(RC4 cipher) {
+        KeystreamIndex[] loaded = indexes;
+        if (loaded.length == 0 || !cipher.atStart()) return null;
+        for (KeystreamIndex index : loaded) {
+            if (Arrays.equals(index.initState, cipher.initState)) return index;
+        }
+        return null;
+    }
+
+    /**
+     * Maps a key stream file.
+     *
+     * @param file File written by {@link #write(Path)}.
+     * @return Indexes of the rotmg keys or null if the file doesn't match the keys or layout.
+     * @throws IOException If the file can't be mapped.
+     */
+    public static KeystreamIndex[] open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != HEADER_SIZE + (long) KEY_SIZE * KEYS.length) return null;
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION || map.getInt(8) != LENGTH || map.getInt(12) != TAIL || map.getInt(16) != CHECKPOINT || map.getInt(20) != KEYS.length) {
+                return null;
+            }
+            KeystreamIndex[] loaded = new KeystreamIndex[KEYS.length];
+            for (int k = 0; k < KEYS.length; k++) {
+                loaded[k] = new KeystreamIndex(map, HEADER_SIZE + k * KEY_SIZE);
+                if (!Arrays.equals(loaded[k].initState, new RC4(KEYS[k]).initState)) return null;
+            }
+            return loaded;
+        }
+    }
+
+    /**
+     * Writes the key stream file of the rotmg keys. The file is written next to the target and
+     * moved in place when complete.
+     *
+     * @param file Path of the file.
+     * @throws IOException If the file can't be written.
+     */
+    public static void write(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(LENGTH).putInt(TAIL).putInt(CHECKPOINT).putInt(KEYS.length).flip();
+            writeFully(channel, header);
+            for (String key : KEYS) {
+                writeKey(channel, new RC4(key));
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes the section of one key, generating the key stream and sorting the offsets into
+     * buckets by the first two bytes at each offset.
+     */
+    private static void writeKey(FileChannel channel, RC4 cipher) throws IOException {
+        byte[] keystream = new byte[LENGTH + TAIL];
+        ByteBuffer states = ByteBuffer.allocate(CHECKPOINTS * STATE_SIZE);
+        for (int o = 0; o < keystream.length; o += CHECKPOINT) {
+            if (o / CHECKPOINT < CHECKPOINTS) {
+                states.put(cipher.state).put((byte) cipher.i).put((byte) cipher.j);
+            }
+            cipher.keystream(keystream, o, Math.min(CHECKPOINT, keystream.length - o));
+        }
+        states.flip();
+
+        int[] buckets = new int[BUCKETS + 1];
+        for (int o = 0; o < LENGTH; o++) {
+            buckets[bucket(keystream[o], keystream[o + 1]) + 1]++;
+        }
+        for (int b = 0; b < BUCKETS; b++) {
+            buckets[b + 1] += buckets[b];
+        }
+        int[] offsets = new int[LENGTH];
+        int[] next = Arrays.copyOf(buckets, BUCKETS);
+        for (int o = 0; o < LENGTH; o++) {
+            offsets[next[bucket(keystream[o], keystream[o + 1])]++] = o;
+        }
+
+        writeFully(channel, ByteBuffer.wrap(cipher.initState));
+        writeInts(channel, buckets);
+        writeInts(channel, offsets);
+        writeFully(channel, states);
+        writeFully(channel, ByteBuffer.wrap(keystream));
+    }
+
+    private static void writeInts(FileChannel channel, int[] ints) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        for (int n = 0; n < ints.length; ) {
+            buffer.clear();
+            while (n < ints.length && buffer.hasRemaining()) buffer.putInt(ints[n++]);
+            buffer.flip();
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    private static int bucket(byte a, byte b) {
+        return (a & 0xFF) << 8 | (b & 0xFF);
+    }
+
+    /**
+     * Lowest offset where tick A and tick B, delta bytes later, decrypt to consecutive ticks.
+     * Assumes tick A is below 65536, the upper two bytes of the tick are zero.
+     *
+     * @param A     Tick packet A
+     * @param B     Tick packet B
+     * @param delta Known packets between packet A and B
+     * @return Offset from the start of the key stream or -1 if not found.
+     */
+    public int findTicks(byte[] A, byte[] B, int delta) {
+        lookups.increment();
+        int bucket = bucket(A[0], A[1]);
+        int to = map.getInt(base + BUCKETS_BASE + (bucket + 1) * 4);
+        for (int n = map.getInt(base + BUCKETS_BASE + bucket * 4); n < to; n++) {
+            int offset = map.getInt(base + OFFSETS_BASE + n * 4);
+            if ((long) offset + delta + 4 > LENGTH + TAIL) continue;
+            if (decodeInt(A, offset) + 1 == decodeInt(B, offset + delta)) {
+                hits.increment();
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Lowest offset where the packet data decrypts to known plain text, such as the encoded
+     * name of a text packet.
+     *
+     * @param data   Packet data.
+     * @param offset Offset of the known bytes in the packet data.
+     * @param target Known plain text, at least two bytes.
+     * @return Offset from the start of the key stream or -1 if not found.
+     */
+    public int findKnown(byte[] data, int offset, byte[] target) {
+        lookups.increment();
+        int bucket = bucket((byte) (data[offset] ^ target[0]), (byte) (data[offset + 1] ^ target[1]));
+        int to = map.getInt(base + BUCKETS_BASE + (bucket + 1) * 4);
+        outer:
+        for (int n = map.getInt(base + BUCKETS_BASE + bucket * 4); n < to; n++) {
+            int at = map.getInt(base + OFFSETS_BASE + n * 4);
+            if (at + target.length > LENGTH + TAIL) continue;
+            for (int i = 2; i < target.length; i++) {
+                if (target[i] != (byte) (data[offset + i] ^ keystream(at + i))) continue outer;
+            }
+            hits.increment();
+            return at;
+        }
+        return -1;
+    }
+
+    /**
+     * Moves a cipher at the start of the key stream to an offset, from the closest stored state
+     * below the offset.
+     *
+     * @param cipher Cipher at the start of the key stream.
+     * @param offset Offset to move the cipher to.
+     */
+    public void seek(RC4 cipher, int offset) {
+        int checkpoint = Math.min(offset / CHECKPOINT, CHECKPOINTS - 1);
+        int at = base + STATES_BASE + checkpoint * STATE_SIZE;
+        byte[] state = new byte[256];
+        for (int i = 0; i < state.length; i++) {
+            state[i] = map.get(at + i);
+        }
+        cipher.jump(offset, state, map.get(at + 256) & 0xFF, map.get(at + 257) & 0xFF, offset - checkpoint * CHECKPOINT);
+    }
+
+    /**
+     * Number of index lookups.
+     *
+     * @return Lookups done.
+     */
+    public static long getLookupCount() {
+        return lookups.sum();
+    }
+
+    /**
+     * Number of index lookups finding an offset.
+     *
+     * @return Lookups with an offset found.
+     */
+    public static long getHitCount() {
+        return hits.sum();
+    }
+
+    private byte keystream(int offset) {
+        return map.get(base + KEYSTREAM_BASE + offset);
+    }
+
+    private int decodeInt(byte[] bytes, int offset) {
+        return ((bytes[0] ^ keystream(offset)) & 0xFF) << 24 | ((bytes[1] ^ keystream(offset + 1)) & 0xFF) << 16 | ((bytes[2] ^ keystream(offset + 2)) & 0xFF) << 8 | ((bytes[3] ^ keystream(offset + 3)) & 0xFF);
+    }
+}
@@ -0,0 +1,293 @@
+package packets.packetcapture.encryption;
+
+import packets.packetcapture.sniff.CaptureQueue;
+import packets.packetcapture.sniff.WaitStrategy;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * RC4 cipher with the key stream generated ahead of time. The key stream doesn't depend on the
+ * data, a producer thread stays a number of kilobytes ahead of the cipher position and hands
+ * ready blocks over through a lock-free queue. Decrypting is a plain XOR against the blocks.
+ * <p>
+ * Resets and large skips move the cipher to a new position. The position is published to the
+ * producer together with a new epoch, blocks of older epochs are dropped by the consumer and
+ * the producer continues from the new position. Each block carries the cipher state it was
+ * generated from, forking rebuilds the state from the block instead of from the key.
+ * <p>
+ * Owned by a single connection like {@link RC4}, only the producer runs on its own thread.
+ */
+public class PrefetchedRC4 extends RC4 {
+    private static final int BLOCK_SIZE = 4096;
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final LongAdder stalls = new LongAdder();
+    private final CaptureQueue<Block> ready;
+    private final CaptureQueue<Block> free;
+    private final int aheadBytes;
+    private final Thread producer;
+    private volatile Seek seek = new Seek(0, 0);
+    private volatile boolean closed;
+    private int epoch;
+    private long position;
+    private Block current;
+
+    /**
+     * Constructor of a prefetched RC4 needing a string key.
+     *
+     * @param key            A key in the form of a string.
+     * @param aheadKilobytes Kilobytes of key stream generated ahead of the cipher position.
+     */
+    public PrefetchedRC4(String key, int aheadKilobytes) {
+        super(key);
+        ready = new CaptureQueue<>(Math.max(2, aheadKilobytes * 1024 / BLOCK_SIZE), new WaitStrategy.BusySpin());
+        free = new CaptureQueue<>(ready.capacity() * 2, new WaitStrategy.BusySpin());
+        aheadBytes = ready.capacity() * BLOCK_SIZE;
+        producer = new Thread(this::produce, "KeystreamPrefetch");
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    @Override
+    public byte getXor() {
+        Block b = block();
+        return b.data[(int) (position++ - b.start)];
+    }
+
+    @Override
+    public RC4 skip(int amount) {
+        position += amount;
+        if (amount > aheadBytes) seek(position);
+        return this;
+    }
+
+    @Override
+    public void keystream(byte[] out, int off, int len) {
+        while (len > 0) {
+            Block b = block();
+            int index = (int) (position - b.start);
+            int n = Math.min(len, BLOCK_SIZE - index);
+            System.arraycopy(b.data, index, out, off, n);
+            off += n;
+            len -= n;
+            position += n;
+        }
+    }
+
+    /**
+     * Copies the key stream from the current block, forks the cipher if the bytes reach into
+     * the next block.
+     */
+    @Override
+    public void peek(byte[] out, int off, int len) {
+        Block b = block();
+        int index = (int) (position - b.start);
+        if (index + len <= BLOCK_SIZE) {
+            System.arraycopy(b.data, index, out, off, len);
+        } else {
+            fork().keystream(out, off, len);
+        }
+    }
+
+    @Override
+    public void decrypt(byte[] array, int off, int len) {
+        while (len > 0) {
+            Block b = block();
+            byte[] k = b.data;
+            int index = (int) (position - b.start);
+            int n = Math.min(len, BLOCK_SIZE - index);
+            for (int end = off + n; off < end; off++, index++) {
+                array[off] ^= k[index];
+            }
+            len -= n;
+            position += n;
+        }
+    }
+
+    @Override
+    public void decrypt(int offset, ByteBuffer byteBuffer) {
+        int len = byteBuffer.limit() - offset;
+        if (len <= 0) return;
+        if (byteBuffer.hasArray()) {
+            decrypt(byteBuffer.array(), byteBuffer.arrayOffset() + offset, len);
+            return;
+        }
+        while (len > 0) {
+            Block b = block();
+            byte[] k = b.data;
+            int index = (int) (position - b.start);
+            int n = Math.min(len, BLOCK_SIZE - index);
+            for (int end = offset + n; offset < end; offset++, index++) {
+                byteBuffer.put(offset, (byte) (byteBuffer.get(offset) ^ k[index]));
+            }
+            len -= n;
+            position += n;
+        }
+    }
+
+    /**
+     * Plain cipher at the current position, rebuilt from the state the current block was
+     * generated from.
+     *
+     * @return Cipher at the same position.
+     */
+    @Override
+    public RC4 fork() {
+        Block b = block();
+        return new RC4(b.state, initState, b.i, b.j).skip((int) (position - b.start));
+    }
+
+    @Override
+    public void reset() {
+        position = 0;
+        seek(0);
+    }
+
+    @Override
+    boolean atStart() {
+        return position == 0;
+    }
+
+    /**
+     * The producer moves itself to the offset, the stored state isn't needed.
+     */
+    @Override
+    void jump(int offset, byte[] state, int i, int j, int remaining) {
+        skip(offset);
+    }
+
+    /**
+     * Stops the producer thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(producer);
+    }
+
+    /**
+     * Number of times the cipher had to wait on the producer for key stream.
+     *
+     * @return Number of stalls in all prefetched ciphers.
+     */
+    public static long getStallCount() {
+        return stalls.sum();
+    }
+
+    /**
+     * Moves the producer to a new position.
+     */
+    private void seek(long target) {
+        epoch++;
+        seek = new Seek(epoch, target);
+        if (current != null) {
+            free.offerQuietly(current);
+            current = null;
+        }
+        LockSupport.unpark(producer);
+    }
+
+    /**
+     * Block of key stream holding the cipher position, waits for the producer if the block
+     * isn't generated yet.
+     */
+    private Block block() {
+        Block b = current;
+        if (b != null && position < b.start + BLOCK_SIZE) return b;
+        boolean stalled = false;
+        while (true) {
+            if (b != null) {
+                free.offerQuietly(b);
+                current = null;
+            }
+            b = ready.poll();
+            if (b == null) {
+                if (closed) throw new IllegalStateException("Cipher closed");
+                if (!stalled) stalls.increment();
+                stalled = true;
+                Thread.yield();
+                continue;
+            }
+            LockSupport.unpark(producer);
+            if (b.epoch != epoch || position >= b.start + BLOCK_SIZE) continue;
+            if (position < b.start) { // never expected, the producer continues from the seek position
+                free.offerQuietly(b);
+                b = null;
+                seek(position);
+                continue;
+            }
+            current = b;
+            return b;
+        }
+    }
+
+    /**
+     * Producer loop generating blocks of key stream until closed.
+     */
+    private void produce() {
+        RC4 generator = origin();
+        long produced = 0;
+        int generatorEpoch = 0;
+        Block b = null;
+        while (!closed) {
+            Seek s = seek;
+            if (s.epoch != generatorEpoch) {
+                if (s.target < produced) {
+                    generator.reset();
+                    produced = 0;
+                }
+                while (produced < s.target) {
+                    int n = (int) Math.min(Integer.MAX_VALUE, s.target - produced);
+                    generator.skip(n);
+                    produced += n;
+                }
+                generatorEpoch = s.epoch;
+            }
+            if (b == null) {
+                b = free.poll();
+                if (b == null) b = new Block();
+                b.start = produced;
+                b.epoch = generatorEpoch;
+                System.arraycopy(generator.state, 0, b.state, 0, b.state.length);
+                b.i = generator.i;
+                b.j = generator.j;
+                generator.keystream(b.data, 0, BLOCK_SIZE);
+                produced += BLOCK_SIZE;
+            }
+            if (ready.offerQuietly(b)) {
+                b = null;
+            } else if (seek.epoch != generatorEpoch) {
+                b = null; // outdated while waiting, dropped
+            } else {
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Block of key stream with the cipher state it was generated from.
+     */
+    private static class Block {
+        final byte[] data = new byte[BLOCK_SIZE];
+        final byte[] state = new byte[256];
+        long start;
+        int epoch;
+        int i;
+        int j;
+    }
+
+    /**
+     * Position the producer continues from for an epoch.
+     */
+    private static class Seek {
+        final int epoch;
+        final long target;
+
+        Seek(int epoch, long target) {
+            this.epoch = epoch;
+            this.target = target;
+        }
+    }
+}
@@ -3,12 +3,18 @@ package packets.packetcapture.encryption;
 import util.Util;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * RC4 cipher used to decrypt packets.
+ * <p>
+ * The state is byte indexed and all index arithmetic is masked instead of using modulo. A cipher
+ * is owned by a single connection and is not thread safe, bulk methods keep the state in locals
+ * for the whole run instead of stepping through {@link #getXor()} per byte.
  */
 public class RC4 {
-    int[] state = new int[256], initState = new int[256];
+    final byte[] state = new byte[256];
+    final byte[] initState;
     int i;
     int j;
 
@@ -29,8 +35,8 @@ public class RC4 {
      * @param i         The i index of the RC4 state.
      * @param j         The j index of the RC4 state.
      */
-    private RC4(int[] state, int[] initState, int i, int j) {
-        this.state = state;
+    RC4(byte[] state, byte[] initState, int i, int j) {
+        System.arraycopy(state, 0, this.state, 0, this.state.length);
         this.initState = initState;
         this.i = i;
         this.j = j;
@@ -46,18 +52,17 @@ public class RC4 {
         j = 0;
 
         for (int i = 0; i < 256; i++) {
-            state[i] = i;
+            state[i] = (byte) i;
         }
 
         int j = 0;
         for (int i = 0; i < 256; i++) {
-            j = (j + state[i] + Byte.toUnsignedInt(key[i % key.length])) % 256;
-            int tmp = state[i];
+            j = (j + (state[i] & 0xFF) + (key[i % key.length] & 0xFF)) & 0xFF;
+            byte tmp = state[i];
             state[i] = state[j];
             state[j] = tmp;
-            // state[i] ^= state[j] ^= state[i] ^= state[j];
         }
-        System.arraycopy(state, 0, initState, 0, state.length);
+        initState = state.clone();
     }
 
     /**
@@ -66,32 +71,114 @@ public class RC4 {
      *
      * @return The resulting byte after Xor:ing with the cipher.
      */
-    public synchronized byte getXor() {
-        i = (i + 1) % 256;
-        j = (j + state[i]) % 256;
-        int tmp = state[i];
-        state[i] = state[j];
-        state[j] = tmp;
-        return (byte) state[(state[i] + state[j]) % 256];
+    public byte getXor() {
+        byte[] s = state;
+        int x = (i + 1) & 0xFF;
+        int sx = s[x] & 0xFF;
+        int y = (j + sx) & 0xFF;
+        int sy = s[y] & 0xFF;
+        s[x] = (byte) sy;
+        s[y] = (byte) sx;
+        i = x;
+        j = y;
+        return s[(sx + sy) & 0xFF];
     }
 
     /**
-     * A crude brute force skip method to increment the ciphers internal state by an amount.
+     * Increments the ciphers internal state by an amount without producing any key stream.
      *
      * @param amount The amount needed to increment the cipher.
      * @return Returning this object for inlining.
      */
     public RC4 skip(int amount) {
+        byte[] s = state;
+        int x = i;
+        int y = j;
         for (int k = 0; k < amount; k++) {
-            i = (i + 1) % 256;
-            j = (j + state[i]) % 256;
-            int tmp = state[i];
-            state[i] = state[j];
-            state[j] = tmp;
+            x = (x + 1) & 0xFF;
+            int sx = s[x] & 0xFF;
+            y = (y + sx) & 0xFF;
+            byte sy = s[y];
+            s[y] = (byte) sx;
+            s[x] = sy;
         }
+        i = x;
+        j = y;
         return this;
     }
 
+    /**
+     * Writes the next bytes of the key stream into an array.
+     *
+     * @param out Array receiving the key stream.
+     * @param off Offset in the array to start writing.
+     * @param len Number of key stream bytes.
+     */
+    public void keystream(byte[] out, int off, int len) {
+        byte[] s = state;
+        int x = i;
+        int y = j;
+        for (int end = off + len; off < end; off++) {
+            x = (x + 1) & 0xFF;
+            int sx = s[x] & 0xFF;
+            y = (y + sx) & 0xFF;
+            int sy = s[y] & 0xFF;
+            s[x] = (byte) sy;
+            s[y] = (byte) sx;
+            out[off] = s[(sx + sy) & 0xFF];
+        }
+        i = x;
+        j = y;
+    }
+
+    /**
+     * Writes the next bytes of the key stream into an array without moving the cipher. The
+     * cipher steps are reversible, the state is stepped back after generating the bytes.
+     *
+     * @param out Array receiving the key stream.
+     * @param off Offset in the array to start writing.
+     * @param len Number of key stream bytes.
+     */
+    public void peek(byte[] out, int off, int len) {
+        keystream(out, off, len);
+        byte[] s = state;
+        int x = i;
+        int y = j;
+        for (int k = 0; k < len; k++) {
+            byte sx = s[y];
+            s[y] = s[x];
+            s[x] = sx;
+            y = (y - (sx & 0xFF)) & 0xFF;
+            x = (x - 1) & 0xFF;
+        }
+        i = x;
+        j = y;
+    }
+
+    /**
+     * Decrypts a range of an array in place.
+     *
+     * @param array Array with bytes needing decrypting.
+     * @param off   Offset of the first byte to decrypt.
+     * @param len   Number of bytes to decrypt.
+     */
+    public void decrypt(byte[] array, int off, int len) {
+        byte[] s = state;
+        int x = i;
+        int y = j;
+        for (int end = off + len; off < end; off++) {
+            x = (x + 1) & 0xFF;
+            int sx = s[x] & 0xFF;
+            y = (y + sx) & 0xFF;
+            int sy = s[y] & 0xFF;
+            s[x] = (byte) sy;
+            s[y] = (byte) sx;
+            array[off] ^= s[(sx + sy) & 0xFF];
+        }
+        i = x;
+        j = y;
+    }
+
     /**
      * Decrypting the bytes in an array with the cipher. Then directly inserting the decrypted
      * bytes back into the same array with same index.
@@ -100,9 +187,7 @@ public class RC4 {
      * @param array  Array with bytes needing decrypting.
      */
     public void decrypt(int offset, byte[] array) {
-        for (int b = offset; b < array.length; b++) {
-            array[b] = (byte) (array[b] ^ getXor());
-        }
+        decrypt(array, offset, array.length - offset);
     }
 
     /**
@@ -112,20 +197,38 @@ public class RC4 {
      * @param array Array with bytes needing decrypting.
      */
     public void decrypt(byte[] array) {
-        decrypt(0, array);
+        decrypt(array, 0, array.length);
     }
 
     /**
-     * Decrypting the bytes in a ByteBuffer with the cipher. First extracting the byte array
-     * out of the ByteBuffer object and mutating it (for speed purposes) the array decrypted
-     * bytes back into the same array with same index. This will directly modify the ByteBuffer.
+     * Decrypting the bytes in a ByteBuffer with the cipher, from the offset up to the limit of
+     * the buffer. Heap buffers are decrypted straight in their backing array, direct buffers
+     * through absolute gets and puts. The position of the buffer is not changed.
      *
-     * @param offset     Offset from the start of the array needing to be decrypted.
+     * @param offset     Offset from the start of the buffer needing to be decrypted.
      * @param byteBuffer ByteBuffer with bytes needing decrypting.
      */
     public void decrypt(int offset, ByteBuffer byteBuffer) {
-        byte[] array = byteBuffer.array();
-        decrypt(offset, array);
+        int len = byteBuffer.limit() - offset;
+        if (len <= 0) return;
+        if (byteBuffer.hasArray()) {
+            decrypt(byteBuffer.array(), byteBuffer.arrayOffset() + offset, len);
+            return;
+        }
+        byte[] s = state;
+        int x = i;
+        int y = j;
+        for (int b = offset, end = offset + len; b < end; b++) {
+            x = (x + 1) & 0xFF;
+            int sx = s[x] & 0xFF;
+            y = (y + sx) & 0xFF;
+            int sy = s[y] & 0xFF;
+            s[x] = (byte) sy;
+            s[y] = (byte) sx;
+            byteBuffer.put(b, (byte) (byteBuffer.get(b) ^ s[(sx + sy) & 0xFF]));
+        }
+        i = x;
+        j = y;
     }
 
     public void decrypt(ByteBuffer byteBuffer) {
@@ -133,9 +236,16 @@ public class RC4 {
     }
 
     public RC4 fork() {
-        int[] state2 = new int[state.length];
-        System.arraycopy(state, 0, state2, 0, state2.length);
-        return new RC4(state2, initState, i, j);
+        return new RC4(state, initState, i, j);
+    }
+
+    /**
+     * Plain cipher with the same key at the start of the key stream.
+     *
+     * @return New cipher at the start of the key stream.
+     */
+    RC4 origin() {
+        return new RC4(initState, initState, 0, 0);
     }
 
     public void reset() {
@@ -144,7 +254,39 @@ public class RC4 {
         j = 0;
     }
 
+    /**
+     * Checks if the cipher is at the start of its key stream.
+     *
+     * @return True if no key stream has been used since the key or a reset.
+     */
+    boolean atStart() {
+        return i == 0 && j == 0 && Arrays.equals(state, initState);
+    }
+
+    /**
+     * Moves a cipher at the start of its key stream to an offset, from a state stored at an
+     * earlier offset.
+     *
+     * @param offset    Offset to move to.
+     * @param state     State of the cipher at the earlier offset.
+     * @param i         The i index at the earlier offset.
+     * @param j         The j index at the earlier offset.
+     * @param remaining Bytes from the earlier offset to the offset.
+     */
+    void jump(int offset, byte[] state, int i, int j, int remaining) {
+        System.arraycopy(state, 0, this.state, 0, this.state.length);
+        this.i = i;
+        this.j = j;
+        skip(remaining);
+    }
+
+    /**
+     * Releases resources held by the cipher. The cipher must not be used afterwards.
+     */
+    public void close() {
+    }
+
     public static int convertByteArrayToInt(byte[] bytes) {
         return ByteBuffer.wrap(bytes).getInt();
     }
-}
\ No newline at end of file
+}
@@ -1,13 +1,31 @@
 package packets.packetcapture.encryption;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Aligner for RC4 by brute forcing the alignment with known conditions. One method uses
  * a sequence of two consecutive numbers and searches for the sequence by attempting to
  * decrypt two tick packets in sequence with known bytes between the two. The other brute
  * forces text packets with a known name as the sender.
+ * <p>
+ * The key stream is generated once into a window of offsets and the window is searched in
+ * parallel on the fork/join pool without any allocations per offset. The lowest matching
+ * offset is returned, parts of the window above an already found match are cancelled.
+ * Ciphers at the start of the key stream are looked up in the {@link KeystreamIndex} first
+ * when it is loaded.
  */
 public class RC4Aligner {
     public static final int SEARCH_SIZE = 10000000;
+    private static final int WINDOW_SIZE = 1 << 20;
+    private static final int SPLIT_SIZE = 1 << 15;
+    private static final int CANCEL_CHECK = 1 << 12;
+    private static final LongAdder syncCount = new LongAdder();
+    private static final LongAdder syncNanos = new LongAdder();
+    private static final AtomicLong lastSyncNanos = new AtomicLong();
 
     /**
      * String to byte converter.
@@ -34,31 +52,37 @@ public class RC4Aligner {
      * constructed by key.
      */
     public static int syncCipher(RC4 cipher, byte[] textData, String name) {
-        RC4 finder = cipher.fork();
-        byte[] target = encodeString(name);
-        int nameOffset = 5;
-        int offset = -1;
-        outer:
-        while (offset < SEARCH_SIZE) {
-            offset++;
-            byte xor = finder.getXor();
-            if (target[0] != (textData[nameOffset] ^ xor))
-                continue;
-            RC4 forked = finder.fork();
-            for (int i = 1; i < target.length; i++) {
-                xor = forked.getXor();
-                if (target[i] != (textData[i + nameOffset] ^ xor)) {
-                    continue outer;
+        return syncCipher(cipher, textData, 5, encodeString(name));
+    }
+
+    /**
+     * Brute force RC4 cracker to find the alignment using known plain text at an offset of
+     * the packet data.
+     *
+     * @param cipher A RC4 cipher with a given key and given index.
+     * @param data   Packet data.
+     * @param offset Offset of the known bytes in the packet data.
+     * @param known  Known plain text, at least two bytes.
+     * @return returning the index of the RC4 ciphers index from initial condition
+     * constructed by key.
+     */
+    public static int syncCipher(RC4 cipher, byte[] data, int offset, byte[] known) {
+        long start = System.nanoTime();
+        KeystreamIndex index = KeystreamIndex.of(cipher);
+        int found;
+        if (index != null) { // the index holds every offset of the search
+            found = index.findKnown(data, offset, known);
+            if (found != -1) index.seek(cipher, found);
+        } else {
+            found = search(cipher, known.length, (ks, k) -> {
+                for (int i = 0; i < known.length; i++) {
+                    if (known[i] != (byte) (data[i + offset] ^ ks[k + i])) return false;
                 }
-            }
-            break;
-        }
-        if (offset == SEARCH_SIZE) {
-            return -1;
+                return true;
+            });
         }
-
-        cipher.skip(offset);
-        return offset;
+        synced(start);
+        return found;
     }
 
     /**
@@ -76,41 +100,164 @@ public class RC4Aligner {
      * constructed by key.
      */
     public static int syncCipher(RC4 cipher, byte[] A, byte[] B, int delta) {
-        RC4 finderA = cipher.fork();
-        RC4 finderB = cipher.fork();
-        finderB.skip(delta);
+        long start = System.nanoTime();
+        KeystreamIndex index = KeystreamIndex.of(cipher);
+        int offset = index == null ? -1 : index.findTicks(A, B, delta);
+        if (offset != -1) {
+            index.seek(cipher, offset);
+        } else {
+            offset = search(cipher, delta + 4, (ks, k) -> decodeInt(A, ks, k) + 1 == decodeInt(B, ks, k + delta));
+        }
+        synced(start);
+        return offset;
+    }
+
+    /**
+     * Searches the offsets from the cipher position for the lowest offset meeting the condition.
+     * The key stream is generated window by window, each window holding the key stream of its
+     * offsets plus the bytes the condition reads past the offset. The cipher is skipped to the
+     * offset when found.
+     *
+     * @param cipher    Cipher at the position of the first offset.
+     * @param tail      Number of key stream bytes the condition reads from an offset.
+     * @param condition Condition to check at each offset.
+     * @return Offset found or -1 if none is within the search size.
+     */
+    private static int search(RC4 cipher, int tail, Condition condition) {
+        RC4 generator = cipher.fork();
+        byte[] ks = new byte[WINDOW_SIZE + tail];
+        generator.keystream(ks, WINDOW_SIZE, tail);
+        AtomicInteger found = new AtomicInteger(Integer.MAX_VALUE);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
         int offset = -1;
-        while (offset < SEARCH_SIZE) {
-            offset++;
-            RC4 tmp = finderA.fork();
-            int a = decodeInt(A, tmp);
-            tmp = finderB.fork();
-            int b = decodeInt(B, tmp);
-
-            if ((a + 1) != b) {
-                finderA.getXor();
-                finderB.getXor();
-                continue;
+        for (int base = 0; base < SEARCH_SIZE; base += WINDOW_SIZE) {
+            System.arraycopy(ks, WINDOW_SIZE, ks, 0, tail);
+            generator.keystream(ks, tail, WINDOW_SIZE);
+            int size = Math.min(WINDOW_SIZE, SEARCH_SIZE - base);
+            pool.invoke(new SearchTask(ks, condition, found, 0, size));
+            if (found.get() != Integer.MAX_VALUE) {
+                offset = base + found.get();
+                break;
             }
-            break;
         }
-        if (offset == SEARCH_SIZE) {
-            return -1;
+        if (offset != -1) cipher.skip(offset);
+        return offset;
+    }
+
+    /**
+     * Moves a cipher to an offset from the start of its key stream, using the key stream
+     * index when loaded.
+     *
+     * @param cipher Cipher to move, reset first.
+     * @param offset Offset from the start of the key stream.
+     */
+    public static void seek(RC4 cipher, long offset) {
+        cipher.reset();
+        KeystreamIndex index = KeystreamIndex.of(cipher);
+        if (index != null && offset <= Integer.MAX_VALUE) {
+            index.seek(cipher, (int) offset);
+            return;
+        }
+        while (offset > 0) {
+            int n = (int) Math.min(Integer.MAX_VALUE, offset);
+            cipher.skip(n);
+            offset -= n;
         }
+    }
 
-        cipher.skip(offset);
-        return offset;
+    /**
+     * Records the time to sync of an alignment.
+     */
+    private static void synced(long start) {
+        long nanos = System.nanoTime() - start;
+        syncCount.increment();
+        syncNanos.add(nanos);
+        lastSyncNanos.set(nanos);
+    }
+
+    /**
+     * Number of alignment searches run.
+     *
+     * @return Number of searches.
+     */
+    public static long getSyncCount() {
+        return syncCount.sum();
+    }
+
+    /**
+     * Time the last alignment search took, found or not.
+     *
+     * @return Milliseconds of the last search.
+     */
+    public static double getLastSyncMillis() {
+        return lastSyncNanos.get() / 1e6;
+    }
+
+    /**
+     * Average time of the alignment searches.
+     *
+     * @return Average milliseconds per search.
+     */
+    public static double getAverageSyncMillis() {
+        long count = syncCount.sum();
+        return count == 0 ? 0 : syncNanos.sum() / 1e6 / count;
     }
 
     /**
-     * A fast method to return an integer from the head of an array XORed with a given
-     * cipher with a specific index.
+     * Integer from an array XORed with the key stream at an index.
      *
-     * @param bytes  Byte array where integer is
-     * @param cipher A RC4 cipher object with a specific index.
+     * @param bytes Byte array where integer is
+     * @param ks    Key stream window.
+     * @param k     Index in the key stream window.
      * @return returning the resulting integer
      */
-    private static int decodeInt(byte[] bytes, RC4 cipher) {
-        return ((Byte.toUnsignedInt((byte) (bytes[0] ^ cipher.getXor()))) << 24) | ((Byte.toUnsignedInt((byte) (bytes[1] ^ cipher.getXor()))) << 16) | ((Byte.toUnsignedInt((byte) (bytes[2] ^ cipher.getXor()))) << 8) | ((Byte.toUnsignedInt((byte) (bytes[3] ^ cipher.getXor()))));
+    private static int decodeInt(byte[] bytes, byte[] ks, int k) {
+        return ((bytes[0] ^ ks[k]) & 0xFF) << 24 | ((bytes[1] ^ ks[k + 1]) & 0xFF) << 16 | ((bytes[2] ^ ks[k + 2]) & 0xFF) << 8 | ((bytes[3] ^ ks[k + 3]) & 0xFF);
+    }
+
+    /**
+     * Known condition at an offset of the key stream.
+     */
+    private interface Condition {
+        boolean matches(byte[] ks, int k);
+    }
+
+    /**
+     * Search of a range of the window, split in halves until small enough. The lowest match
+     * is kept in found, ranges above it stop early.
+     */
+    private static class SearchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final byte[] ks;
+        private final Condition condition;
+        private final AtomicInteger found;
+        private final int from;
+        private final int to;
+
+        SearchTask(byte[] ks, Condition condition, AtomicInteger found, int from, int to) {
+            this.ks = ks;
+            this.condition = condition;
+            this.found = found;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (from >= found.get()) return;
+            if (to - from > SPLIT_SIZE) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SearchTask(ks, condition, found, from, mid), new SearchTask(ks, condition, found, mid, to));
+                return;
+            }
+            for (int k = from; k < to; k++) {
+                if ((k & (CANCEL_CHECK - 1)) == 0 && k >= found.get()) return;
+                if (condition.matches(ks, k)) {
+                    int f;
+                    while (k < (f = found.get()) && !found.compareAndSet(f, k)) ;
+                    return;
+                }
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -5,22 +5,46 @@ import packets.packetcapture.sniff.assembly.TcpStreamErrorHandler;
 import util.Util;
 
 import java.nio.ByteBuffer;
-import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The RC4 cipher can be aligned using Tick packets. The packets send ticks regularly
- * from the server incremented by one between each tick packet. The aligner first aligns
- * the RC4 cipher using a simple brute force check from two consecutive tick packets.
- * If the tick counts miss matches relative to next tick packet, it clears all alignments
- * and re-aligns.
+ * from the server incremented by one between each tick packet. If the tick counts miss
+ * matches relative to next tick packet, it clears all alignments and re-aligns.
+ * <p>
+ * While out of sync the aligner counts the bytes of every packet and searches the anchors of
+ * the {@link AlignmentCoordinator} in the background, positions of the anchors are kept relative
+ * to the counted bytes. Packets are dropped until the first hit, the cipher is then moved to the
+ * key stream offset of the anchor plus the bytes counted since. The tick following a hit sets
+ * the tick counter, the next one verifies it.
+ * <p>
+ * A ping hit only matched the 4 bytes of a serial, over the whole search window a false match
+ * is likely enough to verify the hit first. The hit is kept as a candidate until two ticks
+ * decrypted with it follow each other, only then the cipher is aligned.
  */
 public class TickAligner {
 
+    private static final int MAX_TICKS_IN_GAP = 1000;
+    private final RC4 rc4;
+    private final AlignmentCoordinator coordinator;
+    private final byte[] key = new byte[4];
+    private final AtomicReference<Hit> hit = new AtomicReference<>();
+    private final AtomicIntegerArray searching = new AtomicIntegerArray(AlignmentCoordinator.Anchor.values().length);
+    private volatile int episode;
     private boolean synced = false;
-    private int packetBytes = 0;
-    private RC4 rc4;
+    private boolean rebaseTick = false;
+    private boolean tickUnknown = false;
+    private long streamBytes;
     private byte[] TickA;
+    private long tickAPosition;
     private int CURRENT_TICK;
+    private Hit candidate;
+    private RC4 candidateCipher;
+    private long candidateBytes;
+    private boolean candidateTickSeen;
+    private int candidateTick;
 
     /**
      * Tick aligner constructor to a RC4 cipher.
@@ -28,15 +52,27 @@ public class TickAligner {
      * @param r The cipher to align.
      */
     public TickAligner(RC4 r) {
+        this(r, new AlignmentCoordinator());
+    }
+
+    /**
+     * Tick aligner of one direction of a connection.
+     *
+     * @param r           The cipher to align.
+     * @param coordinator Coordinator shared by both directions of the connection.
+     */
+    public TickAligner(RC4 r, AlignmentCoordinator coordinator) {
         rc4 = r;
+        this.coordinator = coordinator;
     }
 
     /**
      * A comprehensive method that keeps track of tick packets and ensures each tick paket
      * is aligned correctly against the CURRENT_TICK index counter. When tick packets arrive
      * they are expected to have the same number as CURRENT_TICK + 1. If miss match is found
-     * an error is thrown. The cipher is reset and a brute force method is used to re-align
-     * the cipher with two consecutive tick packets.
+     * an error is thrown. The cipher is reset and the anchors are searched to re-align the
+     * cipher. The tick is decrypted from the key stream ahead of the cipher without copying
+     * the packet.
      *
      * @param encryptedData Data of the current receiving packet.
      * @param size          Size of the packet data.
@@ -44,57 +80,276 @@ public class TickAligner {
      * @return Returns the state of the cipher alignment being synced.
      */
     public boolean checkRC4Alignment(ByteBuffer encryptedData, int size, byte type) {
+        if (!synced) {
+            Hit h = hit.getAndSet(null);
+            if (h != null && h.episode == episode) {
+                if (h.anchor == AlignmentCoordinator.Anchor.PING) propose(h);
+                else align(h);
+            }
+            if (candidate != null && isTick(type) && size >= 9) verifyCandidate(encryptedData);
+        }
         if (synced) {
-            if (type == PacketType.NEWTICK.getIndex() || type == PacketType.MOVE.getIndex()) {
-                byte[] duplicate = Arrays.copyOfRange(encryptedData.array(), 5, encryptedData.capacity());
-                rc4.fork().decrypt(duplicate);
+            if (isTick(type) && size >= 9) {
+                rc4.peek(key, 0, 4);
+                int tick = decodeInt(encryptedData);
                 CURRENT_TICK++;
-                int tick = Util.decodeInt(duplicate);
+                if (tickUnknown) { // first tick after a hit
+                    tickUnknown = false;
+                    CURRENT_TICK = tick;
+                }
+                if (rebaseTick) { // ticks might have been lost in a gap
+                    rebaseTick = false;
+                    if (tick >= CURRENT_TICK && tick - CURRENT_TICK < MAX_TICKS_IN_GAP) CURRENT_TICK = tick;
+                }
                 if (CURRENT_TICK != tick) {
                     String error = "Timeline synchronization critical failure, got: " + tick + " expected: " + CURRENT_TICK;
                     TcpStreamErrorHandler.INSTANCE.dumpData(error);
                     rc4.reset();
                     synced = false;
-                    TickA = null;
+                    newEpisode();
                 }
+            } else if (isSerial(type) && size >= 9) {
+                rc4.peek(key, 0, 4);
+                coordinator.serialSeen(this, decodeInt(encryptedData));
             }
-            if (synced) packetBytes += size - 5;
+            if (synced) return true;
         }
 
-        if (!synced) {
-            if (type == PacketType.NEWTICK.getIndex() || type == PacketType.MOVE.getIndex()) {
-                byte[] tick = Arrays.copyOfRange(encryptedData.array(), 5, 5 + 4);
-                if (TickA != null) {
-                    rc4.reset();
-                    System.out.println("Packet bytes between sync packets: " + packetBytes);
-                    int i = RC4Aligner.syncCipher(rc4, TickA, tick, packetBytes);
-                    if (i != -1) {
-                        synced = true;
-                        rc4.skip(packetBytes).decrypt(tick);
-                        rc4.skip(size - 5 - 4);
-                        CURRENT_TICK = Util.decodeInt(tick);
-                        System.out.println("Synced. offset: " + i + " tick: " + CURRENT_TICK);
-                    } else {
-                        Util.print("Time Sync Failed");
-                    }
-                    TickA = null;
-                    packetBytes = 0;
-                } else {
-                    TickA = tick;
-                    packetBytes = size - 5;
+        searchAnchors(encryptedData, size, type);
+        streamBytes += size - 5;
+        return false;
+    }
+
+    /**
+     * Starts the searches for the anchors in a packet received out of sync.
+     */
+    private void searchAnchors(ByteBuffer encryptedData, int size, byte type) {
+        if (isTick(type) && size >= 9) {
+            byte[] tick = copy(encryptedData, 5, 4);
+            if (TickA != null) {
+                byte[] A = TickA;
+                int delta = (int) (streamBytes - tickAPosition);
+                System.out.println("Packet bytes between sync packets: " + delta);
+                search(AlignmentCoordinator.Anchor.TICK, tickAPosition, episode, origin -> RC4Aligner.syncCipher(origin, A, tick, delta));
+            }
+            TickA = tick;
+            tickAPosition = streamBytes;
+        } else if (type == PacketType.TEXT.getIndex()) {
+            String[] names = AlignmentCoordinator.getKnownNames();
+            if (names.length == 0) return;
+            byte[] text = copy(encryptedData, 0, size);
+            search(AlignmentCoordinator.Anchor.TEXT, streamBytes, episode, origin -> {
+                for (String name : names) {
+                    RC4 probe = origin.fork();
+                    int offset = RC4Aligner.syncCipher(probe, text, name);
+                    if (offset == -1) continue;
+                    byte[] plain = text.clone();
+                    probe.decrypt(plain, 5, size - 5);
+                    if (isTextLayout(plain, size)) return offset;
                 }
-            } else {
-                packetBytes += size - 5;
+                return -1;
+            });
+        } else if (isSerial(type) && size >= 9) {
+            coordinator.serialPending(this, copy(encryptedData, 0, 9), streamBytes, episode);
+        }
+    }
+
+    /**
+     * Searches a ping or pong received out of sync with a serial decrypted by the other direction.
+     *
+     * @param encrypted Packet data of the ping or pong.
+     * @param position  Position of the packet in the stream.
+     * @param episode   Alignment episode the packet was received in.
+     * @param serial    Serial decrypted by the other direction.
+     */
+    void searchSerial(byte[] encrypted, long position, int episode, int serial) {
+        if (synced || episode != this.episode) return;
+        byte[] known = {(byte) (serial >>> 24), (byte) (serial >>> 16), (byte) (serial >>> 8), (byte) serial};
+        search(AlignmentCoordinator.Anchor.PING, position, episode, origin -> RC4Aligner.syncCipher(origin, encrypted, 5, known));
+    }
+
+    /**
+     * Runs the search of an anchor in the background, the hit is picked up with the next packet.
+     * Each kind of anchor runs one search at a time, anchors are dropped while their kind is
+     * being searched.
+     */
+    private void search(AlignmentCoordinator.Anchor anchor, long position, int episode, Search search) {
+        if (!searching.compareAndSet(anchor.ordinal(), 0, 1)) return;
+        RC4 origin = rc4.origin();
+        ForkJoinPool.commonPool().execute(() -> {
+            try {
+                int offset = search.find(origin);
+                if (offset != -1) {
+                    if (episode == this.episode) hit.compareAndSet(null, new Hit(anchor, episode, position, offset));
+                } else if (anchor == AlignmentCoordinator.Anchor.TICK) {
+                    Util.print("Time Sync Failed");
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                searching.set(anchor.ordinal(), 0);
             }
-            return false;
+        });
+    }
+
+    /**
+     * Keeps the hit of an anchor needing verification as the candidate, a cipher is moved to
+     * the current packet to decrypt the following ticks with.
+     */
+    private void propose(Hit h) {
+        candidate = h;
+        candidateCipher = rc4.origin();
+        RC4Aligner.seek(candidateCipher, h.offset + streamBytes - h.position);
+        candidateBytes = streamBytes;
+        candidateTickSeen = false;
+    }
+
+    /**
+     * Decrypts a tick with the cipher of the candidate. The first tick is kept, the candidate
+     * is aligned with if the next tick follows it and dropped otherwise.
+     */
+    private void verifyCandidate(ByteBuffer encryptedData) {
+        candidateCipher.skip((int) (streamBytes - candidateBytes));
+        candidateBytes = streamBytes;
+        candidateCipher.peek(key, 0, 4);
+        int tick = decodeInt(encryptedData);
+        if (!candidateTickSeen) {
+            candidateTickSeen = true;
+            candidateTick = tick;
+            return;
+        }
+        Hit h = candidate;
+        dropCandidate();
+        if (tick == candidateTick + 1) {
+            align(h);
+        } else {
+            System.out.println("Ping anchor rejected. offset: " + h.offset);
+        }
+    }
+
+    private void dropCandidate() {
+        candidate = null;
+        candidateCipher = null;
+    }
+
+    /**
+     * Moves the cipher to the current packet from the hit of an anchor.
+     */
+    private void align(Hit h) {
+        RC4Aligner.seek(rc4, h.offset + streamBytes - h.position);
+        synced = true;
+        tickUnknown = true;
+        h.anchor.aligned();
+        newEpisode();
+        System.out.println("Synced. offset: " + h.offset + " anchor: " + h.anchor);
+    }
+
+    /**
+     * Drops the anchors and searches of the previous alignment.
+     */
+    private void newEpisode() {
+        episode++;
+        hit.set(null);
+        dropCandidate();
+        TickA = null;
+        streamBytes = 0;
+    }
+
+    /**
+     * Skips the cipher over bytes of packets lost in a gap of the stream. The next tick packet
+     * is allowed to jump ahead given tick packets might have been lost. If the cipher isn't
+     * aligned yet the bytes are added to the counted bytes if known exactly, otherwise the
+     * alignment starts over.
+     *
+     * @param bytes Number of encrypted bytes lost.
+     * @param exact True if the number of bytes is known exactly.
+     */
+    public void skip(int bytes, boolean exact) {
+        if (synced) {
+            rc4.skip(bytes);
+            rebaseTick = true;
+        } else if (exact) {
+            streamBytes += bytes;
+        } else {
+            newEpisode();
         }
-        return true;
     }
 
     /**
      * A reset method for resenting the tick counter. Called when changing game sessions.
+     * The key stream starts over, anchors found before the reset are dropped.
      */
     public void reset() {
         CURRENT_TICK = -1;
+        if (!synced) newEpisode();
+    }
+
+    private static boolean isTick(byte type) {
+        return type == PacketType.NEWTICK.getIndex() || type == PacketType.MOVE.getIndex();
+    }
+
+    private static boolean isSerial(byte type) {
+        return type == PacketType.PING.getIndex() || type == PacketType.PONG.getIndex();
+    }
+
+    /**
+     * Integer at the start of the packet body XORed with the peeked key stream.
+     */
+    private int decodeInt(ByteBuffer encryptedData) {
+        return ((encryptedData.get(5) ^ key[0]) & 0xFF) << 24 | ((encryptedData.get(6) ^ key[1]) & 0xFF) << 16 | ((encryptedData.get(7) ^ key[2]) & 0xFF) << 8 | ((encryptedData.get(8) ^ key[3]) & 0xFF);
+    }
+
+    private static byte[] copy(ByteBuffer data, int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = data.get(offset + i);
+        }
+        return bytes;
+    }
+
+    /**
+     * Checks a decrypted text packet has the layout of a text packet, the lengths of the
+     * strings must add up to the packet size.
+     *
+     * @param text Decrypted text packet data.
+     * @param size Size of the packet.
+     * @return True if the fields fill the packet exactly.
+     */
+    private static boolean isTextLayout(byte[] text, int size) {
+        int p = skipString(text, 5, size);   // name
+        if (p < 0) return false;
+        p = skipString(text, p + 4 + 2 + 1, size); // objectId, numStars, bubbleTime, recipient
+        p = skipString(text, p, size); // text
+        p = skipString(text, p, size); // cleanText
+        return p >= 0 && p + 1 + 4 == size; // isSupporter, starBackground
+    }
+
+    private static int skipString(byte[] data, int p, int size) {
+        if (p < 0 || p + 2 > size) return -1;
+        return p + 2 + ((data[p] & 0xFF) << 8 | (data[p + 1] & 0xFF));
+    }
+
+    /**
+     * Search of an anchor with a plain cipher at the start of the key stream.
+     */
+    private interface Search {
+        int find(RC4 origin);
+    }
+
+    /**
+     * Key stream offset found for an anchor at a position in the counted bytes.
+     */
+    private static class Hit {
+        final AlignmentCoordinator.Anchor anchor;
+        final int episode;
+        final long position;
+        final int offset;
+
+        Hit(AlignmentCoordinator.Anchor anchor, int episode, long position, int offset) {
+            this.anchor = anchor;
+            this.episode = episode;
+            this.position = position;
+            this.offset = offset;
+        }
     }
 }
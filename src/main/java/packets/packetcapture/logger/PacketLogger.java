@@ -1,12 +1,26 @@
 package packets.packetcapture.logger;
 
 import packets.PacketType;
+import packets.packetcapture.PacketPool;
+import packets.packetcapture.encryption.AlignmentCoordinator;
+import packets.packetcapture.encryption.KeystreamIndex;
+import packets.packetcapture.encryption.PrefetchedRC4;
+import packets.packetcapture.encryption.RC4Aligner;
+import packets.packetcapture.pconstructor.FrameAcquirer;
+import packets.packetcapture.pconstructor.PacketBufferPool;
+import packets.packetcapture.sniff.CaptureStatsSampler;
+import packets.packetcapture.sniff.ardikars.NativeBridge;
+import packets.packetcapture.sniff.assembly.Ip4Defragmenter;
+import packets.packetcapture.sniff.assembly.TcpStreamBuilder;
+import packets.packetcapture.sniff.assembly.TcpStreamErrorHandler;
+import packets.packetcapture.sniff.netpackets.FramePool;
 
 import java.text.SimpleDateFormat;
 import java.util.*;
 
 /**
- * Class used to log data traffic over the wire
+ * Class used to log data traffic over the wire. Thread safe given connections
+ * can be processed on multiple threads.
  * <p>
  * TODO: clean up this mess of a class
  */
@@ -19,6 +33,8 @@ public class PacketLogger {
     private Log inTotal;
     private Log outTotal;
     private HashMap<Byte, Log> packets = new HashMap<>();
+    private long skippedCount;
+    private long skippedBytes;
     private int inInterval = -1;
     private int outInterval = -1;
 
@@ -32,6 +48,8 @@ public class PacketLogger {
         for (int i = 0; i < slotIntervalInSeconds; i++) timeSlotsIn[i] = new Log();
         for (int i = 0; i < slotIntervalInSeconds; i++) timeSlotsOut[i] = new Log();
         packets.clear();
+        skippedCount = 0;
+        skippedBytes = 0;
         inTotal = new Log(0);
         outTotal = new Log(0);
     }
@@ -41,7 +59,7 @@ public class PacketLogger {
      *
      * @param length Number of bytes, only the TCP packet.
      */
-    public void addIncoming(int length) {
+    public synchronized void addIncoming(int length) {
         length += 38; // Add IP and Ethernet header bytes as well.
         inTotal.add(length);
         int interval = getInterval();
@@ -58,7 +76,7 @@ public class PacketLogger {
      *
      * @param length Number of bytes, only the TCP packet.
      */
-    public void addOutgoing(int length) {
+    public synchronized void addOutgoing(int length) {
         length += 58; // Add TCP (20 bytes) + IP (20 bytes) + Ethernet (18 bytes) header and tail bytes as well.
         outTotal.add(length);
         int interval = getInterval();
@@ -70,6 +88,16 @@ public class PacketLogger {
         }
     }
 
+    /**
+     * Add a packet skipped without decrypting or deserializing.
+     *
+     * @param size Size of the packet.
+     */
+    public synchronized void addSkipped(int size) {
+        skippedCount++;
+        skippedBytes += size;
+    }
+
     /**
      * Get a time interval in seconds based on the set interval "slotIntervalInSeconds"
      *
@@ -85,7 +113,7 @@ public class PacketLogger {
      * @param type Type of packet being logged
      * @param size Number of bytes the specified type has
      */
-    public void addPacket(byte type, int size) {
+    public synchronized void addPacket(byte type, int size) {
         if (packets.containsKey(type)) {
             packets.get(type).add(size);
         } else {
@@ -122,7 +150,7 @@ public class PacketLogger {
     /**
      * @return Text output of all logged data.
      */
-    public String toString() {
+    public synchronized String toString() {
         StringBuilder sb = new StringBuilder();
 
         sb.append("Started " + getTime() + "\n");
@@ -135,6 +163,22 @@ public class PacketLogger {
         sb.append("Outgoing " + outTotal + "\n");
         sb.append(getMinData(timeSlotsOut) + " per min\n");
 
+        sb.append("\n");
+        sb.append(String.format("Frames %d allocations per frame %.3f\n", FramePool.getFrameCount(), FramePool.getAllocationsPerFrame()));
+        sb.append(String.format("Capture received %d dropped %d interface dropped %d\n", CaptureStatsSampler.getReceived(), CaptureStatsSampler.getDropped(), CaptureStatsSampler.getIfDropped()));
+        sb.append(String.format("Batches %d frames per batch %.2f\n", NativeBridge.getBatchCount(), NativeBridge.getFramesPerBatch()));
+        sb.append(String.format("Packet buffers %d pool hit rate %.3f\n", PacketBufferPool.getAcquiredCount(), PacketBufferPool.getHitRate()));
+        sb.append(String.format("Pooled packets %d hit rate %.3f allocations saved %d\n", PacketPool.getAcquiredCount(), PacketPool.getHitRate(), PacketPool.getAllocationsSaved()));
+        sb.append(String.format("Cipher syncs %d last %.1f ms average %.1f ms\n", RC4Aligner.getSyncCount(), RC4Aligner.getLastSyncMillis(), RC4Aligner.getAverageSyncMillis()));
+        sb.append(String.format("Packets skipped %d bytes %d\n", skippedCount, skippedBytes));
+        sb.append(String.format("Alignments tick %d text %d ping %d\n", AlignmentCoordinator.Anchor.TICK.getAlignments(), AlignmentCoordinator.Anchor.TEXT.getAlignments(), AlignmentCoordinator.Anchor.PING.getAlignments()));
+        sb.append(String.format("Key stream index lookups %d hits %d\n", KeystreamIndex.getLookupCount(), KeystreamIndex.getHitCount()));
+        sb.append(String.format("Key stream stalls %d\n", PrefetchedRC4.getStallCount()));
+        sb.append(String.format("Fragments reassembled %d timed out %d evicted %d overlap %d bytes invalid %d\n", Ip4Defragmenter.getReassembledCount(), Ip4Defragmenter.getTimedOutCount(), Ip4Defragmenter.getEvictedCount(), Ip4Defragmenter.getOverlapBytes(), Ip4Defragmenter.getInvalidCount()));
+        sb.append(String.format("Framing locks %d last %.1f ms average %.1f ms discarded %d bytes\n", FrameAcquirer.getLockCount(), FrameAcquirer.getLastLockMillis(), FrameAcquirer.getAverageLockMillis(), FrameAcquirer.getDiscardedBytes()));
+        sb.append(String.format("Stream gaps skipped %d bytes lost %d\n", TcpStreamErrorHandler.INSTANCE.getGapCount(), TcpStreamErrorHandler.INSTANCE.getBytesLost()));
+        sb.append(String.format("Stream retransmitted %d bytes overlap %d bytes max out of order depth %d\n", TcpStreamBuilder.getRetransmittedBytes(), TcpStreamBuilder.getOverlapBytes(), TcpStreamBuilder.getMaxOutOfOrderDepth()));
+
         sb.append("\n");
         sb.append("Packets\n");
 
@@ -0,0 +1,186 @@
+package packets.packetcapture.pconstructor;
+
+import packets.PacketType;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Acquires the packet framing of a stream joined at an unknown position. The stream is buffered
+ * and each offset is tested as a packet header, a size within bounds followed by a known packet
+ * type. An offset is locked on when the headers chain over several consecutive packets, the
+ * buffered bytes from the offset are then sent to the rotmg constructor.
+ * <p>
+ * A TCP payload shorter than the maximum segment size still locks the framing at the start of
+ * the next payload, whichever comes first.
+ */
+public class FrameAcquirer {
+    private static final int CHAIN = 3;
+    private static final int CAPACITY = 1 << 18;
+    private static final int MAX_SEGMENT_SIZE = 1460;
+    private static final LongAdder lockCount = new LongAdder();
+    private static final LongAdder lockNanos = new LongAdder();
+    private static final LongAdder discardedBytes = new LongAdder();
+    private static final AtomicLong lastLockNanos = new AtomicLong();
+    private final ROTMGPacketConstructor rotmgConst;
+    private byte[] buffer;
+    private int length;
+    private int candidate;
+    private boolean nextAligned;
+    private long start;
+
+    /**
+     * Acquirer sending the locked stream to a rotmg constructor.
+     *
+     * @param rotmgConst Constructor receiving the stream after locking.
+     */
+    FrameAcquirer(ROTMGPacketConstructor rotmgConst) {
+        this.rotmgConst = rotmgConst;
+    }
+
+    /**
+     * Buffers a TCP payload and searches for a chain of headers. The stream from the locked
+     * header on, including the rest of this payload, is sent to the rotmg constructor.
+     *
+     * @param data   TCP packet with the data inside.
+     * @param offset Offset of the TCP payload in the data array.
+     * @param len    Length of the TCP payload.
+     * @return True if the framing is locked.
+     */
+    boolean acquire(byte[] data, int offset, int len) {
+        if (start == 0) start = System.nanoTime();
+        if (nextAligned) {
+            discarded(length);
+            locked();
+            rotmgConst.build(data, offset, len);
+            return true;
+        }
+        if (buffer == null) buffer = new byte[CAPACITY];
+        boolean shortSegment = len < MAX_SEGMENT_SIZE;
+        while (len > 0) {
+            if (length == CAPACITY) compact();
+            int n = Math.min(len, CAPACITY - length);
+            System.arraycopy(data, offset, buffer, length, n);
+            length += n;
+            offset += n;
+            len -= n;
+            if (scan()) {
+                byte[] locked = buffer;
+                int from = candidate;
+                int to = length;
+                discarded(from);
+                locked();
+                rotmgConst.build(locked, from, to - from);
+                if (len > 0) rotmgConst.build(data, offset, len);
+                return true;
+            }
+        }
+        nextAligned = shortSegment;
+        return false;
+    }
+
+    /**
+     * Drops the buffered bytes after bytes are lost in the stream.
+     */
+    void gap() {
+        discarded(length);
+        length = 0;
+        candidate = 0;
+        nextAligned = false;
+    }
+
+    /**
+     * Starts acquiring over, the time to lock is measured from the next payload. The buffer is
+     * allocated again when acquiring.
+     */
+    void clear() {
+        buffer = null;
+        length = 0;
+        candidate = 0;
+        nextAligned = false;
+        start = 0;
+    }
+
+    /**
+     * Tests the offsets from the first candidate not yet rejected. A candidate is rejected when
+     * a header in its chain isn't plausible, the search waits for more bytes when the chain
+     * reaches past the buffered bytes.
+     *
+     * @return True if the candidate has a full chain of headers.
+     */
+    private boolean scan() {
+        for (; candidate + 5 <= length; candidate++) {
+            int p = candidate;
+            int count = 0;
+            while (p + 5 <= length) {
+                int size = (buffer[p] & 0xFF) << 24 | (buffer[p + 1] & 0xFF) << 16 | (buffer[p + 2] & 0xFF) << 8 | (buffer[p + 3] & 0xFF);
+                if (size < 5 || size > ROTMGPacketConstructor.MAX_HUNT_SIZE || !PacketType.containsKey(buffer[p + 4])) break;
+                if (++count == CHAIN) return true;
+                p += size;
+            }
+            if (p + 5 > length) return false;
+        }
+        return false;
+    }
+
+    /**
+     * Makes room in a full buffer by dropping the bytes before the candidate. A candidate at the
+     * start of the buffer chains past the whole buffer and is rejected.
+     */
+    private void compact() {
+        if (candidate == 0) candidate = 1;
+        System.arraycopy(buffer, candidate, buffer, 0, length - candidate);
+        discarded(candidate);
+        length -= candidate;
+        candidate = 0;
+    }
+
+    private void locked() {
+        long nanos = System.nanoTime() - start;
+        lockCount.increment();
+        lockNanos.add(nanos);
+        lastLockNanos.set(nanos);
+        clear();
+    }
+
+    private static void discarded(int bytes) {
+        discardedBytes.add(bytes);
+    }
+
+    /**
+     * Number of times the framing was locked.
+     *
+     * @return Locks of all connections.
+     */
+    public static long getLockCount() {
+        return lockCount.sum();
+    }
+
+    /**
+     * Time from the first payload to the last lock.
+     *
+     * @return Milliseconds to lock.
+     */
+    public static double getLastLockMillis() {
+        return lastLockNanos.get() / 1e6;
+    }
+
+    /**
+     * Average time from the first payload to the lock.
+     *
+     * @return Average milliseconds to lock.
+     */
+    public static double getAverageLockMillis() {
+        long count = lockCount.sum();
+        return count == 0 ? 0 : lockNanos.sum() / 1e6 / count;
+    }
+
+    /**
+     * Bytes dropped while acquiring the framing.
+     *
+     * @return Bytes discarded by all connections.
+     */
+    public static long getDiscardedBytes() {
+        return discardedBytes.sum();
+    }
+}
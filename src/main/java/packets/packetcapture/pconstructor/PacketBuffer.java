@@ -0,0 +1,133 @@
+package packets.packetcapture.pconstructor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bytes of a single rotmg packet on its way from the rotmg constructor to the registered listeners.
+ * <p>
+ * Pooled buffers are reference counted, the buffer goes back to its pool when the last reference is
+ * released. Borrowed buffers point into a TCP payload that is reused once processed, they are only
+ * valid while the packet is dispatched. Retaining a borrowed buffer copies the bytes into a pooled one.
+ */
+public class PacketBuffer {
+    private final PacketBufferPool pool;
+    private final boolean borrowed;
+    private final AtomicInteger refs = new AtomicInteger();
+    private byte[] array;
+    private int offset;
+    private int length;
+
+    /**
+     * Pooled buffer.
+     *
+     * @param array Array of the buffer.
+     * @param pool  Pool the buffer is handed back to, null if not pooled.
+     */
+    PacketBuffer(byte[] array, PacketBufferPool pool) {
+        this.array = array;
+        this.pool = pool;
+        borrowed = false;
+    }
+
+    /**
+     * Borrowed buffer, pointed at the packet bytes with {@link #wrap(byte[], int, int)}.
+     */
+    PacketBuffer() {
+        pool = null;
+        borrowed = true;
+    }
+
+    /**
+     * Buffer borrowing the bytes of a packet in an array owned by someone else.
+     *
+     * @param data   Array holding the packet.
+     * @param offset Offset of the packet in the array.
+     * @param length Length of the packet.
+     * @return Borrowed buffer valid as long as the array holds the packet.
+     */
+    public static PacketBuffer borrow(byte[] data, int offset, int length) {
+        return new PacketBuffer().wrap(data, offset, length);
+    }
+
+    /**
+     * Points a borrowed buffer at the next packet.
+     */
+    PacketBuffer wrap(byte[] data, int offset, int length) {
+        array = data;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    /**
+     * Prepares a pooled buffer for a new packet holding a single reference.
+     */
+    PacketBuffer reset(int length) {
+        offset = 0;
+        this.length = length;
+        refs.set(1);
+        return this;
+    }
+
+    public byte[] array() {
+        return array;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Big endian view of the packet, capacity equal to the packet length.
+     *
+     * @return Byte buffer over the packet bytes.
+     */
+    public ByteBuffer view() {
+        return ByteBuffer.wrap(array, offset, length).slice().order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Copies the packet bytes into a new array.
+     *
+     * @return Array with only the packet bytes.
+     */
+    public byte[] copy() {
+        return Arrays.copyOfRange(array, offset, offset + length);
+    }
+
+    /**
+     * Adds a reference to the buffer keeping it from being reused until released. A borrowed
+     * buffer is copied into a pooled buffer holding the new reference instead.
+     *
+     * @return The buffer holding the reference, must be used from here on.
+     */
+    public PacketBuffer retain() {
+        if (borrowed) {
+            PacketBuffer copy = PacketBufferPool.acquire(length);
+            System.arraycopy(array, offset, copy.array, 0, length);
+            return copy;
+        }
+        refs.incrementAndGet();
+        return this;
+    }
+
+    /**
+     * Releases a reference. The buffer is handed back to its pool once no references are left.
+     */
+    public void release() {
+        if (borrowed) return;
+        int r = refs.decrementAndGet();
+        if (r == 0) {
+            if (pool != null) pool.release(this);
+        } else if (r < 0) {
+            throw new IllegalStateException("Packet buffer released more often than retained");
+        }
+    }
+}
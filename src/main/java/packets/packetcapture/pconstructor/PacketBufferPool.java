@@ -0,0 +1,108 @@
+package packets.packetcapture.pconstructor;
+
+import packets.packetcapture.sniff.CaptureQueue;
+import packets.packetcapture.sniff.WaitStrategy;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-classed pool of buffers for rotmg packets spanning multiple TCP payloads. Each class holds
+ * buffers of a power of two size, a packet takes a buffer of the smallest class fitting it. Packets
+ * larger than the largest class get a buffer of their own that isn't pooled.
+ * <p>
+ * Each processing thread owns its own pool, buffers are handed back from whichever thread releases
+ * the last reference. Every class keeps at most about 4MB of free buffers.
+ */
+public class PacketBufferPool {
+
+    private static final int MIN_SHIFT = 6; // 64 bytes
+    private static final int MAX_SHIFT = 18; // 256 kB
+    private static final int CLASS_BYTES = 4 * 1024 * 1024;
+    private static final ThreadLocal<PacketBufferPool> pools = ThreadLocal.withInitial(PacketBufferPool::new);
+    private static final LongAdder acquired = new LongAdder();
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder oversize = new LongAdder();
+    private final CaptureQueue<PacketBuffer>[] classes;
+
+    private PacketBufferPool() {
+        classes = newClasses(MAX_SHIFT - MIN_SHIFT + 1);
+        for (int i = 0; i < classes.length; i++) {
+            int count = Math.max(8, Math.min(1024, CLASS_BYTES >> (MIN_SHIFT + i)));
+            classes[i] = new CaptureQueue<>(count, new WaitStrategy.BusySpin());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CaptureQueue<PacketBuffer>[] newClasses(int count) {
+        return (CaptureQueue<PacketBuffer>[]) new CaptureQueue<?>[count];
+    }
+
+    /**
+     * Takes a buffer with room for a packet out of the pool of the calling thread. The buffer is
+     * returned holding a single reference owned by the caller.
+     *
+     * @param length Length of the packet.
+     * @return Buffer with the length set.
+     */
+    public static PacketBuffer acquire(int length) {
+        return pools.get().take(length);
+    }
+
+    private PacketBuffer take(int length) {
+        acquired.increment();
+        int c = sizeClass(length);
+        if (c >= classes.length) {
+            oversize.increment();
+            return new PacketBuffer(new byte[length], null).reset(length);
+        }
+        PacketBuffer buffer = classes[c].poll();
+        if (buffer == null) {
+            buffer = new PacketBuffer(new byte[1 << (MIN_SHIFT + c)], this);
+        } else {
+            hits.increment();
+        }
+        return buffer.reset(length);
+    }
+
+    /**
+     * Hands a buffer back to its class. If the class is full the buffer is left to the GC.
+     *
+     * @param buffer Buffer no longer referenced.
+     */
+    void release(PacketBuffer buffer) {
+        classes[sizeClass(buffer.array().length)].offerQuietly(buffer);
+    }
+
+    private static int sizeClass(int length) {
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(1, length - 1));
+        return Math.max(0, shift - MIN_SHIFT);
+    }
+
+    /**
+     * Number of buffers taken out of all pools.
+     *
+     * @return Number of acquired buffers.
+     */
+    public static long getAcquiredCount() {
+        return acquired.sum();
+    }
+
+    /**
+     * Number of packets too large for any size class.
+     *
+     * @return Number of unpooled buffers.
+     */
+    public static long getOversizeCount() {
+        return oversize.sum();
+    }
+
+    /**
+     * Share of buffers reused from a pool instead of allocated.
+     *
+     * @return Hit rate between 0 and 1.
+     */
+    public static double getHitRate() {
+        long a = acquired.sum();
+        return a == 0 ? 0 : (double) hits.sum() / a;
+    }
+}
@@ -1,6 +1,7 @@
 package packets.packetcapture.pconstructor;
 
 import packets.packetcapture.PacketProcessor;
+import packets.packetcapture.encryption.AlignmentCoordinator;
 import packets.packetcapture.encryption.RC4;
 import packets.packetcapture.encryption.TickAligner;
 
@@ -19,7 +20,10 @@ public class PacketConstructor {
     private final PacketProcessor packetProcessor;
     private final ROTMGPacketConstructor rotmgConst;
     private final TickAligner tickAligner;
-    private boolean firstNonLargePacket;
+    private final int connectionId;
+    private final FrameAcquirer acquirer;
+    private boolean acquiring;
+    private int pendingGap;
 
     /**
      * Packet constructor with specific cipher.
@@ -28,67 +32,173 @@ public class PacketConstructor {
      * @param r  The cipher used to decode packets.
      */
     public PacketConstructor(PacketProcessor pp, RC4 r) {
+        this(pp, r, 0);
+    }
+
+    /**
+     * Packet constructor with specific cipher for a specific connection.
+     *
+     * @param pp           Parent class to send constructed packets back too.
+     * @param r            The cipher used to decode packets.
+     * @param connectionId Id of the connection the packets are constructed for.
+     */
+    public PacketConstructor(PacketProcessor pp, RC4 r, int connectionId) {
+        this(pp, r, connectionId, new AlignmentCoordinator());
+    }
+
+    /**
+     * Packet constructor of one direction of a connection, aligning its cipher together with
+     * the other direction.
+     *
+     * @param pp           Parent class to send constructed packets back too.
+     * @param r            The cipher used to decode packets.
+     * @param connectionId Id of the connection the packets are constructed for.
+     * @param coordinator  Alignment coordinator shared by both directions of the connection.
+     */
+    public PacketConstructor(PacketProcessor pp, RC4 r, int connectionId, AlignmentCoordinator coordinator) {
+        this.connectionId = connectionId;
         packetProcessor = pp;
         rc4Cipher = r;
         rotmgConst = new ROTMGPacketConstructor(this);
-        tickAligner = new TickAligner(rc4Cipher);
+        acquirer = new FrameAcquirer(rotmgConst);
+        tickAligner = new TickAligner(rc4Cipher, coordinator);
     }
 
     /**
      * Build method to send the packets retrieved by the sniffer for constructing.
      *
-     * @param data Raw packet data incoming from the net tap.
+     * @param data   Raw packet data incoming from the net tap.
+     * @param offset Offset of the TCP payload in the data array.
+     * @param length Length of the TCP payload.
      */
-    public void build(byte[] data) {
-        if (firstNonLargePacket) {  // start listening after a non-max packet
+    public void build(byte[] data, int offset, int length) {
+        if (acquiring) { // start listening after the framing is found
             // prevents errors in pSize.
-            if (data.length < 1460) firstNonLargePacket = false;
+            if (acquirer.acquire(data, offset, length)) acquiring = false;
             return;
         }
-        rotmgConst.build(data);
+        rotmgConst.build(data, offset, length);
     }
 
     /**
      * Rotmg packets constructed by the rotmg constructor are sent back after they
-     * are correctly assembled. If the cipher is correctly aligned then the packets
-     * are decrypted and sent to the packet processor. If the cipher isn't aligned
-     * then the Tick packets are used to re-align the cipher.
+     * are correctly assembled.
      *
      * @param encryptedData Encrypted packets for aligning cipher and decryption.
      */
     public void packetReceived(ByteBuffer encryptedData) {
+        packetReceived(PacketBuffer.borrow(encryptedData.array(), encryptedData.arrayOffset(), encryptedData.capacity()));
+    }
+
+    /**
+     * Rotmg packets constructed by the rotmg constructor are sent back after they
+     * are correctly assembled. If the cipher is correctly aligned then the packets
+     * are decrypted in place and sent to the packet processor. If the cipher isn't
+     * aligned then the Tick packets are used to re-align the cipher. Packets nobody listens
+     * to are skipped without decrypting if the packet processor skips their type. The caller
+     * keeps its reference to the buffer.
+     *
+     * @param packet Buffer of the encrypted packet for aligning cipher and decryption.
+     */
+    public void packetReceived(PacketBuffer packet) {
         try {
+            ByteBuffer encryptedData = packet.view();
             int size = encryptedData.getInt();
             byte type = encryptedData.get();
 
             boolean sync = tickAligner.checkRC4Alignment(encryptedData, size, type);
 
             if (sync) {
+                if (packetProcessor.isSkipped(type)) {
+                    rc4Cipher.skip(size - 5);
+                    packetProcessor.packetSkipped(type, size);
+                    return;
+                }
                 rc4Cipher.decrypt(5, encryptedData); // encryptedData is decrypted in this method
-                packetProcessor.processPackets(type, size, encryptedData);
+                packetProcessor.processPackets(connectionId, type, size, packet);
             }
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Missing bytes skipped in the stream. If the bytes are inside the packet being constructed
+     * only that packet is dropped and the cipher is skipped exactly by its body. If the bytes
+     * reach past the packet the boundaries of the following packets are lost, the next
+     * plausible header is searched for and the cipher is skipped on a best effort basis.
+     * Bytes of a header read before the gap and bytes of a dropped packet still to be
+     * discarded are accounted for. The tick aligner verifies the cipher at the next tick packet.
+     *
+     * @param length Number of bytes lost.
+     */
+    public void gap(int length) {
+        if (acquiring) {
+            acquirer.gap();
+            return;
+        }
+        int discard = rotmgConst.getDiscard();
+        if (discard > length) { // lost bytes of a packet already dropped and skipped
+            rotmgConst.dropPacket(discard - length);
+            return;
+        }
+        int toPacketEnd = rotmgConst.bytesToPacketEnd();
+        int size = rotmgConst.getPacketSize();
+        if (toPacketEnd > length) {
+            rotmgConst.dropPacket(toPacketEnd - length);
+            tickAligner.skip(size - 5, true);
+        } else if (toPacketEnd >= 0) {
+            tickAligner.skip(size - 5, true);
+            pendingGap += length - toPacketEnd;
+            rotmgConst.resync();
+        } else {
+            pendingGap += rotmgConst.getUnframedBytes() + length - discard;
+            rotmgConst.resync();
+        }
+    }
+
+    /**
+     * Called by the rotmg constructor when a plausible header is found after the packet
+     * boundaries were lost. Assumes the lost bytes held a single packet header.
+     *
+     * @param skipped Bytes skipped while searching for the header.
+     */
+    void reframed(int skipped) {
+        int lost = pendingGap + skipped;
+        pendingGap = 0;
+        tickAligner.skip(Math.max(0, lost - 5), false);
+    }
+
     /**
      * Reset method to reset both cipher and the aligner tick counter when a reset packet is received.
+     * The stream starts at a packet header after a reset, no need to acquire the framing.
      */
     public void reset() {
+        acquiring = false;
+        acquirer.clear();
+        pendingGap = 0;
         rc4Cipher.reset();
         tickAligner.reset();
         rotmgConst.reset();
     }
 
     /**
-     * Reset when starting the sniffer. Given the program can start at any time then any packet which
-     * follows a non-max packet will most likely contain the rotmg-packet header which contains the
-     * packet size. If ignoring this flag, any random MTU(maximum transmission unit packet) packet in
+     * Releases the cipher when the connection is closed.
+     */
+    public void close() {
+        rotmgConst.reset();
+        rc4Cipher.close();
+    }
+
+    /**
+     * Reset when starting the sniffer. Given the program can start at any time the stream is joined
+     * at an unknown position. Ignoring this, any random MTU(maximum transmission unit packet) packet in
      * a sequence of concatenated packets could produce a random packet size from its first 4 bytes
-     * resulting in a de-sync.
+     * resulting in a de-sync. The framing is acquired first, either from a chain of plausible packet
+     * headers or from the payload following a non-max packet, see {@link FrameAcquirer}.
      */
     public void startResets() {
-        firstNonLargePacket = true;
+        acquiring = true;
+        acquirer.clear();
     }
 }
@@ -1,20 +1,29 @@
 package packets.packetcapture.pconstructor;
 
+import packets.PacketType;
 import util.Util;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.Arrays;
 
 /**
  * Rotmg packet constructor appending bytes into a packet based on the size at the header of each sequence.
+ * <p>
+ * Packets contained whole in a TCP payload are borrowed in place out of the payload without copying.
+ * Packets spanning multiple TCP payloads are copied in bulk into a pooled buffer sized by the header.
  */
 public class ROTMGPacketConstructor {
 
+    private static final int MAX_PACKET_SIZE = 16 * 1024 * 1024;
+    static final int MAX_HUNT_SIZE = 200000;
     private PacketConstructor packetConstructor;
-    private byte[] bytes = new byte[200000];
+    private final byte[] header = new byte[5];
+    private int headerIndex;
+    private final PacketBuffer borrowed = new PacketBuffer();
+    private PacketBuffer packet;
     private int index;
     private int pSize = 0;
+    private boolean hunting;
+    private int skipped;
+    private int discard;
 
     /**
      * ROMGPacketConstructor needing the PacketConstructor class to send correctly stitched packets.
@@ -26,41 +35,188 @@ public class ROTMGPacketConstructor {
     }
 
     /**
-     * Build method used to stitch individual bytes in the data in the TCP packets according to
-     * specified size at the header of the data.
-     * Only start listen after the next packet less than MTU(maximum transmission unit packet) is received.
+     * Build method used to stitch the data in the TCP packets into packets according to the
+     * specified size at the header of the data. The header is read once per packet, the rest
+     * of the packet is either sliced from the TCP payload or copied in bulk.
      *
-     * @param data TCP packet with the data inside.
+     * @param data   TCP packet with the data inside.
+     * @param offset Offset of the TCP payload in the data array.
+     * @param length Length of the TCP payload.
      */
-    public void build(byte[] data) {
-        for (byte b : data) {
-            bytes[index++] = b;
-            if (index >= 4) {
-                if (pSize == 0) {
-                    pSize = Util.decodeInt(bytes);
-                    if (pSize > 200000) {
-                        Util.print("Oversize packet construction.");
-                        pSize = 0;
-                        return;
-                    }
-                }
-
-                if (index == pSize) {
-                    index = 0;
-                    byte[] realmPacket = Arrays.copyOfRange(bytes, 0, pSize);
-                    pSize = 0;
-                    ByteBuffer packetData = ByteBuffer.wrap(realmPacket).order(ByteOrder.BIG_ENDIAN);
-                    packetConstructor.packetReceived(packetData);
-                }
+    public void build(byte[] data, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        while (i < end) {
+            if (discard > 0) {
+                int n = Math.min(discard, end - i);
+                discard -= n;
+                i += n;
+            } else if (hunting) {
+                i = hunt(data, i, end);
+            } else if (pSize == 0) {
+                i = readHeader(data, i, end);
+            } else {
+                int n = Math.min(pSize - index, end - i);
+                System.arraycopy(data, i, packet.array(), index, n);
+                index += n;
+                i += n;
+                if (index == pSize) packetDone();
             }
         }
     }
 
+    /**
+     * Reads the size at the header of the next packet. If the whole packet is in the TCP payload
+     * it is borrowed and sent right away, otherwise a pooled buffer is taken for the whole packet.
+     *
+     * @return Index in the data after the bytes consumed.
+     */
+    private int readHeader(byte[] data, int i, int end) {
+        boolean headerInData = headerIndex == 0;
+        int n = Math.min(4 - headerIndex, end - i);
+        System.arraycopy(data, i, header, headerIndex, n);
+        headerIndex += n;
+        i += n;
+        if (headerIndex < 4) return i;
+        headerIndex = 0;
+
+        int size = Util.decodeInt(header);
+        if (size < 5 || size > MAX_PACKET_SIZE) {
+            Util.print("Oversize packet construction.");
+            hunting = true;
+            skipped = 0;
+            headerIndex = 4; // search from the bytes of the bad header
+            return i;
+        }
+        if (headerInData && end - (i - 4) >= size) {
+            packetConstructor.packetReceived(borrowed.wrap(data, i - 4, size));
+            borrowed.wrap(null, 0, 0);
+            return i - 4 + size;
+        }
+        packet = PacketBufferPool.acquire(size);
+        System.arraycopy(header, 0, packet.array(), 0, 4);
+        index = 4;
+        pSize = size;
+        return i;
+    }
+
+    /**
+     * Sends the completed packet back to the packet constructor and releases the reference
+     * held by the constructor.
+     */
+    private void packetDone() {
+        PacketBuffer realmPacket = packet;
+        packet = null;
+        pSize = 0;
+        try {
+            packetConstructor.packetReceived(realmPacket);
+        } finally {
+            realmPacket.release();
+        }
+    }
+
+    /**
+     * Searches the stream byte by byte for the next plausible packet header, a size within
+     * bounds followed by a known packet type. Framing continues from the header when found.
+     *
+     * @return Index in the data after the bytes consumed.
+     */
+    private int hunt(byte[] data, int i, int end) {
+        while (i < end) {
+            header[headerIndex++] = data[i++];
+            if (headerIndex < 5) continue;
+            int size = Util.decodeInt(header);
+            if (size >= 5 && size <= MAX_HUNT_SIZE && PacketType.containsKey(header[4])) {
+                hunting = false;
+                headerIndex = 0;
+                packetConstructor.reframed(skipped);
+                packet = PacketBufferPool.acquire(size);
+                System.arraycopy(header, 0, packet.array(), 0, 5);
+                index = 5;
+                pSize = size;
+                if (index == pSize) packetDone();
+                return i;
+            }
+            System.arraycopy(header, 1, header, 0, 4);
+            headerIndex = 4;
+            skipped++;
+        }
+        return i;
+    }
+
+    /**
+     * Number of bytes still missing to complete the packet being constructed.
+     *
+     * @return Bytes to the end of the packet or -1 if the packet size isn't known.
+     */
+    public int bytesToPacketEnd() {
+        if (hunting || pSize == 0) return -1;
+        return pSize - index;
+    }
+
+    /**
+     * Size of the packet being constructed.
+     *
+     * @return Packet size or 0 if the size isn't known.
+     */
+    public int getPacketSize() {
+        return hunting ? 0 : pSize;
+    }
+
+    /**
+     * Bytes read since the end of the last packet without knowing the size of the next one,
+     * the part of the header read so far or the bytes searched while hunting for a header.
+     *
+     * @return Bytes read past the last packet boundary.
+     */
+    public int getUnframedBytes() {
+        return hunting ? skipped + headerIndex : headerIndex;
+    }
+
+    /**
+     * Bytes of a dropped packet still to be discarded, the cipher is already skipped past them.
+     *
+     * @return Bytes left to discard.
+     */
+    public int getDiscard() {
+        return discard;
+    }
+
+    /**
+     * Drops the packet being constructed after bytes of it are lost. The remaining bytes
+     * of the packet still to arrive are discarded and framing continues after it.
+     *
+     * @param remaining Bytes of the dropped packet still to arrive in the stream.
+     */
+    public void dropPacket(int remaining) {
+        clear();
+        discard = remaining;
+    }
+
+    /**
+     * Drops the packet being constructed and searches for the next plausible header given
+     * the packet boundaries are lost.
+     */
+    public void resync() {
+        clear();
+        skipped = 0;
+        hunting = true;
+    }
+
     /**
      * Resets the byte index and the packet size.
      */
     public void reset() {
+        clear();
+        hunting = false;
+    }
+
+    private void clear() {
+        if (packet != null) packet.release();
+        packet = null;
         index = 0;
         pSize = 0;
+        headerIndex = 0;
+        discard = 0;
     }
 }
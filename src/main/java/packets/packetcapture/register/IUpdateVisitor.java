@@ -0,0 +1,119 @@
+package packets.packetcapture.register;
+
+/**
+ * Visitor receiving the content of update and new tick packets as it is read from the buffer,
+ * without deserializing the packets into objects. Registered in the {@link Register} next to the
+ * packet listeners. Only the methods of interest need to be overridden.
+ * <p>
+ * An update packet is visited as onUpdate, onTile for each tile, onNewObject followed by the
+ * status of each new object, onDrop for each object leaving and onEnd. A new tick packet is
+ * visited as onNewTick, the status of each object and onEnd. A status is visited as
+ * onStatusStart, onStat or onStringStat for each stat and onStatusEnd.
+ */
+public interface IUpdateVisitor {
+    /**
+     * Start of an update packet.
+     *
+     * @param connectionId Id of the connection the packet was received on.
+     * @param x            Position x of the player.
+     * @param y            Position y of the player.
+     * @param levelType    Unknown level byte.
+     */
+    default void onUpdate(int connectionId, float x, float y, byte levelType) {
+    }
+
+    /**
+     * A tile becoming visible.
+     *
+     * @param x    Position x of the tile.
+     * @param y    Position y of the tile.
+     * @param type Tile type.
+     */
+    default void onTile(int x, int y, int type) {
+    }
+
+    /**
+     * An object becoming visible, the status of the object follows.
+     *
+     * @param objectType Type of the object.
+     */
+    default void onNewObject(int objectType) {
+    }
+
+    /**
+     * An object leaving the visible area.
+     *
+     * @param objectId Id of the object.
+     */
+    default void onDrop(int objectId) {
+    }
+
+    /**
+     * Start of a new tick packet.
+     *
+     * @param connectionId        Id of the connection the packet was received on.
+     * @param tickId              Id of the tick.
+     * @param tickTime            Milliseconds since the last tick.
+     * @param serverRealTimeMS    Server realtime in ms.
+     * @param serverLastTimeRTTMS Last server realtime in ms.
+     */
+    default void onNewTick(int connectionId, int tickId, int tickTime, long serverRealTimeMS, int serverLastTimeRTTMS) {
+    }
+
+    /**
+     * Start of the status of an object.
+     *
+     * @param objectId Id of the object.
+     * @param x        Position x of the object.
+     * @param y        Position y of the object.
+     */
+    default void onStatusStart(int objectId, float x, float y) {
+    }
+
+    /**
+     * Filter of the stats of a status. Stats not visited are skipped, string stats are skipped
+     * without decoding the string.
+     *
+     * @param statType Stat type number.
+     * @return True to visit the stat.
+     */
+    default boolean visitStat(int statType) {
+        return true;
+    }
+
+    /**
+     * A stat with a number value.
+     *
+     * @param objectId Id of the object.
+     * @param statType Stat type number.
+     * @param value    Value of the stat.
+     * @param valueTwo Second value of the stat.
+     */
+    default void onStat(int objectId, int statType, int value, int valueTwo) {
+    }
+
+    /**
+     * A stat with a string value.
+     *
+     * @param objectId Id of the object.
+     * @param statType Stat type number.
+     * @param value    Value of the stat.
+     * @param valueTwo Second value of the stat.
+     */
+    default void onStringStat(int objectId, int statType, String value, int valueTwo) {
+    }
+
+    /**
+     * End of the status of an object.
+     *
+     * @param objectId Id of the object.
+     */
+    default void onStatusEnd(int objectId) {
+    }
+
+    /**
+     * End of the packet.
+     */
+    default void onEnd() {
+    }
+}
@@ -2,15 +2,28 @@ package packets.packetcapture.register;
 
 import packets.Packet;
 import packets.PacketType;
+import packets.incoming.NewTickPacket;
+import packets.incoming.UpdatePacket;
+import packets.packetcapture.pconstructor.PacketBuffer;
+import packets.reader.BufferReader;
+import packets.reader.FastBufferReader;
 import util.Pair;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
 /**
  * The registry class is used to subscribe to either all or specific packets. If registered packets
  * are received the emit method will send an update and trigger the lambda used.
+ * <p>
+ * Emitting is synchronized, listeners are never called concurrently even if connections are
+ * processed on multiple threads. The subscribed packet types are kept in a snapshot readable
+ * without locking, for skipping packets nobody listens to.
+ * <p>
+ * Update visitors receive update and new tick packets read straight from the buffer. Packets
+ * only visited and not listened to are never deserialized into objects.
  */
 public class Register {
     public static final Register INSTANCE = new Register();
@@ -18,13 +31,16 @@ public class Register {
     private boolean emitting = false;
     private final ArrayList<Pair<ArrayList<IPacketListener<Packet>>, IPacketListener<Packet>>> remove = new ArrayList<>();
     private static List<Subscriber> subscribePacketLogs = new ArrayList<>();
+    private volatile boolean[] subscribed = new boolean[256];
+    private volatile boolean[] listened = new boolean[256];
+    private volatile IUpdateVisitor[] updateVisitors = new IUpdateVisitor[0];
 
     /**
      * Emitter for sending packets to any subscriber which matches the packets the subscriber have subbed too.
      *
      * @param packet The packet being received and emitted.
      */
-    public void emitPacketLogs(Packet packet) {
+    public synchronized void emitPacketLogs(Packet packet) {
         emitting = true;
         if (packetListeners.containsKey(packet.getClass())) {
             for (IPacketListener<Packet> processor : packetListeners.get(packet.getClass()))
@@ -42,6 +58,7 @@ public class Register {
                 p.left().remove(p.right());
             }
             remove.clear();
+            updateSubscribed();
         }
     }
 
@@ -52,8 +69,9 @@ public class Register {
      * @param processor The lambda needed to trigger what event should happen if packet is received.
      * @param <T>       Class type.
      */
-    public <T extends Class<? extends Packet>> void register(PacketType type, IPacketListener<Packet> processor) {
+    public synchronized <T extends Class<? extends Packet>> void register(PacketType type, IPacketListener<Packet> processor) {
         packetListeners.computeIfAbsent(type.getPacketClass(), (a) -> new ArrayList<>()).add(processor);
+        updateSubscribed();
     }
 
     /**
@@ -62,8 +80,9 @@ public class Register {
      * @param processor The lambda needed to trigger what event should happen if packet is received.
      * @param <T>       Class type.
      */
-    public <T extends Class<? extends Packet>> void registerAll(IPacketListener<Packet> processor) {
+    public synchronized <T extends Class<? extends Packet>> void registerAll(IPacketListener<Packet> processor) {
         packetListeners.computeIfAbsent(Packet.class, (a) -> new ArrayList<>()).add(processor);
+        updateSubscribed();
     }
 
     /**
@@ -73,11 +92,13 @@ public class Register {
      * @param processor The lambda needed to identify what method to unregister.
      * @return True if the removal is successful.
      */
-    public boolean unregister(PacketType type, IPacketListener<Packet> processor) {
+    public synchronized boolean unregister(PacketType type, IPacketListener<Packet> processor) {
         ArrayList<IPacketListener<Packet>> list = packetListeners.get(type.getPacketClass());
         if (list != null) {
             if (list.size() == 1) {
-                return packetListeners.remove(type.getPacketClass()) != null;
+                boolean removed = packetListeners.remove(type.getPacketClass()) != null;
+                updateSubscribed();
+                return removed;
             } else if (!emitting) {
                 return list.remove(processor);
             } else if (list.contains(processor)) {
@@ -88,6 +109,103 @@ public class Register {
         return false;
     }
 
+    /**
+     * Register a visitor reading update and new tick packets straight from the buffer.
+     *
+     * @param visitor Visitor receiving the content of the packets.
+     */
+    public synchronized void registerVisitor(IUpdateVisitor visitor) {
+        IUpdateVisitor[] visitors = Arrays.copyOf(updateVisitors, updateVisitors.length + 1);
+        visitors[visitors.length - 1] = visitor;
+        updateVisitors = visitors;
+        updateSubscribed();
+    }
+
+    /**
+     * Removes a registered visitor.
+     *
+     * @param visitor Visitor to remove.
+     * @return True if the removal is successful.
+     */
+    public synchronized boolean unregisterVisitor(IUpdateVisitor visitor) {
+        ArrayList<IUpdateVisitor> visitors = new ArrayList<>(Arrays.asList(updateVisitors));
+        if (!visitors.remove(visitor)) return false;
+        updateVisitors = visitors.toArray(new IUpdateVisitor[0]);
+        updateSubscribed();
+        return true;
+    }
+
+    /**
+     * Reads an update or new tick packet into every registered visitor.
+     *
+     * @param connectionId Id of the connection the packet was received on.
+     * @param type         Type of the packet.
+     * @param packet       Buffer of the decrypted packet including the header.
+     */
+    public synchronized void emitVisitors(int connectionId, byte type, PacketBuffer packet) {
+        for (IUpdateVisitor visitor : updateVisitors) {
+            BufferReader buffer = new FastBufferReader(packet.array(), packet.offset(), packet.length(), 5);
+            if (type == PacketType.UPDATE.getIndex()) {
+                UpdatePacket.visit(connectionId, buffer, visitor);
+            } else {
+                NewTickPacket.visit(connectionId, buffer, visitor);
+            }
+        }
+    }
+
+    /**
+     * Checks if any listener or visitor is registered for a packet type, either for the type
+     * itself or for all packets.
+     *
+     * @param type Index of the packet type.
+     * @return True if packets of the type are emitted to a listener or visitor.
+     */
+    public boolean isSubscribed(byte type) {
+        return subscribed[type & 0xFF];
+    }
+
+    /**
+     * Checks if any listener is registered for a packet type, packets without listeners don't
+     * need to be deserialized.
+     *
+     * @param type Index of the packet type.
+     * @return True if packets of the type are emitted to a listener.
+     */
+    public boolean isListened(byte type) {
+        return listened[type & 0xFF];
+    }
+
+    /**
+     * Checks if a packet type is read by visitors.
+     *
+     * @param type Index of the packet type.
+     * @return True for update and new tick packets while a visitor is registered.
+     */
+    public boolean isVisited(byte type) {
+        return updateVisitors.length > 0 && isUpdate(type);
+    }
+
+    private static boolean isUpdate(int type) {
+        return type == PacketType.UPDATE.getIndex() || type == PacketType.NEWTICK.getIndex();
+    }
+
+    /**
+     * Rebuilds the snapshot of subscribed packet types after the listeners changed.
+     */
+    private void updateSubscribed() {
+        boolean all = packetListeners.containsKey(Packet.class);
+        boolean visited = updateVisitors.length > 0;
+        boolean[] listenedTypes = new boolean[256];
+        boolean[] types = new boolean[256];
+        for (PacketType type : PacketType.values()) {
+            int index = type.getIndex() & 0xFF;
+            listenedTypes[index] = all || packetListeners.containsKey(type.getPacketClass());
+            types[index] = listenedTypes[index] || (visited && isUpdate(type.getIndex()));
+        }
+        listened = listenedTypes;
+        subscribed = types;
+    }
+
     /**
      * Subscription to logger for incoming and outgoing packets.
      * Example: PacketLogger.subscribe(e->logOut(e));
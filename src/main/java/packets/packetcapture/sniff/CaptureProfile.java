@@ -0,0 +1,168 @@
+package packets.packetcapture.sniff;
+
+import pcap.spi.option.DefaultLiveOptions;
+
+/**
+ * Tuning of the live capture handles. Trades the delay between a frame arriving on the wire
+ * and it being handed to the sniffer against the number of wake-ups per frame.
+ * <p>
+ * Frames longer than the snapshot length are truncated by the driver and dropped by the
+ * sniffer, the snapshot length must cover the largest frame including offloaded segments.
+ */
+public class CaptureProfile {
+    private static final int MAX_SNAPLEN = 65535;
+
+    private int bufferSize;
+    private int snaplen = MAX_SNAPLEN;
+    private int timeoutMillis = 60000;
+    private boolean immediate;
+    private int minToCopy = -1;
+    private int batchSize;
+
+    /**
+     * Profile matching the capture handles used before profiles were added. Buffer size and
+     * copy threshold are left to the driver.
+     *
+     * @return Default profile.
+     */
+    public static CaptureProfile standard() {
+        return new CaptureProfile();
+    }
+
+    /**
+     * Frames are delivered as soon as they arrive. Costs a wake-up per frame under load.
+     *
+     * @return Low latency profile.
+     */
+    public static CaptureProfile lowLatency() {
+        return new CaptureProfile()
+                .bufferSize(4 * 1024 * 1024)
+                .timeout(1)
+                .immediate(true)
+                .minToCopy(0);
+    }
+
+    /**
+     * Frames are collected in a large kernel buffer and delivered in batches. Fewest drops
+     * under bursts at the cost of up to the timeout in delay.
+     *
+     * @return High throughput profile.
+     */
+    public static CaptureProfile highThroughput() {
+        return new CaptureProfile()
+                .bufferSize(32 * 1024 * 1024)
+                .timeout(50)
+                .minToCopy(256 * 1024)
+                .batchSize(256);
+    }
+
+    /**
+     * Kernel buffer size in bytes, 0 to leave the driver default.
+     *
+     * @param bufferSize Buffer size in bytes.
+     * @return This profile.
+     */
+    public CaptureProfile bufferSize(int bufferSize) {
+        this.bufferSize = Math.max(0, bufferSize);
+        return this;
+    }
+
+    /**
+     * Max number of bytes captured per frame.
+     *
+     * @param snaplen Snapshot length in bytes.
+     * @return This profile.
+     */
+    public CaptureProfile snaplen(int snaplen) {
+        this.snaplen = Math.max(1, Math.min(MAX_SNAPLEN, snaplen));
+        return this;
+    }
+
+    /**
+     * Max time in milliseconds the driver waits for more frames before delivering.
+     *
+     * @param timeoutMillis Read timeout in milliseconds.
+     * @return This profile.
+     */
+    public CaptureProfile timeout(int timeoutMillis) {
+        this.timeoutMillis = Math.max(0, timeoutMillis);
+        return this;
+    }
+
+    /**
+     * Delivers every frame as soon as it arrives instead of waiting for the buffer or timeout.
+     *
+     * @param immediate True for immediate mode.
+     * @return This profile.
+     */
+    public CaptureProfile immediate(boolean immediate) {
+        this.immediate = immediate;
+        return this;
+    }
+
+    /**
+     * Min number of bytes buffered by the driver before a read returns, only supported by
+     * WinPcap and Npcap. -1 leaves the driver default.
+     *
+     * @param minToCopy Min bytes per read.
+     * @return This profile.
+     */
+    public CaptureProfile minToCopy(int minToCopy) {
+        this.minToCopy = Math.max(-1, minToCopy);
+        return this;
+    }
+
+    /**
+     * Frames handed to the sniffer per native upcall, 0 hands over frame by frame.
+     *
+     * @param batchSize Max frames per batch.
+     * @return This profile.
+     */
+    public CaptureProfile batchSize(int batchSize) {
+        this.batchSize = Math.max(0, batchSize);
+        return this;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getSnaplen() {
+        return snaplen;
+    }
+
+    public int getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public boolean isImmediate() {
+        return immediate;
+    }
+
+    public int getMinToCopy() {
+        return minToCopy;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Options the capture handles are opened with.
+     *
+     * @return Live options of this profile.
+     */
+    DefaultLiveOptions toLiveOptions() {
+        DefaultLiveOptions options = new DefaultLiveOptions();
+        options.timeout(timeoutMillis);
+        options.snapshotLength(snaplen);
+        if (bufferSize > 0) options.bufferSize(bufferSize);
+        if (immediate) options.immediate(true);
+        return options;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("buffer:%d snaplen:%d timeout:%dms immediate:%b mintocopy:%d batch:%d", bufferSize, snaplen, timeoutMillis, immediate, minToCopy, batchSize);
+    }
+}
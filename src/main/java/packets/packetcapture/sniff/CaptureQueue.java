@@ -0,0 +1,180 @@
+package packets.packetcapture.sniff;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free bounded queue handing captured packets from the pcap threads to the processing
+ * thread. Every slot in the array carries a sequence number telling producers and the consumer
+ * if the slot is free or filled, removing the need for any monitor on either side. Multiple
+ * producers are allowed (needed while all network interfaces are probed) while the consumer
+ * side is expected to be a single thread.
+ * <p>
+ * If the queue is full the pushed element is rejected and counted as an overflow instead of
+ * blocking the capture thread. The highest number of queued elements is tracked as a high-water
+ * mark to size the queue after bursts.
+ *
+ * @param <T> Generic type, in Sniffer.java its used to store RawPackets
+ */
+public class CaptureQueue<T> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<T> buffer;
+    private final AtomicLongArray sequence;
+    private final AtomicLong writeIndex = new AtomicLong();
+    private final AtomicLong readIndex = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+    private final AtomicInteger highWaterMark = new AtomicInteger();
+    private final WaitStrategy waitStrategy;
+
+    /**
+     * Constructor with capacity and the strategy used by the consumer when the queue is empty.
+     *
+     * @param capacity     Capacity of the queue, rounded up to the nearest power of two.
+     * @param waitStrategy Strategy used to idle the consumer and wake it up on new elements.
+     */
+    public CaptureQueue(int capacity, WaitStrategy waitStrategy) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.sequence = new AtomicLongArray(size);
+        this.waitStrategy = waitStrategy;
+        for (int i = 0; i < size; i++) {
+            sequence.set(i, i);
+        }
+    }
+
+    /**
+     * Puts an element into the queue and wakes up the consumer.
+     *
+     * @param item Element to be inserted into the queue.
+     * @return True if the element was inserted, false if the queue was full.
+     */
+    public boolean offer(T item) {
+        if (!offerQuietly(item)) return false;
+        waitStrategy.signal();
+        return true;
+    }
+
+    /**
+     * Puts an element into the queue without waking up the consumer. Used when several elements
+     * are inserted at once and followed by a single {@link #signal()}.
+     *
+     * @param item Element to be inserted into the queue.
+     * @return True if the element was inserted, false if the queue was full.
+     */
+    public boolean offerQuietly(T item) {
+        long pos;
+        int index;
+        while (true) {
+            pos = writeIndex.get();
+            index = (int) pos & mask;
+            long dif = sequence.get(index) - pos;
+            if (dif == 0) {
+                if (writeIndex.compareAndSet(pos, pos + 1)) break;
+            } else if (dif < 0) {
+                overflowCount.incrementAndGet();
+                return false;
+            }
+            // Another producer claimed the slot, retry with the new write index.
+        }
+        buffer.lazySet(index, item);
+        sequence.set(index, pos + 1);
+
+        int depth = (int) (pos + 1 - readIndex.get());
+        if (depth > highWaterMark.get()) highWaterMark.accumulateAndGet(depth, Math::max);
+        return true;
+    }
+
+    /**
+     * Wakes up the consumer if it is idling.
+     */
+    public void signal() {
+        waitStrategy.signal();
+    }
+
+    /**
+     * Removes and returns the oldest element in the queue. Must only be called from the single
+     * consumer thread.
+     *
+     * @return Returns the oldest element in the queue or null if the queue is empty.
+     */
+    public T poll() {
+        long pos = readIndex.get();
+        int index = (int) pos & mask;
+        if (sequence.get(index) != pos + 1) return null;
+
+        T item = buffer.get(index);
+        buffer.lazySet(index, null);
+        sequence.set(index, pos + capacity);
+        readIndex.lazySet(pos + 1);
+        return item;
+    }
+
+    /**
+     * Idles the consumer thread according to the wait strategy until new elements might be present.
+     */
+    public void idle() {
+        waitStrategy.idle(this);
+    }
+
+    /**
+     * Is empty check
+     *
+     * @return True if queue is empty.
+     */
+    public boolean isEmpty() {
+        long pos = readIndex.get();
+        return sequence.get((int) pos & mask) != pos + 1;
+    }
+
+    /**
+     * Returns the number of elements currently in the queue.
+     *
+     * @return The number of queued elements.
+     */
+    public int size() {
+        return (int) Math.max(0, writeIndex.get() - readIndex.get());
+    }
+
+    /**
+     * Returns the capacity of the queue.
+     *
+     * @return Maximum number of elements the queue can hold.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Highest number of elements the queue held at any point.
+     *
+     * @return High-water mark of the queue depth.
+     */
+    public int getHighWaterMark() {
+        return highWaterMark.get();
+    }
+
+    /**
+     * Number of elements dropped because the queue was full.
+     *
+     * @return Number of overflows.
+     */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "CaptureQueue{" +
+                "size=" + size() +
+                ", capacity=" + capacity +
+                ", highWaterMark=" + getHighWaterMark() +
+                ", overflow=" + getOverflowCount() +
+                '}';
+    }
+}
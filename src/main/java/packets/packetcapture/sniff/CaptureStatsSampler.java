@@ -0,0 +1,110 @@
+package packets.packetcapture.sniff;
+
+import pcap.spi.Pcap;
+import util.Util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Periodically reads the driver statistics of the capture handle in use. Frames dropped by the
+ * kernel or the interface never reach the sniffer and otherwise only show up as gaps in the TCP
+ * streams, the sampler makes the drops visible and reports them as they happen.
+ * <p>
+ * The driver counters are 32-bit and wrap, the sampler accumulates the differences between
+ * samples into 64-bit totals. A failed read keeps the last sample, the counters start over
+ * only when the handle changes.
+ */
+public class CaptureStatsSampler implements Runnable {
+    private static final AtomicLong received = new AtomicLong();
+    private static final AtomicLong dropped = new AtomicLong();
+    private static final AtomicLong ifDropped = new AtomicLong();
+
+    private final Sniffer sniffer;
+    private final long intervalMillis;
+    private final int[] counters = new int[3];
+    private final int[] last = new int[3];
+    private Pcap lastPcap;
+    private volatile boolean stop;
+
+    /**
+     * Sampler of the capture handle the sniffer settled on.
+     *
+     * @param sniffer        Sniffer owning the capture handle.
+     * @param intervalMillis Time between samples in milliseconds.
+     */
+    public CaptureStatsSampler(Sniffer sniffer, long intervalMillis) {
+        this.sniffer = sniffer;
+        this.intervalMillis = intervalMillis;
+    }
+
+    @Override
+    public void run() {
+        while (!stop) {
+            try {
+                Thread.sleep(intervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            sample();
+        }
+    }
+
+    /**
+     * Stops sampling.
+     */
+    public void stop() {
+        stop = true;
+    }
+
+    /**
+     * Reads the counters and adds the change since the last sample of the same handle to the
+     * totals, the counters of a new handle are added whole.
+     */
+    private void sample() {
+        Pcap pcap = sniffer.readCaptureStats(counters);
+        if (pcap == null) return;
+        if (pcap == lastPcap) {
+            received.addAndGet(Integer.toUnsignedLong(counters[0] - last[0]));
+            long drops = Integer.toUnsignedLong(counters[1] - last[1]);
+            long ifDrops = Integer.toUnsignedLong(counters[2] - last[2]);
+            dropped.addAndGet(drops);
+            ifDropped.addAndGet(ifDrops);
+            if (drops > 0 || ifDrops > 0) {
+                Util.print("Capture dropped " + drops + " frames in buffer, " + ifDrops + " frames in interface.");
+            }
+        } else {
+            received.addAndGet(Integer.toUnsignedLong(counters[0]));
+            dropped.addAndGet(Integer.toUnsignedLong(counters[1]));
+            ifDropped.addAndGet(Integer.toUnsignedLong(counters[2]));
+        }
+        System.arraycopy(counters, 0, last, 0, last.length);
+        lastPcap = pcap;
+    }
+
+    /**
+     * Frames received by the driver.
+     *
+     * @return Number of frames received.
+     */
+    public static long getReceived() {
+        return received.get();
+    }
+
+    /**
+     * Frames dropped by the driver for lack of buffer space.
+     *
+     * @return Number of frames dropped.
+     */
+    public static long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Frames dropped by the network interface.
+     *
+     * @return Number of frames dropped by the interface.
+     */
+    public static long getIfDropped() {
+        return ifDropped.get();
+    }
+}
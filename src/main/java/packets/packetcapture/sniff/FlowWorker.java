@@ -0,0 +1,93 @@
+package packets.packetcapture.sniff;
+
+import packets.packetcapture.sniff.assembly.FlowTable;
+import packets.packetcapture.sniff.netpackets.EthernetPacket;
+import packets.packetcapture.sniff.netpackets.TcpPacket;
+import util.Util;
+
+/**
+ * Worker thread processing a shard of the TCP connections. TCP packets are handed over from
+ * the sniffer processing thread together with ownership of their frame, the worker releases
+ * the frame after the packet is processed.
+ */
+public class FlowWorker implements Runnable {
+    private static final int QUEUE_CAPACITY = 1 << 13;
+    private final CaptureQueue<TcpPacket> queue;
+    private final FlowTable flowTable;
+    private volatile boolean stop;
+
+    /**
+     * Worker with its own flow table.
+     *
+     * @param processor    Processor creating the processing of new connections.
+     * @param port         Server port of the connections.
+     * @param waitStrategy Wait strategy used when the queue is empty.
+     */
+    public FlowWorker(PProcessor processor, int port, WaitStrategy waitStrategy) {
+        queue = new CaptureQueue<>(QUEUE_CAPACITY, waitStrategy);
+        flowTable = new FlowTable(processor, port);
+    }
+
+    /**
+     * Hands a TCP packet to the worker, waiting while the queue is full to not lose
+     * segments of the stream. Must only be called from the single dispatching thread.
+     *
+     * @param packet TCP packet viewing a frame now owned by the worker.
+     * @return False if the worker is stopped and the packet wasn't handed over.
+     */
+    public boolean dispatch(TcpPacket packet) {
+        while (queue.size() >= queue.capacity()) {
+            if (stop) return false;
+            Thread.yield();
+        }
+        return queue.offer(packet);
+    }
+
+    @Override
+    public void run() {
+        while (!stop || !queue.isEmpty()) {
+            TcpPacket packet = queue.poll();
+            if (packet == null) {
+                flowTable.sweep(System.currentTimeMillis());
+                queue.idle();
+                continue;
+            }
+            try {
+                flowTable.process(packet);
+            } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException | NullPointerException e) {
+                Util.print(e.getMessage());
+                e.printStackTrace();
+            } finally {
+                release(packet);
+            }
+        }
+        flowTable.closeAll();
+    }
+
+    /**
+     * Stops the worker after the queued packets are processed.
+     */
+    public void stop() {
+        stop = true;
+        queue.signal();
+    }
+
+    /**
+     * Flow table of the connections in this shard.
+     *
+     * @return The flow table.
+     */
+    public FlowTable getFlowTable() {
+        return flowTable;
+    }
+
+    /**
+     * Releases the frame the TCP packet is viewing.
+     *
+     * @param packet Processed TCP packet.
+     */
+    static void release(TcpPacket packet) {
+        EthernetPacket ethernetPacket = packet.getIp4Packet() == null ? null : packet.getIp4Packet().getEthernetPacket();
+        if (ethernetPacket != null && ethernetPacket.getRawPacket() != null) ethernetPacket.getRawPacket().release();
+    }
+}
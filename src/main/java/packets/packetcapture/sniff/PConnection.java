@@ -0,0 +1,57 @@
+package packets.packetcapture.sniff;
+
+/**
+ * Processing of a single TCP connection to the game server. Each connection receives its
+ * own ordered incoming and outgoing streams.
+ */
+public interface PConnection {
+
+    /**
+     * Reset called when a TCP reset packet is received on incoming packets.
+     */
+    void resetIncoming();
+
+    /**
+     * Reset called when a TCP reset packet is received on outgoing packets.
+     */
+    void resetOutgoing();
+
+    /**
+     * Incoming stream from the TCP payload.
+     *
+     * @param data    Array holding the TCP packet payload containing the stream. Only valid during the call.
+     * @param offset  Offset of the payload in the array.
+     * @param length  Length of the payload.
+     * @param srcAddr Source of the incoming packets.
+     */
+    void incomingStream(byte[] data, int offset, int length, byte[] srcAddr);
+
+    /**
+     * Outgoing stream from the TCP payload.
+     *
+     * @param data    Array holding the TCP packet payload containing the stream. Only valid during the call.
+     * @param offset  Offset of the payload in the array.
+     * @param length  Length of the payload.
+     * @param srcAddr Source of the outgoing packets.
+     */
+    void outgoingStream(byte[] data, int offset, int length, byte[] srcAddr);
+
+    /**
+     * Missing bytes skipped in the incoming stream.
+     *
+     * @param length Number of bytes lost.
+     */
+    void incomingGap(int length);
+
+    /**
+     * Missing bytes skipped in the outgoing stream.
+     *
+     * @param length Number of bytes lost.
+     */
+    void outgoingGap(int length);
+
+    /**
+     * Called when the connection is evicted from the flow table after being idle.
+     */
+    void close();
+}
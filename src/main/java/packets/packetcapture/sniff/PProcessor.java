@@ -6,28 +6,12 @@ package packets.packetcapture.sniff;
 public interface PProcessor {
 
     /**
-     * Reset called when a TCP reset packet is received on incoming packets.
-     */
-    void resetIncoming();
-
-    /**
-     * Reset called when a TCP reset packet is received on outgoing packets.
-     */
-    void resetOutgoing();
-
-    /**
-     * Incoming stream from the TCP payload.
-     *
-     * @param data    TCP packet payload byte data containing the stream.
-     * @param srcAddr Source of the incoming packets.
-     */
-    void incomingStream(byte[] data, byte[] srcAddr);
-
-    /**
-     * Outgoing stream from the TCP payload.
+     * Creates the processing of a newly seen TCP connection. Called from the thread
+     * processing the connection, every call of the returned connection is made from
+     * that same thread.
      *
-     * @param data    TCP packet payload byte data containing the stream.
-     * @param srcAddr Source of the outgoing packets.
+     * @param connectionId Unique id of the connection.
+     * @return Processing of the connection.
      */
-    void outgoingStream(byte[] data, byte[] srcAddr);
+    PConnection newConnection(int connectionId);
 }
@@ -3,20 +3,29 @@ package packets.packetcapture.sniff;
 import packets.packetcapture.sniff.ardikars.NativeBridge;
 import packets.packetcapture.sniff.assembly.Ip4Defragmenter;
 import packets.packetcapture.sniff.assembly.TcpStreamErrorHandler;
-import packets.packetcapture.sniff.assembly.TcpStreamBuilder;
+import packets.packetcapture.sniff.assembly.FlowKey;
+import packets.packetcapture.sniff.assembly.FlowTable;
 import packets.packetcapture.sniff.netpackets.EthernetPacket;
+import packets.packetcapture.sniff.netpackets.FramePool;
 import packets.packetcapture.sniff.netpackets.Ip4Packet;
 import packets.packetcapture.sniff.netpackets.RawPacket;
 import packets.packetcapture.sniff.netpackets.TcpPacket;
+import packets.packetcapture.sniff.pcapfile.PcapFileReader;
+import packets.packetcapture.sniff.pcapfile.PcapNgRecorder;
 import pcap.spi.Interface;
 import pcap.spi.Pcap;
 import pcap.spi.Service;
 import pcap.spi.exception.ErrorException;
 import pcap.spi.exception.error.*;
-import pcap.spi.option.DefaultLiveOptions;
+import util.PropertiesManager;
 import util.Util;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * A sniffer used to tap packets out of the Windows OS network layer. Before sniffing
@@ -25,14 +34,27 @@ import java.util.Arrays;
  */
 public class Sniffer {
     private static final boolean disableChecksum = true; // disabled given most routers checksum packets automatically.
+    private static final int QUEUE_CAPACITY = 1 << 15;
+    private static final String INTERFACE_PROPERTY = "captureInterface";
+    private static final long CACHED_INTERFACE_DEADLINE = 5000;
     private final int port = 2050; // 2050 is default rotmg server port.
-    private final Sniffer thisObject;
-    private final RingBuffer<RawPacket> ringBuffer;
-    private final TcpStreamBuilder incoming;
-    private final TcpStreamBuilder outgoing;
+    private final CaptureQueue<RawPacket> captureQueue;
+    private final PProcessor processor;
+    private final FlowTable flowTable;
+    private final FlowKey probe = new FlowKey();
+    private final int shards;
+    private FlowWorker[] workers;
+    private Thread[] workerThreads;
     private Pcap[] pcaps;
-    private Pcap realmPcap;
-    private boolean stop;
+    private NativeBridge.CaptureLoop[] captures;
+    private String[] pcapNames;
+    private volatile CountDownLatch selected;
+    private volatile Pcap realmPcap;
+    private volatile boolean stop;
+    private volatile PcapNgRecorder recorder;
+    private volatile int batchSize;
+    private volatile CaptureProfile profile = CaptureProfile.standard();
+    private final Object handleLock = new Object();
 
     /**
      * Constructor of a Windows sniffer.
@@ -40,19 +62,48 @@ public class Sniffer {
      * @param processor PProcessor instance used as the base.
      */
     public Sniffer(PProcessor processor) {
-        thisObject = this;
-        ringBuffer = new RingBuffer<>(32);
-        incoming = new TcpStreamBuilder(processor::resetIncoming, processor::incomingStream);
-        outgoing = new TcpStreamBuilder(processor::resetOutgoing, processor::outgoingStream);
+        this(processor, new WaitStrategy.Blocking());
+    }
+
+    /**
+     * Constructor of a Windows sniffer with a specific wait strategy used by the
+     * processing thread while waiting for captured packets.
+     *
+     * @param processor    PProcessor instance used as the base.
+     * @param waitStrategy Wait strategy used when the capture queue is empty.
+     */
+    public Sniffer(PProcessor processor, WaitStrategy waitStrategy) {
+        this(processor, waitStrategy, 1);
+    }
+
+    /**
+     * Constructor of a Windows sniffer spreading the TCP connections over worker threads.
+     * With a single shard the connections are processed on the sniffer processing thread,
+     * with more shards each connection is processed by the worker owning its shard letting
+     * multiple game clients on the same host use multiple cores.
+     *
+     * @param processor    PProcessor instance used as the base.
+     * @param waitStrategy Wait strategy used when the capture queue is empty.
+     * @param shards       Number of threads processing the connections.
+     */
+    public Sniffer(PProcessor processor, WaitStrategy waitStrategy, int shards) {
+        this.processor = processor;
+        this.shards = Math.max(1, shards);
+        captureQueue = new CaptureQueue<>(QUEUE_CAPACITY, waitStrategy);
+        flowTable = new FlowTable(processor, port);
     }
 
     /**
      * Main sniffer method to listen on the network tap for any packets filtered by port
      * 2050 (default port rotmg uses) and TCP packets only (the packet type rotmg uses).
      * All network interfaces are listen to given some users might have multiple. A thread
-     * is created to listen to all interfaces until any packet of the correct type (port
-     * 2050 of type TCP) is found. The all other channels are halted and only the correct
-     * interface is listened on.
+     * is created to open and listen to each interface until any packet of the correct type
+     * (port 2050 of type TCP) is found. The first interface capturing a packet wins, all
+     * other channels are halted and only the winning interface is listened on.
+     * <p>
+     * The winning interface is remembered. On the next start the remembered interface is
+     * tried on its own first, only if it captures nothing before the deadline all other
+     * interfaces are opened in parallel as well.
      *
      * @throws Error... If any unexpected issues are found.
      */
@@ -64,29 +115,105 @@ public class Sniffer {
         Service service = Service.Creator.create("PcapService");
         Interface[] interfaceList = NativeBridge.getInterfaces(service);
         pcaps = new Pcap[interfaceList.length];
+        captures = new NativeBridge.CaptureLoop[interfaceList.length];
+        pcapNames = new String[interfaceList.length];
         realmPcap = null;
         stop = false;
+        selected = new CountDownLatch(1);
 
-        for (int i = 0; i < interfaceList.length; i++) {
-            DefaultLiveOptions defaultLiveOptions = new DefaultLiveOptions();
-            defaultLiveOptions.timeout(60000);
-            Pcap pcap;
-
+        CaptureProfile p = profile;
+        int cached = cachedInterface(interfaceList);
+        if (cached != -1) {
+            openSniffer(service, interfaceList[cached], cached, p);
             try {
-                pcap = service.live(interfaceList[i], defaultLiveOptions);
-            } catch (Exception e) {
-                e.printStackTrace();
-                continue;
+                selected.await(CACHED_INTERFACE_DEADLINE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
             }
-
-            pcap.setFilter("tcp port " + port, true);
-            pcaps[i] = pcap;
-
-            startPacketSniffer(pcap);
         }
+        if (realmPcap == null && !stop) {
+            for (int i = 0; i < interfaceList.length; i++) {
+                if (i != cached) openSniffer(service, interfaceList[i], i, p);
+            }
+        }
+
+        CaptureStatsSampler sampler = new CaptureStatsSampler(this, 5000);
+        Thread samplerThread = new Thread(sampler, "CaptureStatsSampler");
+        samplerThread.setDaemon(true);
+        samplerThread.start();
 
         closeUnusedSniffers();
         processBufferedPackets();
+        sampler.stop();
+        samplerThread.interrupt();
+    }
+
+    /**
+     * Offline sniffer reading frames from a pcap or pcapng capture file instead of the
+     * network tap. The frames go through the same processing as live captured frames.
+     * Returns when the whole file is processed or the sniffer is closed.
+     *
+     * @param file     Capture file to be read.
+     * @param realTime True to replay the frames paced by their capture timestamps, false to
+     *                 read the file as fast as the processing allows.
+     * @throws IOException If the capture file can't be opened.
+     */
+    public void startOfflineSniffer(Path file, boolean realTime) throws IOException {
+        PcapFileReader reader = new PcapFileReader(file);
+        pcaps = new Pcap[0];
+        realmPcap = null;
+        stop = false;
+
+        Thread thread = new Thread(() -> readCaptureFile(reader, realTime), "PcapFileReader");
+        thread.start();
+        processBufferedPackets();
+    }
+
+    /**
+     * Reads all frames in the capture file into the capture queue. If the queue is full the
+     * reader waits for the processing thread instead of dropping frames. Stops the processing
+     * once the queue is drained after the last frame.
+     *
+     * @param reader   Reader of the capture file.
+     * @param realTime True if frames should be paced according to their timestamps.
+     */
+    private void readCaptureFile(PcapFileReader reader, boolean realTime) {
+        FramePool pool = new FramePool();
+        long start = System.nanoTime();
+        long firstTimestamp = -1;
+        try {
+            RawPacket packet;
+            while (!stop && (packet = reader.next(pool)) != null) {
+                if (realTime) {
+                    long timestamp = TimeUnit.SECONDS.toNanos(packet.getEpochSecond()) + packet.getNanos();
+                    if (firstTimestamp == -1) firstTimestamp = timestamp;
+                    long wait;
+                    while (!stop && (wait = start + (timestamp - firstTimestamp) - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+                TcpStreamErrorHandler.INSTANCE.logTCPPacket(packet);
+                while (!stop && captureQueue.size() >= captureQueue.capacity()) {
+                    Thread.yield();
+                }
+                if (stop || !captureQueue.offer(packet)) packet.release();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            try {
+                reader.close();
+            } catch (IOException ignored) {
+            }
+        }
+        while (!stop && !captureQueue.isEmpty()) {
+            pause(1);
+        }
+        long ms = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        Util.print(String.format("Capture file done: %d frames %d bytes in %d ms (%.0f frames/s)", reader.getFramesRead(), reader.getBytesRead(), ms, reader.getFramesRead() * 1000.0 / ms));
+        stop = true;
+        captureQueue.signal();
     }
 
     /**
@@ -101,114 +228,319 @@ public class Sniffer {
     }
 
     /**
-     * Start a packet sniffers on different threads
-     * and close any sniffer not being used.
+     * Index of the interface remembered from the last start.
      *
-     * @param pcap Current handle to the Pcap instance.
+     * @param interfaceList All interfaces on the device.
+     * @return Index of the remembered interface or -1 if none is remembered or it is gone.
      */
-    public void startPacketSniffer(Pcap pcap) {
-        new Thread(new Runnable() {
-            final Pcap p = pcap;
-
-            @Override
-            public void run() {
-                NativeBridge.PacketListener listener = packet -> {
-                    TcpStreamErrorHandler.INSTANCE.logTCPPacket(packet);
-
-                    if (packet != null && computeChecksum(packet.getPayload())) {
-                        synchronized (ringBuffer) {
-                            ringBuffer.push(packet);
-                        }
-                        realmPcap = pcap;
-                        synchronized (thisObject) {
-                            thisObject.notifyAll();
-                        }
+    private static int cachedInterface(Interface[] interfaceList) {
+        String name = PropertiesManager.getProperty(INTERFACE_PROPERTY);
+        if (name == null) return -1;
+        for (int i = 0; i < interfaceList.length; i++) {
+            if (name.equals(interfaceList[i].name())) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Opens the interface and starts sniffing it on its own thread. Opening slow interfaces
+     * doesn't hold up the others. The handle is closed right away if another interface
+     * already won while it was being opened, otherwise by the same thread once its capture
+     * loop is stopped.
+     *
+     * @param service Service used to open the interface.
+     * @param device  Interface to be opened.
+     * @param index   Index of the interface.
+     * @param profile Tuning of the capture handle.
+     */
+    private void openSniffer(Service service, Interface device, int index, CaptureProfile profile) {
+        Pcap[] handles = pcaps;
+        NativeBridge.CaptureLoop[] loops = captures;
+        new Thread(() -> {
+            Pcap pcap;
+            NativeBridge.CaptureLoop capture;
+            try {
+                pcap = service.live(device, profile.toLiveOptions());
+                synchronized (Sniffer.class) { // filter compilation isn't thread safe in older libpcap versions
+                    pcap.setFilter("tcp port " + port, true);
+                }
+                capture = new NativeBridge.CaptureLoop(pcap);
+            } catch (Exception e) {
+                e.printStackTrace();
+                return;
+            }
+            if (profile.getMinToCopy() >= 0) NativeBridge.setMinToCopy(pcap, profile.getMinToCopy());
+            synchronized (handleLock) {
+                if (stop || realmPcap != null) {
+                    pcap.close();
+                    return;
+                }
+                handles[index] = pcap;
+                loops[index] = capture;
+                pcapNames[index] = device.name();
+            }
+            try {
+                startPacketSniffer(capture);
+            } finally {
+                synchronized (handleLock) {
+                    if (loops[index] == capture) {
+                        loops[index] = null;
+                        handles[index] = null;
                     }
-                };
-                NativeBridge.loop(p, -1, listener);
+                    capture.close();
+                }
+            }
+        }, "Sniffer-" + index).start();
+    }
+
+    /**
+     * Start a packet sniffer on the current thread, returns when the capture loop is stopped.
+     *
+     * @param capture Capture loop of the current handle to the Pcap instance.
+     */
+    private void startPacketSniffer(NativeBridge.CaptureLoop capture) {
+        Pcap pcap = capture.getPcap();
+        FramePool pool = new FramePool();
+        int batch = batchSize;
+        if (batch > 0) {
+            NativeBridge.BatchListener listener = packets -> {
+                boolean queued = false;
+                for (int i = 0; i < packets.size(); i++) {
+                    queued |= capture(pcap, packets.get(i));
+                }
+                if (queued) captureQueue.signal();
+            };
+            NativeBridge.dispatch(capture, batch, listener, pool);
+        } else {
+            NativeBridge.PacketListener listener = packet -> {
+                if (capture(pcap, packet)) captureQueue.signal();
+            };
+            NativeBridge.loop(capture, -1, listener, pool);
+        }
+    }
+
+    /**
+     * Logs and records a captured frame and puts it into the capture queue without waking
+     * up the processing thread. The frame is released if it isn't queued. The first handle
+     * queuing a frame is selected as the realm handle, frames of other handles are dropped
+     * from then on.
+     *
+     * @param pcap   Handle the frame was captured on.
+     * @param packet Captured frame.
+     * @return True if the frame is queued.
+     */
+    private boolean capture(Pcap pcap, RawPacket packet) {
+        if (packet == null) return false;
+        Pcap winner = realmPcap;
+        if (winner != null && winner != pcap) {
+            packet.release();
+            return false;
+        }
+        TcpStreamErrorHandler.INSTANCE.logTCPPacket(packet);
+        PcapNgRecorder r = recorder;
+        if (r != null) r.record(packet);
+
+        if (computeChecksum(packet.getData(), packet.getPayloadSize()) && captureQueue.offerQuietly(packet)) {
+            if (winner == null) select(pcap);
+            return true;
+        }
+        packet.release();
+        return false;
+    }
+
+    /**
+     * Sets the number of frames collected per native upcall. With a batch size above zero the
+     * interfaces are read with pcap_dispatch and the frames of each buffer read are handed over
+     * in batches, waking up the processing thread once per batch. Zero hands over every frame
+     * on its own. Applies to sniffers started after the call.
+     *
+     * @param batchSize Max frames per batch, 0 to disable batching.
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(0, batchSize);
+    }
+
+    /**
+     * Sets the tuning of the capture handles, including the batch size of the profile.
+     * Applies to sniffers started after the call.
+     *
+     * @param profile Capture profile, see {@link CaptureProfile#lowLatency()} and
+     *                {@link CaptureProfile#highThroughput()} for presets.
+     */
+    public void setCaptureProfile(CaptureProfile profile) {
+        this.profile = profile;
+        setBatchSize(profile.getBatchSize());
+    }
+
+    /**
+     * Reads the driver statistics of the capture handle the sniffer settled on. Synchronized
+     * with closing the handles to never read a closed handle.
+     *
+     * @param counters Array receiving the frames received, dropped and dropped by the interface.
+     * @return Handle the statistics were read from, null if no handle is settled on or the
+     * statistics could not be read.
+     */
+    Pcap readCaptureStats(int[] counters) {
+        synchronized (handleLock) {
+            Pcap pcap = realmPcap;
+            if (stop || pcap == null) return null;
+            for (NativeBridge.CaptureLoop capture : captures) {
+                if (capture != null && capture.getPcap() == pcap) return NativeBridge.getStats(pcap, counters) ? pcap : null;
             }
-        }).start();
-        pause(1);
+            return null; // closed after its loop failed
+        }
+    }
+
+    /**
+     * Selects the handle as the realm handle if no handle is selected yet and signals the
+     * selection.
+     *
+     * @param pcap Handle that captured a realm packet.
+     */
+    private void select(Pcap pcap) {
+        synchronized (handleLock) {
+            if (realmPcap != null) return;
+            realmPcap = pcap;
+        }
+        selected.countDown();
     }
 
     /**
-     * Close threads of sniffer network interfaces not being used after
-     * capturing at least one realm packet in the correct net-interface.
+     * Waits for the first interface capturing a realm packet, then stops the threads of
+     * sniffer network interfaces not being used and remembers the winning interface. Each
+     * thread closes its handle once its capture loop returned.
      */
     private void closeUnusedSniffers() {
         try {
-            synchronized (thisObject) {
-                thisObject.wait();
-            }
-            while (!stop) {
-                if (realmPcap != null) {
-                    for (Pcap pcap : pcaps) {
-                        if (pcap != null && realmPcap != pcap) {
-                            pcap.close();
-                        }
-                    }
-                    return;
+            selected.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        String name = null;
+        synchronized (handleLock) {
+            if (stop) return;
+            for (int i = 0; i < pcaps.length; i++) {
+                if (captures[i] == null) continue;
+                if (pcaps[i] == realmPcap) {
+                    name = pcapNames[i];
+                } else {
+                    captures[i].stop();
                 }
-                pause(100);
             }
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        }
+        if (name != null && !name.equals(PropertiesManager.getProperty(INTERFACE_PROPERTY))) {
+            PropertiesManager.setProperties(INTERFACE_PROPERTY, name);
         }
     }
 
     /**
-     * Processing waits until new packets are captured by the sniffer, wakes
-     * up and processes the buffered packets in the ring buffer and goes
-     * back to sleep.
+     * Processing idles according to the wait strategy until new packets are
+     * captured by the sniffer, then drains and processes the packets in the
+     * capture queue. Every network layer is read as a view over the pooled
+     * frame, the frame is released back to its pool once processed.
      */
     private void processBufferedPackets() {
-        try {
-            while (!stop) {
-                synchronized (thisObject) {
-                    thisObject.wait();
-                }
-                while (!ringBuffer.isEmpty()) {
-                    RawPacket packet;
-                    synchronized (ringBuffer) {
-                        packet = ringBuffer.pop();
-                    }
-                    if (packet == null) continue;
-
-                    try {
-                        EthernetPacket ethernetPacket = packet.getNewEthernetPacket();
-                        if (ethernetPacket != null) {
-                            Ip4Packet ip4packet = ethernetPacket.getNewIp4Packet();
-                            Ip4Packet assembledIp4packet = Ip4Defragmenter.defragment(ip4packet);
-                            if (assembledIp4packet != null) {
-                                TcpPacket tcpPacket = assembledIp4packet.getNewTcpPacket();
-                                if (tcpPacket != null) {
-                                    receivedPackets(tcpPacket);
-                                }
-                            }
+        startWorkers();
+        while (!stop) {
+            RawPacket packet = captureQueue.poll();
+            if (packet == null) {
+                if (workers == null) flowTable.sweep(System.currentTimeMillis());
+                captureQueue.idle();
+                continue;
+            }
+
+            boolean handedOver = false;
+            try {
+                EthernetPacket ethernetPacket = packet.getEthernetView();
+                if (ethernetPacket != null) {
+                    Ip4Packet ip4packet = ethernetPacket.getIp4View();
+                    Ip4Packet assembledIp4packet = Ip4Defragmenter.defragment(ip4packet);
+                    if (assembledIp4packet != null) {
+                        TcpPacket tcpPacket = assembledIp4packet.getTcpView();
+                        if (tcpPacket != null) {
+                            handedOver = receivedPackets(tcpPacket);
                         }
-                    } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException | NullPointerException e) {
-                        Util.print(e.getMessage());
-                        Util.print(Arrays.toString(packet.getPayload()));
-                        e.printStackTrace();
                     }
                 }
+            } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException | NullPointerException e) {
+                Util.print(e.getMessage());
+                Util.print(Arrays.toString(packet.getPayload()));
+                e.printStackTrace();
+            } finally {
+                if (!handedOver) packet.release();
             }
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        }
+        stopWorkers();
+        flowTable.closeAll();
+    }
+
+    /**
+     * Starts the worker threads if the connections are sharded.
+     */
+    private void startWorkers() {
+        if (shards <= 1) return;
+        workers = new FlowWorker[shards];
+        workerThreads = new Thread[shards];
+        for (int i = 0; i < shards; i++) {
+            workers[i] = new FlowWorker(processor, port, new WaitStrategy.Blocking());
+            workerThreads[i] = new Thread(workers[i], "FlowWorker-" + i);
+            workerThreads[i].start();
         }
     }
 
     /**
-     * Sorting method to arrange incoming and outgoing packets based on ports.
+     * Stops the worker threads after they processed the packets handed to them.
+     */
+    private void stopWorkers() {
+        if (workers == null) return;
+        for (FlowWorker w : workers) w.stop();
+        for (Thread t : workerThreads) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        workers = null;
+        workerThreads = null;
+    }
+
+    /**
+     * Queue between the capture threads and the processing thread. Exposes
+     * the depth high-water mark and overflow counters.
+     *
+     * @return The capture queue.
+     */
+    public CaptureQueue<RawPacket> getCaptureQueue() {
+        return captureQueue;
+    }
+
+    /**
+     * Sets a recorder writing every captured frame to disk, or null to stop recording.
+     * The recorder is not closed by the sniffer.
+     *
+     * @param recorder Recorder the captured frames are handed to.
+     */
+    public void setRecorder(PcapNgRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Sorting method to arrange packets into their connection. With sharded connections the
+     * packet is handed to the worker owning the connection together with its frame.
      *
      * @param packet The TCP packets retrieved from the network tap.
+     * @return True if the packet and its frame were handed to a worker.
      */
-    private void receivedPackets(TcpPacket packet) {
-        if (packet.getSrcPort() == port) { // Incoming packets have 2050 source port.
-            incoming.streamBuilder(packet);
-        } else if (packet.getDstPort() == port) { // Outgoing packets have 2050 destination port.
-            outgoing.streamBuilder(packet);
+    private boolean receivedPackets(TcpPacket packet) {
+        if (workers == null) {
+            flowTable.process(packet);
+            return false;
         }
+        boolean incoming = packet.getSrcPort() == port; // Incoming packets have 2050 source port.
+        if (!incoming && packet.getDstPort() != port) return false;
+        return workers[probe.set(packet, incoming).shard(workers.length)].dispatch(packet);
     }
 
     /**
@@ -219,11 +551,12 @@ public class Sniffer {
      * with checksum results in packets being lost. Even if the checksum fails the packets
      * pass the RC4 cipher meaning the packets are fine, even if the checksum miss matches.
      *
-     * @param bytes Raw bytes of the packet being received.
+     * @param bytes  Raw bytes of the packet being received.
+     * @param length Length of the frame in the bytes array.
      * @return true if the checksum is similar to the TCP checksum sent in the packet.
      * <p>
      */
-    private static boolean computeChecksum(byte[] bytes) {
+    private static boolean computeChecksum(byte[] bytes, int length) {
         if (disableChecksum) return true;
         int tcpLen = (Byte.toUnsignedInt(bytes[17]) + (Byte.toUnsignedInt(bytes[16]) << 8)) - ((bytes[14] & 15) * 4);
         int sum = 6 + tcpLen; // add tcp num + length of tcp
@@ -234,7 +567,7 @@ public class Sniffer {
         }
 
         if ((tcpLen & 1) == 1) // add the last odd pair as if the whole packet had a zero byte added to the end
-            sum += (Byte.toUnsignedInt(bytes[bytes.length - 1]) << 8);
+            sum += (Byte.toUnsignedInt(bytes[length - 1]) << 8);
 
         while ((sum >> 16) != 0) // one compliment
             sum = (sum & 0xFFFF) + (sum >> 16);
@@ -250,17 +583,19 @@ public class Sniffer {
     }
 
     /**
-     * Close all network interfaces sniffing the wire.
+     * Close all network interfaces sniffing the wire. The capture loops are stopped, each
+     * sniffer thread closes its own handle once its loop returned.
      */
     public void closeSniffers() {
         stop = true;
-        if (realmPcap != null) {
-            realmPcap.close();
-        } else {
+        CountDownLatch latch = selected;
+        if (latch != null) latch.countDown();
+        synchronized (handleLock) {
+            // every handle, closeUnusedSniffers skips the losing handles once stopped
             try {
-                for (Pcap c : pcaps) {
+                for (NativeBridge.CaptureLoop c : captures) {
                     if (c != null) {
-                        c.close();
+                        c.stop();
                     }
                 }
             } catch (NullPointerException e) {
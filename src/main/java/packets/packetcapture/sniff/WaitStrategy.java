@@ -0,0 +1,77 @@
+package packets.packetcapture.sniff;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Strategy used by the consumer of a {@link CaptureQueue} when no elements are queued. Trades
+ * CPU usage against wake-up latency.
+ */
+public interface WaitStrategy {
+
+    /**
+     * Called by the consumer thread when the queue is empty.
+     *
+     * @param queue The queue being consumed, checked again before going to sleep.
+     */
+    void idle(CaptureQueue<?> queue);
+
+    /**
+     * Called by the producers after elements have been published.
+     */
+    void signal();
+
+    /**
+     * Parks the consumer thread until a producer un-parks it. Lowest CPU usage, the wake-up is
+     * only paid when the consumer is actually sleeping. Parking is time limited to let the
+     * consumer check for shutdown.
+     */
+    final class Blocking implements WaitStrategy {
+        private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+        private volatile Thread waiter;
+
+        @Override
+        public void idle(CaptureQueue<?> queue) {
+            waiter = Thread.currentThread();
+            if (queue.isEmpty()) { // re-check after publishing the waiter to not miss a signal
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+            waiter = null;
+        }
+
+        @Override
+        public void signal() {
+            Thread t = waiter;
+            if (t != null) LockSupport.unpark(t);
+        }
+    }
+
+    /**
+     * Yields the consumer thread to other threads while waiting. Lower latency than blocking at
+     * the cost of keeping a core partly busy.
+     */
+    final class Yielding implements WaitStrategy {
+        @Override
+        public void idle(CaptureQueue<?> queue) {
+            Thread.yield();
+        }
+
+        @Override
+        public void signal() {
+        }
+    }
+
+    /**
+     * Spins the consumer thread without giving up the core. Lowest latency, burns one core
+     * completely and should only be used on machines with cores to spare.
+     */
+    final class BusySpin implements WaitStrategy {
+        @Override
+        public void idle(CaptureQueue<?> queue) {
+        }
+
+        @Override
+        public void signal() {
+        }
+    }
+}
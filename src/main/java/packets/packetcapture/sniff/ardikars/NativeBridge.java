@@ -1,7 +1,10 @@
 package packets.packetcapture.sniff.ardikars;
 
+import com.sun.jna.Memory;
+import com.sun.jna.Platform;
 import com.sun.jna.Pointer;
 import packets.packetcapture.sniff.netpackets.EthernetPacket;
+import packets.packetcapture.sniff.netpackets.FramePool;
 import packets.packetcapture.sniff.netpackets.Ip4Packet;
 import packets.packetcapture.sniff.netpackets.RawPacket;
 import packets.packetcapture.sniff.netpackets.TcpPacket;
@@ -14,14 +17,18 @@ import pcap.spi.option.DefaultLiveOptions;
 import java.lang.reflect.Field;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Bridge class to hook directly into native methods instead of using
  * preset methods used by the ardikars library.
  */
 public class NativeBridge {
+    private static final LongAdder batchCount = new LongAdder();
+    private static final LongAdder batchedFrames = new LongAdder();
 
     /**
      * for testing
@@ -71,16 +78,155 @@ public class NativeBridge {
      */
     public static void loop(Pcap pcap, int packetCount, PacketListener listener) {
         try {
-            Field field = pcap.getClass().getDeclaredField("pointer");
-            field.setAccessible(true);
-            Pointer p = (Pointer) field.get(pcap);
+            NativeMappings.pcap_loop(getPointer(pcap), packetCount, new GotPacketFuncExecutor(listener, SimpleExecutor.getInstance()), null);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * The main looping function on the network tap using pooled frames.
+     * Captured frames are copied once out of native memory into a packet
+     * taken from the pool, the listener is responsible for releasing the
+     * packet back to the pool after use.
+     * <p>
+     * Returns when the capture loop is stopped, the handle is left open for
+     * the calling thread to close.
+     *
+     * @param capture     Capture loop of the handle sniffing the wire.
+     * @param packetCount Number of packets to listen to. -1 loops infinitely.
+     * @param listener    Lambda abstract interface used when packets are captured.
+     * @param pool        Frame pool owned by the thread running the loop.
+     */
+    public static void loop(CaptureLoop capture, int packetCount, PacketListener listener, FramePool pool) {
+        try {
+            if (capture.isStopped()) return;
+            NativeMappings.pcap_loop(capture.pointer, packetCount, new GotPacketFuncExecutor(listener, SimpleExecutor.getInstance(), pool), null);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Batched looping function on the network tap. Each call to pcap_dispatch processes
+     * the frames of one capture buffer read, up to the batch size. The frames are copied
+     * into pooled packets collected in a reusable batch, the whole batch is then handed
+     * to the listener in one call. The listener is responsible for releasing the packets
+     * back to the pool, the batch is cleared once the listener returns.
+     * <p>
+     * Loops until the capture loop is stopped or reading fails, the handle is left open for
+     * the calling thread to close.
+     *
+     * @param capture   Capture loop of the handle sniffing the wire.
+     * @param batchSize Max number of frames collected per batch.
+     * @param listener  Lambda abstract interface used when a batch of packets is captured.
+     * @param pool      Frame pool owned by the thread running the loop.
+     */
+    public static void dispatch(CaptureLoop capture, int batchSize, BatchListener listener, FramePool pool) {
+        try {
+            PacketBatch batch = new PacketBatch(batchSize);
+            GotBatchFuncExecutor handler = new GotBatchFuncExecutor(batch, pool);
+            while (!capture.isStopped()) {
+                int n = NativeMappings.pcap_dispatch(capture.pointer, batchSize, handler, null);
+                if (batch.size() > 0) {
+                    batchCount.increment();
+                    batchedFrames.add(batch.size());
+                    try {
+                        listener.gotBatch(batch);
+                    } catch (Throwable e) {
+                        e.printStackTrace();
+                    }
+                    batch.clear();
+                }
+                if (n < 0) break; // -1 error, -2 loop broken
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Number of batches handed to batch listeners.
+     *
+     * @return Number of batches.
+     */
+    public static long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    /**
+     * Number of frames handed to batch listeners.
+     *
+     * @return Number of frames in all batches.
+     */
+    public static long getBatchedFrameCount() {
+        return batchedFrames.sum();
+    }
 
-            NativeMappings.pcap_loop(p, packetCount, new GotPacketFuncExecutor(listener, SimpleExecutor.getInstance()), null);
+    /**
+     * Average number of frames handed over per batch listener call.
+     *
+     * @return Frames per batch, 0 if no batches are captured.
+     */
+    public static double getFramesPerBatch() {
+        long batches = batchCount.sum();
+        return batches == 0 ? 0 : (double) batchedFrames.sum() / batches;
+    }
+
+    /**
+     * Sets the min number of bytes the driver buffers before a read returns. Only supported
+     * by WinPcap and Npcap, ignored on other platforms.
+     *
+     * @param pcap  Packet capture class wrapping the interface.
+     * @param bytes Min bytes per read, 0 returns as soon as any frame is captured.
+     * @return True if the driver accepted the setting.
+     */
+    public static boolean setMinToCopy(Pcap pcap, int bytes) {
+        if (!Platform.isWindows()) return false;
+        try {
+            return NativeMappings.PLATFORM_DEPENDENT.pcap_setmintocopy(getPointer(pcap), bytes) == NativeMappings.OK;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Reads the capture statistics of the pcap instance. The counters are unsigned 32-bit
+     * values counted by the driver since the handle was opened and wrap around.
+     *
+     * @param pcap     Packet capture class wrapping the interface.
+     * @param counters Array of at least 3 receiving the frames received, the frames dropped
+     *                 for lack of buffer space and the frames dropped by the interface.
+     * @return True if the statistics could be read.
+     */
+    public static boolean getStats(Pcap pcap, int[] counters) {
+        try {
+            Memory ps = new Memory(32); // struct pcap_stat, room for the remote capture fields on windows
+            if (NativeMappings.pcap_stats(getPointer(pcap), ps) != NativeMappings.OK) return false;
+            counters[0] = ps.getInt(0);
+            counters[1] = ps.getInt(4);
+            counters[2] = ps.getInt(8);
+            return true;
         } catch (Exception e) {
             e.printStackTrace();
+            return false;
         }
     }
 
+    /**
+     * Native handle of the pcap instance.
+     *
+     * @param pcap Packet capture class wrapping the interface.
+     * @return Pointer to the native pcap handle.
+     * @throws Exception If the handle could not be accessed.
+     */
+    private static Pointer getPointer(Pcap pcap) throws Exception {
+        Field field = pcap.getClass().getDeclaredField("pointer");
+        field.setAccessible(true);
+        return (Pointer) field.get(pcap);
+    }
+
     /**
      * Returns a list of all interfaces on the device.
      *
@@ -105,6 +251,105 @@ public class NativeBridge {
         void gotPacket(RawPacket packet);
     }
 
+    /**
+     * Interface class for responding to batches of captured packets.
+     */
+    public interface BatchListener {
+        void gotBatch(PacketBatch batch);
+    }
+
+    /**
+     * Capture loop running on a pcap handle. The loop is stopped from any thread with
+     * {@link #stop()}, the thread running the loop closes the handle with {@link #close()}
+     * once the loop returned. The handle is never closed while a native read may be using it.
+     */
+    public static final class CaptureLoop {
+        private final Pcap pcap;
+        private final Pointer pointer;
+        private volatile boolean stopped;
+        private boolean closed;
+
+        /**
+         * Capture loop of an open handle.
+         *
+         * @param pcap Packet capture class wrapping the interface.
+         * @throws Exception If the native handle could not be accessed.
+         */
+        public CaptureLoop(Pcap pcap) throws Exception {
+            this.pcap = pcap;
+            pointer = getPointer(pcap);
+        }
+
+        public Pcap getPcap() {
+            return pcap;
+        }
+
+        /**
+         * Stops the loop. A native read in progress is broken out of, the loop returns
+         * after handing over the frames already read.
+         */
+        public synchronized void stop() {
+            stopped = true;
+            if (!closed) NativeMappings.pcap_breakloop(pointer);
+        }
+
+        public boolean isStopped() {
+            return stopped;
+        }
+
+        /**
+         * Closes the handle, only called by the thread that ran the loop after it returned.
+         */
+        public synchronized void close() {
+            if (closed) return;
+            stopped = true;
+            closed = true;
+            pcap.close();
+        }
+    }
+
+    /**
+     * Reusable batch of pooled packets captured by a single pcap_dispatch call.
+     */
+    public static final class PacketBatch {
+        private final RawPacket[] packets;
+        private int size;
+
+        PacketBatch(int capacity) {
+            packets = new RawPacket[capacity];
+        }
+
+        /**
+         * Number of packets in the batch.
+         *
+         * @return Batch size.
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Packet at the index of the batch.
+         *
+         * @param index Index of the packet.
+         * @return The captured packet.
+         */
+        public RawPacket get(int index) {
+            return packets[index];
+        }
+
+        private boolean add(RawPacket packet) {
+            if (size == packets.length) return false;
+            packets[size++] = packet;
+            return true;
+        }
+
+        private void clear() {
+            Arrays.fill(packets, 0, size, null);
+            size = 0;
+        }
+    }
+
     /**
      * Thread executor when packets are captured.
      */
@@ -132,15 +377,27 @@ public class NativeBridge {
     private static final class GotPacketFuncExecutor implements NativeMappings.pcap_handler {
         private final PacketListener listener;
         private final Executor executor;
+        private final FramePool pool;
+        private final boolean direct;
         private final int timestampPrecision = 1;
 
         public GotPacketFuncExecutor(PacketListener listener, Executor executor) {
+            this(listener, executor, null);
+        }
+
+        public GotPacketFuncExecutor(PacketListener listener, Executor executor, FramePool pool) {
             this.listener = listener;
             this.executor = executor;
+            this.pool = pool;
+            this.direct = executor instanceof SimpleExecutor;
         }
 
         @Override
         public void got_packet(Pointer args, Pointer header, final Pointer packet) {
+            if (pool != null) {
+                gotPooledPacket(header, packet);
+                return;
+            }
             final Instant now = buildTimestamp(header);
             final int len = NativeMappings.pcap_pkthdr.getLen(header);
             final byte[] data = packet.getByteArray(0, NativeMappings.pcap_pkthdr.getCaplen(header));
@@ -155,6 +412,30 @@ public class NativeBridge {
             }
         }
 
+        /**
+         * Copies the frame out of native memory into a pooled packet. Truncated
+         * frames are dropped before anything is copied or allocated.
+         */
+        private void gotPooledPacket(Pointer header, Pointer packet) {
+            final int caplen = NativeMappings.pcap_pkthdr.getCaplen(header);
+            if (caplen != NativeMappings.pcap_pkthdr.getLen(header)) return;
+
+            long epochSecond = NativeMappings.pcap_pkthdr.getTvSec(header).longValue();
+            int nanos = NativeMappings.pcap_pkthdr.getTvUsec(header).intValue();
+            if (timestampPrecision == 0) nanos *= 1000;
+            final RawPacket raw = pool.acquire(caplen, epochSecond, nanos);
+            packet.read(0, raw.getData(), 0, caplen);
+
+            try {
+                if (direct) {
+                    listener.gotPacket(raw);
+                } else {
+                    executor.execute(() -> listener.gotPacket(raw));
+                }
+            } catch (Throwable e) {
+            }
+        }
+
         private Instant buildTimestamp(Pointer header) {
             long epochSecond = NativeMappings.pcap_pkthdr.getTvSec(header).longValue();
             switch (timestampPrecision) {
@@ -167,4 +448,32 @@ public class NativeBridge {
             }
         }
     }
+
+    /**
+     * Interface class collecting captured packets into a batch instead of
+     * handing each packet to a listener.
+     */
+    private static final class GotBatchFuncExecutor implements NativeMappings.pcap_handler {
+        private final PacketBatch batch;
+        private final FramePool pool;
+        private final int timestampPrecision = 1;
+
+        GotBatchFuncExecutor(PacketBatch batch, FramePool pool) {
+            this.batch = batch;
+            this.pool = pool;
+        }
+
+        @Override
+        public void got_packet(Pointer args, Pointer header, Pointer packet) {
+            final int caplen = NativeMappings.pcap_pkthdr.getCaplen(header);
+            if (caplen != NativeMappings.pcap_pkthdr.getLen(header)) return;
+
+            long epochSecond = NativeMappings.pcap_pkthdr.getTvSec(header).longValue();
+            int nanos = NativeMappings.pcap_pkthdr.getTvUsec(header).intValue();
+            if (timestampPrecision == 0) nanos *= 1000;
+            RawPacket raw = pool.acquire(caplen, epochSecond, nanos);
+            packet.read(0, raw.getData(), 0, caplen);
+            if (!batch.add(raw)) raw.release();
+        }
+    }
 }
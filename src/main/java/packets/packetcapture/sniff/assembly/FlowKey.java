@@ -0,0 +1,92 @@
+package packets.packetcapture.sniff.assembly;
+
+import packets.packetcapture.sniff.netpackets.TcpPacket;
+import packets.packetcapture.sniff.netpackets.UtilNetPackets;
+
+/**
+ * TCP 4-tuple identifying a connection between a game client and a game server. The key is
+ * direction independent, incoming and outgoing packets of the same connection produce equal keys.
+ * Keys are mutable to allow a single probe key to be reused for every lookup.
+ */
+public final class FlowKey {
+    private int clientAddr;
+    private int clientPort;
+    private int serverAddr;
+    private int serverPort;
+    private int hash;
+
+    /**
+     * Points the key to the connection of a TCP packet.
+     *
+     * @param packet   TCP packet of the connection.
+     * @param incoming True if the packet is sent from the server to the client.
+     * @return This key.
+     */
+    public FlowKey set(TcpPacket packet, boolean incoming) {
+        int src = UtilNetPackets.getInt(packet.getIp4Packet().getSrcAddr(), 0);
+        int dst = UtilNetPackets.getInt(packet.getIp4Packet().getDstAddr(), 0);
+        if (incoming) {
+            clientAddr = dst;
+            clientPort = packet.getDstPort();
+            serverAddr = src;
+            serverPort = packet.getSrcPort();
+        } else {
+            clientAddr = src;
+            clientPort = packet.getSrcPort();
+            serverAddr = dst;
+            serverPort = packet.getDstPort();
+        }
+        int h = clientAddr;
+        h = 31 * h + serverAddr;
+        h = 31 * h + (clientPort << 16 | serverPort);
+        hash = h ^ (h >>> 16);
+        return this;
+    }
+
+    /**
+     * Copy of the key to be stored in the flow table.
+     *
+     * @return Copy of this key.
+     */
+    public FlowKey copy() {
+        FlowKey key = new FlowKey();
+        key.clientAddr = clientAddr;
+        key.clientPort = clientPort;
+        key.serverAddr = serverAddr;
+        key.serverPort = serverPort;
+        key.hash = hash;
+        return key;
+    }
+
+    /**
+     * Index of the shard the connection belongs to.
+     *
+     * @param shards Number of shards.
+     * @return Shard index between 0 and shards - 1.
+     */
+    public int shard(int shards) {
+        return (hash & 0x7FFFFFFF) % shards;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FlowKey)) return false;
+        FlowKey k = (FlowKey) o;
+        return clientAddr == k.clientAddr && clientPort == k.clientPort && serverAddr == k.serverAddr && serverPort == k.serverPort;
+    }
+
+    @Override
+    public String toString() {
+        return addr(clientAddr) + ":" + clientPort + " <-> " + addr(serverAddr) + ":" + serverPort;
+    }
+
+    private static String addr(int a) {
+        return (a >>> 24) + "." + (a >> 16 & 0xFF) + "." + (a >> 8 & 0xFF) + "." + (a & 0xFF);
+    }
+}
@@ -0,0 +1,163 @@
+package packets.packetcapture.sniff.assembly;
+
+import packets.packetcapture.sniff.PConnection;
+import packets.packetcapture.sniff.PProcessor;
+import packets.packetcapture.sniff.netpackets.TcpPacket;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Table of TCP connections to the game servers. Each connection gets its own incoming and
+ * outgoing stream builder and its own processing created by the processor, allowing multiple
+ * game clients on the same host to be reassembled side by side. Connections not seeing any
+ * packets for a while are evicted.
+ * <p>
+ * A table is not thread safe, it is owned by the single thread processing its connections.
+ * Multiple tables can be used as shards, see {@link FlowKey#shard(int)}.
+ */
+public class FlowTable {
+    private static final AtomicInteger nextConnectionId = new AtomicInteger(1);
+    private static final long IDLE_TIMEOUT_MS = 5 * 60 * 1000;
+    private static final long CLOSED_TIMEOUT_MS = 10 * 1000;
+    private static final long SWEEP_INTERVAL_MS = 10 * 1000;
+
+    private final HashMap<FlowKey, Flow> flows = new HashMap<>();
+    private final FlowKey probe = new FlowKey();
+    private final PProcessor processor;
+    private final int port;
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private long lastSweep;
+
+    /**
+     * Flow table of connections on a specific server port.
+     *
+     * @param processor Processor creating the processing of new connections.
+     * @param port      Server port, packets from this port are incoming packets.
+     */
+    public FlowTable(PProcessor processor, int port) {
+        this.processor = processor;
+        this.port = port;
+    }
+
+    /**
+     * Sends a TCP packet to the stream builder of its connection, creating the connection
+     * if it is the first packet seen.
+     *
+     * @param packet TCP packet of a connection to the server port.
+     */
+    public void process(TcpPacket packet) {
+        boolean incoming = packet.getSrcPort() == port; // Incoming packets have 2050 source port.
+        if (!incoming && packet.getDstPort() != port) return;
+
+        long now = System.currentTimeMillis();
+        Flow flow = flows.get(probe.set(packet, incoming));
+        if (flow == null) {
+            flow = new Flow(probe.copy(), nextConnectionId.getAndIncrement());
+            flows.put(flow.key, flow);
+            created.incrementAndGet();
+        }
+        flow.lastSeen = now;
+        if (packet.isRst() || packet.isFin()) {
+            flow.closing = true;
+        } else if (packet.isSyn()) {
+            flow.closing = false;
+        }
+
+        if (incoming) {
+            flow.incoming.streamBuilder(packet);
+        } else {
+            flow.outgoing.streamBuilder(packet);
+        }
+
+        sweep(now);
+    }
+
+    /**
+     * Evicts idle connections if the last sweep is long enough ago.
+     *
+     * @param now Current time in milliseconds.
+     */
+    public void sweep(long now) {
+        if (now - lastSweep >= SWEEP_INTERVAL_MS) evictIdle(now);
+    }
+
+    /**
+     * Removes connections without packets for longer than the idle timeout. Connections
+     * closed with a FIN or RST are removed after a shorter timeout.
+     *
+     * @param now Current time in milliseconds.
+     */
+    public void evictIdle(long now) {
+        lastSweep = now;
+        Iterator<Flow> it = flows.values().iterator();
+        while (it.hasNext()) {
+            Flow flow = it.next();
+            long timeout = flow.closing ? CLOSED_TIMEOUT_MS : IDLE_TIMEOUT_MS;
+            if (now - flow.lastSeen > timeout) {
+                it.remove();
+                flow.connection.close();
+                evicted.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Closes and removes all connections.
+     */
+    public void closeAll() {
+        for (Flow flow : flows.values()) {
+            flow.connection.close();
+        }
+        flows.clear();
+    }
+
+    /**
+     * Number of connections currently in the table.
+     *
+     * @return Number of connections.
+     */
+    public int size() {
+        return flows.size();
+    }
+
+    /**
+     * Number of connections created since the table was made.
+     *
+     * @return Connections created.
+     */
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    /**
+     * Number of connections evicted after being idle.
+     *
+     * @return Connections evicted.
+     */
+    public long getEvictedCount() {
+        return evicted.get();
+    }
+
+    /**
+     * Connection entry in the table.
+     */
+    private class Flow {
+        private final FlowKey key;
+        private final PConnection connection;
+        private final TcpStreamBuilder incoming;
+        private final TcpStreamBuilder outgoing;
+        private long lastSeen;
+        private boolean closing;
+
+        Flow(FlowKey key, int connectionId) {
+            this.key = key;
+            connection = processor.newConnection(connectionId);
+            incoming = new TcpStreamBuilder(connection::resetIncoming, connection::incomingStream, connection::incomingGap);
+            outgoing = new TcpStreamBuilder(connection::resetOutgoing, connection::outgoingStream, connection::outgoingGap);
+        }
+    }
+}
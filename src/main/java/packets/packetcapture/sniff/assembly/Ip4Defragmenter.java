@@ -1,30 +1,53 @@
 package packets.packetcapture.sniff.assembly;
 
 import packets.packetcapture.sniff.netpackets.Ip4Packet;
+import packets.packetcapture.sniff.netpackets.UtilNetPackets;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Ip4 de-fragmenter class to re-assemble ip4 packets that have
  * been fragmented through sertan routes over the net.
- *
+ * <p>
+ * Fragments are stored per datagram keyed by source, destination, id and protocol. The table is
+ * bounded in number of datagrams and bytes, datagrams not completed before their deadline are
+ * dropped, keeping memory flat even if fragments are lost. Received data is tracked with a bitmap
+ * of 8 byte blocks, each fragment only touches its own blocks. Overlapping fragments keep the
+ * data received first.
+ * <p>
  * Implementation based on article:
  * https://packetpushers.net/ip-fragmentation-in-detail/
- *
- * TODO: test this class properly. WARNING UNTESTED!
+ * <p>
+ * Not thread safe, only the sniffer processing thread de-fragments packets.
  */
 public class Ip4Defragmenter {
-    private static HashMap<Integer, ArrayList<Ip4Packet>> fragments = new HashMap<>();
+    private static final int MAX_DATAGRAMS = 256;
+    private static final long MAX_BYTES = 4 * 1024 * 1024;
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final int MAX_PAYLOAD = 0xFFFF;
+    private static final int BLOCK_SIZE = 8;
+
+    private static final LinkedHashMap<FragmentKey, Datagram> fragments = new LinkedHashMap<>();
+    private static final FragmentKey probe = new FragmentKey();
+    private static long bytesStored;
+
+    private static final AtomicLong reassembled = new AtomicLong();
+    private static final AtomicLong timedOut = new AtomicLong();
+    private static final AtomicLong evicted = new AtomicLong();
+    private static final AtomicLong overlapBytes = new AtomicLong();
+    private static final AtomicLong invalid = new AtomicLong();
 
     /**
      * Main method used to de-fragment packets. If the packet doesn't need re-assembly
      * then it returns the packet without any changes. If the packet however is part
-     * of a fragmented ip4 packet then it stores it and checks if all other fragments
-     * of the same id is present. If all parts the fragmented packet is present then
-     * it re-assembles them into the original ip4 packet and returns it. Otherwise,
-     * returns null.
+     * of a fragmented ip4 packet then it stores its payload and checks if all other
+     * fragments of the same datagram are present. If all parts the fragmented packet
+     * are present then it re-assembles them into the original ip4 packet and returns
+     * it. Otherwise, returns null.
      *
      * @param ip4packet Ip4 packet that needs to be checked if it needs to be re-assembled.
      * @return de-fragmented packet if it needs to be re-assembled. Otherwise, returns the same ip4 packet.
@@ -33,43 +56,240 @@ public class Ip4Defragmenter {
         if (ip4packet == null || ip4packet.isDontFragmentFlag() || (!ip4packet.isMoreFragmentFlag() && ip4packet.getFragmentOffset() == 0)) {
             return ip4packet;
         }
-        int id = ip4packet.getIdentification();
-        fragments.computeIfAbsent(id, k -> new ArrayList<>(5)).add(ip4packet);
-        return assemble(id, ip4packet);
+        long now = System.nanoTime();
+        expire(now);
+
+        int start = ip4packet.getFragmentOffset() * BLOCK_SIZE;
+        int length = ip4packet.getPayloadLength();
+        int end = start + length;
+        if (end > MAX_PAYLOAD || (ip4packet.isMoreFragmentFlag() && (length == 0 || (length & (BLOCK_SIZE - 1)) != 0))) {
+            invalid.incrementAndGet();
+            return null;
+        }
+
+        Datagram datagram = fragments.get(probe.set(ip4packet));
+        if (datagram == null) {
+            while (fragments.size() >= MAX_DATAGRAMS) evictEldest();
+            datagram = new Datagram(now + TIMEOUT_NANOS);
+            fragments.put(probe.copy(), datagram);
+        }
+
+        long before = datagram.bytes();
+        boolean valid = datagram.add(ip4packet, start, end);
+        bytesStored += datagram.bytes() - before;
+        if (!valid) {
+            invalid.incrementAndGet();
+            remove(probe);
+            return null;
+        }
+        while (bytesStored > MAX_BYTES && fragments.size() > 1) evictEldest();
+
+        if (!datagram.isComplete()) return null;
+        remove(probe);
+        reassembled.incrementAndGet();
+        return datagram.assemble(ip4packet);
     }
 
     /**
-     * Assembler that puts the packets back into the original Ip4 packet before it was fragmented.
+     * Number of datagrams re-assembled.
      *
-     * @param id The id of the packet
-     * @param ip4packet
-     * @return Assembled packet if it needs to be re-assemble or returns null if all fragments haven't arrived.
+     * @return Re-assembled datagrams.
+     */
+    public static long getReassembledCount() {
+        return reassembled.get();
+    }
+
+    /**
+     * Number of incomplete datagrams dropped after passing their deadline.
+     *
+     * @return Timed out datagrams.
+     */
+    public static long getTimedOutCount() {
+        return timedOut.get();
+    }
+
+    /**
+     * Number of incomplete datagrams dropped to stay within the table bounds.
+     *
+     * @return Evicted datagrams.
+     */
+    public static long getEvictedCount() {
+        return evicted.get();
+    }
+
+    /**
+     * Number of payload bytes received more than once in overlapping fragments.
+     *
+     * @return Overlapping bytes.
+     */
+    public static long getOverlapBytes() {
+        return overlapBytes.get();
+    }
+
+    /**
+     * Number of malformed fragments dropped.
+     *
+     * @return Invalid fragments.
+     */
+    public static long getInvalidCount() {
+        return invalid.get();
+    }
+
+    /**
+     * Number of incomplete datagrams currently stored.
+     *
+     * @return Stored datagrams.
+     */
+    public static int size() {
+        return fragments.size();
+    }
+
+    /**
+     * Drops datagrams past their deadline. Datagrams are stored in order of arrival
+     * and all share the same timeout, only the oldest entries need to be checked.
+     */
+    private static void expire(long now) {
+        Iterator<Datagram> it = fragments.values().iterator();
+        while (it.hasNext()) {
+            Datagram d = it.next();
+            if (d.deadline - now > 0) return;
+            it.remove();
+            bytesStored -= d.bytes();
+            timedOut.incrementAndGet();
+        }
+    }
+
+    private static void evictEldest() {
+        Iterator<Datagram> it = fragments.values().iterator();
+        Datagram d = it.next();
+        it.remove();
+        bytesStored -= d.bytes();
+        evicted.incrementAndGet();
+    }
+
+    private static void remove(FragmentKey key) {
+        Datagram d = fragments.remove(key);
+        if (d != null) bytesStored -= d.bytes();
+    }
+
+    /**
+     * Fragments received of a single datagram.
      */
-    private static Ip4Packet assemble(int id, Ip4Packet ip4packet) {
-        Ip4Packet head = null, tail = null;
-        List<Ip4Packet> frags = fragments.get(id);
-        int math = 0;
-        for (Ip4Packet ip : frags) {
+    private static class Datagram {
+        private final long deadline;
+        private final long[] received = new long[(MAX_PAYLOAD / BLOCK_SIZE + 64) / 64];
+        private byte[] header;
+        private byte[] payload = new byte[0];
+        private int blocksReceived;
+        private int totalLength = -1;
+
+        Datagram(long deadline) {
+            this.deadline = deadline;
+        }
+
+        /**
+         * Copies the blocks of a fragment not received before.
+         *
+         * @return False if the fragment contradicts the fragments received before.
+         */
+        boolean add(Ip4Packet ip, int start, int end) {
             if (!ip.isMoreFragmentFlag()) {
-                tail = ip;
-                math += ip.getFragmentOffset() * 8;
-                continue;
-            } else if (ip.getFragmentOffset() == 0) {
-                head = ip;
+                if (totalLength != -1 && totalLength != end) return false;
+                totalLength = end;
+            } else if (totalLength != -1 && end > totalLength) {
+                return false;
+            }
+            if (start == 0 && header == null) {
+                header = UtilNetPackets.getBytes(ip.getData(), ip.getOffset(), ip.getPayloadOffset() - ip.getOffset());
             }
-            math -= ip.getPayloadLength();
+            if (end > payload.length) {
+                payload = Arrays.copyOf(payload, Math.min(MAX_PAYLOAD, Math.max(end, payload.length * 2)));
+            }
+
+            byte[] data = ip.getData();
+            int src = ip.getPayloadOffset();
+            for (int b = start / BLOCK_SIZE; b * BLOCK_SIZE < end; b++) {
+                int from = b * BLOCK_SIZE;
+                int len = Math.min(BLOCK_SIZE, end - from);
+                long bit = 1L << (b & 63);
+                if ((received[b >>> 6] & bit) != 0) {
+                    overlapBytes.addAndGet(len);
+                    continue;
+                }
+                received[b >>> 6] |= bit;
+                blocksReceived++;
+                System.arraycopy(data, src + from - start, payload, from, len);
+            }
+            return true;
         }
-        if (math != 0 || head == null || tail == null) return null;
 
-        byte[] data = new byte[head.getIhl() * 4 + tail.getFragmentOffset() * 8 + tail.getPayloadLength()];
+        /**
+         * Complete when the last fragment is received and every block up to it is received.
+         */
+        boolean isComplete() {
+            return header != null && totalLength != -1 && blocksReceived == (totalLength + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        }
 
-        System.arraycopy(head.rawData(), 0, data, 0, head.getTotalLength());
-        for (Ip4Packet ip : frags) {
-            if (ip != head) {
-                System.arraycopy(ip.getPayload(), 0, data, ip.getFragmentOffset() * 8, ip.getPayloadLength());
-            }
+        long bytes() {
+            return payload.length + (header == null ? 0 : header.length);
+        }
+
+        /**
+         * Builds the original datagram from the header of the first fragment and the payload.
+         * The header is updated with the total length and the fragment fields are cleared.
+         */
+        Ip4Packet assemble(Ip4Packet last) {
+            int length = header.length + totalLength;
+            byte[] data = new byte[length];
+            System.arraycopy(header, 0, data, 0, header.length);
+            System.arraycopy(payload, 0, data, header.length, totalLength);
+            data[2] = (byte) (length >> 8);
+            data[3] = (byte) length;
+            data[6] = (byte) (data[6] & 0xC0); // keep reserved and don't fragment flags
+            data[7] = 0;
+            return new Ip4Packet(data, 0, length, last.getEthernetPacket());
+        }
+    }
+
+    /**
+     * Key of a fragmented datagram, mutable to reuse a single probe key for lookups.
+     */
+    private static final class FragmentKey {
+        private int src;
+        private int dst;
+        private int id;
+        private int protocol;
+
+        FragmentKey set(Ip4Packet ip) {
+            src = UtilNetPackets.getInt(ip.getSrcAddr(), 0);
+            dst = UtilNetPackets.getInt(ip.getDstAddr(), 0);
+            id = ip.getIdentification();
+            protocol = ip.getProtocol();
+            return this;
+        }
+
+        FragmentKey copy() {
+            FragmentKey key = new FragmentKey();
+            key.src = src;
+            key.dst = dst;
+            key.id = id;
+            key.protocol = protocol;
+            return key;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = src;
+            h = 31 * h + dst;
+            h = 31 * h + (id << 8 | protocol);
+            return h ^ (h >>> 16);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof FragmentKey)) return false;
+            FragmentKey k = (FragmentKey) o;
+            return src == k.src && dst == k.dst && id == k.id && protocol == k.protocol;
         }
-        fragments.remove(id);
-        return new Ip4Packet(data, ip4packet.getEthernetPacket());
     }
 }
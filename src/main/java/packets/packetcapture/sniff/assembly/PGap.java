@@ -0,0 +1,15 @@
+package packets.packetcapture.sniff.assembly;
+
+/**
+ * Gap interface used in stream constructor when missing bytes in the stream are skipped.
+ */
+public interface PGap {
+
+    /**
+     * Method called when a range of the stream is skipped. The next bytes streamed are
+     * the bytes following the skipped range.
+     *
+     * @param length Number of bytes missing in the stream.
+     */
+    void gap(int length);
+}
@@ -8,8 +8,10 @@ public interface PStream {
     /**
      * Ordered TCP packet method to send the byte stream contained in the payload.
      *
-     * @param data The stream contained in TCP packet bytes.
+     * @param data    Array holding the TCP packet bytes. Only valid during the call.
+     * @param offset  Offset of the payload in the array.
+     * @param length  Length of the payload.
      * @param srcAddr Source IP of the TCP packet.
      */
-    void stream(byte[] data, byte[] srcAddr);
+    void stream(byte[] data, int offset, int length, byte[] srcAddr);
 }
@@ -1,19 +1,36 @@
 package packets.packetcapture.sniff.assembly;
 
 import packets.packetcapture.sniff.netpackets.TcpPacket;
+import packets.packetcapture.sniff.netpackets.UtilNetPackets;
 
-import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Stream constructor ordering TCP packets in sequence. Payload is extracted and sent back in its raw form.
+ * <p>
+ * Sequence numbers are unwrapped into a 64-bit stream position relative to the next expected byte,
+ * making the ordering immune to the 32-bit wraparound. Segments arriving out of order are stored as
+ * non-overlapping intervals sorted by stream position. Retransmitted and overlapping bytes are trimmed
+ * on arrival, contiguous bytes are sent as soon as the missing bytes in front of them arrive.
  */
 public class TcpStreamBuilder {
 
-    HashMap<Long, TcpPacket> packetMap = new HashMap<>();
+    private static final LongAdder retransmittedBytes = new LongAdder();
+    private static final LongAdder overlapBytes = new LongAdder();
+    private static final LongAccumulator maxOutOfOrderDepth = new LongAccumulator(Math::max, 0);
+    final TreeMap<Long, Segment> segments = new TreeMap<>();
     long sequenseNumber;
     int idNumber;
+    long gapSince;
+    private boolean synced;
+    private final byte[] srcAddr = new byte[4];
     private PStream packetStream;
     private PReset packetReset;
+    private PGap packetGap;
+    private long bufferedBytes;
 
     /**
      * Constructor of StreamConstructor which needs a reset class to reset if reset
@@ -23,39 +40,76 @@ public class TcpStreamBuilder {
      * @param pstream Constructor class to send ordered packets to.
      */
     public TcpStreamBuilder(PReset preset, PStream pstream) {
+        this(preset, pstream, length -> {
+        });
+    }
+
+    /**
+     * Constructor of StreamConstructor with a gap class to be told when missing bytes are skipped.
+     *
+     * @param preset  Reset class if a reset packet is retrieved.
+     * @param pstream Constructor class to send ordered packets to.
+     * @param pgap    Gap class told the number of bytes skipped in the stream.
+     */
+    public TcpStreamBuilder(PReset preset, PStream pstream, PGap pgap) {
         packetReset = preset;
         packetStream = pstream;
+        packetGap = pgap;
     }
 
     /**
-     * Build method for ordering packets according to index used by TCP.
+     * Build method for ordering packets according to index used by TCP. Packets arriving
+     * in order are streamed straight from the frame they are viewed from, only bytes
+     * arriving ahead of missing bytes are copied and stored until the missing bytes arrive.
      *
      * @param packet TCP packets needing to be ordered.
      */
     public void streamBuilder(TcpPacket packet) {
-        if (packet.isResetBit()) {
-            if (packet.isSyn()) {
-                reset();
-            }
+        if (packet.isSyn()) {
+            reset();
+            sequenseNumber = packet.getSequenceNumber() + 1;
+            idNumber = packet.getIp4Packet().getIdentification();
+            System.arraycopy(packet.getIp4Packet().getSrcAddr(), 0, srcAddr, 0, srcAddr.length);
+            synced = true;
             return;
         }
-        if (sequenseNumber == 0) {
+        if (packet.isRst()) return;
+        int length = packet.getPayloadSize();
+        if (length == 0) return;
+
+        if (!synced) {
             sequenseNumber = packet.getSequenceNumber();
             idNumber = packet.getIp4Packet().getIdentification();
+            System.arraycopy(packet.getIp4Packet().getSrcAddr(), 0, srcAddr, 0, srcAddr.length);
+            synced = true;
         }
 
-        packetMap.put(packet.getSequenceNumber(), packet);
+        long start = unwrap(packet.getSequenceNumber());
+        long end = start + length;
+        int offset = packet.getPayloadOffset();
 
-        TcpStreamErrorHandler.INSTANCE.errorChecker(this);
+        if (end <= sequenseNumber) { // retransmission of bytes already sent
+            retransmittedBytes.add(length);
+            return;
+        }
+        if (start < sequenseNumber) { // partial retransmission, trim the bytes already sent
+            int trim = (int) (sequenseNumber - start);
+            retransmittedBytes.add(trim);
+            offset += trim;
+            start = sequenseNumber;
+        }
 
-        while (packetMap.containsKey(sequenseNumber)) {
-            TcpPacket packetSeqed = packetMap.remove(sequenseNumber);
-            idNumber = packetSeqed.getIp4Packet().getIdentification();
-            if (packet.getPayload() != null) {
-                sequenseNumber += packetSeqed.getPayloadSize();
-                packetStream.stream(packetSeqed.getPayload(), packetSeqed.getIp4Packet().getSrcAddr());
-            }
+        if (start == sequenseNumber) {
+            idNumber = packet.getIp4Packet().getIdentification();
+            send(packet.getData(), offset, (int) (end - start), packet.getIp4Packet().getSrcAddr());
+            drain();
+            return;
         }
+
+        if (segments.isEmpty()) gapSince = System.currentTimeMillis();
+        store(packet, start, end, offset);
+        TcpStreamErrorHandler.INSTANCE.errorChecker(this);
+        drain();
     }
 
     /**
@@ -63,8 +117,163 @@ public class TcpStreamBuilder {
      */
     public void reset() {
         packetReset.reset();
-        packetMap.clear();
+        segments.clear();
+        bufferedBytes = 0;
         sequenseNumber = 0;
         idNumber = 0;
+        synced = false;
+    }
+
+    /**
+     * Bytes received again after they were already sent or stored, in all TCP streams.
+     *
+     * @return Number of retransmitted bytes.
+     */
+    public static long getRetransmittedBytes() {
+        return retransmittedBytes.sum();
+    }
+
+    /**
+     * Bytes received in segments overlapping segments stored out of order, in all TCP streams.
+     *
+     * @return Number of overlapping bytes.
+     */
+    public static long getOverlapBytes() {
+        return overlapBytes.sum();
+    }
+
+    /**
+     * Highest number of segments stored out of order at once in any TCP stream.
+     *
+     * @return Max out of order depth.
+     */
+    public static long getMaxOutOfOrderDepth() {
+        return maxOutOfOrderDepth.get();
+    }
+
+    /**
+     * Number of segments currently stored out of order.
+     *
+     * @return Out of order depth.
+     */
+    public int getOutOfOrderDepth() {
+        return segments.size();
+    }
+
+    /**
+     * Number of bytes currently stored out of order.
+     *
+     * @return Stored bytes.
+     */
+    public long getBufferedBytes() {
+        return bufferedBytes;
+    }
+
+    /**
+     * Converts a 32-bit sequence number into the 64-bit stream position closest to the
+     * next expected byte.
+     *
+     * @param sequence 32-bit TCP sequence number.
+     * @return Unwrapped stream position.
+     */
+    long unwrap(long sequence) {
+        return sequenseNumber + (int) (sequence - sequenseNumber);
+    }
+
+    /**
+     * Declares the bytes in front of the first stored segment lost. The stream skips
+     * ahead to the stored segment and the gap class is told the number of bytes lost.
+     *
+     * @return Number of bytes skipped.
+     */
+    int skipGap() {
+        Map.Entry<Long, Segment> first = segments.firstEntry();
+        if (first == null || first.getKey() <= sequenseNumber) return 0;
+        int lost = (int) (first.getKey() - sequenseNumber);
+        sequenseNumber = first.getKey();
+        gapSince = System.currentTimeMillis();
+        packetGap.gap(lost);
+        return lost;
+    }
+
+    /**
+     * Sends bytes to the stream and moves the next expected byte forward.
+     */
+    private void send(byte[] data, int offset, int length, byte[] src) {
+        sequenseNumber += length;
+        packetStream.stream(data, offset, length, src);
+    }
+
+    /**
+     * Sends every stored segment that became contiguous with the stream.
+     */
+    private void drain() {
+        Map.Entry<Long, Segment> first;
+        while ((first = segments.firstEntry()) != null && first.getKey() <= sequenseNumber) {
+            Segment s = segments.pollFirstEntry().getValue();
+            bufferedBytes -= s.end - s.start;
+            if (s.end <= sequenseNumber) {
+                continue;
+            }
+            int trim = (int) (sequenseNumber - s.start);
+            idNumber = s.ipId;
+            send(s.data, s.offset + trim, (int) (s.end - sequenseNumber), srcAddr);
+        }
+    }
+
+    /**
+     * Copies the payload and stores the parts not already covered by stored segments.
+     */
+    private void store(TcpPacket packet, long start, long end, int offset) {
+        Map.Entry<Long, Segment> before = segments.floorEntry(start);
+        if (before != null && before.getValue().end > start) {
+            long overlap = Math.min(end, before.getValue().end) - start;
+            overlapBytes.add(overlap);
+            start += overlap;
+            offset += (int) overlap;
+            if (start >= end) return;
+        }
+
+        byte[] data = UtilNetPackets.getBytes(packet.getData(), offset, (int) (end - start));
+        long dataStart = start;
+        int ipId = packet.getIp4Packet().getIdentification();
+        Map.Entry<Long, Segment> next;
+        while (start < end && (next = segments.ceilingEntry(start)) != null && next.getKey() < end) {
+            Segment s = next.getValue();
+            if (s.start > start) {
+                put(new Segment(data, (int) (start - dataStart), start, s.start, ipId));
+            }
+            long overlap = Math.min(end, s.end) - s.start;
+            overlapBytes.add(overlap);
+            start = s.end;
+        }
+        if (start < end) {
+            put(new Segment(data, (int) (start - dataStart), start, end, ipId));
+        }
+        maxOutOfOrderDepth.accumulate(segments.size());
+    }
+
+    private void put(Segment s) {
+        segments.put(s.start, s);
+        bufferedBytes += s.end - s.start;
+    }
+
+    /**
+     * Interval of stream bytes stored out of order.
+     */
+    static class Segment {
+        final byte[] data;
+        final int offset;
+        final long start;
+        final long end;
+        final int ipId;
+
+        Segment(byte[] data, int offset, long start, long end, int ipId) {
+            this.data = data;
+            this.offset = offset;
+            this.start = start;
+            this.end = end;
+            this.ipId = ipId;
+        }
     }
 }
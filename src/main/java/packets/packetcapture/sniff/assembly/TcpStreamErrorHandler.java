@@ -1,27 +1,41 @@
 package packets.packetcapture.sniff.assembly;
 
 import packets.packetcapture.sniff.netpackets.RawPacket;
-import packets.packetcapture.sniff.netpackets.TcpPacket;
 
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Error handling shared by the TCP streams of all flow workers. The log of raw frames is written
+ * by the capture thread without locking and only read when dumped, the dump is best effort and
+ * may show frames reused since they were logged. Gap checks only touch the state of the stream
+ * checked besides the atomic counters.
+ */
 public class TcpStreamErrorHandler {
     public static TcpStreamErrorHandler INSTANCE = new TcpStreamErrorHandler();
     private static int index = 0;
     private static int size = 500;
     private static RawPacket[] logList = new RawPacket[size];
-    private static PErrorMessage errorMessage;
-    private static PErrorStop errorStop;
+    private static int[] logLength = new int[size];
+    private static volatile PErrorMessage errorMessage;
+    private static volatile PErrorStop errorStop;
+    private static volatile long gapByteBudget = 128 * 1024;
+    private static volatile long gapTimeBudgetMillis = 2000;
+    private static final AtomicLong gapCount = new AtomicLong();
+    private static final AtomicLong bytesLost = new AtomicLong();
 
     /**
-     * Raw packet logger for dumping error logs.
+     * Raw packet logger for dumping error logs. Only the frame is kept, its bytes are copied
+     * when dumped.
      *
      * @param tcp Raw TCP packets.
      */
     public void logTCPPacket(RawPacket tcp) {
-        logList[index] = tcp;
-        index++;
-        if (index >= size) index = 0;
+        if (tcp == null) return;
+        int i = index;
+        logList[i] = tcp;
+        logLength[i] = tcp.getPayloadSize();
+        index = i + 1 >= size ? 0 : i + 1;
     }
 
     /**
@@ -35,38 +49,54 @@ public class TcpStreamErrorHandler {
 
     /**
      * TCP stream error checker for instances where packets are missing in a TCP stream.
+     * If the bytes stored behind the missing bytes exceed the byte budget, or the missing
+     * bytes are waited on longer than the time budget, the missing bytes are declared lost.
+     * The stream skips ahead to the stored bytes instead of stopping the sniffer.
      *
      * @param tcpStreamBuilder TCP packet object to be checked.
      */
     void errorChecker(TcpStreamBuilder tcpStreamBuilder) {
-        if (tcpStreamBuilder.packetMap.size() > 95) {
-            long index = tcpStreamBuilder.sequenseNumber;
-            int counter = 0;
-            while (counter < 100000) {
-                if (tcpStreamBuilder.packetMap.containsKey(index)) {
-                    tcpStreamBuilder.sequenseNumber = index;
-                    TcpPacket tempPack = tcpStreamBuilder.packetMap.get(index);
-                    String errorMsg = "Packets missing id:" + (tcpStreamBuilder.idNumber - tempPack.getIp4Packet().getIdentification()) + " seq:" + (tcpStreamBuilder.sequenseNumber - tempPack.getSequenceNumber()) + " outgoing:" + (tempPack.getDstPort() == 2050);
-                    errorMessage(errorMsg, errorMsg);
-                    break;
-                }
-                index++;
-                counter++;
-            }
-        } else if (tcpStreamBuilder.packetMap.size() >= 100) {
-            stop();
-            tcpStreamBuilder.reset();
+        if (tcpStreamBuilder.segments.isEmpty()) return;
+        boolean overBytes = tcpStreamBuilder.getBufferedBytes() > gapByteBudget;
+        boolean overTime = System.currentTimeMillis() - tcpStreamBuilder.gapSince > gapTimeBudgetMillis;
+        if (overBytes || overTime) {
+            TcpStreamBuilder.Segment first = tcpStreamBuilder.segments.firstEntry().getValue();
+            int missingIds = first.ipId - tcpStreamBuilder.idNumber;
+            int lost = tcpStreamBuilder.skipGap();
+            gapCount.incrementAndGet();
+            bytesLost.addAndGet(lost);
+            String errorMsg = "Packets missing id:" + missingIds + " bytes:" + lost + (overBytes ? " buffer budget" : " time budget") + " exceeded, skipping ahead.";
+            errorMessage(errorMsg, errorMsg);
         }
     }
 
     /**
-     * Called when to many packets are missing in a TCP stream.
+     * Sets the budgets after which missing bytes in a TCP stream are skipped.
+     *
+     * @param maxBufferedBytes Max bytes stored behind missing bytes.
+     * @param maxWaitMillis    Max time in milliseconds to wait on missing bytes.
+     */
+    public void setGapBudget(long maxBufferedBytes, long maxWaitMillis) {
+        gapByteBudget = maxBufferedBytes;
+        gapTimeBudgetMillis = maxWaitMillis;
+    }
+
+    /**
+     * Number of gaps skipped in all TCP streams.
+     *
+     * @return Number of gaps.
+     */
+    public long getGapCount() {
+        return gapCount.get();
+    }
+
+    /**
+     * Number of bytes lost in skipped gaps of all TCP streams.
+     *
+     * @return Bytes lost.
      */
-    private void stop() {
-        String errorMsg = "Error! Stream Constructor reached 100 packets. Shutting down.";
-        String dump = errorMsg + "\n" + getRawPacketDump();
-        errorMessage(errorMsg, dump);
-        errorStop();
+    public long getBytesLost() {
+        return bytesLost.get();
     }
 
     /**
@@ -77,11 +107,13 @@ public class TcpStreamErrorHandler {
     private String getRawPacketDump() {
         StringBuilder sb = new StringBuilder();
         sb.append("Packet sync error. Dumping packets.\n");
-        for (int i = index; i <= (index + size); i++) {
+        int start = index;
+        for (int i = start; i <= (start + size); i++) {
             int j = i % size;
             RawPacket packet = logList[j];
             if (packet != null) {
-                sb.append(Arrays.toString(packet.getPayload()));
+                byte[] data = packet.getData();
+                sb.append(Arrays.toString(Arrays.copyOf(data, Math.min(logLength[j], data.length))));
                 sb.append(" ");
                 sb.append(j);
                 sb.append("\n");
@@ -24,32 +24,62 @@ public class EthernetPacket {
     private static final int Q802_1HEADER_SIZE = 4;
     private static final int Q802_1HEADER_TYPE_OFFSET = 16;
 
-    private final RawPacket rawPacket;
-    private final byte[] macDest;
-    private final byte[] macSrc;
-    private final int etherType;
-    private final int etherRawPayloadOffset;
-    private final int payloadSize;
-    private final byte[] Q802_1Header;
-    private final byte[] payload;
+    private RawPacket rawPacket;
+    private byte[] data;
+    private int etherType;
+    private int etherRawPayloadOffset;
+    private int payloadSize;
+    private boolean q802_1Tagged;
+    private Ip4Packet ip4View;
 
     public EthernetPacket(byte[] data, RawPacket packet) {
-        rawPacket = packet;
-        macDest = UtilNetPackets.getBytes(data, DST_ADDR_OFFSET_ETHER, MAC_SIZE_IN_BYTES);
-        macSrc = UtilNetPackets.getBytes(data, SRC_ADDR_OFFSET_ETHER, MAC_SIZE_IN_BYTES);
+        this(data, data.length, packet);
+    }
+
+    /**
+     * Ethernet packet viewing the first length bytes of the data array. The payload
+     * is not copied, the packet only keeps offsets into the array.
+     *
+     * @param data   Array holding the frame.
+     * @param length Length of the frame in the array.
+     * @param packet Raw packet the frame belongs to.
+     */
+    public EthernetPacket(byte[] data, int length, RawPacket packet) {
+        wrap(data, length, packet);
+    }
+
+    /**
+     * Empty view used as a reusable flyweight by the raw packet.
+     */
+    EthernetPacket() {
+    }
+
+    /**
+     * Points this packet to a new frame. Used to reuse the same object for every frame.
+     *
+     * @param data   Array holding the frame.
+     * @param length Length of the frame in the array.
+     * @param packet Raw packet the frame belongs to.
+     */
+    void wrap(byte[] data, int length, RawPacket packet) {
+        if (length < ETHERNET_HEADER_SIZE) {
+            throw new ArrayIndexOutOfBoundsException("Ethernet frame to short: " + length);
+        }
+        this.rawPacket = packet;
+        this.data = data;
         int type = UtilNetPackets.getShort(data, TYPE_OFFSET);
 
         if (type == 0x8100) {
             etherType = UtilNetPackets.getShort(data, Q802_1HEADER_TYPE_OFFSET);
             etherRawPayloadOffset = ETHERNET_HEADER_SIZE_WITH_Q802_1HEADER;
-            Q802_1Header = UtilNetPackets.getBytes(data, TYPE_OFFSET, Q802_1HEADER_SIZE);
+            q802_1Tagged = true;
         } else {
             etherType = type;
-            Q802_1Header = new byte[0];
             etherRawPayloadOffset = ETHERNET_HEADER_SIZE;
+            q802_1Tagged = false;
         }
 
-        int currentPayloadSize = data.length - etherRawPayloadOffset;
+        int currentPayloadSize = length - etherRawPayloadOffset;
         if (etherType <= IEEE802_3_MAX_LENGTH) {
             if (etherType > currentPayloadSize) {
                 payloadSize = currentPayloadSize;
@@ -59,7 +89,9 @@ public class EthernetPacket {
         } else {
             payloadSize = currentPayloadSize;
         }
-        payload = UtilNetPackets.getBytes(data, etherRawPayloadOffset, payloadSize);
+        if (payloadSize < 0) {
+            throw new ArrayIndexOutOfBoundsException("Len negative " + payloadSize);
+        }
     }
 
     public int getRawEtherOffset() {
@@ -67,11 +99,11 @@ public class EthernetPacket {
     }
 
     public byte[] getMacDest() {
-        return macDest;
+        return UtilNetPackets.getBytes(data, DST_ADDR_OFFSET_ETHER, MAC_SIZE_IN_BYTES);
     }
 
     public byte[] getMacSrc() {
-        return macSrc;
+        return UtilNetPackets.getBytes(data, SRC_ADDR_OFFSET_ETHER, MAC_SIZE_IN_BYTES);
     }
 
     public int getEtherType() {
@@ -82,8 +114,24 @@ public class EthernetPacket {
         return payloadSize;
     }
 
+    /**
+     * Copy of the payload. Use {@link #getData()} and {@link #getEtherRawPayloadOffset()}
+     * to read the payload without copying.
+     *
+     * @return Copy of the ethernet payload.
+     */
     public byte[] getPayload() {
-        return payload;
+        if (payloadSize == 0) return new byte[0];
+        return UtilNetPackets.getBytes(data, etherRawPayloadOffset, payloadSize);
+    }
+
+    /**
+     * Array the frame is viewed from.
+     *
+     * @return The backing array of the frame.
+     */
+    public byte[] getData() {
+        return data;
     }
 
     public int getEtherRawPayloadOffset() {
@@ -91,16 +139,30 @@ public class EthernetPacket {
     }
 
     public byte[] getQ802_1Header() {
-        return Q802_1Header;
+        if (!q802_1Tagged) return new byte[0];
+        return UtilNetPackets.getBytes(data, TYPE_OFFSET, Q802_1HEADER_SIZE);
     }
 
     public Ip4Packet getNewIp4Packet() {
-        if (payload != null && etherType == 0x800) {
-            return new Ip4Packet(payload, this);
+        if (data != null && etherType == 0x800) {
+            return new Ip4Packet(data, etherRawPayloadOffset, payloadSize, this);
         }
         return null;
     }
 
+    /**
+     * Ip4 packet reusing the same object for every frame viewed by this packet.
+     * Only valid until this packet is pointed to the next frame.
+     *
+     * @return Ip4 view of the payload or null if the payload isn't an ip4 packet.
+     */
+    public Ip4Packet getIp4View() {
+        if (data == null || etherType != 0x800) return null;
+        if (ip4View == null) ip4View = new Ip4Packet();
+        ip4View.wrap(data, etherRawPayloadOffset, payloadSize, this);
+        return ip4View;
+    }
+
     public RawPacket getRawPacket() {
         return rawPacket;
     }
@@ -108,11 +170,11 @@ public class EthernetPacket {
     @Override
     public String toString() {
         return "EthernetPacket{" +
-                "\n macDest=" + macString(macDest) +
-                "\n macSrc=" + macString(macSrc) +
+                "\n macDest=" + macString(getMacDest()) +
+                "\n macSrc=" + macString(getMacSrc()) +
                 "\n etherType=" + String.format("%04x", etherType) +
                 "\n etherPayloadOffset=" + etherRawPayloadOffset +
-                "\n payloadEther=" + Arrays.toString(payload);
+                "\n payloadEther=" + Arrays.toString(getPayload());
     }
 
     private String macString(byte[] mac) {
@@ -0,0 +1,99 @@
+package packets.packetcapture.sniff.netpackets;
+
+import packets.packetcapture.sniff.CaptureQueue;
+import packets.packetcapture.sniff.WaitStrategy;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of reusable raw packets for the capture threads. Frames are copied once out of native
+ * memory into a pooled array and every network layer is read as a view over that array. Each
+ * capture thread owns its own pool, packets are handed back from the processing thread after
+ * they are fully processed.
+ * <p>
+ * Also keeps the allocation per frame metric. Every new pooled array and every copy made with
+ * {@link UtilNetPackets#getBytes(byte[], int, int)} is counted as an allocation.
+ */
+public class FramePool {
+
+    private static final int POOL_SIZE = 1024;
+    private static final LongAdder frames = new LongAdder();
+    private static final LongAdder allocations = new LongAdder();
+    private final CaptureQueue<RawPacket> free = new CaptureQueue<>(POOL_SIZE, new WaitStrategy.BusySpin());
+    private final boolean counted;
+
+    /**
+     * Pool of captured frames, counted in the frame and allocation metrics.
+     */
+    public FramePool() {
+        this(true);
+    }
+
+    /**
+     * Pool of frames, copies of captured frames kept next to the capture path are left out of
+     * the frame and allocation metrics.
+     *
+     * @param counted True to count the frames and allocations of the pool in the metrics.
+     */
+    public FramePool(boolean counted) {
+        this.counted = counted;
+    }
+
+    /**
+     * Takes a packet out of the pool, or creates a new one if the pool is empty, and prepares
+     * it for a frame. Must only be called from the capture thread owning this pool.
+     *
+     * @param length      Length of the frame.
+     * @param epochSecond Seconds of the capture timestamp.
+     * @param nanos       Nanoseconds of the capture timestamp.
+     * @return Packet with room for the frame.
+     */
+    public RawPacket acquire(int length, long epochSecond, int nanos) {
+        if (counted) frames.increment();
+        RawPacket packet = free.poll();
+        if (packet == null) {
+            if (counted) allocations.increment();
+            packet = new RawPacket(length, this);
+        }
+        if (packet.reset(length, epochSecond, nanos) && counted) allocations.increment();
+        return packet;
+    }
+
+    /**
+     * Hands a packet back to the pool. If the pool is full the packet is left to the GC.
+     *
+     * @param packet The packet to be reused.
+     */
+    void release(RawPacket packet) {
+        free.offerQuietly(packet);
+    }
+
+    /**
+     * Number of frames taken out of all pools.
+     *
+     * @return Number of frames captured into pooled packets.
+     */
+    public static long getFrameCount() {
+        return frames.sum();
+    }
+
+    /**
+     * Number of allocations made on the frame path, pooled arrays and net packet copies.
+     *
+     * @return Number of allocations.
+     */
+    public static long getAllocationCount() {
+        return allocations.sum() + UtilNetPackets.getCopyCount();
+    }
+
+    /**
+     * Allocations per captured frame. Close to zero when frames are processed as views
+     * and the pools are warmed up.
+     *
+     * @return Average number of allocations per frame.
+     */
+    public static double getAllocationsPerFrame() {
+        long f = getFrameCount();
+        return f == 0 ? 0 : (double) getAllocationCount() / f;
+    }
+}
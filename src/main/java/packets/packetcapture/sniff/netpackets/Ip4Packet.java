@@ -32,73 +32,112 @@ public class Ip4Packet {
     private static final int OPTIONS_OFFSET_IP = 20;
     private static final int MIN_IPV4_HEADER_SIZE = 20;
 
-    private final EthernetPacket ethernetPacket;
-    private final byte[] rawData;
-    private final int version;
-    private final int ihl;
-    private final int precedence;
-    private final int tos;
-    private final boolean mbz;
-    private final int totalLength;
-    private final int identification;
-    private final boolean reservedFlag;
-    private final boolean dontFragmentFlag;
-    private final boolean moreFragmentFlag;
-    private final int fragmentOffset;
-    private final int ttl;
-    private final int protocol;
-    private final int headerChecksum;
-    private final byte[] srcAddr;
-    private final byte[] dstAddr;
-    private final byte[] optionsIP;
-    private final int payloadLength;
-    private final byte[] payload;
+    private EthernetPacket ethernetPacket;
+    private byte[] data;
+    private int offset;
+    private int length;
+    private int version;
+    private int ihl;
+    private int precedence;
+    private int tos;
+    private boolean mbz;
+    private int totalLength;
+    private int identification;
+    private boolean reservedFlag;
+    private boolean dontFragmentFlag;
+    private boolean moreFragmentFlag;
+    private int fragmentOffset;
+    private int ttl;
+    private int protocol;
+    private int headerChecksum;
+    private final byte[] srcAddr = new byte[IP_ADDRESS_SIZE];
+    private final byte[] dstAddr = new byte[IP_ADDRESS_SIZE];
+    private int headerLengthIP;
+    private int payloadLength;
+    private TcpPacket tcpView;
 
     public Ip4Packet(byte[] data, EthernetPacket packet) {
+        this(data, 0, data.length, packet);
+    }
+
+    /**
+     * Ip4 packet viewing a range of the data array. The payload is not copied,
+     * the packet only keeps offsets into the array.
+     *
+     * @param data   Array holding the packet.
+     * @param offset Offset of the ip4 header in the array.
+     * @param length Length of the ip4 packet in the array.
+     * @param packet Ethernet packet this packet is the payload of.
+     */
+    public Ip4Packet(byte[] data, int offset, int length, EthernetPacket packet) {
+        wrap(data, offset, length, packet);
+    }
+
+    /**
+     * Empty view used as a reusable flyweight by the ethernet packet.
+     */
+    Ip4Packet() {
+    }
+
+    /**
+     * Points this packet to a new range of data. Used to reuse the same object for every frame.
+     *
+     * @param data   Array holding the packet.
+     * @param offset Offset of the ip4 header in the array.
+     * @param length Length of the ip4 packet in the array.
+     * @param packet Ethernet packet this packet is the payload of.
+     */
+    void wrap(byte[] data, int offset, int length, EthernetPacket packet) {
+        if (length < MIN_IPV4_HEADER_SIZE) {
+            throw new ArrayIndexOutOfBoundsException("Ip4 packet to short: " + length);
+        }
         ethernetPacket = packet;
-        rawData = data;
-        int versionAndIhl = UtilNetPackets.getByte(data, VERSION_AND_IHL_OFFSET);
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+        int versionAndIhl = UtilNetPackets.getByte(data, offset + VERSION_AND_IHL_OFFSET);
         version = (byte) ((versionAndIhl & 0xF0) >> 4);
         ihl = (byte) (versionAndIhl & 0x0F);
 
-        byte tosByte = (byte) UtilNetPackets.getByte(data, TOS_OFFSET);
+        byte tosByte = (byte) UtilNetPackets.getByte(data, offset + TOS_OFFSET);
         precedence = (byte) ((tosByte & 0xE0) >> 5);
         tos = (0x0F & (tosByte >> 1));
         mbz = (tosByte & 0x01) != 0;
-        totalLength = UtilNetPackets.getShort(data, TOTAL_LENGTH_OFFSET);
-        identification = UtilNetPackets.getShort(data, IDENTIFICATION_OFFSET);
+        totalLength = UtilNetPackets.getShort(data, offset + TOTAL_LENGTH_OFFSET);
+        identification = UtilNetPackets.getShort(data, offset + IDENTIFICATION_OFFSET);
 
-        short flagsAndFragmentOffset = (short) UtilNetPackets.getShort(data, FLAGS_AND_FRAGMENT_OFFSET_OFFSET);
+        short flagsAndFragmentOffset = (short) UtilNetPackets.getShort(data, offset + FLAGS_AND_FRAGMENT_OFFSET_OFFSET);
         reservedFlag = (flagsAndFragmentOffset & 0x8000) != 0;
         dontFragmentFlag = (flagsAndFragmentOffset & 0x4000) != 0;
         moreFragmentFlag = (flagsAndFragmentOffset & 0x2000) != 0;
         fragmentOffset = (short) (flagsAndFragmentOffset & 0x1FFF);
 
-        ttl = UtilNetPackets.getByte(data, TTL_OFFSET);
-        protocol = UtilNetPackets.getByte(data, PROTOCOL_OFFSET);
-        headerChecksum = UtilNetPackets.getShort(data, HEADER_CHECKSUM_OFFSET);
-        srcAddr = UtilNetPackets.getBytes(data, SRC_ADDR_OFFSET_IP, IP_ADDRESS_SIZE);
-        dstAddr = UtilNetPackets.getBytes(data, DST_ADDR_OFFSET_IP, IP_ADDRESS_SIZE);
+        ttl = UtilNetPackets.getByte(data, offset + TTL_OFFSET);
+        protocol = UtilNetPackets.getByte(data, offset + PROTOCOL_OFFSET);
+        headerChecksum = UtilNetPackets.getShort(data, offset + HEADER_CHECKSUM_OFFSET);
+        System.arraycopy(data, offset + SRC_ADDR_OFFSET_IP, srcAddr, 0, IP_ADDRESS_SIZE);
+        System.arraycopy(data, offset + DST_ADDR_OFFSET_IP, dstAddr, 0, IP_ADDRESS_SIZE);
 
-        int headerLengthIP = ihl * 4;
+        headerLengthIP = ihl * 4;
         if (headerLengthIP < 20) headerLengthIP = 20;
 
-        if (headerLengthIP != OPTIONS_OFFSET_IP) {
-            optionsIP = UtilNetPackets.getBytes(data, OPTIONS_OFFSET_IP, headerLengthIP - MIN_IPV4_HEADER_SIZE);
-        } else {
-            optionsIP = new byte[0];
+        int dataLength = length - headerLengthIP;
+        int payload = totalLength - headerLengthIP;
+        if (payload > dataLength || payload < 0) payload = dataLength;
+        if (payload < 0) {
+            throw new ArrayIndexOutOfBoundsException("Len negative " + payload);
         }
+        payloadLength = payload;
+    }
 
-        int dataLength = data.length - headerLengthIP;
-        int length = totalLength - headerLengthIP;
-        if (length > dataLength || length < 0) length = dataLength;
-        payloadLength = length;
-
-        if (payloadLength != 0) {
-            payload = UtilNetPackets.getBytes(data, headerLengthIP, payloadLength);
-        } else {
-            payload = new byte[0];
-        }
+    /**
+     * Copies the packet out of the array it is viewing. Needed if the packet is stored
+     * while the underlying frame is reused for the next captured packet.
+     *
+     * @return Ip4 packet with its own copy of the data.
+     */
+    public Ip4Packet copy() {
+        return new Ip4Packet(UtilNetPackets.getBytes(data, offset, length), 0, length, null);
     }
 
     public int getVersion() {
@@ -166,35 +205,83 @@ public class Ip4Packet {
     }
 
     public byte[] getOptionsIP() {
-        return optionsIP;
+        if (headerLengthIP == OPTIONS_OFFSET_IP) return new byte[0];
+        return UtilNetPackets.getBytes(data, offset + OPTIONS_OFFSET_IP, headerLengthIP - MIN_IPV4_HEADER_SIZE);
     }
 
     public int getPayloadLength() {
         return payloadLength;
     }
 
+    /**
+     * Copy of the payload. Use {@link #getData()} and {@link #getPayloadOffset()}
+     * to read the payload without copying.
+     *
+     * @return Copy of the ip4 payload.
+     */
     public byte[] getPayload() {
-        return payload;
+        if (payloadLength == 0) return new byte[0];
+        return UtilNetPackets.getBytes(data, offset + headerLengthIP, payloadLength);
+    }
+
+    /**
+     * Array the packet is viewed from.
+     *
+     * @return The backing array of the packet.
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * Offset of the ip4 header in the backing array.
+     *
+     * @return Offset of the packet.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Offset of the payload in the backing array.
+     *
+     * @return Offset of the payload.
+     */
+    public int getPayloadOffset() {
+        return offset + headerLengthIP;
     }
 
     public TcpPacket getNewTcpPacket() {
-        if (payload != null && protocol == 6) {
-            return new TcpPacket(payload, payloadLength, this);
+        if (data != null && protocol == 6) {
+            return new TcpPacket(data, offset + headerLengthIP, payloadLength, this);
         }
         return null;
     }
 
+    /**
+     * Tcp packet reusing the same object for every packet viewed by this packet.
+     * Only valid until this packet is pointed to the next packet.
+     *
+     * @return Tcp view of the payload or null if the payload isn't a tcp packet.
+     */
+    public TcpPacket getTcpView() {
+        if (data == null || protocol != 6) return null;
+        if (tcpView == null) tcpView = new TcpPacket();
+        tcpView.wrap(data, offset + headerLengthIP, payloadLength, this);
+        return tcpView;
+    }
+
     public EthernetPacket getEthernetPacket() {
         return ethernetPacket;
     }
 
     @Override
     public String toString() {
-        return "Ip4Packet{" + "\n version=" + version + "\n ihl=" + ihl + "\n precedence=" + precedence + "\n tos=" + tos + "\n mbz=" + mbz + "\n totalLength=" + totalLength + "\n identification=" + identification + "\n reservedFlag=" + reservedFlag + "\n dontFragmentFlag=" + dontFragmentFlag + "\n moreFragmentFlag=" + moreFragmentFlag + "\n fragmentOffset=" + fragmentOffset + "\n ttl=" + ttl + "\n protocol=" + protocol + "\n headerChecksum=" + headerChecksum + "\n srcAddr=" + ipToString(srcAddr) + "\n dstAddr=" + ipToString(dstAddr) + "\n optionsIP=" + Arrays.toString(optionsIP) + "\n dataLength=" + payloadLength + "\n IPdata=" + Arrays.toString(UtilNetPackets.getBytes(rawData, 0, ihl * 4)) + "\n payloadIP=" + Arrays.toString(payload);
+        return "Ip4Packet{" + "\n version=" + version + "\n ihl=" + ihl + "\n precedence=" + precedence + "\n tos=" + tos + "\n mbz=" + mbz + "\n totalLength=" + totalLength + "\n identification=" + identification + "\n reservedFlag=" + reservedFlag + "\n dontFragmentFlag=" + dontFragmentFlag + "\n moreFragmentFlag=" + moreFragmentFlag + "\n fragmentOffset=" + fragmentOffset + "\n ttl=" + ttl + "\n protocol=" + protocol + "\n headerChecksum=" + headerChecksum + "\n srcAddr=" + ipToString(srcAddr) + "\n dstAddr=" + ipToString(dstAddr) + "\n optionsIP=" + Arrays.toString(getOptionsIP()) + "\n dataLength=" + payloadLength + "\n IPdata=" + Arrays.toString(UtilNetPackets.getBytes(data, offset, ihl * 4)) + "\n payloadIP=" + Arrays.toString(getPayload());
     }
 
     public byte[] rawData() {
-        return rawData;
+        return UtilNetPackets.getBytes(data, offset, length);
     }
 
     private String ipToString(byte[] ip) {
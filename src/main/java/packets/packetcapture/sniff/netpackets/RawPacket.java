@@ -5,44 +5,153 @@ import java.util.Arrays;
 
 /**
  * Raw packet constructor for retrieving packets of the wire.
+ * <p>
+ * Raw packets taken from a {@link FramePool} own a reusable array that can be larger than
+ * the frame, use {@link #getData()} together with {@link #getPayloadSize()} to read the frame
+ * without copying. Pooled packets must be handed back with {@link #release()} after use.
  */
 public class RawPacket {
 
-    private final Instant instant;
-    private final int payloadSize;
-    private final byte[] payload;
+    private static final int DEFAULT_FRAME_SIZE = 2048;
+    private final FramePool pool;
+    private Instant instant;
+    private long epochSecond;
+    private int nanos;
+    private boolean timestamped;
+    private int payloadSize;
+    private byte[] payload;
+    private EthernetPacket ethernetView;
 
     public static RawPacket newPacket(byte[] rawData, Instant ts) {
         return new RawPacket(rawData, ts);
     }
 
     public RawPacket(byte[] data, Instant ins) {
+        pool = null;
         instant = ins;
+        timestamped = ins != null;
         payloadSize = data.length;
         payload = data;
     }
 
+    /**
+     * Pooled raw packet with an empty reusable array.
+     *
+     * @param capacity Minimum capacity of the array.
+     * @param pool     Pool the packet is handed back to when released.
+     */
+    RawPacket(int capacity, FramePool pool) {
+        this.pool = pool;
+        payload = new byte[Math.max(capacity, DEFAULT_FRAME_SIZE)];
+    }
+
+    /**
+     * Prepares the packet for a new frame of a specific length. The frame bytes
+     * are then written straight into {@link #getData()}.
+     *
+     * @param length      Length of the new frame.
+     * @param epochSecond Seconds of the capture timestamp.
+     * @param nanos       Nanoseconds of the capture timestamp.
+     * @return True if the array had to be grown to fit the frame.
+     */
+    public boolean reset(int length, long epochSecond, int nanos) {
+        boolean grown = false;
+        if (payload.length < length) {
+            payload = new byte[length];
+            grown = true;
+        }
+        payloadSize = length;
+        this.epochSecond = epochSecond;
+        this.nanos = nanos;
+        instant = null;
+        timestamped = true;
+        return grown;
+    }
+
     public Instant getInstant() {
+        if (instant == null && timestamped) instant = Instant.ofEpochSecond(epochSecond, nanos);
         return instant;
     }
 
+    /**
+     * Seconds of the capture timestamp without creating an Instant.
+     *
+     * @return Epoch seconds of the capture.
+     */
+    public long getEpochSecond() {
+        return instant != null ? instant.getEpochSecond() : epochSecond;
+    }
+
+    /**
+     * Nanosecond part of the capture timestamp without creating an Instant.
+     *
+     * @return Nanoseconds of the capture.
+     */
+    public int getNanos() {
+        return instant != null ? instant.getNano() : nanos;
+    }
+
     public int getPayloadSize() {
         return payloadSize;
     }
 
+    /**
+     * Frame bytes of the packet, copied if the backing array is larger than the frame.
+     *
+     * @return Array containing only the frame.
+     */
     public byte[] getPayload() {
+        if (payload.length == payloadSize) return payload;
+        return Arrays.copyOf(payload, payloadSize);
+    }
+
+    /**
+     * Backing array of the frame. Only the first {@link #getPayloadSize()} bytes are valid.
+     *
+     * @return The backing array.
+     */
+    public byte[] getData() {
         return payload;
     }
 
     public EthernetPacket getNewEthernetPacket() {
-        return new EthernetPacket(payload, this);
+        return new EthernetPacket(payload, payloadSize, this);
+    }
+
+    /**
+     * Ethernet packet reusing the same object for every frame this packet holds.
+     * Only valid until the packet is released.
+     *
+     * @return Ethernet view of the frame.
+     */
+    public EthernetPacket getEthernetView() {
+        if (ethernetView == null) ethernetView = new EthernetPacket();
+        ethernetView.wrap(payload, payloadSize, this);
+        return ethernetView;
+    }
+
+    /**
+     * Copy of the packet not belonging to any pool.
+     *
+     * @return Copy of this packet.
+     */
+    public RawPacket copy() {
+        return new RawPacket(Arrays.copyOf(payload, payloadSize), getInstant());
+    }
+
+    /**
+     * Hands the packet back to the pool it was taken from. Does nothing for packets not
+     * taken from a pool. The packet must not be used after being released.
+     */
+    public void release() {
+        if (pool != null) pool.release(this);
     }
 
     @Override
     public String toString() {
         return "RawPacket{" +
-                "\n instant=" + instant +
+                "\n instant=" + getInstant() +
                 "\n payloadSize=" + payloadSize +
-                "\n payload=" + Arrays.toString(payload);
+                "\n payload=" + Arrays.toString(getPayload());
     }
 }
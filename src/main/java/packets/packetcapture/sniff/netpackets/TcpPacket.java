@@ -29,40 +29,77 @@ public class TcpPacket {
     private static final int OPTIONS_OFFSET_TCP = 20;
     private static final int MIN_TCP_HEADER_SIZE = 20;
 
-    private final Ip4Packet ip4Packet;
-    private final byte[] rawData;
-    private final int srcPort;
-    private final int dstPort;
-    private final long sequenceNumber;
-    private final long acknowledgmentNumber;
-    private final int dataOffset;
-    private final int reserved;
-    private final boolean urg;
-    private final boolean ack;
-    private final boolean psh;
-    private final boolean rst;
-    private final boolean syn;
-    private final boolean fin;
-    private final int window;
-    private final int checksum;
-    private final int urgentPointer;
-    private final byte[] optionsTCP;
-    private final byte[] payload;
-    private final int payloadSize;
+    private Ip4Packet ip4Packet;
+    private byte[] data;
+    private int offset;
+    private int length;
+    private int srcPort;
+    private int dstPort;
+    private long sequenceNumber;
+    private long acknowledgmentNumber;
+    private int dataOffset;
+    private int reserved;
+    private boolean urg;
+    private boolean ack;
+    private boolean psh;
+    private boolean rst;
+    private boolean syn;
+    private boolean fin;
+    private int window;
+    private int checksum;
+    private int urgentPointer;
+    private int headerLengthTCP;
+    private int payloadSize;
 
     public TcpPacket(byte[] data, int length, Ip4Packet packet) {
-        ip4Packet = packet;
-        rawData = data;
-        srcPort = UtilNetPackets.getShort(data, SRC_PORT_OFFSET);
-        dstPort = UtilNetPackets.getShort(data, DST_PORT_OFFSET);
-        sequenceNumber = UtilNetPackets.getIntAsLong(data, SEQUENCE_NUMBER_OFFSET);
-        acknowledgmentNumber = UtilNetPackets.getIntAsLong(data, ACKNOWLEDGMENT_NUMBER_OFFSET);
+        this(data, 0, length, packet);
+    }
+
+    /**
+     * Tcp packet viewing a range of the data array. The payload is not copied,
+     * the packet only keeps offsets into the array.
+     *
+     * @param data   Array holding the packet.
+     * @param offset Offset of the tcp header in the array.
+     * @param length Length of the tcp packet in the array.
+     * @param packet Ip4 packet this packet is the payload of.
+     */
+    public TcpPacket(byte[] data, int offset, int length, Ip4Packet packet) {
+        wrap(data, offset, length, packet);
+    }
 
-        int sizeControlBits = UtilNetPackets.getByte(data, DATA_OFFSET_BITS_OFFSET);
+    /**
+     * Empty view used as a reusable flyweight by the ip4 packet.
+     */
+    TcpPacket() {
+    }
+
+    /**
+     * Points this packet to a new range of data. Used to reuse the same object for every frame.
+     *
+     * @param data   Array holding the packet.
+     * @param offset Offset of the tcp header in the array.
+     * @param length Length of the tcp packet in the array.
+     * @param packet Ip4 packet this packet is the payload of.
+     */
+    void wrap(byte[] data, int offset, int length, Ip4Packet packet) {
+        if (length < MIN_TCP_HEADER_SIZE) {
+            throw new ArrayIndexOutOfBoundsException("Tcp packet to short: " + length);
+        }
+        ip4Packet = packet;
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+        srcPort = UtilNetPackets.getShort(data, offset + SRC_PORT_OFFSET);
+        dstPort = UtilNetPackets.getShort(data, offset + DST_PORT_OFFSET);
+        sequenceNumber = UtilNetPackets.getIntAsLong(data, offset + SEQUENCE_NUMBER_OFFSET);
+        acknowledgmentNumber = UtilNetPackets.getIntAsLong(data, offset + ACKNOWLEDGMENT_NUMBER_OFFSET);
+
+        int sizeControlBits = UtilNetPackets.getByte(data, offset + DATA_OFFSET_BITS_OFFSET);
         dataOffset = (sizeControlBits & 0xF0) >> 4;
         reserved = sizeControlBits & 0xF;
 
-        int reservedAndControlBits = UtilNetPackets.getByte(data, CONTROL_BITS_OFFSET);
+        int reservedAndControlBits = UtilNetPackets.getByte(data, offset + CONTROL_BITS_OFFSET);
         urg = (reservedAndControlBits & 0x0020) != 0;
         ack = (reservedAndControlBits & 0x0010) != 0;
         psh = (reservedAndControlBits & 0x0008) != 0;
@@ -70,29 +107,32 @@ public class TcpPacket {
         syn = (reservedAndControlBits & 0x0002) != 0;
         fin = (reservedAndControlBits & 0x0001) != 0;
 
-        window = UtilNetPackets.getShort(data, WINDOW_OFFSET);
-        checksum = UtilNetPackets.getShort(data, CHECKSUM_OFFSET);
-        urgentPointer = UtilNetPackets.getShort(data, URGENT_POINTER_OFFSET);
+        window = UtilNetPackets.getShort(data, offset + WINDOW_OFFSET);
+        checksum = UtilNetPackets.getShort(data, offset + CHECKSUM_OFFSET);
+        urgentPointer = UtilNetPackets.getShort(data, offset + URGENT_POINTER_OFFSET);
 
-        int headerLengthTCP = (0xFF & dataOffset) * 4;
+        headerLengthTCP = (0xFF & dataOffset) * 4;
         if (headerLengthTCP < 20) headerLengthTCP = 20;
 
-        if (headerLengthTCP != OPTIONS_OFFSET_TCP) {
-            optionsTCP = UtilNetPackets.getBytes(data, OPTIONS_OFFSET_TCP, headerLengthTCP - MIN_TCP_HEADER_SIZE);
-        } else {
-            optionsTCP = new byte[0];
-        }
-
         payloadSize = length - headerLengthTCP;
-        if (payloadSize != 0) {
-            payload = UtilNetPackets.getBytes(data, headerLengthTCP, payloadSize);
-        } else {
-            payload = new byte[0];
+        if (payloadSize < 0) {
+            throw new ArrayIndexOutOfBoundsException("Len negative " + payloadSize);
         }
     }
 
+    /**
+     * Copies the packet out of the array it is viewing. Needed if the packet is stored
+     * while the underlying frame is reused for the next captured packet.
+     *
+     * @return Tcp packet with its own copy of the data, including a copy of the ip4 packet.
+     */
+    public TcpPacket copy() {
+        if (ip4Packet != null) return ip4Packet.copy().getNewTcpPacket();
+        return new TcpPacket(UtilNetPackets.getBytes(data, offset, length), 0, length, null);
+    }
+
     public byte[] getRawData() {
-        return rawData;
+        return UtilNetPackets.getBytes(data, offset, length);
     }
 
     public int getSrcPort() {
@@ -160,11 +200,37 @@ public class TcpPacket {
     }
 
     public byte[] getOptionsTCP() {
-        return optionsTCP;
+        if (headerLengthTCP == OPTIONS_OFFSET_TCP) return new byte[0];
+        return UtilNetPackets.getBytes(data, offset + OPTIONS_OFFSET_TCP, headerLengthTCP - MIN_TCP_HEADER_SIZE);
     }
 
+    /**
+     * Copy of the payload. Use {@link #getData()} and {@link #getPayloadOffset()}
+     * to read the payload without copying.
+     *
+     * @return Copy of the tcp payload.
+     */
     public byte[] getPayload() {
-        return payload;
+        if (payloadSize == 0) return new byte[0];
+        return UtilNetPackets.getBytes(data, offset + headerLengthTCP, payloadSize);
+    }
+
+    /**
+     * Array the packet is viewed from.
+     *
+     * @return The backing array of the packet.
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * Offset of the payload in the backing array.
+     *
+     * @return Offset of the payload.
+     */
+    public int getPayloadOffset() {
+        return offset + headerLengthTCP;
     }
 
     public int getPayloadSize() {
@@ -193,9 +259,9 @@ public class TcpPacket {
                 "\n window=" + window +
                 "\n checksum=" + checksum +
                 "\n urgentPointer=" + urgentPointer +
-                "\n optionsTCP=" + Arrays.toString(optionsTCP) +
-                "\n TCPdata=" + Arrays.toString(UtilNetPackets.getBytes(rawData, 0, (0xFF & dataOffset) * 4)) +
-                "\n payloadTCP=" + Arrays.toString(payload) +
+                "\n optionsTCP=" + Arrays.toString(getOptionsTCP()) +
+                "\n TCPdata=" + Arrays.toString(UtilNetPackets.getBytes(data, offset, headerLengthTCP)) +
+                "\n payloadTCP=" + Arrays.toString(getPayload()) +
                 "\n payloadSize=" + payloadSize;
     }
 }
@@ -1,5 +1,7 @@
 package packets.packetcapture.sniff.netpackets;
 
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Util class for Raw, Ether, Ip4 and TCP packets.
  */
@@ -9,6 +11,7 @@ public class UtilNetPackets {
     public static final int SHORT_SIZE_IN_BYTES = 2;
     public static final int INT_SIZE_IN_BYTES = 4;
     public static final int LONG_SIZE_IN_BYTES = 8;
+    private static final LongAdder copies = new LongAdder();
 
     public static void validateBounds(byte[] array, int offset, int len) {
         if (array == null) {
@@ -34,6 +37,7 @@ public class UtilNetPackets {
     public static byte[] getBytes(byte[] data, int offset, int length) {
         validateBounds(data, offset, length);
 
+        copies.increment();
         byte[] subArray = new byte[length];
         System.arraycopy(data, offset, subArray, 0, length);
         return subArray;
@@ -54,4 +58,13 @@ public class UtilNetPackets {
     public static long getIntAsLong(byte[] data, int typeOffset) {
         return Integer.toUnsignedLong((Byte.toUnsignedInt(data[typeOffset]) << 24) | (Byte.toUnsignedInt(data[typeOffset + 1]) << 16) | (Byte.toUnsignedInt(data[typeOffset + 2]) << 8) | Byte.toUnsignedInt(data[typeOffset + 3]));
     }
+
+    /**
+     * Number of arrays copied out of packets using getBytes.
+     *
+     * @return Number of copies made.
+     */
+    public static long getCopyCount() {
+        return copies.sum();
+    }
 }
@@ -0,0 +1,369 @@
+package packets.packetcapture.sniff.pcapfile;
+
+import packets.packetcapture.sniff.netpackets.FramePool;
+import packets.packetcapture.sniff.netpackets.RawPacket;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * Pure java reader of pcap and pcapng capture files. Frames are read into raw packets taken
+ * from a frame pool with their original capture timestamps, making the frames interchangeable
+ * with frames captured live from the network tap.
+ * <p>
+ * Only Ethernet frames are returned, frames of any other link type are skipped.
+ * <p>
+ * File formats based on:
+ * https://wiki.wireshark.org/Development/LibpcapFileFormat
+ * https://www.ietf.org/archive/id/draft-tuexen-opsawg-pcapng-05.html
+ */
+public class PcapFileReader implements Closeable {
+
+    public static final int LINKTYPE_ETHERNET = 1;
+    private static final int PCAP_MAGIC_MICRO = 0xA1B2C3D4;
+    private static final int PCAP_MAGIC_NANO = 0xA1B23C4D;
+    private static final int PCAPNG_SECTION_HEADER = 0x0A0D0D0A;
+    private static final int PCAPNG_BYTE_ORDER_MAGIC = 0x1A2B3C4D;
+    private static final int PCAPNG_INTERFACE_DESCRIPTION = 0x00000001;
+    private static final int PCAPNG_PACKET = 0x00000002;
+    private static final int PCAPNG_SIMPLE_PACKET = 0x00000003;
+    private static final int PCAPNG_ENHANCED_PACKET = 0x00000006;
+    private static final int PCAPNG_OPTION_TSRESOL = 9;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final boolean pcapng;
+    private final ArrayList<PcapInterface> interfaces = new ArrayList<>();
+    private int pcapLinkType;
+    private int pcapSnapLength = 0xFFFF;
+    private boolean pcapNanos;
+    private long framesRead;
+    private long bytesRead;
+
+    /**
+     * Opens a capture file and reads its file header. The format is detected from the magic number.
+     *
+     * @param path Path to the pcap or pcapng file.
+     * @throws IOException If the file can't be read or isn't a pcap or pcapng file.
+     */
+    public PcapFileReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        buffer.flip();
+        try {
+            ensure(4);
+            int magic = buffer.getInt(buffer.position());
+            if (magic == PCAPNG_SECTION_HEADER) {
+                pcapng = true;
+            } else {
+                pcapng = false;
+                readPcapHeader();
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the next Ethernet frame in the file into a pooled raw packet. The packet
+     * should be released after being processed.
+     *
+     * @param pool Pool the raw packet is taken from.
+     * @return The next frame or null at the end of the file.
+     * @throws IOException If the file is corrupt or can't be read.
+     */
+    public RawPacket next(FramePool pool) throws IOException {
+        return pcapng ? nextPcapNg(pool) : nextPcap(pool);
+    }
+
+    /**
+     * Number of Ethernet frames returned so far.
+     *
+     * @return Frames read.
+     */
+    public long getFramesRead() {
+        return framesRead;
+    }
+
+    /**
+     * Number of frame bytes returned so far.
+     *
+     * @return Bytes read.
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Reads the pcap global header, including the byte order and timestamp resolution given by the magic.
+     */
+    private void readPcapHeader() throws IOException {
+        ensure(24);
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        int magic = buffer.getInt(buffer.position());
+        if (magic != PCAP_MAGIC_MICRO && magic != PCAP_MAGIC_NANO) {
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            magic = buffer.getInt(buffer.position());
+        }
+        if (magic != PCAP_MAGIC_MICRO && magic != PCAP_MAGIC_NANO) {
+            throw new IOException("Not a pcap or pcapng file");
+        }
+        pcapNanos = magic == PCAP_MAGIC_NANO;
+        buffer.position(buffer.position() + 16);
+        pcapSnapLength = buffer.getInt();
+        pcapLinkType = buffer.getInt() & 0xFFFF;
+    }
+
+    /**
+     * Next frame in a pcap file.
+     */
+    private RawPacket nextPcap(FramePool pool) throws IOException {
+        while (true) {
+            if (!ensureOrEnd(16)) return null;
+            long seconds = Integer.toUnsignedLong(buffer.getInt());
+            long fraction = Integer.toUnsignedLong(buffer.getInt());
+            int capLength = buffer.getInt();
+            buffer.getInt(); // original length
+            if (capLength < 0 || capLength > Math.max(pcapSnapLength, 0xFFFF) + 0x10000) {
+                throw new IOException("Corrupt pcap record length " + capLength);
+            }
+            int nanos = (int) (pcapNanos ? fraction : fraction * 1000);
+            if (pcapLinkType != LINKTYPE_ETHERNET) {
+                skip(capLength);
+                continue;
+            }
+            return readFrame(pool, capLength, seconds, nanos);
+        }
+    }
+
+    /**
+     * Next frame in a pcapng file. Section headers and interface descriptions are
+     * consumed as they are found, any other unknown blocks are skipped.
+     */
+    private RawPacket nextPcapNg(FramePool pool) throws IOException {
+        while (true) {
+            if (!ensureOrEnd(8)) return null;
+            int start = buffer.position();
+            int type = buffer.getInt(start);
+            if (type == PCAPNG_SECTION_HEADER) {
+                readSectionHeader();
+                continue;
+            }
+            int blockLength = buffer.getInt(start + 4);
+            if (blockLength < 12 || (blockLength & 3) != 0) {
+                throw new IOException("Corrupt pcapng block length " + blockLength);
+            }
+            buffer.position(start + 8);
+            int body = blockLength - 12;
+
+            switch (type) {
+                case PCAPNG_INTERFACE_DESCRIPTION:
+                    ensure(body + 4);
+                    readInterfaceDescription(body);
+                    break;
+                case PCAPNG_ENHANCED_PACKET:
+                case PCAPNG_PACKET: {
+                    ensure(20);
+                    int interfaceId = type == PCAPNG_PACKET ? buffer.getShort() & 0xFFFF : buffer.getInt();
+                    if (type == PCAPNG_PACKET) buffer.getShort(); // drops count
+                    long timestamp = (Integer.toUnsignedLong(buffer.getInt()) << 32) | Integer.toUnsignedLong(buffer.getInt());
+                    int capLength = buffer.getInt();
+                    buffer.getInt(); // original length
+                    int padded = (capLength + 3) & ~3;
+                    if (capLength < 0 || padded > body - 20) throw new IOException("Corrupt pcapng packet length " + capLength);
+                    PcapInterface pcapInterface = getInterface(interfaceId);
+                    if (pcapInterface.linkType == LINKTYPE_ETHERNET) {
+                        RawPacket packet = readFrame(pool, capLength, pcapInterface.seconds(timestamp), pcapInterface.nanos(timestamp));
+                        skip(body - 20 - capLength + 4); // padding, options and trailing length
+                        return packet;
+                    }
+                    skip(body - 20 + 4);
+                    break;
+                }
+                case PCAPNG_SIMPLE_PACKET: {
+                    ensure(4);
+                    int length = buffer.getInt();
+                    int capLength = Math.min(length, body - 4);
+                    PcapInterface pcapInterface = getInterface(0);
+                    if (pcapInterface.linkType == LINKTYPE_ETHERNET) {
+                        RawPacket packet = readFrame(pool, capLength, 0, 0);
+                        skip(body - 4 - capLength + 4);
+                        return packet;
+                    }
+                    skip(body - 4 + 4);
+                    break;
+                }
+                default:
+                    skip(body + 4);
+            }
+        }
+    }
+
+    /**
+     * Reads the section header, setting the byte order of the section and resetting the interface list.
+     */
+    private void readSectionHeader() throws IOException {
+        ensure(12);
+        int start = buffer.position();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        if (buffer.getInt(start + 8) != PCAPNG_BYTE_ORDER_MAGIC) {
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(start + 8) != PCAPNG_BYTE_ORDER_MAGIC) {
+                throw new IOException("Corrupt pcapng section header");
+            }
+        }
+        int blockLength = buffer.getInt(start + 4);
+        if (blockLength < 28) throw new IOException("Corrupt pcapng section header length " + blockLength);
+        interfaces.clear();
+        buffer.position(start + 12);
+        skip(blockLength - 12);
+    }
+
+    /**
+     * Reads an interface description, its link type and the timestamp resolution option.
+     */
+    private void readInterfaceDescription(int body) {
+        int end = buffer.position() + body;
+        int linkType = buffer.getShort() & 0xFFFF;
+        buffer.getShort(); // reserved
+        buffer.getInt(); // snap length
+        PcapInterface pcapInterface = new PcapInterface(linkType);
+
+        while (buffer.position() + 4 <= end) {
+            int code = buffer.getShort() & 0xFFFF;
+            int length = buffer.getShort() & 0xFFFF;
+            if (code == 0) break;
+            if (code == PCAPNG_OPTION_TSRESOL && length >= 1) {
+                pcapInterface.setResolution(buffer.get(buffer.position()));
+            }
+            buffer.position(Math.min(end, buffer.position() + ((length + 3) & ~3)));
+        }
+        buffer.position(end + 4);
+        interfaces.add(pcapInterface);
+    }
+
+    private PcapInterface getInterface(int id) throws IOException {
+        if (id < 0 || id >= interfaces.size()) throw new IOException("Packet of unknown pcapng interface " + id);
+        return interfaces.get(id);
+    }
+
+    /**
+     * Copies a frame out of the file buffer into a pooled raw packet.
+     */
+    private RawPacket readFrame(FramePool pool, int length, long seconds, int nanos) throws IOException {
+        RawPacket packet = pool.acquire(length, seconds, nanos);
+        byte[] data = packet.getData();
+        int read = 0;
+        while (read < length) {
+            if (!buffer.hasRemaining() && !fill()) {
+                packet.release();
+                throw new EOFException("Capture file ends inside a frame");
+            }
+            int n = Math.min(length - read, buffer.remaining());
+            buffer.get(data, read, n);
+            read += n;
+        }
+        framesRead++;
+        bytesRead += length;
+        return packet;
+    }
+
+    /**
+     * Skips bytes in the file.
+     */
+    private void skip(int bytes) throws IOException {
+        if (bytes < 0) throw new IOException("Corrupt capture file");
+        while (bytes > 0) {
+            if (!buffer.hasRemaining() && !fill()) throw new EOFException("Capture file ends inside a block");
+            int n = Math.min(bytes, buffer.remaining());
+            buffer.position(buffer.position() + n);
+            bytes -= n;
+        }
+    }
+
+    /**
+     * Makes sure a number of bytes are available in the buffer.
+     */
+    private void ensure(int bytes) throws IOException {
+        if (!ensureOrEnd(bytes)) throw new EOFException("Unexpected end of capture file");
+    }
+
+    /**
+     * Makes sure a number of bytes are available in the buffer.
+     *
+     * @return False if the end of the file is reached before any byte was available.
+     */
+    private boolean ensureOrEnd(int bytes) throws IOException {
+        if (bytes > buffer.capacity()) throw new IOException("Capture block too large " + bytes);
+        while (buffer.remaining() < bytes) {
+            int before = buffer.remaining();
+            if (!fill()) {
+                if (before == 0) return false;
+                throw new EOFException("Unexpected end of capture file");
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads more data from the file into the buffer, keeping unread bytes.
+     *
+     * @return False if the end of the file is reached.
+     */
+    private boolean fill() throws IOException {
+        buffer.compact();
+        int n = channel.read(buffer);
+        buffer.flip();
+        return n > 0;
+    }
+
+    /**
+     * Interface described in a pcapng section with its link type and timestamp resolution.
+     */
+    private static class PcapInterface {
+        private final int linkType;
+        private long unitsPerSecond = 1_000_000;
+
+        PcapInterface(int linkType) {
+            this.linkType = linkType;
+        }
+
+        /**
+         * Sets the resolution from the if_tsresol option, a power of 10 or, with the top bit set, a power of 2.
+         */
+        void setResolution(byte tsresol) {
+            int exponent = tsresol & 0x7F;
+            if ((tsresol & 0x80) != 0) {
+                unitsPerSecond = exponent < 63 ? 1L << exponent : Long.MAX_VALUE;
+            } else {
+                long units = 1;
+                for (int i = 0; i < exponent && units <= Long.MAX_VALUE / 10; i++) units *= 10;
+                unitsPerSecond = units;
+            }
+        }
+
+        long seconds(long timestamp) {
+            return Long.divideUnsigned(timestamp, unitsPerSecond);
+        }
+
+        int nanos(long timestamp) {
+            long units = Long.remainderUnsigned(timestamp, unitsPerSecond);
+            if (unitsPerSecond == 1_000_000_000L) return (int) units;
+            return (int) (units * 1_000_000_000.0 / unitsPerSecond);
+        }
+    }
+}
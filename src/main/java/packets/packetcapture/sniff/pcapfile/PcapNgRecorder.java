@@ -0,0 +1,337 @@
+package packets.packetcapture.sniff.pcapfile;
+
+import packets.packetcapture.sniff.CaptureQueue;
+import packets.packetcapture.sniff.WaitStrategy;
+import packets.packetcapture.sniff.netpackets.FramePool;
+import packets.packetcapture.sniff.netpackets.RawPacket;
+import util.Util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Continuous recorder writing every captured frame into pcapng files. Frames are copied in the
+ * capture callback into pooled packets and handed to a writer thread through a lock-free queue,
+ * the capture callback never touches the disk. The recorder has pools of its own left out of the
+ * frame metrics. The writer batches frames into a direct buffer before writing them to the file
+ * channel.
+ * <p>
+ * Files are rotated when they reach a max size or max age. If the files in the recording folder
+ * exceed the max disk budget the oldest files are deleted.
+ */
+public class PcapNgRecorder implements Closeable {
+
+    private static final int QUEUE_CAPACITY = 1 << 14;
+    private static final int BATCH_SIZE = 1 << 20;
+    private static final String SUFFIX = ".pcapng";
+    private static final int SECTION_HEADER = 0x0A0D0D0A;
+    private static final int BYTE_ORDER_MAGIC = 0x1A2B3C4D;
+    private static final int INTERFACE_DESCRIPTION = 0x00000001;
+    private static final int ENHANCED_PACKET = 0x00000006;
+
+    private final Path folder;
+    private final String prefix;
+    private final long maxFileBytes;
+    private final long maxFileMillis;
+    private final long maxDiskBytes;
+    private final CaptureQueue<RawPacket> queue = new CaptureQueue<>(QUEUE_CAPACITY, new WaitStrategy.Blocking());
+    private final ThreadLocal<FramePool> pools = ThreadLocal.withInitial(() -> new FramePool(false));
+    private final ByteBuffer batch = ByteBuffer.allocateDirect(BATCH_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong framesWritten = new AtomicLong();
+    private final AtomicLong framesDropped = new AtomicLong();
+    private final AtomicLong filesEvicted = new AtomicLong();
+    private final Thread writer;
+    private FileChannel channel;
+    private Path currentFile;
+    private long fileBytes;
+    private long fileStart;
+    private int fileIndex;
+    private volatile boolean stop;
+
+    /**
+     * Recorder writing rotated pcapng files into a folder. The writer thread is started directly.
+     *
+     * @param folder        Folder the capture files are written to.
+     * @param prefix        Prefix of the file names, followed by the time the file was created.
+     * @param maxFileBytes  Max size of a single file before rotating to a new file.
+     * @param maxFileMillis Max age of a single file in milliseconds before rotating, 0 to only rotate by size.
+     * @param maxDiskBytes  Max total size of the recorded files in the folder, 0 for no limit.
+     * @throws IOException If the folder can't be created.
+     */
+    public PcapNgRecorder(Path folder, String prefix, long maxFileBytes, long maxFileMillis, long maxDiskBytes) throws IOException {
+        this.folder = folder;
+        this.prefix = prefix;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFileMillis = maxFileMillis;
+        this.maxDiskBytes = maxDiskBytes;
+        Files.createDirectories(folder);
+        writer = new Thread(this::writeLoop, "PcapNgRecorder");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Records a captured frame. The frame is copied so the caller keeps ownership of the packet.
+     * Never blocks, if the writer is falling behind the frame is dropped and counted.
+     *
+     * @param packet Captured frame to be recorded.
+     */
+    public void record(RawPacket packet) {
+        if (stop || packet == null) return;
+        int length = packet.getPayloadSize();
+        RawPacket copy = pools.get().acquire(length, packet.getEpochSecond(), packet.getNanos());
+        System.arraycopy(packet.getData(), 0, copy.getData(), 0, length);
+        if (!queue.offer(copy)) {
+            copy.release();
+            framesDropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Number of bytes written to disk, including pcapng headers.
+     *
+     * @return Bytes written.
+     */
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    /**
+     * Number of frames written to disk.
+     *
+     * @return Frames written.
+     */
+    public long getFramesWritten() {
+        return framesWritten.get();
+    }
+
+    /**
+     * Number of frames dropped because the writer couldn't keep up or failed to write.
+     *
+     * @return Frames dropped.
+     */
+    public long getFramesDropped() {
+        return framesDropped.get();
+    }
+
+    /**
+     * Number of old files deleted to stay within the disk budget.
+     *
+     * @return Files evicted.
+     */
+    public long getFilesEvicted() {
+        return filesEvicted.get();
+    }
+
+    /**
+     * Stops the recorder after writing all queued frames and closes the current file.
+     */
+    @Override
+    public void close() {
+        stop = true;
+        queue.signal();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writer thread draining the queue into the batch buffer. The batch is written
+     * when full or when the queue runs empty.
+     */
+    private void writeLoop() {
+        while (true) {
+            RawPacket packet = queue.poll();
+            if (packet == null) {
+                flush();
+                if (stop && queue.isEmpty()) break;
+                if (channel != null && maxFileMillis > 0 && System.currentTimeMillis() - fileStart >= maxFileMillis) {
+                    closeFile();
+                }
+                queue.idle();
+                continue;
+            }
+            try {
+                writePacket(packet);
+            } catch (IOException e) {
+                framesDropped.incrementAndGet();
+                Util.print("Recorder error: " + e.getMessage());
+                closeFile();
+            } finally {
+                packet.release();
+            }
+        }
+        closeFile();
+    }
+
+    /**
+     * Appends an enhanced packet block to the batch, rotating the file if needed.
+     */
+    private void writePacket(RawPacket packet) throws IOException {
+        int length = packet.getPayloadSize();
+        int padded = (length + 3) & ~3;
+        int blockLength = 32 + padded;
+
+        if (channel != null && (fileBytes + batch.position() + blockLength > maxFileBytes
+                || (maxFileMillis > 0 && System.currentTimeMillis() - fileStart >= maxFileMillis))) {
+            closeFile();
+        }
+        if (channel == null) openFile();
+        if (batch.remaining() < blockLength) flush();
+        if (batch.remaining() < blockLength) { // frame larger than the batch, write it on its own
+            ByteBuffer large = ByteBuffer.allocate(blockLength).order(ByteOrder.LITTLE_ENDIAN);
+            putPacket(large, packet, length, padded, blockLength);
+            large.flip();
+            write(large);
+        } else {
+            putPacket(batch, packet, length, padded, blockLength);
+        }
+        framesWritten.incrementAndGet();
+    }
+
+    /**
+     * Enhanced packet block with a nano second timestamp.
+     */
+    private static void putPacket(ByteBuffer buffer, RawPacket packet, int length, int padded, int blockLength) {
+        long timestamp = packet.getEpochSecond() * 1_000_000_000L + packet.getNanos();
+        buffer.putInt(ENHANCED_PACKET);
+        buffer.putInt(blockLength);
+        buffer.putInt(0); // interface id
+        buffer.putInt((int) (timestamp >>> 32));
+        buffer.putInt((int) timestamp);
+        buffer.putInt(length);
+        buffer.putInt(length);
+        buffer.put(packet.getData(), 0, length);
+        for (int i = length; i < padded; i++) buffer.put((byte) 0);
+        buffer.putInt(blockLength);
+    }
+
+    /**
+     * Opens a new capture file with the section header and the Ethernet interface description,
+     * then evicts old files if the disk budget is exceeded.
+     */
+    private void openFile() throws IOException {
+        String time = new SimpleDateFormat("yyyy-MM-dd-HH.mm.ss").format(new Date());
+        currentFile = folder.resolve(String.format("%s-%s-%03d%s", prefix, time, fileIndex++ % 1000, SUFFIX));
+        channel = FileChannel.open(currentFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        fileBytes = 0;
+        fileStart = System.currentTimeMillis();
+
+        batch.putInt(SECTION_HEADER);
+        batch.putInt(28);
+        batch.putInt(BYTE_ORDER_MAGIC);
+        batch.putShort((short) 1); // major version
+        batch.putShort((short) 0); // minor version
+        batch.putLong(-1); // section length unknown
+        batch.putInt(28);
+
+        batch.putInt(INTERFACE_DESCRIPTION);
+        batch.putInt(32);
+        batch.putShort((short) PcapFileReader.LINKTYPE_ETHERNET);
+        batch.putShort((short) 0);
+        batch.putInt(0); // no snap length
+        batch.putShort((short) 9); // if_tsresol
+        batch.putShort((short) 1);
+        batch.putInt(9); // nano seconds, padded
+        batch.putInt(0); // opt_endofopt
+        batch.putInt(32);
+
+        evictOldFiles();
+    }
+
+    /**
+     * Writes the batch to the current file.
+     */
+    private void flush() {
+        if (batch.position() == 0) return;
+        batch.flip();
+        try {
+            if (channel != null) write(batch);
+        } catch (IOException e) {
+            Util.print("Recorder error: " + e.getMessage());
+            closeFile();
+        }
+        batch.clear();
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        int bytes = buffer.remaining();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        fileBytes += bytes;
+        bytesWritten.addAndGet(bytes);
+    }
+
+    /**
+     * Writes the remaining batch and closes the current file.
+     */
+    private void closeFile() {
+        if (channel == null) return;
+        flush();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        channel = null;
+    }
+
+    /**
+     * Deletes the oldest recorded files until the recorded files fit in the disk budget.
+     * The file currently written is never deleted.
+     */
+    private void evictOldFiles() {
+        if (maxDiskBytes <= 0) return;
+        List<Path> files = new ArrayList<>();
+        long total = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(folder, prefix + "-*" + SUFFIX)) {
+            for (Path p : stream) {
+                if (p.equals(currentFile)) continue;
+                files.add(p);
+                total += Files.size(p);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        Collections.sort(files); // file names start with the creation time
+        total += maxFileBytes; // room for the current file
+        for (Path p : files) {
+            if (total <= maxDiskBytes) break;
+            try {
+                long size = Files.size(p);
+                Files.delete(p);
+                total -= size;
+                filesEvicted.incrementAndGet();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PcapNgRecorder{" +
+                "bytesWritten=" + getBytesWritten() +
+                ", framesWritten=" + getFramesWritten() +
+                ", framesDropped=" + getFramesDropped() +
+                ", filesEvicted=" + getFilesEvicted() +
+                ", " + queue +
+                '}';
+    }
+}
@@ -4,7 +4,9 @@ import packets.Packet;
 import packets.PacketType;
 import util.Util;
 
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
 /**
@@ -17,6 +19,12 @@ public class BufferReader {
         buffer = data;
     }
 
+    /**
+     * Reader not backed by a byte buffer, the subclass reads the data itself.
+     */
+    protected BufferReader() {
+    }
+
     /**
      * Returns the buffer size.
      *
@@ -44,6 +52,17 @@ public class BufferReader {
         return buffer.capacity() - buffer.position();
     }
 
+    /**
+     * Checks the buffer holds a number of bytes from the current index, used to bounds check
+     * several fields at once before reading them.
+     *
+     * @param bytes Number of bytes about to be read.
+     * @throws BufferUnderflowException If fewer bytes remain.
+     */
+    public void require(long bytes) {
+        if (bytes > buffer.remaining()) throw new BufferUnderflowException();
+    }
+
     /**
      * Deserialize a boolean.
      *
@@ -120,7 +139,7 @@ public class BufferReader {
     }
 
     /**
-     * Deserialize a string.
+     * Deserialize a UTF-8 string.
      *
      * @return Returns the string that have been deserialized.
      */
@@ -128,7 +147,7 @@ public class BufferReader {
         short len = readShort();
         byte[] str = new byte[len];
         buffer.get(str);
-        return new String(str);
+        return new String(str, StandardCharsets.UTF_8);
     }
 
     /**
@@ -141,7 +160,24 @@ public class BufferReader {
         int len = readInt();
         byte[] str = new byte[len];
         buffer.get(str);
-        return new String(str);
+        return new String(str, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Skips a number of bytes.
+     *
+     * @param bytes Number of bytes to skip.
+     */
+    public void skip(int bytes) {
+        if (bytes < 0 || bytes > buffer.remaining()) throw new BufferUnderflowException();
+        buffer.position(buffer.position() + bytes);
+    }
+
+    /**
+     * Skips a string without decoding it.
+     */
+    public void skipString() {
+        skip(readShort());
     }
 
     /**
@@ -160,7 +196,7 @@ public class BufferReader {
      * @return Returns a byte array that have been deserialized.
      */
     public byte[] readBytes(int bytes) {
-        byte[] out = new byte[readShort()];
+        byte[] out = new byte[bytes];
         buffer.get(out);
         return out;
     }
@@ -194,7 +230,7 @@ public class BufferReader {
      * @return String representation of buffer data in a byte array format.
      */
     public String printBufferArray() {
-        return Arrays.toString(buffer.array());
+        return Arrays.toString(copyOfRange(0, size()));
     }
 
     /**
@@ -203,7 +239,7 @@ public class BufferReader {
      * @return Returns the remaining bytes.
      */
     public byte[] giveRemainingArray() {
-        return Arrays.copyOfRange(buffer.array(), getIndex(), size());
+        return copyOfRange(getIndex(), size());
     }
 
     /**
@@ -232,10 +268,17 @@ public class BufferReader {
      */
     public void printError(Packet packet) {
         Util.print(PacketType.byClass(packet) + " : " + buffer.position() + "/" + buffer.capacity());
-        Util.print(Arrays.toString(buffer.array()));
+        Util.print(printBufferArray());
+    }
+
+    /**
+     * Copies bytes of the buffer, a sliced buffer starts at its offset in the backing array.
+     */
+    private byte[] copyOfRange(int from, int to) {
+        return Arrays.copyOfRange(buffer.array(), buffer.arrayOffset() + from, buffer.arrayOffset() + to);
     }
 
     public String toString() {
-        return Arrays.toString(buffer.array());
+        return printBufferArray();
     }
 }
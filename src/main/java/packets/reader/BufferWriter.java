@@ -0,0 +1,173 @@
+package packets.reader;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Custom buffer class to serialize the rotmg packets, the counterpart of {@link BufferReader}.
+ * The buffer grows as data is written.
+ */
+public class BufferWriter {
+    private ByteBuffer buffer;
+
+    public BufferWriter() {
+        this(64);
+    }
+
+    /**
+     * Writer with an initial capacity.
+     *
+     * @param capacity Number of bytes allocated up front.
+     */
+    public BufferWriter(int capacity) {
+        buffer = ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * Number of bytes written.
+     *
+     * @return size of the written data.
+     */
+    public int size() {
+        return buffer.position();
+    }
+
+    /**
+     * Drops the written data, the allocated capacity is kept.
+     */
+    public void reset() {
+        buffer.clear();
+    }
+
+    /**
+     * Copy of the written data.
+     *
+     * @return Returns the bytes written.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * Serialize a boolean.
+     *
+     * @param value Boolean to serialize.
+     */
+    public void writeBoolean(boolean value) {
+        ensure(1).put((byte) (value ? 1 : 0));
+    }
+
+    /**
+     * Serialize a byte, also used for unsigned bytes.
+     *
+     * @param value Byte in the lowest 8 bits.
+     */
+    public void writeByte(int value) {
+        ensure(1).put((byte) value);
+    }
+
+    /**
+     * Serialize a short, also used for unsigned shorts.
+     *
+     * @param value Short in the lowest 16 bits.
+     */
+    public void writeShort(int value) {
+        ensure(2).putShort((short) value);
+    }
+
+    /**
+     * Serialize an integer.
+     *
+     * @param value Integer to serialize.
+     */
+    public void writeInt(int value) {
+        ensure(4).putInt(value);
+    }
+
+    /**
+     * Serialize an unsigned integer.
+     *
+     * @param value Unsigned integer in the lowest 32 bits.
+     */
+    public void writeUnsignedInt(long value) {
+        ensure(4).putInt((int) value);
+    }
+
+    /**
+     * Serialize a float.
+     *
+     * @param value Float to serialize.
+     */
+    public void writeFloat(float value) {
+        ensure(4).putFloat(value);
+    }
+
+    /**
+     * Serialize a string with a short length, null is written as an empty string.
+     *
+     * @param value String to serialize.
+     */
+    public void writeString(String value) {
+        byte[] str = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        writeShort(str.length);
+        writeBytes(str);
+    }
+
+    /**
+     * Serialize a string with an integer length, null is written as an empty string.
+     *
+     * @param value String to serialize.
+     */
+    public void writeStringUTF32(String value) {
+        byte[] str = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        writeInt(str.length);
+        writeBytes(str);
+    }
+
+    /**
+     * Serialize a byte array without a length.
+     *
+     * @param bytes Bytes to serialize.
+     */
+    public void writeBytes(byte[] bytes) {
+        ensure(bytes.length).put(bytes);
+    }
+
+    /**
+     * Rotmg serializer of a compressed int. The first byte holds the sign and the lowest
+     * 6 bits, the following bytes 7 bits each.
+     *
+     * @param value Integer to serialize.
+     */
+    public void writeCompressedInt(int value) {
+        boolean isNegative = value < 0;
+        long abs = Math.abs((long) value);
+        int uByte = (int) (abs & 63);
+        if (isNegative) uByte |= 64;
+        abs >>>= 6;
+        while (abs != 0) {
+            writeByte(uByte | 128);
+            uByte = (int) (abs & 127);
+            abs >>>= 7;
+        }
+        writeByte(uByte);
+    }
+
+    /**
+     * Grows the buffer to hold a number of bytes more.
+     */
+    private ByteBuffer ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+        return buffer;
+    }
+
+    public String toString() {
+        return Arrays.toString(toByteArray());
+    }
+}
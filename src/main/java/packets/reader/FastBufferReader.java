@@ -0,0 +1,233 @@
+package packets.reader;
+
+import packets.Packet;
+import packets.PacketType;
+import util.Util;
+
+import java.nio.BufferUnderflowException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Buffer reader decoding straight from the array holding a packet. The bounds of the packet in
+ * the array are validated once when the reader is created, fields are then assembled by hand
+ * from the array and only checked against the end of the packet.
+ * <p>
+ * Compressed ints are decoded unrolled when their longest encoding fits in the packet and
+ * strings are decoded as UTF-8 from the array without copying the bytes first.
+ */
+public class FastBufferReader extends BufferReader {
+    private static final int MAX_COMPRESSED_BYTES = 5;
+    private final byte[] array;
+    private final int start;
+    private final int limit;
+    private int pos;
+
+    /**
+     * Reader over a packet in an array.
+     *
+     * @param array  Array holding the packet.
+     * @param offset Offset of the packet in the array.
+     * @param length Length of the packet.
+     * @param index  Index in the packet to start reading from.
+     */
+    public FastBufferReader(byte[] array, int offset, int length, int index) {
+        if (offset < 0 || length < 0 || offset > array.length - length || index < 0 || index > length) {
+            throw new IndexOutOfBoundsException("Packet " + offset + "+" + length + " index " + index + " outside array of " + array.length);
+        }
+        this.array = array;
+        start = offset;
+        limit = offset + length;
+        pos = offset + index;
+    }
+
+    @Override
+    public int size() {
+        return limit - start;
+    }
+
+    @Override
+    public int getIndex() {
+        return pos - start;
+    }
+
+    @Override
+    public int getRemainingBytes() {
+        return limit - pos;
+    }
+
+    @Override
+    public void require(long bytes) {
+        if (bytes > limit - pos) throw new BufferUnderflowException();
+    }
+
+    /**
+     * Moves past a number of bytes after checking they are in the packet.
+     *
+     * @return Position of the first byte.
+     */
+    private int advance(int bytes) {
+        int p = pos;
+        if (bytes > limit - p) throw new BufferUnderflowException();
+        pos = p + bytes;
+        return p;
+    }
+
+    @Override
+    public boolean readBoolean() {
+        return array[advance(1)] != 0;
+    }
+
+    @Override
+    public byte readByte() {
+        return array[advance(1)];
+    }
+
+    @Override
+    public int readUnsignedByte() {
+        return array[advance(1)] & 0xFF;
+    }
+
+    @Override
+    public short readShort() {
+        int p = advance(2);
+        return (short) (array[p] << 8 | array[p + 1] & 0xFF);
+    }
+
+    @Override
+    public int readUnsignedShort() {
+        int p = advance(2);
+        return (array[p] & 0xFF) << 8 | array[p + 1] & 0xFF;
+    }
+
+    @Override
+    public int readInt() {
+        int p = advance(4);
+        byte[] a = array;
+        return a[p] << 24 | (a[p + 1] & 0xFF) << 16 | (a[p + 2] & 0xFF) << 8 | a[p + 3] & 0xFF;
+    }
+
+    @Override
+    public long readUnsignedInt() {
+        return readInt() & 0xFFFFFFFFL;
+    }
+
+    @Override
+    public float readFloat() {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    @Override
+    public String readString() {
+        int len = length(readShort());
+        return new String(array, advance(len), len, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String readStringUTF32() {
+        int len = length(readInt());
+        return new String(array, advance(len), len, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void skip(int bytes) {
+        advance(length(bytes));
+    }
+
+    @Override
+    public void skipString() {
+        advance(length(readShort()));
+    }
+
+    @Override
+    public byte[] readByteArray() {
+        return readBytes(readShort());
+    }
+
+    @Override
+    public byte[] readBytes(int bytes) {
+        int p = advance(length(bytes));
+        return Arrays.copyOfRange(array, p, p + bytes);
+    }
+
+    private static int length(int len) {
+        if (len < 0) throw new NegativeArraySizeException(Integer.toString(len));
+        return len;
+    }
+
+    /**
+     * Rotmg deserializer of a compressed int. The first byte holds the sign and the lowest
+     * 6 bits, the following bytes 7 bits each while the top bit of the previous byte is set.
+     *
+     * @return Returns the int that have been deserialized.
+     */
+    @Override
+    public int readCompressedInt() {
+        int p = pos;
+        if (limit - p < MAX_COMPRESSED_BYTES) return readCompressedIntChecked();
+        byte[] a = array;
+        int first = a[p++];
+        int value = first & 63;
+        if (first < 0) {
+            int b = a[p++];
+            value |= (b & 127) << 6;
+            if (b < 0) {
+                b = a[p++];
+                value |= (b & 127) << 13;
+                if (b < 0) {
+                    b = a[p++];
+                    value |= (b & 127) << 20;
+                    if (b < 0) {
+                        b = a[p++];
+                        value |= (b & 127) << 27;
+                        if (b < 0) return readCompressedIntChecked(); // over long encoding
+                    }
+                }
+            }
+        }
+        pos = p;
+        return (first & 64) != 0 ? -value : value;
+    }
+
+    /**
+     * Compressed int decoded byte by byte near the end of the packet.
+     */
+    private int readCompressedIntChecked() {
+        int uByte = readUnsignedByte();
+        boolean isNegative = (uByte & 64) != 0;
+        int shift = 6;
+        int value = uByte & 63;
+
+        while ((uByte & 128) != 0) {
+            uByte = readUnsignedByte();
+            value |= (uByte & 127) << shift;
+            shift += 7;
+        }
+        return isNegative ? -value : value;
+    }
+
+    @Override
+    public String printBufferArray() {
+        return Arrays.toString(Arrays.copyOfRange(array, start, limit));
+    }
+
+    @Override
+    public byte[] giveRemainingArray() {
+        return Arrays.copyOfRange(array, pos, limit);
+    }
+
+    @Override
+    public boolean isBufferFullyParsed() {
+        return pos == limit;
+    }
+
+    @Override
+    public void printError(Packet packet) {
+        Util.print(PacketType.byClass(packet) + " : " + getIndex() + "/" + size());
+        Util.print(printBufferArray());
+    }
+
+    public String toString() {
+        return printBufferArray();
+    }
+}
@@ -0,0 +1,185 @@
+package bugfixingtools;
+
+import packets.Packet;
+import packets.PacketType;
+import packets.data.ObjectStatusData;
+import packets.data.StatData;
+import packets.data.enums.StatType;
+import packets.incoming.NewTickPacket;
+import packets.incoming.UpdatePacket;
+import packets.reader.BufferReader;
+import packets.reader.BufferWriter;
+import packets.reader.FastBufferReader;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deserialization throughput of the byte buffer reader against the fast array reader on
+ * UpdatePacket and NewTickPacket payloads. Recorded payloads can be given as files holding the
+ * decrypted packet including the header, as saved from {@link Packet#getPayload()}, otherwise
+ * payloads with a typical mix of tiles, objects and stats are generated. Both readers must
+ * decode every payload the same before anything is measured.
+ * <p>
+ * Measuring both readers in one run makes the calls in the packets polymorphic, start with the
+ * argument "buffer" or "fast" to measure a single reader in its own run.
+ */
+public class BufferReaderBenchmark {
+    private static final long TOTAL_BYTES = 512L * 1024 * 1024;
+    private static volatile long sink;
+
+    public static void main(String[] args) throws Exception {
+        String only = args.length > 0 && (args[0].equals("buffer") || args[0].equals("fast")) ? args[0] : null;
+        List<byte[]> frames = new ArrayList<>();
+        for (int i = only == null ? 0 : 1; i < args.length; i++) frames.add(Files.readAllBytes(Paths.get(args[i])));
+        if (frames.isEmpty()) {
+            Random random = new Random(1);
+            for (int i = 0; i < 16; i++) frames.add(update(random));
+            for (int i = 0; i < 64; i++) frames.add(newTick(random));
+        }
+        verify(frames);
+        for (PacketType type : new PacketType[]{PacketType.UPDATE, PacketType.NEWTICK}) {
+            List<byte[]> typed = new ArrayList<>();
+            for (byte[] frame : frames) if (frame[4] == type.getIndex()) typed.add(frame);
+            if (typed.isEmpty()) continue;
+            if (only == null || only.equals("buffer")) run(type + " byte buffer", typed, false);
+            if (only == null || only.equals("fast")) run(type + " fast array ", typed, true);
+        }
+    }
+
+    private static BufferReader reader(byte[] frame, boolean fast) {
+        if (fast) return new FastBufferReader(frame, 0, frame.length, 5);
+        ByteBuffer data = ByteBuffer.wrap(frame).slice();
+        data.position(5);
+        return new BufferReader(data);
+    }
+
+    private static Packet decode(byte[] frame, boolean fast) throws Exception {
+        Packet packet = PacketType.getPacket(frame[4]).factory();
+        BufferReader reader = reader(frame, fast);
+        packet.deserialize(reader);
+        if (!reader.isBufferFullyParsed()) throw new IllegalStateException("Payload not fully parsed " + PacketType.byOrdinal(frame[4]));
+        return packet;
+    }
+
+    /**
+     * Checks both readers decode the payloads to the same fields.
+     */
+    private static void verify(List<byte[]> frames) throws Exception {
+        for (byte[] frame : frames) {
+            if (checksum(decode(frame, false)) != checksum(decode(frame, true))) {
+                throw new IllegalStateException("Readers differ on " + PacketType.byOrdinal(frame[4]));
+            }
+        }
+    }
+
+    private static void run(String name, List<byte[]> frames, boolean fast) throws Exception {
+        long bytes = 0;
+        for (byte[] frame : frames) bytes += frame.length;
+        long rounds = Math.max(1, TOTAL_BYTES / bytes);
+        for (long r = 0; r < rounds; r++) for (byte[] frame : frames) sink += checksum(decode(frame, fast)); // warm up
+        long start = System.nanoTime();
+        for (long r = 0; r < rounds; r++) for (byte[] frame : frames) sink += checksum(decode(frame, fast));
+        long nanos = System.nanoTime() - start;
+        long packets = rounds * frames.size();
+        System.out.printf("%s: %8.1f MB/s %8.1f ns/packet%n", name, rounds * bytes * 1000.0 / nanos, (double) nanos / packets);
+    }
+
+    private static long checksum(Packet packet) {
+        long sum = 0;
+        if (packet instanceof UpdatePacket) {
+            UpdatePacket update = (UpdatePacket) packet;
+            sum += Float.floatToIntBits(update.pos.x) + update.levelType + update.tiles.length;
+            for (int i = 0; i < update.tiles.length; i++) sum = sum * 31 + update.tiles[i].type + update.tiles[i].x;
+            for (int i = 0; i < update.newObjects.length; i++) sum = sum * 31 + update.newObjects[i].objectType + checksum(update.newObjects[i].status);
+            for (int drop : update.drops) sum = sum * 31 + drop;
+        } else if (packet instanceof NewTickPacket) {
+            NewTickPacket tick = (NewTickPacket) packet;
+            sum += tick.tickId + tick.serverRealTimeMS;
+            for (ObjectStatusData status : tick.status) sum = sum * 31 + checksum(status);
+        }
+        return sum;
+    }
+
+    private static long checksum(ObjectStatusData status) {
+        long sum = status.objectId + Float.floatToIntBits(status.pos.y);
+        for (StatData stat : status.stats) {
+            sum = sum * 31 + stat.statTypeNum + stat.statValue + stat.statValueTwo;
+            if (stat.stringStatValue != null) sum += stat.stringStatValue.hashCode();
+        }
+        return sum;
+    }
+
+    private static byte[] update(Random random) {
+        BufferWriter w = new BufferWriter();
+        header(w, PacketType.UPDATE);
+        w.writeFloat(random.nextFloat() * 2048);
+        w.writeFloat(random.nextFloat() * 2048);
+        w.writeByte(0);
+        int tiles = random.nextInt(120);
+        w.writeCompressedInt(tiles);
+        for (int i = 0; i < tiles; i++) {
+            w.writeShort(random.nextInt(2048));
+            w.writeShort(random.nextInt(2048));
+            w.writeShort(random.nextInt(0xFFFF));
+        }
+        int objects = random.nextInt(12);
+        w.writeCompressedInt(objects);
+        for (int i = 0; i < objects; i++) {
+            w.writeShort(random.nextInt(0xFFFF));
+            status(w, random, 10 + random.nextInt(40));
+        }
+        int drops = random.nextInt(6);
+        w.writeCompressedInt(drops);
+        for (int i = 0; i < drops; i++) w.writeCompressedInt(random.nextInt(1 << 20));
+        return frame(w);
+    }
+
+    private static byte[] newTick(Random random) {
+        BufferWriter w = new BufferWriter();
+        header(w, PacketType.NEWTICK);
+        w.writeInt(random.nextInt(1 << 20));
+        w.writeInt(200);
+        w.writeUnsignedInt(System.currentTimeMillis() & 0xFFFFFFFFL);
+        w.writeShort(random.nextInt(300));
+        int statuses = random.nextInt(40);
+        w.writeShort(statuses);
+        for (int i = 0; i < statuses; i++) status(w, random, random.nextInt(6));
+        return frame(w);
+    }
+
+    private static void status(BufferWriter w, Random random, int stats) {
+        w.writeCompressedInt(random.nextInt(1 << 16));
+        w.writeFloat(random.nextFloat() * 2048);
+        w.writeFloat(random.nextFloat() * 2048);
+        w.writeCompressedInt(stats);
+        for (int i = 0; i < stats; i++) {
+            if (random.nextInt(10) == 0) {
+                w.writeByte(StatType.NAME_STAT.get());
+                w.writeString("Player" + random.nextInt(1000));
+            } else {
+                w.writeByte(random.nextBoolean() ? StatType.HP_STAT.get() : StatType.MAX_HP_STAT.get());
+                w.writeCompressedInt(random.nextInt(1 << (1 + random.nextInt(20))));
+            }
+            w.writeCompressedInt(random.nextInt(4) == 0 ? random.nextInt(1000) : -1);
+        }
+    }
+
+    private static void header(BufferWriter w, PacketType type) {
+        w.writeInt(0);
+        w.writeByte(type.getIndex());
+    }
+
+    /**
+     * Written bytes with the size filled into the header.
+     */
+    private static byte[] frame(BufferWriter w) {
+        byte[] frame = w.toByteArray();
+        ByteBuffer.wrap(frame).putInt(0, frame.length);
+        return frame;
+    }
+}
@@ -0,0 +1,20 @@
+package bugfixingtools;
+
+import packets.packetcapture.encryption.KeystreamIndex;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Writes the precomputed key stream file used to align the ciphers, instead of waiting for
+ * the sniffer to write it on first start.
+ */
+public class KeystreamIndexWriter {
+    public static void main(String[] args) throws Exception {
+        Path file = Paths.get(args.length > 0 ? args[0] : KeystreamIndex.FILE_NAME);
+        long start = System.nanoTime();
+        KeystreamIndex.write(file);
+        System.out.printf("Wrote %s in %.1f s%n", file.toAbsolutePath(), (System.nanoTime() - start) / 1e9);
+        if (KeystreamIndex.open(file) == null) throw new IllegalStateException("File doesn't match the keys");
+    }
+}
@@ -12,6 +12,7 @@ import packets.packetcapture.PacketProcessor;
 import packets.packetcapture.register.Register;
 
 import java.awt.*;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
@@ -23,6 +24,10 @@ public class PacketRead {
     public static void main(String[] args) {
         Register.INSTANCE.registerAll(PacketRead::readAll);
         PacketProcessor packetProcessor = new PacketProcessor();
+        if (args.length > 0) { // replay a pcap or pcapng file, add "realtime" to pace by the capture timestamps
+            packetProcessor.tapCaptureFile(Paths.get(args[0]), args.length > 1 && args[1].equals("realtime"));
+            return;
+        }
         packetProcessor.start();
     }
 
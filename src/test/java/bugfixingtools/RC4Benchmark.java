@@ -0,0 +1,115 @@
+package bugfixingtools;
+
+import packets.packetcapture.encryption.RC4;
+import packets.packetcapture.encryption.RotMGRC4Keys;
+import util.Util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Throughput comparison of the RC4 cipher against the previous synchronized int state cipher,
+ * decrypting 1 KB and 64 KB frames. Each case is warmed up before it is measured.
+ */
+public class RC4Benchmark {
+    private static final int[] FRAME_SIZES = {1024, 64 * 1024};
+    private static final long TOTAL_BYTES = 256L * 1024 * 1024;
+    private static volatile int sink;
+
+    public static void main(String[] args) {
+        verify();
+        for (int size : FRAME_SIZES) {
+            byte[] frame = new byte[size];
+            new Random(size).nextBytes(frame);
+            ByteBuffer direct = ByteBuffer.allocateDirect(size);
+            direct.put(frame).clear();
+
+            LegacyRC4 legacy = new LegacyRC4(Util.hexStringToByteArray(RotMGRC4Keys.INCOMING_STRING));
+            RC4 rc4 = new RC4(RotMGRC4Keys.INCOMING_STRING);
+
+            run("legacy  heap   " + size, size, () -> legacy.decrypt(frame));
+            run("rc4     heap   " + size, size, () -> rc4.decrypt(frame));
+            run("rc4     direct " + size, size, () -> rc4.decrypt(direct));
+            run("legacy  skip   " + size, size, () -> legacy.skip(size));
+            run("rc4     skip   " + size, size, () -> rc4.skip(size));
+            sink += frame[0] + direct.get(0);
+        }
+    }
+
+    /**
+     * Checks both ciphers produce the same key stream before measuring anything.
+     */
+    private static void verify() {
+        LegacyRC4 legacy = new LegacyRC4(Util.hexStringToByteArray(RotMGRC4Keys.OUTGOING_STRING));
+        RC4 rc4 = new RC4(RotMGRC4Keys.OUTGOING_STRING);
+        byte[] a = new byte[100000];
+        new Random(1).nextBytes(a);
+        byte[] b = a.clone();
+        ByteBuffer c = ByteBuffer.allocateDirect(a.length);
+        c.put(a).clear();
+        RC4 direct = rc4.fork();
+        legacy.decrypt(a);
+        rc4.decrypt(b);
+        direct.decrypt(c);
+        byte[] d = new byte[a.length];
+        c.get(d);
+        if (!Arrays.equals(a, b) || !Arrays.equals(a, d)) throw new IllegalStateException("Key streams differ");
+    }
+
+    private static void run(String name, int frameSize, Runnable frame) {
+        long frames = TOTAL_BYTES / frameSize;
+        for (long k = 0; k < frames; k++) frame.run(); // warm up
+        long start = System.nanoTime();
+        for (long k = 0; k < frames; k++) frame.run();
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%s: %8.1f MB/s %8.1f ns/frame%n", name, TOTAL_BYTES * 1000.0 / nanos, (double) nanos / frames);
+    }
+
+    /**
+     * The cipher as it was before the byte state rewrite, kept as the baseline.
+     */
+    private static class LegacyRC4 {
+        int[] state = new int[256];
+        int i;
+        int j;
+
+        LegacyRC4(byte[] key) {
+            for (int i = 0; i < 256; i++) {
+                state[i] = i;
+            }
+            int j = 0;
+            for (int i = 0; i < 256; i++) {
+                j = (j + state[i] + Byte.toUnsignedInt(key[i % key.length])) % 256;
+                int tmp = state[i];
+                state[i] = state[j];
+                state[j] = tmp;
+            }
+        }
+
+        synchronized byte getXor() {
+            i = (i + 1) % 256;
+            j = (j + state[i]) % 256;
+            int tmp = state[i];
+            state[i] = state[j];
+            state[j] = tmp;
+            return (byte) state[(state[i] + state[j]) % 256];
+        }
+
+        void skip(int amount) {
+            for (int k = 0; k < amount; k++) {
+                i = (i + 1) % 256;
+                j = (j + state[i]) % 256;
+                int tmp = state[i];
+                state[i] = state[j];
+                state[j] = tmp;
+            }
+        }
+
+        void decrypt(byte[] array) {
+            for (int b = 0; b < array.length; b++) {
+                array[b] = (byte) (array[b] ^ getXor());
+            }
+        }
+    }
+}